@@ -16,8 +16,10 @@
  */
 package com.jpexs.decompiler.flash;
 
+import com.jpexs.helpers.StreamSearch;
 import com.jpexs.helpers.SwfHeaderStreamSearch;
 import com.jpexs.helpers.streams.SeekableInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
@@ -40,6 +42,11 @@ public class BinarySWFBundle implements Bundle {
         search.process();
     }
 
+    public BinarySWFBundle(File file, boolean noCheck, SearchMode searchMode) {
+        search = new SWFSearch(new StreamSearch(file), noCheck, searchMode);
+        search.process();
+    }
+
     @Override
     public int length() {
         return search.length();
@@ -64,7 +71,7 @@ public class BinarySWFBundle implements Bundle {
         }
         key = key.substring(1, key.length() - 1);
         try {
-            int address = Integer.parseInt(key);
+            long address = Long.parseLong(key);
             return search.get(null, address);
         } catch (IOException | NumberFormatException iex) {
             return null;
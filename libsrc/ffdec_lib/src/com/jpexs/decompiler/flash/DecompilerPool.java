@@ -27,9 +27,11 @@ import com.jpexs.decompiler.flash.configuration.Configuration;
 import com.jpexs.decompiler.flash.exporters.modes.ScriptExportMode;
 import com.jpexs.decompiler.flash.helpers.HighlightedText;
 import com.jpexs.decompiler.flash.helpers.HighlightedTextWriter;
+import com.jpexs.decompiler.flash.search.ScriptSearchIndex;
 import com.jpexs.decompiler.flash.tags.base.ASMSource;
 import com.jpexs.decompiler.flash.treeitems.Openable;
 import com.jpexs.helpers.ImmediateFuture;
+import com.jpexs.helpers.SharedExecutor;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -37,9 +39,6 @@ import java.util.WeakHashMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -49,15 +48,9 @@ import java.util.logging.Logger;
  */
 public class DecompilerPool {
 
-    private final ThreadPoolExecutor executor;
-
     private Map<Openable, List<Future<HighlightedText>>> openableToFutures = new WeakHashMap<>();
 
     public DecompilerPool() {
-        int threadCount = Configuration.getParallelThreadCount();
-        executor = new ThreadPoolExecutor(threadCount, threadCount,
-                0L, TimeUnit.MILLISECONDS,
-                new LinkedBlockingQueue<>());
     }
 
     public Future<HighlightedText> submitTask(ASMSource src, ActionList actions, ScriptDecompiledListener<HighlightedText> listener) {
@@ -77,6 +70,10 @@ public class DecompilerPool {
                 SWF swf = src.getSwf();
                 if (swf != null) {
                     swf.as2Cache.put(src, result);
+                    ScriptSearchIndex index = swf.getScriptSearchIndex();
+                    if (index != null) {
+                        index.add(ScriptSearchIndex.getKey(src, false), result.text);
+                    }
                 }
 
                 if (listener != null) {
@@ -87,7 +84,7 @@ public class DecompilerPool {
             }
         };
 
-        return submit(callable);
+        return submit(src.getSwf(), callable);
     }
 
     public Future<HighlightedText> submitTask(AbcIndexing abcIndex, ScriptPack pack, ScriptDecompiledListener<HighlightedText> listener) {
@@ -112,6 +109,10 @@ public class DecompilerPool {
                 SWF swf = (openable instanceof SWF) ? (SWF) openable : ((ABC)openable).getSwf();
                 if (swf != null) {
                     swf.as3Cache.put(pack, result);
+                    ScriptSearchIndex index = swf.getScriptSearchIndex();
+                    if (index != null) {
+                        index.add(ScriptSearchIndex.getKey(pack), result.text);
+                    }
                 }
 
                 if (listener != null) {
@@ -122,13 +123,13 @@ public class DecompilerPool {
             }
         };
 
-        return submit(callable);
+        return submit(pack.getOpenable(), callable);
     }
 
-    private Future<HighlightedText> submit(Callable<HighlightedText> callable) {
+    private Future<HighlightedText> submit(Openable openable, Callable<HighlightedText> callable) {
         boolean parallel = Configuration.parallelSpeedUp.get();
         if (parallel) {
-            Future<HighlightedText> f = executor.submit(callable);
+            Future<HighlightedText> f = SharedExecutor.submit(openable, callable);
             return f;
         } else {
             boolean cancelled = false;
@@ -147,13 +148,7 @@ public class DecompilerPool {
     }
 
     public String getStat() {
-        return "core: " + executor.getCorePoolSize()
-                + " size: " + executor.getPoolSize()
-                + " largest: " + executor.getLargestPoolSize()
-                + " max: " + executor.getMaximumPoolSize()
-                + " active: " + executor.getActiveCount()
-                + " count: " + executor.getTaskCount()
-                + " completed: " + executor.getCompletedTaskCount();
+        return SharedExecutor.getStat();
     }
 
     public HighlightedText decompile(ASMSource src, ActionList actions) throws InterruptedException {
@@ -205,12 +200,6 @@ public class DecompilerPool {
         return null;
     }
 
-    public void shutdown() throws InterruptedException {
-        executor.shutdown();
-        if (!executor.awaitTermination(100, TimeUnit.SECONDS)) {
-        }
-    }
-    
     public void destroySwf(SWF swf){
         List<Future<HighlightedText>> futures = openableToFutures.get(swf);
         if(futures!=null){
@@ -218,5 +207,6 @@ public class DecompilerPool {
                future.cancel(true);
            }
         }
+        SharedExecutor.cancel(swf);
     }
 }
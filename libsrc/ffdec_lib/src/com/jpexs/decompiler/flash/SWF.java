@@ -34,6 +34,7 @@ import com.jpexs.decompiler.flash.abc.avm2.model.NewObjectAVM2Item;
 import com.jpexs.decompiler.flash.abc.avm2.model.SetPropertyAVM2Item;
 import com.jpexs.decompiler.flash.abc.avm2.model.StringAVM2Item;
 import com.jpexs.decompiler.flash.abc.avm2.parser.script.AbcIndexing;
+import com.jpexs.decompiler.flash.abc.avm2.parser.script.AbcIndexingSnapshot;
 import com.jpexs.decompiler.flash.abc.types.ConvertData;
 import com.jpexs.decompiler.flash.abc.types.MethodBody;
 import com.jpexs.decompiler.flash.abc.types.Multiname;
@@ -92,6 +93,7 @@ import com.jpexs.decompiler.flash.helpers.NulWriter;
 import com.jpexs.decompiler.flash.helpers.SWFDecompilerPlugin;
 import com.jpexs.decompiler.flash.helpers.collections.MyEntry;
 import com.jpexs.decompiler.flash.helpers.hilight.Highlighting;
+import com.jpexs.decompiler.flash.search.ScriptSearchIndex;
 import com.jpexs.decompiler.flash.tags.ABCContainerTag;
 import com.jpexs.decompiler.flash.tags.DebugIDTag;
 import com.jpexs.decompiler.flash.tags.DefineBinaryDataTag;
@@ -115,6 +117,7 @@ import com.jpexs.decompiler.flash.tags.ShowFrameTag;
 import com.jpexs.decompiler.flash.tags.SymbolClassTag;
 import com.jpexs.decompiler.flash.tags.Tag;
 import com.jpexs.decompiler.flash.tags.TagStub;
+import com.jpexs.decompiler.flash.tags.TagTypeInfo;
 import com.jpexs.decompiler.flash.tags.VideoFrameTag;
 import com.jpexs.decompiler.flash.tags.base.ASMSource;
 import com.jpexs.decompiler.flash.tags.base.ASMSourceContainer;
@@ -129,8 +132,10 @@ import com.jpexs.decompiler.flash.tags.base.ImageTag;
 import com.jpexs.decompiler.flash.tags.base.ImportTag;
 import com.jpexs.decompiler.flash.tags.base.MorphShapeTag;
 import com.jpexs.decompiler.flash.tags.base.PlaceObjectTypeTag;
+import com.jpexs.decompiler.flash.tags.base.RasterCacheKey;
 import com.jpexs.decompiler.flash.tags.base.RemoveTag;
 import com.jpexs.decompiler.flash.tags.base.RenderContext;
+import com.jpexs.decompiler.flash.tags.base.RenderSession;
 import com.jpexs.decompiler.flash.tags.base.ShapeTag;
 import com.jpexs.decompiler.flash.tags.base.SoundTag;
 import com.jpexs.decompiler.flash.tags.base.TextTag;
@@ -153,6 +158,7 @@ import com.jpexs.decompiler.flash.types.SHAPE;
 import com.jpexs.decompiler.flash.types.SOUNDINFO;
 import com.jpexs.decompiler.flash.types.annotations.Internal;
 import com.jpexs.decompiler.flash.types.annotations.SWFField;
+import com.jpexs.decompiler.flash.types.filters.FILTER;
 import com.jpexs.decompiler.flash.types.sound.SoundInfoSoundCacheEntry;
 import com.jpexs.decompiler.flash.xfl.FLAVersion;
 import com.jpexs.decompiler.flash.xfl.XFLConverter;
@@ -170,10 +176,13 @@ import com.jpexs.helpers.ByteArrayRange;
 import com.jpexs.helpers.Cache;
 import com.jpexs.helpers.Helper;
 import com.jpexs.helpers.ImmediateFuture;
+import com.jpexs.helpers.MappedFileInputStream;
 import com.jpexs.helpers.NulStream;
+import com.jpexs.helpers.PresizedByteArrayOutputStream;
 import com.jpexs.helpers.ProgressListener;
 import com.jpexs.helpers.Reference;
 import com.jpexs.helpers.SerializableImage;
+import com.jpexs.helpers.SharedExecutor;
 import com.jpexs.helpers.utf8.Utf8Helper;
 import java.awt.AlphaComposite;
 import java.awt.Color;
@@ -181,6 +190,8 @@ import java.awt.Graphics2D;
 import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.geom.AffineTransform;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
@@ -189,6 +200,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.SequenceInputStream;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -206,6 +218,7 @@ import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -283,12 +296,25 @@ public final class SWF implements SWFContainerItem, Timelined, Openable {
      */
     public byte[] lzmaProperties;
 
+    /**
+     * Uncompressed SWF data. Tags refer to their data by ranges of this array.
+     * It is null for SWF read from mapped file, its tags refer to their own
+     * chunks of the data.
+     */
     @Internal
     public byte[] uncompressedData;
 
     @Internal
     public byte[] originalUncompressedData;
 
+    @Internal
+    private byte[] contentHash;
+
+    @Internal
+    private ScriptSearchIndex scriptSearchIndex;
+
+    private final Object scriptSearchIndexLock = new Object();
+
     /**
      * ScaleForm GFx
      */
@@ -331,6 +357,14 @@ public final class SWF implements SWFContainerItem, Timelined, Openable {
 
     private static final Logger logger = Logger.getLogger(SWF.class.getName());
 
+    /**
+     * Maximum size of tag data chunk read at once from mapped SWF. Tags larger
+     * than this have their own chunk.
+     */
+    private static final int MAPPED_CHUNK_SIZE = 64 * 1024 * 1024;
+
+    private static final int MAX_TAG_LENGTH = Integer.MAX_VALUE - 8;
+
     @Internal
     private boolean isModified;
 
@@ -338,7 +372,7 @@ public final class SWF implements SWFContainerItem, Timelined, Openable {
     private Timeline timeline;
 
     @Internal
-    public DumpInfoSwfNode dumpInfo;
+    private DumpInfoSwfNode dumpInfo;
 
     @Internal
     public DefineBinaryDataTag binaryData;
@@ -350,16 +384,19 @@ public final class SWF implements SWFContainerItem, Timelined, Openable {
     private final IdentifiersDeobfuscation deobfuscation = new IdentifiersDeobfuscation();
 
     @Internal
-    private final Cache<String, SerializableImage> frameCache = Cache.getInstance(false, false, "frame", true);
+    private final Cache<String, SerializableImage> frameCache = Cache.getInstance(false, false, "frame", true, Configuration.maxFrameCacheSize);
 
     @Internal
     private final Cache<CharacterTag, RECT> rectCache = Cache.getInstance(true, true, "rect", true);
 
     @Internal
-    private final Cache<SHAPE, ShapeExportData> shapeExportDataCache = Cache.getInstance(true, true, "shapeExportData", true);
+    private final Cache<SHAPE, ShapeExportData> shapeExportDataCache = Cache.getInstance(true, true, "shapeExportData", true, Configuration.maxShapeExportDataCacheSize);
 
     @Internal
-    private final Cache<SoundInfoSoundCacheEntry, byte[]> soundCache = Cache.getInstance(false, false, "sound", true);
+    private final Cache<RasterCacheKey, SerializableImage> rasterCache = Cache.getInstance(false, true, "raster", true, Configuration.maxRasterCacheSize);
+
+    @Internal
+    private final Cache<SoundInfoSoundCacheEntry, byte[]> soundCache = Cache.getInstance(false, false, "sound", true, Configuration.maxSoundCacheSize);
 
     @Internal
     public final AS2Cache as2Cache = new AS2Cache();
@@ -450,16 +487,12 @@ public final class SWF implements SWFContainerItem, Timelined, Openable {
             }*/
 
             if (Configuration.getPlayerSWC() != null) {
-                SWC swc = new SWC(new FileInputStream(Configuration.getPlayerSWC()));
-                SWF swf = new SWF(swc.getOpenable("library.swf"), true);
-                playerGlobalAbcIndex = new AbcIndexing(swf);
+                playerGlobalAbcIndex = AbcIndexingSnapshot.load(Configuration.getPlayerSWC());
             }
         }
         if (airGlobalAbcIndex == null) {
             if (Configuration.getAirSWC() != null) {
-                SWC swc = new SWC(new FileInputStream(Configuration.getAirSWC()));
-                SWF swf = new SWF(swc.getOpenable("library.swf"), true);
-                airGlobalAbcIndex = new AbcIndexing(swf);
+                airGlobalAbcIndex = AbcIndexingSnapshot.load(Configuration.getAirSWC());
             }
         }
     }
@@ -558,6 +591,50 @@ public final class SWF implements SWFContainerItem, Timelined, Openable {
         di.getChildInfos().clear();
     }
 
+    /**
+     * Gets dump info tree of the SWF. The tree is not collected during normal
+     * reading, it is built on first call from the original data. Tags are
+     * only read as stubs and their fields are resolved when the tag node is
+     * expanded.
+     *
+     * @return Dump info root node
+     */
+    public synchronized DumpInfoSwfNode getDumpInfo() {
+        if (dumpInfo != null) {
+            return dumpInfo;
+        }
+
+        DumpInfoSwfNode di = new DumpInfoSwfNode(this, "rootswf", "", null, 0, 0);
+        if (originalUncompressedData != null) {
+            try {
+                SWFInputStream sis = new SWFInputStream(this, originalUncompressedData);
+                sis.dumpInfo = di;
+                sis.skipBytesEx(3, "signature");
+                sis.readUI8("version");
+                di.lengthBytes = sis.readUI32("fileSize");
+                sis.readRECT("displayRect");
+                sis.readFIXED8("frameRate");
+                sis.readUI16("frameCount");
+                sis.readTagList(this, 0, false, true, false, false);
+            } catch (IOException ex) {
+                logger.log(Level.SEVERE, "Cannot read dump info", ex);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+
+            Map<Integer, TagTypeInfo> knownTags = Tag.getKnownClasses();
+            for (DumpInfo tagInfo : di.getChildInfos()) {
+                if (tagInfo.tagToResolve != null) {
+                    TagTypeInfo tagTypeInfo = knownTags.get(tagInfo.tagToResolve.getId());
+                    tagInfo.name = tagTypeInfo == null ? "Unknown" : tagTypeInfo.getName();
+                }
+            }
+        }
+
+        dumpInfo = di;
+        return dumpInfo;
+    }
+
     public Map<Integer, CharacterTag> getCharacters() {
         if (characters == null) {
             synchronized (this) {
@@ -1050,15 +1127,108 @@ public final class SWF implements SWFContainerItem, Timelined, Openable {
      */
     @Override
     public void saveTo(OutputStream os) throws IOException {
-        checkCharset();
-        byte[] uncompressedData = saveToByteArray();
-        compress(new ByteArrayInputStream(uncompressedData), os, compression, lzmaProperties);
+        saveTo(os, gfx);
     }
 
     public void saveTo(OutputStream os, boolean gfx) throws IOException {
         checkCharset();
-        byte[] uncompressedData = saveToByteArray(gfx);
-        compress(new ByteArrayInputStream(uncompressedData), os, compression, lzmaProperties);
+        List<ByteArrayRange> parts = serialize(gfx);
+        long fileSize = getLength(parts);
+        SWFOutputStream sos = new SWFOutputStream(os, version, Utf8Helper.charsetName);
+        sos.write(getHeaderBytes(compression, gfx));
+        sos.writeUI8(version);
+        sos.writeUI32(fileSize);
+        if (compression == SWFCompression.LZMA || compression == SWFCompression.LZMA_ABC) {
+            List<InputStream> streams = new ArrayList<>();
+            for (ByteArrayRange part : parts) {
+                streams.add(new ByteArrayInputStream(part.getArray(), part.getPos(), part.getLength()));
+            }
+            compressBody(new SequenceInputStream(Collections.enumeration(streams)), os, compression, lzmaProperties, fileSize);
+        } else if (compression == SWFCompression.ZLIB) {
+            DeflaterOutputStream dos = new DeflaterOutputStream(os);
+            try {
+                writeParts(parts, dos);
+            } finally {
+                dos.finish();
+            }
+        } else {
+            writeParts(parts, os);
+        }
+    }
+
+    private static long getLength(List<ByteArrayRange> parts) {
+        long length = 8;
+        for (ByteArrayRange part : parts) {
+            length += part.getLength();
+        }
+        return length;
+    }
+
+    private static void writeParts(List<ByteArrayRange> parts, OutputStream os) throws IOException {
+        for (ByteArrayRange part : parts) {
+            os.write(part.getArray(), part.getPos(), part.getLength());
+        }
+    }
+
+    /**
+     * Serializes the SWF after the first 8 header bytes (signature, version
+     * and file length). Unmodified tags are returned as their original ranges,
+     * modified tags are serialized in parallel when parallel speedup is
+     * enabled.
+     *
+     * @param gfx GFX
+     * @return Parts of the uncompressed SWF
+     * @throws IOException On error
+     */
+    private List<ByteArrayRange> serialize(boolean gfx) throws IOException {
+        List<ByteArrayRange> parts = new ArrayList<>();
+        try ( ByteArrayOutputStream baos = new ByteArrayOutputStream();  SWFOutputStream sos = new SWFOutputStream(baos, version, charset)) {
+            sos.writeRECT(displayRect);
+            sos.writeFIXED8(frameRate);
+            sos.writeUI16(frameCount);
+            parts.add(new ByteArrayRange(baos.toByteArray()));
+        }
+
+        ReadOnlyTagList tags = getLocalTags();
+        List<Future<ByteArrayRange>> futures = new ArrayList<>();
+        boolean parallel = Configuration.parallelSpeedUp.get();
+        for (Tag tag : tags) {
+            if (parallel && (Configuration._debugCopy.get() || tag.isModified())) {
+                futures.add(SharedExecutor.submit(this, tag::getTagData));
+            } else {
+                futures.add(null);
+            }
+        }
+
+        try {
+            int i = 0;
+            for (Tag tag : tags) {
+                Future<ByteArrayRange> future = futures.get(i++);
+                parts.add(future == null ? tag.getTagData() : future.get());
+            }
+        } catch (InterruptedException ex) {
+            for (Future<ByteArrayRange> future : futures) {
+                if (future != null) {
+                    future.cancel(true);
+                }
+            }
+            Thread.currentThread().interrupt();
+            throw new IOException("Saving was interrupted", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+
+        if (hasEndTag) {
+            parts.add(new ByteArrayRange(new byte[]{0, 0}));
+        }
+        return parts;
     }
 
     public byte[] getHeaderBytes() {
@@ -1104,28 +1274,22 @@ public final class SWF implements SWFContainerItem, Timelined, Openable {
     }
 
     private byte[] saveToByteArray(boolean gfx) throws IOException {
-        byte[] data;
-        try ( ByteArrayOutputStream baos = new ByteArrayOutputStream();  SWFOutputStream sos = new SWFOutputStream(baos, version, charset)) {
-            sos.write(getHeaderBytes(SWFCompression.NONE, gfx));
-            sos.writeUI8(version);
-            sos.writeUI32(0); // placeholder for file length
-            sos.writeRECT(displayRect);
-            sos.writeFIXED8(frameRate);
-            sos.writeUI16(frameCount);
-
-            sos.writeTags(getLocalTags());
-            if (hasEndTag) {
-                sos.writeUI16(0);
-            }
-
-            data = baos.toByteArray();
-        }
-
-        // update file size
-        try ( ByteArrayOutputStream baos = new ByteArrayOutputStream();  SWFOutputStream sos = new SWFOutputStream(baos, version, charset)) {
-            sos.writeUI32(data.length);
-            byte[] lengthData = baos.toByteArray();
-            System.arraycopy(lengthData, 0, data, 4, lengthData.length);
+        List<ByteArrayRange> parts = serialize(gfx);
+        long fileSize = getLength(parts);
+        if (fileSize > Integer.MAX_VALUE - 8) {
+            throw new IOException("SWF is too large");
+        }
+        byte[] data = new byte[(int) fileSize];
+        System.arraycopy(getHeaderBytes(SWFCompression.NONE, gfx), 0, data, 0, 3);
+        data[3] = (byte) version;
+        data[4] = (byte) (fileSize & 0xFF);
+        data[5] = (byte) ((fileSize >> 8) & 0xFF);
+        data[6] = (byte) ((fileSize >> 16) & 0xFF);
+        data[7] = (byte) ((fileSize >> 24) & 0xFF);
+        int pos = 8;
+        for (ByteArrayRange part : parts) {
+            System.arraycopy(part.getArray(), part.getPos(), data, pos, part.getLength());
+            pos += part.getLength();
         }
 
         return data;
@@ -1173,6 +1337,20 @@ public final class SWF implements SWFContainerItem, Timelined, Openable {
         sos.writeUI8(version);
         sos.writeUI32(fileSize);
 
+        compressBody(is, os, compression, lzmaProperties, fileSize);
+    }
+
+    /**
+     * Compresses SWF data which follow the 8 byte header
+     *
+     * @param is InputStream of the uncompressed data after the header
+     * @param os OutputStream to save SWF in
+     * @param compression
+     * @param lzmaProperties
+     * @param fileSize Uncompressed file size
+     * @throws IOException
+     */
+    private static void compressBody(InputStream is, OutputStream os, SWFCompression compression, byte[] lzmaProperties, long fileSize) throws IOException {
         if (compression == SWFCompression.LZMA || compression == SWFCompression.LZMA_ABC) {
             long uncompressedLength = fileSize - 8;
             Encoder enc = new Encoder();
@@ -1195,20 +1373,10 @@ public final class SWF implements SWFContainerItem, Timelined, Openable {
             }
             enc.SetDictionarySize(dictionarySize);
             enc.SetLcLpPb(lc, lp, pb);
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
             enc.SetEndMarkerMode(true);
-            enc.Code(is, baos, -1, -1, null);
-            byte[] data = baos.toByteArray();
-            if (compression == SWFCompression.LZMA) {
-                byte[] udata = new byte[4];
-                udata[0] = (byte) (data.length & 0xFF);
-                udata[1] = (byte) ((data.length >> 8) & 0xFF);
-                udata[2] = (byte) ((data.length >> 16) & 0xFF);
-                udata[3] = (byte) ((data.length >> 24) & 0xFF);
-                os.write(udata);
-            }
-            enc.WriteCoderProperties(os);
             if (compression == SWFCompression.LZMA_ABC) {
+                // no compressed length in the header, the encoder can write directly
+                enc.WriteCoderProperties(os);
                 byte[] udata = new byte[8];
                 udata[0] = (byte) (uncompressedLength & 0xFF);
                 udata[1] = (byte) ((uncompressedLength >> 8) & 0xFF);
@@ -1219,8 +1387,22 @@ public final class SWF implements SWFContainerItem, Timelined, Openable {
                 udata[6] = (byte) ((uncompressedLength >> 48) & 0xFF);
                 udata[7] = (byte) ((uncompressedLength >> 56) & 0xFF);
                 os.write(udata);
+                enc.Code(is, os, -1, -1, null);
+                return;
             }
-            os.write(data);
+
+            // compressed length precedes the data, so only the compressed data are buffered
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            enc.Code(is, baos, -1, -1, null);
+            int length = baos.size();
+            byte[] udata = new byte[4];
+            udata[0] = (byte) (length & 0xFF);
+            udata[1] = (byte) ((length >> 8) & 0xFF);
+            udata[2] = (byte) ((length >> 16) & 0xFF);
+            udata[3] = (byte) ((length >> 24) & 0xFF);
+            os.write(udata);
+            enc.WriteCoderProperties(os);
+            baos.writeTo(os);
         } else if (compression == SWFCompression.ZLIB) {
             DeflaterOutputStream dos = new DeflaterOutputStream(os);
             try {
@@ -1273,6 +1455,14 @@ public final class SWF implements SWFContainerItem, Timelined, Openable {
         } catch (IOException ex) {
             logger.log(Level.SEVERE, "Cannot save SWF", ex);
         }
+
+        synchronized (scriptSearchIndexLock) {
+            if (scriptSearchIndex != null) {
+                scriptSearchIndex.save();
+            }
+            contentHash = null;
+            scriptSearchIndex = null;
+        }
     }
 
     /**
@@ -1281,7 +1471,6 @@ public final class SWF implements SWFContainerItem, Timelined, Openable {
     public SWF() {
         version = SWF.DEFAULT_VERSION;
         displayRect = new RECT(0, 1, 0, 1);
-        dumpInfo = new DumpInfoSwfNode(this, "rootswf", "", null, 0, 0);
     }
 
     public SWF(String charset) {
@@ -1416,17 +1605,15 @@ public final class SWF implements SWFContainerItem, Timelined, Openable {
         this.file = file;
         this.fileTitle = fileTitle;
         this.charset = charset;
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        PresizedByteArrayOutputStream baos = new PresizedByteArrayOutputStream();
         SWFHeader header = decompress(is, baos, true);
         gfx = header.gfx;
         compression = header.compression;
         lzmaProperties = header.lzmaProperties;
-        uncompressedData = baos.toByteArray();
+        uncompressedData = baos.getBytes();
         originalUncompressedData = uncompressedData;
 
         SWFInputStream sis = new SWFInputStream(this, uncompressedData);
-        dumpInfo = new DumpInfoSwfNode(this, "rootswf", "", null, 0, 0);
-        sis.dumpInfo = dumpInfo;
         sis.skipBytesEx(3, "signature"); // skip siganture
         version = sis.readUI8("version");
 
@@ -1435,7 +1622,6 @@ public final class SWF implements SWFContainerItem, Timelined, Openable {
         }
 
         fileSize = sis.readUI32("fileSize");
-        dumpInfo.lengthBytes = fileSize;
         if (listener != null) {
             sis.addPercentListener(listener);
         }
@@ -1444,6 +1630,179 @@ public final class SWF implements SWFContainerItem, Timelined, Openable {
         frameRate = sis.readFIXED8("frameRate");
         frameCount = sis.readUI16("frameCount");
         List<Tag> tags = sis.readTagList(this, 0, parallelRead, true, !checkOnly, lazy);
+        initTags(tags, checkOnly, resolver);
+    }
+
+    /**
+     * Construct SWF from file without reading the whole uncompressed data to
+     * one array.
+     *
+     * Compressed file is decompressed to a temporary file first, uncompressed
+     * file is used directly. The uncompressed data is memory mapped and tags
+     * are read in chunks of at most 64MB, so the SWF can be
+     * larger than 2GB. Dump info and script search index are not available
+     * for SWF read this way and file offsets of actions are relative to the
+     * chunk.
+     *
+     * @param swfFile File to read SWF from
+     * @param fileTitle Title of the SWF
+     * @param listener
+     * @param parallelRead Use parallel threads?
+     * @param lazy
+     * @param resolver Resolver for imported tags
+     * @param charset Charset
+     * @throws IOException
+     * @throws java.lang.InterruptedException
+     */
+    public SWF(File swfFile, String fileTitle, ProgressListener listener, boolean parallelRead, boolean lazy, UrlResolver resolver, String charset) throws IOException, InterruptedException {
+        this(swfFile, fileTitle, listener, parallelRead, lazy, resolver, charset, MAPPED_CHUNK_SIZE);
+    }
+
+    SWF(File swfFile, String fileTitle, ProgressListener listener, boolean parallelRead, boolean lazy, UrlResolver resolver, String charset, int chunkSize) throws IOException, InterruptedException {
+        this.file = swfFile.getAbsolutePath();
+        this.fileTitle = fileTitle;
+        this.charset = charset;
+
+        byte[] hdr = new byte[8];
+        try ( FileInputStream fis = new FileInputStream(swfFile)) {
+            if (fis.read(hdr) != 8) {
+                throw new SwfOpenException(AppResources.translate("error.swf.headerTooShort"));
+            }
+        }
+
+        File tempFile = null;
+        try {
+            SWFHeader header;
+            File uncompressedFile;
+            if (hdr[0] == 'F' || hdr[0] == 'G') { // FWS, GFX
+                header = decodeHeader(hdr);
+                uncompressedFile = swfFile;
+            } else {
+                tempFile = File.createTempFile("ffdec_swf_", ".tmp");
+                try ( InputStream is = new BufferedInputStream(new FileInputStream(swfFile))) {
+                    header = decompress(is, new BufferedOutputStream(new FileOutputStream(tempFile)), true);
+                }
+                uncompressedFile = tempFile;
+            }
+            gfx = header.gfx;
+            compression = header.compression;
+            lzmaProperties = header.lzmaProperties;
+
+            try ( MappedFileInputStream mis = new MappedFileInputStream(uncompressedFile, 0, header.fileSize)) {
+                List<Tag> tags = readMappedTagList(mis, listener, parallelRead, lazy, chunkSize);
+                initTags(tags, false, resolver);
+            }
+        } finally {
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Reads header and tags from mapped uncompressed SWF data. Each chunk of
+     * tags is copied to its own array, the tags refer to their data by ranges
+     * of the chunk.
+     *
+     * @param mis Stream of uncompressed data
+     * @param listener Progress listener
+     * @param parallelRead Use parallel threads?
+     * @param lazy
+     * @param chunkSize Maximum size of chunk
+     * @return List of tags
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    private List<Tag> readMappedTagList(MappedFileInputStream mis, ProgressListener listener, boolean parallelRead, boolean lazy, int chunkSize) throws IOException, InterruptedException {
+        // signature, version, fileSize, RECT of at most 17 bytes, frameRate and frameCount
+        byte[] headerData = new byte[8 + 17 + 4];
+        int headerRead = mis.read(headerData);
+        if (headerRead < headerData.length) {
+            headerData = Arrays.copyOf(headerData, Math.max(headerRead, 0));
+        }
+        SWFInputStream sis = new SWFInputStream(this, headerData);
+        sis.skipBytesEx(3, "signature");
+        version = sis.readUI8("version");
+
+        if (version > 5) {
+            this.charset = Utf8Helper.charsetName;
+        }
+
+        fileSize = sis.readUI32("fileSize");
+        displayRect = sis.readRECT("displayRect");
+        frameRate = sis.readFIXED8("frameRate");
+        frameCount = sis.readUI16("frameCount");
+
+        long length = mis.getLength();
+        long pos = sis.getPos();
+        List<Tag> tags = new ArrayList<>();
+        while (pos < length) {
+            long chunkEnd = pos;
+            while (chunkEnd < length) {
+                long tagLength = getMappedTagLength(mis, chunkEnd, length);
+                if (chunkEnd > pos && chunkEnd - pos + tagLength > chunkSize) {
+                    break;
+                }
+                chunkEnd += tagLength;
+            }
+
+            byte[] chunk = new byte[(int) (chunkEnd - pos)];
+            mis.seek(pos);
+            int read = 0;
+            while (read < chunk.length) {
+                int count = mis.read(chunk, read, chunk.length - read);
+                if (count < 0) {
+                    throw new EndOfStreamException();
+                }
+                read += count;
+            }
+
+            List<Tag> chunkTags = new SWFInputStream(this, chunk).readTagList(this, 0, parallelRead, true, true, lazy);
+            tags.addAll(chunkTags);
+            pos = chunkEnd;
+            if (listener != null) {
+                listener.progress((int) (pos * 100 / length));
+            }
+            if (!chunkTags.isEmpty() && chunkTags.get(chunkTags.size() - 1).getId() == EndTag.ID) {
+                break;
+            }
+        }
+        return tags;
+    }
+
+    /**
+     * Gets length of the tag including its header. Lengths which do not fit
+     * the remaining data are cut to it.
+     *
+     * @param mis Stream of uncompressed data
+     * @param pos Position of the tag
+     * @param length Length of the data
+     * @return Tag length
+     * @throws IOException
+     */
+    private static long getMappedTagLength(MappedFileInputStream mis, long pos, long length) throws IOException {
+        long remaining = Math.min(length - pos, MAX_TAG_LENGTH);
+        if (remaining < 2) {
+            return remaining;
+        }
+        mis.seek(pos);
+        int tagIDTagLength = mis.read() | (mis.read() << 8);
+        long tagLength = tagIDTagLength & 0x3f;
+        int headerLength = 2;
+        if (tagLength == 0x3f) {
+            if (remaining < 6) {
+                return remaining;
+            }
+            tagLength = mis.read() | (mis.read() << 8) | (mis.read() << 16) | (mis.read() << 24);
+            headerLength = 6;
+        }
+        if (tagLength < 0) {
+            return remaining;
+        }
+        return Math.min(headerLength + tagLength, remaining);
+    }
+
+    private void initTags(List<Tag> tags, boolean checkOnly, UrlResolver resolver) throws IOException, InterruptedException {
         if (tags.size() > 0 && tags.get(tags.size() - 1).getId() == EndTag.ID) {
             tags.remove(tags.size() - 1);
         } else {
@@ -1810,6 +2169,15 @@ public final class SWF implements SWFContainerItem, Timelined, Openable {
         SWFHeader header = decodeHeader(hdr);
         long fileSize = header.fileSize;
 
+        if (os instanceof PresizedByteArrayOutputStream) {
+            // fileSize can be forged, never allocate more than the input really has,
+            // decompressed data which does not fit grows the buffer as usual
+            long expectedSize = Math.min(fileSize, 8 + (long) is.available());
+            if (expectedSize <= Runtime.getRuntime().maxMemory() / 4) {
+                ((PresizedByteArrayOutputStream) os).expectLength(expectedSize);
+            }
+        }
+
         try ( SWFOutputStream sos = new SWFOutputStream(os, header.version, Utf8Helper.charsetName)) {
             sos.write(getHeaderBytes(SWFCompression.NONE, header.gfx));
             sos.writeUI8(header.version);
@@ -2887,6 +3255,7 @@ public final class SWF implements SWFContainerItem, Timelined, Openable {
         jtt = null;
         frameCache.clear();
         rectCache.clear();
+        rasterCache.clear();
         for (Tag tag : getTags()) {
             if (tag instanceof ImageTag) {
                 ((ImageTag) tag).clearCache();
@@ -3137,6 +3506,32 @@ public final class SWF implements SWFContainerItem, Timelined, Openable {
         return decompilerPool.submitTask(swf.getAbcIndex(), pack, listener);
     }
 
+    /**
+     * Gets full text index of scripts. The index is keyed by SWF data and
+     * settings which affect decompilation, so it is not available while the
+     * SWF is modified.
+     *
+     * @return Index or null when it is disabled or the SWF is modified
+     */
+    public ScriptSearchIndex getScriptSearchIndex() {
+        if (!Configuration.useScriptSearchIndex.get() || uncompressedData == null || isModified()) {
+            return null;
+        }
+        synchronized (scriptSearchIndexLock) {
+            if (contentHash == null) {
+                contentHash = ScriptSearchIndex.getContentHash(uncompressedData);
+            }
+            String name = ScriptSearchIndex.getName(contentHash);
+            if (scriptSearchIndex == null || scriptSearchIndex.isCleared() || !scriptSearchIndex.getName().equals(name)) {
+                if (scriptSearchIndex != null) {
+                    scriptSearchIndex.save();
+                }
+                scriptSearchIndex = ScriptSearchIndex.load(name);
+            }
+            return scriptSearchIndex;
+        }
+    }
+
     public DecompilerPool getDecompilerPool() {
         return decompilerPool;
     }
@@ -3149,6 +3544,30 @@ public final class SWF implements SWFContainerItem, Timelined, Openable {
         return shapeExportDataCache;
     }
 
+    public Cache<RasterCacheKey, SerializableImage> getRasterCache() {
+        return rasterCache;
+    }
+
+    /**
+     * Removes rasters which were rendered from the modified tag.
+     *
+     * @param tag Modified tag
+     */
+    public void invalidateRasterCache(Tag tag) {
+        if (tag instanceof CharacterTag) {
+            int characterId = ((CharacterTag) tag).getCharacterId();
+            if (characterId != -1) {
+                rasterCache.removeOwner(characterId);
+            }
+        } else if (tag instanceof PlaceObjectTypeTag) {
+            // Filters are part of the key by identity and can be edited in place
+            List<FILTER> filters = ((PlaceObjectTypeTag) tag).getFilters();
+            if (filters != null && !filters.isEmpty()) {
+                rasterCache.clear();
+            }
+        }
+    }
+
     public static RECT fixRect(RECT rect) {
         RECT ret = new RECT();
         ret.Xmin = rect.Xmin;
@@ -3183,14 +3602,41 @@ public final class SWF implements SWFContainerItem, Timelined, Openable {
     }
 
     public static SerializableImage frameToImageGet(Timeline timeline, int frame, int time, Point cursorPosition, int mouseButton, RECT displayRect, Matrix transformation, ColorTransform colorTransform, Color backGroundColor, double zoom) {
+        return frameToImageGet(null, timeline, frame, time, cursorPosition, mouseButton, displayRect, transformation, colorTransform, backGroundColor, zoom);
+    }
+
+    /**
+     * Renders frame to image.
+     *
+     * @param session Render session which provides frame buffer and
+     * intermediate images, the returned image should be released to it when it
+     * is no longer used. Null allocates new images.
+     * @param timeline Timeline
+     * @param frame Frame
+     * @param time Time
+     * @param cursorPosition Cursor position
+     * @param mouseButton Mouse button
+     * @param displayRect Displayed rectangle
+     * @param transformation Transformation
+     * @param colorTransform Color transform
+     * @param backGroundColor Background color, null for transparent
+     * @param zoom Zoom
+     * @return Rendered image
+     */
+    public static SerializableImage frameToImageGet(RenderSession session, Timeline timeline, int frame, int time, Point cursorPosition, int mouseButton, RECT displayRect, Matrix transformation, ColorTransform colorTransform, Color backGroundColor, double zoom) {
         if (timeline.getFrameCount() == 0) {
             return new SerializableImage(1, 1, SerializableImage.TYPE_INT_ARGB_PRE);
         }
 
         RECT rect = displayRect;
-        SerializableImage image = new SerializableImage(
-                rect.getWidth() == 0 ? 1 /*FIXME: is this necessary?*/ : (int) (rect.getWidth() * zoom / SWF.unitDivisor),
-                rect.getHeight() == 0 ? 1 : (int) (rect.getHeight() * zoom / SWF.unitDivisor), SerializableImage.TYPE_INT_ARGB_PRE);
+        int width = rect.getWidth() == 0 ? 1 /*FIXME: is this necessary?*/ : (int) (rect.getWidth() * zoom / SWF.unitDivisor);
+        int height = rect.getHeight() == 0 ? 1 : (int) (rect.getHeight() * zoom / SWF.unitDivisor);
+        SerializableImage image;
+        if (session != null) {
+            image = session.acquireFrame(width, height);
+        } else {
+            image = new SerializableImage(width, height, SerializableImage.TYPE_INT_ARGB_PRE);
+        }
         if (backGroundColor == null) {
             image.fillTransparent();
         } else {
@@ -3198,6 +3644,7 @@ public final class SWF implements SWFContainerItem, Timelined, Openable {
             g.setComposite(AlphaComposite.Src);
             g.setColor(backGroundColor);
             g.fill(new Rectangle(image.getWidth(), image.getHeight()));
+            g.dispose();
         }
 
         Matrix m = transformation.clone();
@@ -3206,6 +3653,8 @@ public final class SWF implements SWFContainerItem, Timelined, Openable {
         RenderContext renderContext = new RenderContext();
         renderContext.cursorPosition = cursorPosition;
         renderContext.mouseButton = mouseButton;
+        renderContext.rasterCache = timeline.swf.getRasterCache();
+        renderContext.renderSession = session;
         ExportRectangle viewRect = new ExportRectangle(rect);
         timeline.toImage(frame, time, renderContext, image, image, false, m, new Matrix(), m, colorTransform, zoom, false, viewRect, m, true, Timeline.DRAW_MODE_ALL, 0);
 
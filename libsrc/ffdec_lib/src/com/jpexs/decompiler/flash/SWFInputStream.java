@@ -277,6 +277,7 @@ import com.jpexs.helpers.Helper;
 import com.jpexs.helpers.ImmediateFuture;
 import com.jpexs.helpers.MemoryInputStream;
 import com.jpexs.helpers.ProgressListener;
+import com.jpexs.helpers.SharedExecutor;
 import com.jpexs.helpers.utf8.Utf8Helper;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -288,8 +289,6 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -1185,12 +1184,7 @@ public class SWFInputStream implements AutoCloseable {
         }
 
         boolean parallel1 = level == 0 && parallel;
-        ExecutorService executor = null;
         List<Future<Tag>> futureResults = new ArrayList<>();
-        if (parallel1) {
-            executor = Executors.newFixedThreadPool(Configuration.getParallelThreadCount());
-            futureResults = new ArrayList<>();
-        }
         List<Tag> tags = new ArrayList<>();
         Tag tag;
         while (available() > 0) {
@@ -1224,8 +1218,8 @@ public class SWFInputStream implements AutoCloseable {
                 dumpTag(System.out, tag, tags.size() - 1, level);
             }
 
-            if (parseTags && doParse && parallel1 && tag instanceof TagStub && executor != null) {
-                Future<Tag> future = executor.submit(new TagResolutionTask((TagStub) tag, di, level, parallel1, skipUnusualTags, lazy));
+            if (parseTags && doParse && parallel1 && tag instanceof TagStub) {
+                Future<Tag> future = SharedExecutor.submit(swf, new TagResolutionTask((TagStub) tag, di, level, parallel1, skipUnusualTags, lazy));
                 futureResults.add(future);
             } else {
                 Future<Tag> future = new ImmediateFuture<>(tag);
@@ -1252,10 +1246,6 @@ public class SWFInputStream implements AutoCloseable {
                     logger.log(Level.SEVERE, "Error during tag reading", e);
                 }
             }
-
-            if (executor != null) {
-                executor.shutdown();
-            }
         }
         return tags;
     }
@@ -1454,7 +1444,7 @@ public class SWFInputStream implements AutoCloseable {
                     ret = new ImportAssets2Tag(sis, data);
                     break;
                 case 72:
-                    ret = new DoABCTag(sis, data);
+                    ret = new DoABCTag(sis, data, lazy);
                     break;
                 case 73:
                     ret = new DefineFontAlignZonesTag(sis, data);
@@ -1477,7 +1467,7 @@ public class SWFInputStream implements AutoCloseable {
                 //case 79: DefineDeviceVideo
                 //case 80-81:
                 case 82:
-                    ret = new DoABC2Tag(sis, data);
+                    ret = new DoABC2Tag(sis, data, lazy);
                     break;
                 case 83:
                     ret = new DefineShape4Tag(sis, data, lazy);
@@ -1600,7 +1590,7 @@ public class SWFInputStream implements AutoCloseable {
             tagLength = available;
         }
 
-        ByteArrayRange dataRange = new ByteArrayRange(swf.uncompressedData, (int) pos, (int) (tagLength + headerLength));
+        ByteArrayRange dataRange = new ByteArrayRange(data, (int) pos, (int) (tagLength + headerLength));
         skipBytes(tagLength);
 
         TagStub tagStub = new TagStub(swf, tagID, "Unresolved", dataRange, tagDataStream);
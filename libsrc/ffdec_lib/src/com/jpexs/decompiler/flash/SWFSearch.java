@@ -17,10 +17,12 @@
 package com.jpexs.decompiler.flash;
 
 import com.jpexs.helpers.Helper;
+import com.jpexs.helpers.MappedFileInputStream;
 import com.jpexs.helpers.MemoryInputStream;
 import com.jpexs.helpers.PosMarkedInputStream;
 import com.jpexs.helpers.ProgressListener;
 import com.jpexs.helpers.Searchable;
+import com.jpexs.helpers.streams.SeekableInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
@@ -45,7 +47,7 @@ public class SWFSearch {
 
     private final Set<ProgressListener> listeners = new HashSet<>();
 
-    private final Map<Long, MemoryInputStream> swfStreams = new LinkedHashMap<>();
+    private final Map<Long, SeekableInputStream> swfStreams = new LinkedHashMap<>();
 
     public SWFSearch(Searchable s, boolean noCheck, SearchMode searchMode) {
         this.s = s;
@@ -88,8 +90,8 @@ public class SWFSearch {
             setProgress(pos * 100 / ret.size());
             pos++;
             try {
-                MemoryInputStream mis = (MemoryInputStream) ret.get(addr);
-                mis.reset();
+                SeekableInputStream mis = (SeekableInputStream) ret.get(addr);
+                mis.seek(0);
                 PosMarkedInputStream pmi = new PosMarkedInputStream(mis);
                 SWF swf = noCheck ? new SWF(pmi) : new SWF(pmi, null, null, null, false, true, true);
                 boolean valid = swf.fileSize > 0
@@ -98,7 +100,7 @@ public class SWFSearch {
                         && swf.version <= SWF.MAX_VERSION;
                 if (valid) {
                     long limit = pmi.getPos();
-                    MemoryInputStream is = new MemoryInputStream(mis.getAllRead(), (int) (long) addr, (int) limit);
+                    SeekableInputStream is = getLimitedStream(mis, addr, limit);
                     switch (searchMode) {
                         case ALL:
                             swfStreams.put(addr, is);
@@ -135,7 +137,15 @@ public class SWFSearch {
         processed = true;
     }
 
-    public MemoryInputStream get(ProgressListener listener, long address) throws IOException {
+    private static SeekableInputStream getLimitedStream(SeekableInputStream is, long addr, long limit) throws IOException {
+        if (is instanceof MappedFileInputStream) {
+            MappedFileInputStream mfis = (MappedFileInputStream) is;
+            return new MappedFileInputStream(mfis.getFile(), mfis.getStartPos(), limit);
+        }
+        return new MemoryInputStream(((MemoryInputStream) is).getAllRead(), (int) addr, (int) limit);
+    }
+
+    public SeekableInputStream get(ProgressListener listener, long address) throws IOException {
         if (!processed) {
             return null;
         }
@@ -71,6 +71,7 @@ import com.jpexs.decompiler.flash.treeitems.Openable;
 import com.jpexs.decompiler.flash.treeitems.OpenableList;
 import com.jpexs.decompiler.flash.types.annotations.Internal;
 import com.jpexs.decompiler.graph.DottedChain;
+import com.jpexs.helpers.ByteArrayRange;
 import com.jpexs.helpers.utf8.Utf8PrintWriter;
 import java.io.File;
 import java.io.IOException;
@@ -107,7 +108,9 @@ public class ABC implements Openable {
 
     public List<MethodBody> bodies = new ArrayList<>();
 
-    private ABCMethodIndexing abcMethodIndexing;
+    private volatile ABCMethodIndexing abcMethodIndexing;
+
+    private volatile ABCMultinameUsageIndexing abcMultinameUsageIndexing;
 
     public static final int MINORwithDECIMAL = 17;
 
@@ -339,14 +342,14 @@ public class ABC implements Openable {
                 usageType = "method";
                 MethodBody body = findBody(tm.method_info);
                 if (body != null) {
-                    getStringUsageTypes(ret, body.traits, classesOnly);
+                    getStringUsageTypes(ret, body.getTraits(), classesOnly);
                 }
             }
             if (t instanceof TraitFunction) {
                 TraitFunction tf = (TraitFunction) t;
                 MethodBody body = findBody(tf.method_info);
                 if (body != null) {
-                    getStringUsageTypes(ret, body.traits, classesOnly);
+                    getStringUsageTypes(ret, body.getTraits(), classesOnly);
                 }
                 usageType = "function";
             }
@@ -505,9 +508,34 @@ public class ABC implements Openable {
     }
 
     public ABC(ABCInputStream ais, SWF swf, ABCContainerTag tag) throws IOException {
-        this(ais, swf, tag, null, null);
+        this(ais, swf, tag, null, null, false);
+    }
+
+    public ABC(ABCInputStream ais, SWF swf, ABCContainerTag tag, boolean lazy) throws IOException {
+        this(ais, swf, tag, null, null, lazy);
     }
+
     public ABC(ABCInputStream ais, SWF swf, ABCContainerTag tag, String file, String fileTitle) throws IOException {
+        this(ais, swf, tag, file, fileTitle, false);
+    }
+
+    /**
+     * Reads ABC. Constant pool, method infos and traits are read at once.
+     * Method bodies are read at once too, or in lazy mode only their method
+     * info index is read and the rest is decoded on first access (see
+     * MethodBody.load). Instructions of method bodies are decoded on first
+     * access by MethodBody.getCode, namespace suffixes of colliding names are
+     * computed when a name with suffix is first needed.
+     *
+     * @param ais Input stream
+     * @param swf SWF
+     * @param tag Container tag
+     * @param file File
+     * @param fileTitle File title
+     * @param lazy Decode method bodies on first access
+     * @throws IOException On I/O error
+     */
+    public ABC(ABCInputStream ais, SWF swf, ABCContainerTag tag, String file, String fileTitle, boolean lazy) throws IOException {
         this.parentTag = tag;
         this.file = file;
         this.fileTitle = fileTitle;
@@ -516,18 +544,17 @@ public class ABC implements Openable {
         }
         
         try {
-            read(ais, swf);
+            read(ais, swf, lazy);
         } catch (IOException ie) {
             throw new ABCOpenException(AppResources.translate("error.abc.invalid"), ie);
         }
-        //this will read all method body codes. TODO: make this ondemand
-        refreshMultinameNamespaceSuffixes();
-        getMethodIndexing();
+        //namespace suffixes need to scan all method body codes, do it on first name request
+        constants.setNamespaceSuffixesPending(this::refreshMultinameNamespaceSuffixes);
 
         SWFDecompilerPlugin.fireAbcParsed(this, swf);
     }
     
-    private void read(ABCInputStream ais, SWF swf) throws IOException {
+    private void read(ABCInputStream ais, SWF swf, boolean lazy) throws IOException {
         int minor_version = ais.readU16("minor_version");
         int major_version = ais.readU16("major_version");
         version = new ABCVersion(major_version, minor_version);
@@ -707,6 +734,8 @@ public class ABC implements Openable {
         }
 
         int bodies_count = ais.readU30("bodies_count");
+        //dump view needs all fields of the bodies
+        ByteArrayRange lazyData = lazy && ais.dumpInfo == null ? ais.getData() : null;
         bodies = new ArrayList<>(bodies_count);
         for (int i = 0; i < bodies_count; i++) {
             DumpInfo di = ais.dumpInfo;
@@ -718,28 +747,11 @@ public class ABC implements Openable {
                     dis.specialValue = mb.method_info;
                 }
 
-                mb.max_stack = ais.readU30("max_stack");
-                mb.max_regs = ais.readU30("max_regs");
-                mb.init_scope_depth = ais.readU30("init_scope_depth");
-                mb.max_scope_depth = ais.readU30("max_scope_depth");
-                int code_length = ais.readU30("code_length");
-                mb.setCodeBytes(ais.readBytes(code_length, "code", DumpInfoSpecialType.ABC_CODE));
-                int ex_count = ais.readU30("ex_count");
-                mb.exceptions = new ABCException[ex_count];
-                for (int j = 0; j < ex_count; j++) {
-                    ABCException abce = new ABCException();
-                    abce.start = ais.readU30("start");
-                    abce.end = ais.readU30("end");
-                    abce.target = ais.readU30("target");
-                    abce.type_index = ais.readU30("type_index");
-                    if (hasExceptionSupport()) {
-                        abce.name_index = ais.readU30("name_index");
-                    } else {
-                        abce.name_index = 0;
-                    }
-                    mb.exceptions[j] = abce;
+                if (lazyData != null) {
+                    mb.readDataLazy(ais, lazyData);
+                } else {
+                    mb.readData(ais);
                 }
-                mb.traits = ais.readTraits("traits");
                 bodies.add(mb);
                 ais.endDumpLevel();
             } catch (EndOfStreamException ex) {
@@ -846,22 +858,27 @@ public class ABC implements Openable {
         aos.writeU30(bodies.size());
         for (MethodBody mb : bodies) {
             aos.writeU30(mb.method_info);
-            aos.writeU30(mb.max_stack);
-            aos.writeU30(mb.max_regs);
-            aos.writeU30(mb.init_scope_depth);
-            aos.writeU30(mb.max_scope_depth);
+            //exception names are always written, not decoded body can be copied only when it has them
+            if (hasExceptionSupport() && mb.writeLazyData(aos)) {
+                continue;
+            }
+            aos.writeU30(mb.getMaxStack());
+            aos.writeU30(mb.getMaxRegs());
+            aos.writeU30(mb.getInitScopeDepth());
+            aos.writeU30(mb.getMaxScopeDepth());
             byte[] codeBytes = mb.getCodeBytes();
             aos.writeU30(codeBytes.length);
             aos.write(codeBytes);
-            aos.writeU30(mb.exceptions.length);
-            for (int j = 0; j < mb.exceptions.length; j++) {
-                aos.writeU30(mb.exceptions[j].start);
-                aos.writeU30(mb.exceptions[j].end);
-                aos.writeU30(mb.exceptions[j].target);
-                aos.writeU30(mb.exceptions[j].type_index);
-                aos.writeU30(mb.exceptions[j].name_index);
+            ABCException[] exceptions = mb.getExceptions();
+            aos.writeU30(exceptions.length);
+            for (int j = 0; j < exceptions.length; j++) {
+                aos.writeU30(exceptions[j].start);
+                aos.writeU30(exceptions[j].end);
+                aos.writeU30(exceptions[j].target);
+                aos.writeU30(exceptions[j].type_index);
+                aos.writeU30(exceptions[j].name_index);
             }
-            aos.writeTraits(mb.traits);
+            aos.writeTraits(mb.getTraits());
         }
     }
 
@@ -1033,11 +1050,56 @@ public class ABC implements Openable {
     }
 
     public final ABCMethodIndexing getMethodIndexing() {
-        if (abcMethodIndexing == null) {
-            abcMethodIndexing = new ABCMethodIndexing(this);
+        ABCMethodIndexing indexing = abcMethodIndexing;
+        if (indexing == null) {
+            synchronized (this) {
+                if (abcMethodIndexing == null) {
+                    abcMethodIndexing = new ABCMethodIndexing(this);
+                }
+                indexing = abcMethodIndexing;
+            }
         }
 
-        return abcMethodIndexing;
+        return indexing;
+    }
+
+    public final ABCMultinameUsageIndexing getMultinameUsageIndexing() {
+        ABCMultinameUsageIndexing indexing = abcMultinameUsageIndexing;
+        if (indexing == null) {
+            synchronized (this) {
+                if (abcMultinameUsageIndexing == null) {
+                    abcMultinameUsageIndexing = new ABCMultinameUsageIndexing(this);
+                }
+                indexing = abcMultinameUsageIndexing;
+            }
+        }
+
+        return indexing;
+    }
+
+    /**
+     * Marks multiname usage index for verification after traits or method
+     * bodies were edited. Only changed parts are indexed again.
+     */
+    public void invalidateMultinameUsageIndexing() {
+        ABCMultinameUsageIndexing indexing = abcMultinameUsageIndexing;
+        if (indexing != null) {
+            indexing.markDirty();
+        }
+    }
+
+    /**
+     * Marks multiname usage index for verification after the method body was
+     * edited. Bodies which are not stored in this ABC, like the copies
+     * deobfuscated during decompilation, do not affect the index.
+     *
+     * @param body Method body
+     */
+    public void invalidateMultinameUsageIndexing(MethodBody body) {
+        ABCMultinameUsageIndexing indexing = abcMultinameUsageIndexing;
+        if (indexing != null && findBody(body.method_info) == body) {
+            indexing.markDirty();
+        }
     }
 
     public DottedChain nsValueToName(String valueStr) {
@@ -1091,45 +1153,12 @@ public class ABC implements Openable {
         }
     }
 
-    private void checkMultinameUsedInMethod(int multinameIndex, int methodInfo, List<MultinameUsage> ret, int scriptIndex, int classIndex, int traitIndex, int traitsType, boolean isInitializer, Traits traits, int parentTraitIndex) {
-        for (int p = 0; p < method_info.get(methodInfo).param_types.length; p++) {
-            if (method_info.get(methodInfo).param_types[p] == multinameIndex) {
-                ret.add(new MethodParamsMultinameUsage(this, multinameIndex, scriptIndex, classIndex, traitIndex, traitsType, isInitializer, traits, parentTraitIndex));
-                break;
-            }
-        }
-        if (method_info.get(methodInfo).ret_type == multinameIndex) {
-            ret.add(new MethodReturnTypeMultinameUsage(this, multinameIndex, scriptIndex, classIndex, traitIndex, traitsType, isInitializer, traits, parentTraitIndex));
-        }
-        MethodBody body = findBody(methodInfo);
-        if (body != null) {
-            findMultinameUsageInTraits(body.traits, multinameIndex, traitsType, scriptIndex, classIndex, ret, traitIndex);
-            for (ABCException e : body.exceptions) {
-                if ((e.name_index == multinameIndex) || (e.type_index == multinameIndex)) {
-                    ret.add(new MethodBodyMultinameUsage(this, multinameIndex, scriptIndex, classIndex, traitIndex, traitsType, isInitializer, traits, parentTraitIndex));
-                    return;
-                }
-            }
-            for (AVM2Instruction ins : body.getCode().code) {
-                for (int o = 0; o < ins.definition.operands.length; o++) {
-                    if (ins.definition.operands[o] == AVM2Code.DAT_MULTINAME_INDEX) {
-                        if (ins.operands[o] == multinameIndex) {
-                            ret.add(new MethodBodyMultinameUsage(this, multinameIndex, scriptIndex, classIndex, traitIndex, traitsType, isInitializer, traits, parentTraitIndex));
-                            return;
-                        }
-                    }
-                }
-            }
-        }
-    }
-
     private void checkAllMultinameUsedInMethod(int methodInfo, List<List<MultinameUsage>> ret, int scriptIndex, int classIndex, int traitIndex, int traitsType, boolean isInitializer, Traits traits, int parentTraitIndex) {
-        boolean[] foundMultinames = new boolean[constants.getMultinameCount()];
+        Set<Integer> foundMultinames = new HashSet<>();
         for (int p = 0; p < method_info.get(methodInfo).param_types.length; p++) {
             int methodParamsMultinameIndex = method_info.get(methodInfo).param_types[p];
-            if (!foundMultinames[methodParamsMultinameIndex]) {
+            if (foundMultinames.add(methodParamsMultinameIndex)) {
                 ret.get(methodParamsMultinameIndex).add(new MethodParamsMultinameUsage(this, methodParamsMultinameIndex, scriptIndex, classIndex, traitIndex, traitsType, isInitializer, traits, parentTraitIndex));
-                foundMultinames[methodParamsMultinameIndex] = true;
             }
         }
         int methodReturnTypeMultinameIndex = method_info.get(methodInfo).ret_type;
@@ -1137,26 +1166,23 @@ public class ABC implements Openable {
 
         MethodBody body = findBody(methodInfo);
         if (body != null) {
-            findAllMultinameUsageInTraits(body.traits, traitsType, scriptIndex, classIndex, ret, traitIndex);
-            foundMultinames = new boolean[constants.getMultinameCount()];
-            for (ABCException e : body.exceptions) {
-                if (!foundMultinames[e.name_index]) {
+            findAllMultinameUsageInTraits(body.getTraits(), traitsType, scriptIndex, classIndex, ret, traitIndex);
+            foundMultinames.clear();
+            for (ABCException e : body.getExceptions()) {
+                if (foundMultinames.add(e.name_index)) {
                     ret.get(e.name_index).add(new MethodBodyMultinameUsage(this, e.name_index, scriptIndex, classIndex, traitIndex, traitsType, isInitializer, traits, parentTraitIndex));
-                    foundMultinames[e.name_index] = true;
                 }
 
-                if (!foundMultinames[e.type_index]) {
+                if (foundMultinames.add(e.type_index)) {
                     ret.get(e.type_index).add(new MethodBodyMultinameUsage(this, e.type_index, scriptIndex, classIndex, traitIndex, traitsType, isInitializer, traits, parentTraitIndex));
-                    foundMultinames[e.type_index] = true;
                 }
             }
-            for (AVM2Instruction ins : body.getCode().code) {
+            for (AVM2Instruction ins : body.getCodeNoCache().code) {
                 for (int o = 0; o < ins.definition.operands.length; o++) {
                     if (ins.definition.operands[o] == AVM2Code.DAT_MULTINAME_INDEX) {
                         int mi = ins.operands[o];
-                        if (!foundMultinames[mi]) {
+                        if (foundMultinames.add(mi)) {
                             ret.get(mi).add(new MethodBodyMultinameUsage(this, mi, scriptIndex, classIndex, traitIndex, traitsType, isInitializer, traits, parentTraitIndex));
-                            foundMultinames[mi] = true;
                         }
                     }
                 }
@@ -1164,46 +1190,6 @@ public class ABC implements Openable {
         }
     }
 
-    private void findMultinameUsageInTraits(Traits traits, int multinameIndex, int traitsType, int scriptIndex, int classIndex, List<MultinameUsage> ret, int parentTraitIndex) {
-        for (int t = 0; t < traits.traits.size(); t++) {
-            if (traits.traits.get(t) instanceof TraitClass) {
-                TraitClass tc = (TraitClass) traits.traits.get(t);
-                if (tc.name_index == multinameIndex) {
-                    ret.add(new ClassNameMultinameUsage(this, multinameIndex, tc.class_info, scriptIndex));
-                }
-                int c = tc.class_info;
-                if (instance_info.get(c).super_index == multinameIndex) {
-                    ret.add(new ExtendsMultinameUsage(this, multinameIndex, c, scriptIndex));
-                }
-                for (int i = 0; i < instance_info.get(c).interfaces.length; i++) {
-                    if (instance_info.get(c).interfaces[i] == multinameIndex) {
-                        ret.add(new ImplementsMultinameUsage(this, multinameIndex, c, scriptIndex));
-                    }
-                }
-                checkMultinameUsedInMethod(multinameIndex, instance_info.get(c).iinit_index, ret, -1/*FIXME*/, c, 0, TraitMultinameUsage.TRAITS_TYPE_INSTANCE, true, null, -1);
-                checkMultinameUsedInMethod(multinameIndex, class_info.get(c).cinit_index, ret, -1/*FIXME*/, c, 0, TraitMultinameUsage.TRAITS_TYPE_CLASS, true, null, -1);
-                findMultinameUsageInTraits(instance_info.get(c).instance_traits, multinameIndex, TraitMultinameUsage.TRAITS_TYPE_INSTANCE, -1/*FIXME*/, c, ret, -1);
-                findMultinameUsageInTraits(class_info.get(c).static_traits, multinameIndex, TraitMultinameUsage.TRAITS_TYPE_CLASS, -1/*FIXME*/, c, ret, -1);
-            }
-            if (traits.traits.get(t) instanceof TraitSlotConst) {
-                TraitSlotConst tsc = (TraitSlotConst) traits.traits.get(t);
-                if (tsc.name_index == multinameIndex) {
-                    ret.add(new ConstVarNameMultinameUsage(this, multinameIndex, scriptIndex, classIndex, t, traitsType, traits, parentTraitIndex));
-                }
-                if (tsc.type_index == multinameIndex) {
-                    ret.add(new ConstVarTypeMultinameUsage(this, multinameIndex, scriptIndex, classIndex, t, traitsType, traits, parentTraitIndex));
-                }
-            }
-            if (traits.traits.get(t) instanceof TraitMethodGetterSetter) {
-                TraitMethodGetterSetter tmgs = (TraitMethodGetterSetter) traits.traits.get(t);
-                if (tmgs.name_index == multinameIndex) {
-                    ret.add(new MethodNameMultinameUsage(this, multinameIndex, scriptIndex, classIndex, t, traitsType, false, traits, parentTraitIndex));
-                }
-                checkMultinameUsedInMethod(multinameIndex, tmgs.method_info, ret, scriptIndex, classIndex, t, traitsType, false, traits, parentTraitIndex);
-            }
-        }
-    }
-
     private void findAllMultinameUsageInTraits(Traits traits, int traitsType, int scriptIndex, int classIndex, List<List<MultinameUsage>> ret, int parentTraitIndex) {
         for (int t = 0; t < traits.traits.size(); t++) {
             if (traits.traits.get(t) instanceof TraitClass) {
@@ -1316,6 +1302,7 @@ public class ABC implements Openable {
      * other. For example same name consts/vars/methods or same class names.
      */
     public void refreshMultinameNamespaceSuffixes() {
+        constants.setNamespaceSuffixesPending(null);
 
         Set<MultinameUsage> collidingMultinameUsages = getCollidingMultinameUsages();
 
@@ -1332,30 +1319,7 @@ public class ABC implements Openable {
     }
 
     public List<MultinameUsage> findMultinameUsage(int multinameIndex) {
-        List<MultinameUsage> ret = new ArrayList<>();
-        if (multinameIndex == 0) {
-            return ret;
-        }
-        for (int s = 0; s < script_info.size(); s++) {
-            findMultinameUsageInTraits(script_info.get(s).traits, multinameIndex, TraitMultinameUsage.TRAITS_TYPE_SCRIPT, s, -1, ret, -1);
-        }
-        loopm:
-        for (int t = 1; t < constants.getMultinameCount(); t++) {
-            Multiname multiname = constants.getMultiname(t);
-            if (multiname.kind == Multiname.TYPENAME) {
-                if (multiname.qname_index == multinameIndex) {
-                    ret.add(new TypeNameMultinameUsage(this, multinameIndex, t, -1));
-                    continue;
-                }
-                for (int mp : multiname.params) {
-                    if (mp == multinameIndex) {
-                        ret.add(new TypeNameMultinameUsage(this, multinameIndex, t, -1));
-                        continue loopm;
-                    }
-                }
-            }
-        }
-        return ret;
+        return getMultinameUsageIndexing().findMultinameUsage(multinameIndex);
     }
 
     public List<List<MultinameUsage>> findAllMultinameUsage() {
@@ -1531,7 +1495,7 @@ public class ABC implements Openable {
             addClassInTraits(si.traits, index);
         }
         for (MethodBody b : bodies) {
-            addClassInTraits(b.traits, index);
+            addClassInTraits(b.getTraits(), index);
         }
         instance_info.add(index, ii);
         class_info.add(index, ci);
@@ -1566,7 +1530,7 @@ public class ABC implements Openable {
             reorganizeClassesInTraits(si.traits, classIndexMap);
         }
         for (MethodBody b : bodies) {
-            reorganizeClassesInTraits(b.traits, classIndexMap);
+            reorganizeClassesInTraits(b.getTraits(), classIndexMap);
         }
         Map<Integer, InstanceInfo> backupInstanceInfos = new HashMap<>();
         Map<Integer, ClassInfo> backupClassInfos = new HashMap<>();
@@ -1610,7 +1574,7 @@ public class ABC implements Openable {
             removeClassFromTraits(si.traits, index);
         }
         for (MethodBody b : bodies) {
-            removeClassFromTraits(b.traits, index);
+            removeClassFromTraits(b.getTraits(), index);
         }
         instance_info.remove(index);
         class_info.remove(index);
@@ -1662,7 +1626,7 @@ public class ABC implements Openable {
                     }
                 }
             }
-            removeMethodFromTraits(b.traits, index);
+            removeMethodFromTraits(b.getTraits(), index);
         }
 
         for (int c = 0; c < instance_info.size(); c++) {
@@ -1684,6 +1648,7 @@ public class ABC implements Openable {
         }
 
         abcMethodIndexing = null;
+        abcMultinameUsageIndexing = null;
 
         method_info.remove(index);
     }
@@ -1927,9 +1892,9 @@ public class ABC implements Openable {
             MethodBody secondBody = secondABC.bodies.get(b);
             MethodBody newBody = secondBody.clone(true);
             newBody.method_info = mergeMethodInfoMap.get(secondBody.method_info);
-            for (int e = 0; e < secondBody.exceptions.length; e++) {
-                newBody.exceptions[e].name_index = mergeMultinameMap.get(secondBody.exceptions[e].name_index);
-                newBody.exceptions[e].type_index = mergeMultinameMap.get(secondBody.exceptions[e].type_index);
+            for (int e = 0; e < secondBody.getExceptions().length; e++) {
+                newBody.getExceptions()[e].name_index = mergeMultinameMap.get(secondBody.getExceptions()[e].name_index);
+                newBody.getExceptions()[e].type_index = mergeMultinameMap.get(secondBody.getExceptions()[e].type_index);
             }
             AVM2Code newCode = newBody.getCode();
             for (AVM2Instruction newIns : newCode.code) {
@@ -1982,7 +1947,7 @@ public class ABC implements Openable {
                 if (modified) {
                     newIns.setOperands(newOperands, newCode, newBody);
                 }
-                newBody.traits = mergeTraits(secondBody.traits, mergeMultinameMap, mergeStringMap, mergeIntMap, mergeUIntMap, mergeDoubleMap, mergeFloatMap, mergeFloat4Map, mergeDecimalMap, mergeNamespaceMap, mergeMetaDataMap, mergeMethodInfoMap, mergeClassIndexMap);
+                newBody.setTraits(mergeTraits(secondBody.getTraits(), mergeMultinameMap, mergeStringMap, mergeIntMap, mergeUIntMap, mergeDoubleMap, mergeFloatMap, mergeFloat4Map, mergeDecimalMap, mergeNamespaceMap, mergeMetaDataMap, mergeMethodInfoMap, mergeClassIndexMap));
             }
             newBody.setModified();
             int newIndex = bodies.size();
@@ -1992,6 +1957,7 @@ public class ABC implements Openable {
 
         //clear caches
         abcMethodIndexing = null;
+        abcMultinameUsageIndexing = null;
         getSwf().clearScriptCache();
         ((Tag) parentTag).setModified(true);
     }
@@ -2158,6 +2124,7 @@ public class ABC implements Openable {
     public void free() {
         deobfuscation = null;
         abcMethodIndexing = null;
+        abcMultinameUsageIndexing = null;
     }
 
     @Override
@@ -34,6 +34,7 @@ import com.jpexs.decompiler.flash.abc.types.traits.Traits;
 import com.jpexs.decompiler.flash.dumpview.DumpInfo;
 import com.jpexs.decompiler.flash.dumpview.DumpInfoSpecial;
 import com.jpexs.decompiler.flash.dumpview.DumpInfoSpecialType;
+import com.jpexs.helpers.ByteArrayRange;
 import com.jpexs.helpers.MemoryInputStream;
 import com.jpexs.helpers.utf8.Utf8Helper;
 import java.io.ByteArrayOutputStream;
@@ -437,6 +438,48 @@ public class ABCInputStream implements AutoCloseable {
         return trait;
     }
 
+    /**
+     * Skips traits without creating them.
+     *
+     * @throws IOException On I/O error
+     */
+    public void skipTraits() throws IOException {
+        int count = readU30Internal();
+        for (int i = 0; i < count; i++) {
+            readU30Internal(); //name_index
+            int kind = readInternal();
+            int kindType = 0xf & kind;
+            int kindFlags = kind >> 4;
+            switch (kindType) {
+                case 0: // slot
+                case 6: // const
+                    readU30Internal(); //slot_id
+                    readU30Internal(); //type_index
+                    int value_index = readU30Internal();
+                    if (value_index != 0) {
+                        readInternal(); //value_kind
+                    }
+                    break;
+                case 1: // method
+                case 2: // getter
+                case 3: // setter
+                case 4: // class
+                case 5: // function
+                    readU30Internal();
+                    readU30Internal();
+                    break;
+                default:
+                    throw new IOException("Unknown trait kind:" + kind);
+            }
+            if ((kindFlags & ATTR_METADATA) != 0) {
+                int metadata_count = readU30Internal();
+                for (int j = 0; j < metadata_count; j++) {
+                    readU30Internal();
+                }
+            }
+        }
+    }
+
     public Traits readTraits(String name) throws IOException {
         newDumpLevel(name, "Traits");
         int count = readU30("count");
@@ -456,6 +499,28 @@ public class ABCInputStream implements AutoCloseable {
         return ret;
     }
 
+    /**
+     * Skips bytes.
+     *
+     * @param count Number of bytes
+     * @throws IOException On I/O error
+     */
+    public void skipBytes(int count) throws IOException {
+        if (count > is.available()) {
+            throw new EndOfStreamException();
+        }
+        is.seek(is.getPos() + count);
+    }
+
+    /**
+     * Gets data of the whole stream.
+     *
+     * @return Data
+     */
+    public ByteArrayRange getData() {
+        return new ByteArrayRange(is.getAllRead(), is.getStartPos(), is.getMaxLength());
+    }
+
     public byte[] readBytes(int count, String name, DumpInfoSpecialType specialType) throws IOException {
         newDumpLevel(name, "Bytes", specialType);
         byte[] ret = readBytesInternal(count);
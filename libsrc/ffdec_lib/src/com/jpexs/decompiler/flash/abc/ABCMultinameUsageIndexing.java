@@ -0,0 +1,451 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash.abc;
+
+import com.jpexs.decompiler.flash.abc.avm2.AVM2Code;
+import com.jpexs.decompiler.flash.abc.avm2.instructions.AVM2Instruction;
+import com.jpexs.decompiler.flash.abc.types.ABCException;
+import com.jpexs.decompiler.flash.abc.types.InstanceInfo;
+import com.jpexs.decompiler.flash.abc.types.MethodBody;
+import com.jpexs.decompiler.flash.abc.types.MethodInfo;
+import com.jpexs.decompiler.flash.abc.types.Multiname;
+import com.jpexs.decompiler.flash.abc.types.ScriptInfo;
+import com.jpexs.decompiler.flash.abc.types.traits.Trait;
+import com.jpexs.decompiler.flash.abc.types.traits.TraitClass;
+import com.jpexs.decompiler.flash.abc.types.traits.TraitMethodGetterSetter;
+import com.jpexs.decompiler.flash.abc.types.traits.TraitSlotConst;
+import com.jpexs.decompiler.flash.abc.types.traits.Traits;
+import com.jpexs.decompiler.flash.abc.usages.ClassNameMultinameUsage;
+import com.jpexs.decompiler.flash.abc.usages.ConstVarNameMultinameUsage;
+import com.jpexs.decompiler.flash.abc.usages.ConstVarTypeMultinameUsage;
+import com.jpexs.decompiler.flash.abc.usages.ExtendsMultinameUsage;
+import com.jpexs.decompiler.flash.abc.usages.ImplementsMultinameUsage;
+import com.jpexs.decompiler.flash.abc.usages.MethodBodyMultinameUsage;
+import com.jpexs.decompiler.flash.abc.usages.MethodNameMultinameUsage;
+import com.jpexs.decompiler.flash.abc.usages.MethodParamsMultinameUsage;
+import com.jpexs.decompiler.flash.abc.usages.MethodReturnTypeMultinameUsage;
+import com.jpexs.decompiler.flash.abc.usages.MultinameUsage;
+import com.jpexs.decompiler.flash.abc.usages.TraitMultinameUsage;
+import com.jpexs.decompiler.flash.abc.usages.TypeNameMultinameUsage;
+import com.jpexs.decompiler.flash.configuration.Configuration;
+import com.jpexs.helpers.SharedExecutor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Reverse index of multiname usages in ABC.
+ *
+ * Usages are collected in partitions - one per script and one for TypeName
+ * multinames - and merged in partition order, so the result of a lookup is
+ * the same as walking the whole ABC. After an edit, only partitions whose
+ * fingerprint changed are collected again.
+ *
+ * @author JPEXS
+ */
+public class ABCMultinameUsageIndexing {
+
+    private final ABC abc;
+
+    private final Map<Integer, List<IndexedUsage>> usages = new HashMap<>();
+
+    private Partition[] partitions;
+
+    private int scriptCount;
+
+    private int multinameCount;
+
+    private int methodCount;
+
+    private int bodyCount;
+
+    private int classCount;
+
+    private volatile boolean dirty = false;
+
+    public ABCMultinameUsageIndexing(ABC abc) {
+        this.abc = abc;
+    }
+
+    /**
+     * Marks the index for verification. Fingerprints of the partitions are
+     * checked on next lookup and changed partitions are collected again.
+     */
+    public void markDirty() {
+        dirty = true;
+    }
+
+    /**
+     * Checks whether the index must be verified on next lookup.
+     *
+     * @return True when marked dirty
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Gets usages of the multiname.
+     *
+     * @param multinameIndex Multiname index
+     * @return List of usages in the same order as a walk through the ABC
+     */
+    public synchronized List<MultinameUsage> findMultinameUsage(int multinameIndex) {
+        List<MultinameUsage> ret = new ArrayList<>();
+        if (multinameIndex == 0) {
+            return ret;
+        }
+        if (partitions == null) {
+            dirty = false;
+            build();
+        } else if (dirty) {
+            dirty = false;
+            refresh();
+        }
+        List<IndexedUsage> list = usages.get(multinameIndex);
+        if (list != null) {
+            for (IndexedUsage u : list) {
+                ret.add(u.usage);
+            }
+        }
+        return ret;
+    }
+
+    private boolean structureChanged() {
+        return scriptCount != abc.script_info.size()
+                || multinameCount != abc.constants.getMultinameCount()
+                || methodCount != abc.method_info.size()
+                || bodyCount != abc.bodies.size()
+                || classCount != abc.instance_info.size();
+    }
+
+    private void build() {
+        //method indexing is created under ABC lock, create it before collecting in parallel
+        abc.getMethodIndexing();
+        scriptCount = abc.script_info.size();
+        multinameCount = abc.constants.getMultinameCount();
+        methodCount = abc.method_info.size();
+        bodyCount = abc.bodies.size();
+        classCount = abc.instance_info.size();
+
+        partitions = new Partition[scriptCount + 1];
+        List<Integer> all = new ArrayList<>();
+        for (int p = 0; p < partitions.length; p++) {
+            all.add(p);
+        }
+        collect(all);
+
+        usages.clear();
+        for (int p = 0; p < partitions.length; p++) {
+            for (Map.Entry<Integer, List<MultinameUsage>> en : partitions[p].usages.entrySet()) {
+                List<IndexedUsage> list = usages.get(en.getKey());
+                if (list == null) {
+                    list = new ArrayList<>();
+                    usages.put(en.getKey(), list);
+                }
+                for (MultinameUsage u : en.getValue()) {
+                    list.add(new IndexedUsage(p, u));
+                }
+            }
+        }
+    }
+
+    private void refresh() {
+        if (structureChanged()) {
+            build();
+            return;
+        }
+        abc.getMethodIndexing();
+        List<Integer> changed = new ArrayList<>();
+        for (int s = 0; s < scriptCount; s++) {
+            if (partitions[s].fingerprint != scriptFingerprint(s)) {
+                changed.add(s);
+            }
+        }
+        //TypeNames are cheap to collect, multinames can be changed in place
+        changed.add(scriptCount);
+
+        Partition[] oldPartitions = new Partition[partitions.length];
+        for (int p : changed) {
+            oldPartitions[p] = partitions[p];
+        }
+        collect(changed);
+        for (int p : changed) {
+            Set<Integer> multinames = new LinkedHashSet<>(oldPartitions[p].usages.keySet());
+            multinames.addAll(partitions[p].usages.keySet());
+            for (int m : multinames) {
+                replaceUsages(m, p, partitions[p].usages.get(m));
+            }
+        }
+    }
+
+    private void replaceUsages(int multinameIndex, int partition, List<MultinameUsage> newUsages) {
+        List<IndexedUsage> list = usages.get(multinameIndex);
+        if (list == null) {
+            list = new ArrayList<>();
+        }
+        List<IndexedUsage> result = new ArrayList<>(list.size());
+        int i = 0;
+        while (i < list.size() && list.get(i).partition < partition) {
+            result.add(list.get(i++));
+        }
+        while (i < list.size() && list.get(i).partition == partition) {
+            i++;
+        }
+        if (newUsages != null) {
+            for (MultinameUsage u : newUsages) {
+                result.add(new IndexedUsage(partition, u));
+            }
+        }
+        while (i < list.size()) {
+            result.add(list.get(i++));
+        }
+        if (result.isEmpty()) {
+            usages.remove(multinameIndex);
+        } else {
+            usages.put(multinameIndex, result);
+        }
+    }
+
+    private void collect(List<Integer> partitionIndices) {
+        if (!Configuration.parallelSpeedUp.get() || partitionIndices.size() < 2) {
+            for (int p : partitionIndices) {
+                partitions[p] = collectPartition(p);
+            }
+            return;
+        }
+
+        List<Future<Partition>> futures = new ArrayList<>();
+        for (int p : partitionIndices) {
+            final int fp = p;
+            futures.add(SharedExecutor.submit(abc.getSwf(), new Callable<Partition>() {
+                @Override
+                public Partition call() throws Exception {
+                    return collectPartition(fp);
+                }
+            }));
+        }
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                partitions[partitionIndices.get(i)] = futures.get(i).get();
+            }
+        } catch (InterruptedException ex) {
+            for (Future<Partition> future : futures) {
+                future.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Multiname usage indexing was interrupted", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    private Partition collectPartition(int partition) {
+        Map<Integer, List<MultinameUsage>> ret = new HashMap<>();
+        if (partition == scriptCount) {
+            collectTypeNames(ret);
+            return new Partition(0, ret);
+        }
+        ScriptInfo si = abc.script_info.get(partition);
+        collectTraits(si.traits, TraitMultinameUsage.TRAITS_TYPE_SCRIPT, partition, -1, ret, -1);
+        return new Partition(scriptFingerprint(partition), ret);
+    }
+
+    private static void add(Map<Integer, List<MultinameUsage>> ret, MultinameUsage usage) {
+        int multinameIndex = usage.getMultinameIndex();
+        if (multinameIndex == 0) {
+            return;
+        }
+        List<MultinameUsage> list = ret.get(multinameIndex);
+        if (list == null) {
+            list = new ArrayList<>();
+            ret.put(multinameIndex, list);
+        }
+        list.add(usage);
+    }
+
+    private void collectTypeNames(Map<Integer, List<MultinameUsage>> ret) {
+        for (int t = 1; t < abc.constants.getMultinameCount(); t++) {
+            Multiname multiname = abc.constants.getMultiname(t);
+            if (multiname.kind == Multiname.TYPENAME) {
+                Set<Integer> found = new LinkedHashSet<>();
+                found.add(multiname.qname_index);
+                for (int mp : multiname.params) {
+                    found.add(mp);
+                }
+                for (int m : found) {
+                    add(ret, new TypeNameMultinameUsage(abc, m, t, -1));
+                }
+            }
+        }
+    }
+
+    private void collectMethod(int methodInfo, Map<Integer, List<MultinameUsage>> ret, int scriptIndex, int classIndex, int traitIndex, int traitsType, boolean isInitializer, Traits traits, int parentTraitIndex) {
+        MethodInfo mi = abc.method_info.get(methodInfo);
+        Set<Integer> found = new LinkedHashSet<>();
+        for (int p = 0; p < mi.param_types.length; p++) {
+            found.add(mi.param_types[p]);
+        }
+        for (int m : found) {
+            add(ret, new MethodParamsMultinameUsage(abc, m, scriptIndex, classIndex, traitIndex, traitsType, isInitializer, traits, parentTraitIndex));
+        }
+        add(ret, new MethodReturnTypeMultinameUsage(abc, mi.ret_type, scriptIndex, classIndex, traitIndex, traitsType, isInitializer, traits, parentTraitIndex));
+        MethodBody body = abc.findBody(methodInfo);
+        if (body != null) {
+            collectTraits(body.getTraits(), traitsType, scriptIndex, classIndex, ret, traitIndex);
+            found.clear();
+            for (ABCException e : body.getExceptions()) {
+                found.add(e.name_index);
+                found.add(e.type_index);
+            }
+            AVM2Code code = body.getCodeNoCache();
+            for (AVM2Instruction ins : code.code) {
+                for (int o = 0; o < ins.definition.operands.length; o++) {
+                    if (ins.definition.operands[o] == AVM2Code.DAT_MULTINAME_INDEX) {
+                        found.add(ins.operands[o]);
+                    }
+                }
+            }
+            for (int m : found) {
+                add(ret, new MethodBodyMultinameUsage(abc, m, scriptIndex, classIndex, traitIndex, traitsType, isInitializer, traits, parentTraitIndex));
+            }
+        }
+    }
+
+    private void collectTraits(Traits traits, int traitsType, int scriptIndex, int classIndex, Map<Integer, List<MultinameUsage>> ret, int parentTraitIndex) {
+        for (int t = 0; t < traits.traits.size(); t++) {
+            Trait trait = traits.traits.get(t);
+            if (trait instanceof TraitClass) {
+                TraitClass tc = (TraitClass) trait;
+                int c = tc.class_info;
+                InstanceInfo ii = abc.instance_info.get(c);
+                add(ret, new ClassNameMultinameUsage(abc, tc.name_index, c, scriptIndex));
+                add(ret, new ExtendsMultinameUsage(abc, ii.super_index, c, scriptIndex));
+                for (int i = 0; i < ii.interfaces.length; i++) {
+                    add(ret, new ImplementsMultinameUsage(abc, ii.interfaces[i], c, scriptIndex));
+                }
+                collectMethod(ii.iinit_index, ret, -1/*FIXME*/, c, 0, TraitMultinameUsage.TRAITS_TYPE_INSTANCE, true, null, -1);
+                collectMethod(abc.class_info.get(c).cinit_index, ret, -1/*FIXME*/, c, 0, TraitMultinameUsage.TRAITS_TYPE_CLASS, true, null, -1);
+                collectTraits(ii.instance_traits, TraitMultinameUsage.TRAITS_TYPE_INSTANCE, -1/*FIXME*/, c, ret, -1);
+                collectTraits(abc.class_info.get(c).static_traits, TraitMultinameUsage.TRAITS_TYPE_CLASS, -1/*FIXME*/, c, ret, -1);
+            }
+            if (trait instanceof TraitSlotConst) {
+                TraitSlotConst tsc = (TraitSlotConst) trait;
+                add(ret, new ConstVarNameMultinameUsage(abc, tsc.name_index, scriptIndex, classIndex, t, traitsType, traits, parentTraitIndex));
+                add(ret, new ConstVarTypeMultinameUsage(abc, tsc.type_index, scriptIndex, classIndex, t, traitsType, traits, parentTraitIndex));
+            }
+            if (trait instanceof TraitMethodGetterSetter) {
+                TraitMethodGetterSetter tmgs = (TraitMethodGetterSetter) trait;
+                add(ret, new MethodNameMultinameUsage(abc, tmgs.name_index, scriptIndex, classIndex, t, traitsType, false, traits, parentTraitIndex));
+                collectMethod(tmgs.method_info, ret, scriptIndex, classIndex, t, traitsType, false, traits, parentTraitIndex);
+            }
+        }
+    }
+
+    private static long mix(long h, long value) {
+        return h * 31 + value;
+    }
+
+    private long scriptFingerprint(int scriptIndex) {
+        ScriptInfo si = abc.script_info.get(scriptIndex);
+        long h = System.identityHashCode(si);
+        return traitsFingerprint(si.traits, h);
+    }
+
+    private long traitsFingerprint(Traits traits, long h) {
+        h = mix(h, System.identityHashCode(traits));
+        h = mix(h, traits.traits.size());
+        for (Trait trait : traits.traits) {
+            h = mix(h, System.identityHashCode(trait));
+            h = mix(h, trait.name_index);
+            h = mix(h, trait.kindType);
+            if (trait instanceof TraitClass) {
+                int c = ((TraitClass) trait).class_info;
+                InstanceInfo ii = abc.instance_info.get(c);
+                h = mix(h, c);
+                h = mix(h, ii.super_index);
+                h = mix(h, Arrays.hashCode(ii.interfaces));
+                h = methodFingerprint(ii.iinit_index, h);
+                h = methodFingerprint(abc.class_info.get(c).cinit_index, h);
+                h = traitsFingerprint(ii.instance_traits, h);
+                h = traitsFingerprint(abc.class_info.get(c).static_traits, h);
+            }
+            if (trait instanceof TraitSlotConst) {
+                h = mix(h, ((TraitSlotConst) trait).type_index);
+            }
+            if (trait instanceof TraitMethodGetterSetter) {
+                h = methodFingerprint(((TraitMethodGetterSetter) trait).method_info, h);
+            }
+        }
+        return h;
+    }
+
+    private long methodFingerprint(int methodInfo, long h) {
+        MethodInfo mi = abc.method_info.get(methodInfo);
+        h = mix(h, methodInfo);
+        h = mix(h, System.identityHashCode(mi));
+        h = mix(h, Arrays.hashCode(mi.param_types));
+        h = mix(h, mi.ret_type);
+        MethodBody body = abc.findBody(methodInfo);
+        if (body == null) {
+            return mix(h, 0);
+        }
+        h = mix(h, System.identityHashCode(body));
+        h = mix(h, body.getModificationCount());
+        h = mix(h, body.getExceptions().length);
+        for (ABCException e : body.getExceptions()) {
+            h = mix(h, e.name_index);
+            h = mix(h, e.type_index);
+        }
+        return traitsFingerprint(body.getTraits(), h);
+    }
+
+    private static class Partition {
+
+        private final long fingerprint;
+
+        private final Map<Integer, List<MultinameUsage>> usages;
+
+        public Partition(long fingerprint, Map<Integer, List<MultinameUsage>> usages) {
+            this.fingerprint = fingerprint;
+            this.usages = usages;
+        }
+    }
+
+    private static class IndexedUsage {
+
+        private final int partition;
+
+        private final MultinameUsage usage;
+
+        public IndexedUsage(int partition, MultinameUsage usage) {
+            this.partition = partition;
+            this.usage = usage;
+        }
+    }
+}
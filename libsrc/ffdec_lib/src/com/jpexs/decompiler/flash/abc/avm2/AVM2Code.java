@@ -929,7 +929,7 @@ public class AVM2Code implements Cloneable {
         long startPos = ais.getPosition();
         addresses.add(startPos);
         if (body != null) {
-            for (ABCException e : body.exceptions) {
+            for (ABCException e : body.getExceptions()) {
                 //do not process e.start and e.end - they can be not on an instruction boundary
                 addresses.add((long) e.target);
             }
@@ -1138,6 +1138,7 @@ public class AVM2Code implements Cloneable {
     public void setInstructionOperand(int ip, int operandIndex, int value, MethodBody body) {
         int oldVal = code.get(ip).operands[ip];
         code.get(ip).operands[ip] = value;
+        codeModified(body);
     }
 
     public byte[] getBytes() {
@@ -1287,22 +1288,22 @@ public class AVM2Code implements Cloneable {
             writer.newLine();
 
             writer.appendNoHilight("maxstack ");
-            writer.appendNoHilight(body.max_stack);
+            writer.appendNoHilight(body.getMaxStack());
             writer.newLine();
 
             writer.appendNoHilight("localcount ");
-            writer.appendNoHilight(body.max_regs);
+            writer.appendNoHilight(body.getMaxRegs());
             writer.newLine();
 
             writer.appendNoHilight("initscopedepth ");
-            writer.appendNoHilight(body.init_scope_depth);
+            writer.appendNoHilight(body.getInitScopeDepth());
             writer.newLine();
 
             writer.appendNoHilight("maxscopedepth ");
-            writer.appendNoHilight(body.max_scope_depth);
+            writer.appendNoHilight(body.getMaxScopeDepth());
             writer.newLine();
 
-            for (Trait t : body.traits.traits) {
+            for (Trait t : body.getTraits().traits) {
                 t.convertTraitHeader(abc, writer);
                 if (Configuration.indentAs3PCode.get()) {
                     writer.unindent();
@@ -1378,8 +1379,8 @@ public class AVM2Code implements Cloneable {
         }
         writer.appendNoHilight("end ; code").newLine();
         if (body != null) {
-            for (int e = 0; e < body.exceptions.length; e++) {
-                ABCException exception = body.exceptions[e];
+            for (int e = 0; e < body.getExceptions().length; e++) {
+                ABCException exception = body.getExceptions()[e];
                 writer.appendNoHilight("try");
 
                 //Note: start and end address can be not on instruction boundary - call adr2pos( nearest=true) to make them legal
@@ -1422,7 +1423,7 @@ public class AVM2Code implements Cloneable {
     public Set<Long> getImportantOffsets(MethodBody body, boolean tryEnds) {
         Set<Long> ret = new HashSet<>();
         if (body != null) {
-            for (ABCException exception : body.exceptions) {
+            for (ABCException exception : body.getExceptions()) {
                 ret.add((long) pos2adr(adr2pos(exception.start, true)));
                 if (tryEnds) {
                     ret.add((long) pos2adr(adr2pos(exception.end, true)));
@@ -1887,7 +1888,7 @@ public class AVM2Code implements Cloneable {
     private void injectDeclarations(int level, List<String> paramNames, List<GraphTargetItem> items, int minreg, DeclarationAVM2Item[] declaredRegisters, List<Slot> declaredSlots, List<DeclarationAVM2Item> declaredSlotsDec, List<String> declaredProperties, List<DeclarationAVM2Item> declaredPropsDec, ABC abc, MethodBody body) {
         //boolean hasActivation = abc.method_info.get(body.method_info).flagNeed_activation();
         Map<String, TraitSlotConst> traits = new LinkedHashMap<>();
-        for (Trait t : body.traits.traits) {
+        for (Trait t : body.getTraits().traits) {
             if (t instanceof TraitSlotConst) {
                 TraitSlotConst tsc = (TraitSlotConst) t;
                 Multiname tratMultiname = abc.constants.getMultiname(tsc.name_index);
@@ -2367,7 +2368,7 @@ public class AVM2Code implements Cloneable {
         }
 
         if (body != null) {
-            for (ABCException ex : body.exceptions) {
+            for (ABCException ex : body.getExceptions()) {
                 ex.start = updater.updateOperandOffset(-1, ex.start, ex.start);
                 ex.end = updater.updateOperandOffset(-1, ex.end, ex.end);
                 ex.target = updater.updateOperandOffset(-1, ex.target, ex.target);
@@ -2473,6 +2474,7 @@ public class AVM2Code implements Cloneable {
             }
         }, body);
         code.remove(pos);
+        codeModified(body);
         //checkValidOffsets(body);
     }
 
@@ -2528,6 +2530,13 @@ public class AVM2Code implements Cloneable {
             }, body);
         }
         code.set(pos, instruction);
+        codeModified(body);
+    }
+
+    private static void codeModified(MethodBody body) {
+        if (body != null) {
+            body.codeModified();
+        }
     }
 
     /**
@@ -2606,6 +2615,7 @@ public class AVM2Code implements Cloneable {
         }, body);
         instruction.setAddress(x);
         code.add(pos, instruction);
+        codeModified(body);
         //checkValidOffsets(body);
     }
 
@@ -2744,8 +2754,8 @@ public class AVM2Code implements Cloneable {
             return null;
         }
         int scopePos = -1;
-        for (int e = 0; e < body.exceptions.length; e++) {
-            ABCException ex = body.exceptions[e];
+        for (int e = 0; e < body.getExceptions().length; e++) {
+            ABCException ex = body.getExceptions()[e];
             try {
                 if (scopePos == -1) {
                     scopePos = stats.instructionStats[adr2pos(ex.end) - 1].scopepos_after;
@@ -2867,7 +2877,7 @@ public class AVM2Code implements Cloneable {
             refs.put(i, new ArrayList<>());
         }
         visitCode(0, 0, refs);
-        for (ABCException e : body.exceptions) {
+        for (ABCException e : body.getExceptions()) {
             try {
                 visitCode(adr2pos(e.target), -1, refs);
             } catch (ConvertException ex) {
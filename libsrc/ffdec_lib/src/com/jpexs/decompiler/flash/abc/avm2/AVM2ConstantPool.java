@@ -89,6 +89,48 @@ public class AVM2ConstantPool implements Cloneable {
     @Internal
     public Map<String, DottedChain> dottedChainCache = new HashMap<>();
 
+    @Internal
+    private Runnable namespaceSuffixesRefresher;
+
+    @Internal
+    private volatile boolean namespaceSuffixesPending = false;
+
+    @Internal
+    private Thread namespaceSuffixesRefreshingThread;
+
+    /**
+     * Defers calculation of multiname namespace suffixes until some name with
+     * suffix is requested.
+     *
+     * @param refresher Action which sets displayNamespace of multinames
+     */
+    public synchronized void setNamespaceSuffixesPending(Runnable refresher) {
+        namespaceSuffixesRefresher = refresher;
+        namespaceSuffixesPending = refresher != null;
+    }
+
+    /**
+     * Runs pending calculation of multiname namespace suffixes.
+     */
+    public void ensureNamespaceSuffixes() {
+        if (!namespaceSuffixesPending) {
+            return;
+        }
+        synchronized (this) {
+            if (!namespaceSuffixesPending || namespaceSuffixesRefreshingThread == Thread.currentThread()) {
+                return;
+            }
+            namespaceSuffixesRefreshingThread = Thread.currentThread();
+            try {
+                namespaceSuffixesRefresher.run();
+            } finally {
+                namespaceSuffixesRefreshingThread = null;
+                namespaceSuffixesRefresher = null;
+                namespaceSuffixesPending = false;
+            }
+        }
+    }
+
     private void ensureDefault(List<?> list) {
         if (list.isEmpty()) {
             list.add(null);
@@ -90,7 +90,7 @@ public class AVM2DeobfuscatorGetSet extends SWFDecompilerAdapter {
             localData.localRegs.clear();
             localData.localRegAssignmentIps.clear();
             localData.localRegs.clear();
-            initLocalRegs(localData, localReservedCount, body.max_regs);
+            initLocalRegs(localData, localReservedCount, body.getMaxRegs());
 
             executeInstructions(body, code, localData, i, code.code.size() - 1);
         }
@@ -106,7 +106,7 @@ public class AVM2DeobfuscatorGetSet extends SWFDecompilerAdapter {
         AVM2LocalData localData = new AVM2LocalData();
         localData.isStatic = isStatic;
         localData.classIndex = classIndex;
-        localData.localRegs = new HashMap<>(body.max_regs);
+        localData.localRegs = new HashMap<>(body.getMaxRegs());
         localData.localRegAssignmentIps = new HashMap<>();
         localData.scopeStack = new ScopeStack(true);
         List<MethodBody> callStack = new ArrayList<>();
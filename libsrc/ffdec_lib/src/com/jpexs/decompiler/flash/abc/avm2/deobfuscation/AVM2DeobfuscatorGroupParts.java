@@ -124,9 +124,9 @@ C:	blk_4
                         } else {
                             long srcAddr = code.pos2adr(j);
                             boolean exceptionMismatch = false;
-                            for (int e = 0; e < body.exceptions.length; e++) {
-                                boolean sourceMatch = srcAddr >= body.exceptions[e].start && srcAddr < body.exceptions[e].end;
-                                boolean targetMatch = targetAddr >= body.exceptions[e].start && targetAddr < body.exceptions[e].end;
+                            for (int e = 0; e < body.getExceptions().length; e++) {
+                                boolean sourceMatch = srcAddr >= body.getExceptions()[e].start && srcAddr < body.getExceptions()[e].end;
+                                boolean targetMatch = targetAddr >= body.getExceptions()[e].start && targetAddr < body.getExceptions()[e].end;
                                 if (sourceMatch != targetMatch) {
                                     exceptionMismatch = true;
                                     break;
@@ -44,7 +44,7 @@ public class AVM2DeobfuscatorJumps extends SWFDecompilerAdapter {
         AVM2Code code = body.getCode();
 
         List<Integer> exceptionStarts = new ArrayList<>();
-        for (ABCException ex : body.exceptions) {
+        for (ABCException ex : body.getExceptions()) {
             exceptionStarts.add(code.adr2pos(ex.start, true));
         }
 
@@ -61,9 +61,9 @@ public class AVM2DeobfuscatorJumps extends SWFDecompilerAdapter {
 
                     //source and target must be in the same try..catch block
                     boolean exceptionMismatch = false;
-                    for (int e = 0; e < body.exceptions.length; e++) {
-                        boolean sourceMatch = srcAddr >= body.exceptions[e].start && srcAddr < body.exceptions[e].end;
-                        boolean targetMatch = targetAddr >= body.exceptions[e].start && targetAddr < body.exceptions[e].end;
+                    for (int e = 0; e < body.getExceptions().length; e++) {
+                        boolean sourceMatch = srcAddr >= body.getExceptions()[e].start && srcAddr < body.getExceptions()[e].end;
+                        boolean targetMatch = targetAddr >= body.getExceptions()[e].start && targetAddr < body.getExceptions()[e].end;
                         if (sourceMatch != targetMatch) {
                             exceptionMismatch = true;
                             break;
@@ -85,9 +85,9 @@ public class AVM2DeobfuscatorJumps extends SWFDecompilerAdapter {
                             if ((srcIns.definition instanceof JumpIns) || ((srcIns.definition instanceof IfTypeIns) && (r != i - 1))) {
 
                                 exceptionMismatch = false;
-                                for (int e = 0; e < body.exceptions.length; e++) {
-                                    boolean sourceMatch = srcAddr >= body.exceptions[e].start && srcAddr < body.exceptions[e].end;
-                                    boolean targetMatch = targetAddr >= body.exceptions[e].start && targetAddr < body.exceptions[e].end;
+                                for (int e = 0; e < body.getExceptions().length; e++) {
+                                    boolean sourceMatch = srcAddr >= body.getExceptions()[e].start && srcAddr < body.getExceptions()[e].end;
+                                    boolean targetMatch = targetAddr >= body.getExceptions()[e].start && targetAddr < body.getExceptions()[e].end;
                                     if (sourceMatch != targetMatch) {
                                         exceptionMismatch = true;
                                         break;
@@ -149,7 +149,7 @@ public class AVM2DeobfuscatorRegisters extends AVM2DeobfuscatorSimple {
         }
 
         body.getCode().removeDeadCode(body);
-        originalBody.exceptions = body.exceptions;
+        originalBody.setExceptions(body.getExceptions());
         originalBody.setCode(body.getCode());
         //System.err.println("/deo");
     }
@@ -193,7 +193,7 @@ public class AVM2DeobfuscatorRegisters extends AVM2DeobfuscatorSimple {
 
     private int visitCode(Reference<AVM2Instruction> assignment, Set<Integer> visited, Stack<Object> stack, MethodBody body, ABC abc, AVM2Code code, int idx, int endIdx, Set<Integer> ignored, Set<Integer> ignoredGets) throws InterruptedException {
         LocalDataArea localData = new LocalDataArea();
-        initLocalRegs(localData, body.getLocalReservedCount(), body.max_regs, false);
+        initLocalRegs(localData, body.getLocalReservedCount(), body.getMaxRegs(), false);
         localData.localRegisters.put(0, Null.INSTANCE); // this
 
         List<Integer> toVisit = new ArrayList<>();
@@ -148,7 +148,7 @@ public class AVM2DeobfuscatorRegistersOld extends AVM2DeobfuscatorSimpleOld {
 
         body.getCode().removeDeadCode(body);
 
-        originalBody.exceptions = body.exceptions;
+        originalBody.setExceptions(body.getExceptions());
         originalBody.setCode(body.getCode());
     }
 
@@ -186,7 +186,7 @@ public class AVM2DeobfuscatorRegistersOld extends AVM2DeobfuscatorSimpleOld {
     private int visitCode(Reference<AVM2Instruction> assignment, Set<Integer> visited, TranslateStack stack, int classIndex, boolean isStatic, MethodBody body, int scriptIndex, ABC abc, AVM2Code code, int idx, int endIdx, Set<Integer> ignored, Set<Integer> ignoredGets) throws InterruptedException {
 
         Map<Integer, List<ExceptionTargetIpPair>> exceptionStartToTargets = new HashMap<>();
-        for (ABCException ex : body.exceptions) {
+        for (ABCException ex : body.getExceptions()) {
             int startIp = code.adr2pos(ex.start, true);
             int targetIp = code.adr2pos(ex.target);
             if (!exceptionStartToTargets.containsKey(startIp)) {
@@ -197,7 +197,7 @@ public class AVM2DeobfuscatorRegistersOld extends AVM2DeobfuscatorSimpleOld {
 
         List<GraphTargetItem> output = new ArrayList<>();
         AVM2LocalData localData = newLocalData(scriptIndex, abc, abc.constants, body, isStatic, classIndex);
-        initLocalRegs(localData, body.getLocalReservedCount(), body.max_regs);
+        initLocalRegs(localData, body.getLocalReservedCount(), body.getMaxRegs());
         localData.localRegs.put(0, new NullAVM2Item(null, null)); // this
 
         List<Integer> toVisit = new ArrayList<>();
@@ -117,7 +117,7 @@ public class AVM2DeobfuscatorSimple extends AVM2DeobfuscatorZeroJumpsNullPushes
             }
 
             localData.clear();
-            initLocalRegs(localData, localReservedCount, body.max_regs, i == 0);
+            initLocalRegs(localData, localReservedCount, body.getMaxRegs(), i == 0);
 
             if (executeInstructions(staticRegs, body, abc, code, localData, i, code.code.size() - 1, null, inlineIns)) {
                 code.removeDeadCode(body);
@@ -181,7 +181,7 @@ public class AVM2DeobfuscatorSimpleOld extends AVM2DeobfuscatorZeroJumpsNullPush
             localData.localRegs.clear();
             localData.localRegAssignmentIps.clear();
             localData.localRegs.clear();
-            initLocalRegs(localData, localReservedCount, body.max_regs);
+            initLocalRegs(localData, localReservedCount, body.getMaxRegs());
 
             if (executeInstructions(importantOffsets, staticRegs, body, abc, code, localData, i, code.code.size() - 1, null, inlineIns, jumpTargets)) {
                 //startover because dead code was removed and current ip is thus invalid
@@ -196,7 +196,7 @@ public class AVM2DeobfuscatorSimpleOld extends AVM2DeobfuscatorZeroJumpsNullPush
         AVM2LocalData localData = new AVM2LocalData();
         localData.isStatic = isStatic;
         localData.classIndex = classIndex;
-        localData.localRegs = new HashMap<>(body.max_regs);
+        localData.localRegs = new HashMap<>(body.getMaxRegs());
         localData.localRegAssignmentIps = new HashMap<>();
         localData.scopeStack = new ScopeStack(true);
         List<MethodBody> callStack = new ArrayList<>();
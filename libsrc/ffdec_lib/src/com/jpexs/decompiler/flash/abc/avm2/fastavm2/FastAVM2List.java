@@ -488,7 +488,7 @@ public class FastAVM2List implements Collection<AVM2InstructionItem> {
         AVM2InstructionItem item = firstItem;
         if (item == null) {
             body.setCode(result);
-            body.exceptions = new ABCException[0];
+            body.setExceptions(new ABCException[0]);
             return;
         }
 
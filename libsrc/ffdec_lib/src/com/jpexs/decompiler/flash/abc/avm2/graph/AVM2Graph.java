@@ -165,7 +165,7 @@ public class AVM2Graph extends Graph {
     private static List<GraphException> getExceptionEntries(MethodBody body) {
         List<GraphException> ret = new ArrayList<>();
         AVM2Code code = body.getCode();
-        for (ABCException e : body.exceptions) {
+        for (ABCException e : body.getExceptions()) {
             ret.add(new GraphException(code.adr2pos(e.start, true), code.adr2pos(e.end, true), code.adr2pos(e.target)));
         }
         return ret;
@@ -205,8 +205,8 @@ public class AVM2Graph extends Graph {
     @Override
     protected void beforeGetLoops(BaseLocalData localData, String path, Set<GraphPart> allParts, List<ThrowState> throwStates) throws InterruptedException {
         AVM2LocalData avm2LocalData = ((AVM2LocalData) localData);
-        for (int e = 0; e < body.exceptions.length; e++) {
-            ABCException ex = body.exceptions[e];
+        for (int e = 0; e < body.getExceptions().length; e++) {
+            ABCException ex = body.getExceptions()[e];
             if (ex.isFinally()) {
                 avm2LocalData.finallyTargetParts.put(e, searchPart(code.adr2pos(ex.target), allParts));
             }
@@ -238,8 +238,8 @@ public class AVM2Graph extends Graph {
 
     private void getIgnoredSwitches(AVM2LocalData localData, Set<GraphPart> allParts) throws InterruptedException {
 
-        for (int e = 0; e < body.exceptions.length; e++) {
-            ABCException ex = body.exceptions[e];
+        for (int e = 0; e < body.getExceptions().length; e++) {
+            ABCException ex = body.getExceptions()[e];
             if (!ex.isFinally()) {
                 continue;
             }
@@ -667,7 +667,7 @@ public class AVM2Graph extends Graph {
 
     @Override
     protected void checkGraph(List<GraphPart> allBlocks) {
-        for (ABCException ex : body.exceptions) {
+        for (ABCException ex : body.getExceptions()) {
             GraphPart targetPart = searchPart(avm2code.adr2pos(ex.target), allBlocks);
             for (GraphPart p : allBlocks) {
                 if (avm2code.pos2adr(p.start) >= ex.start && avm2code.pos2adr(p.end) <= ex.end && targetPart != null) {
@@ -844,12 +844,12 @@ public class AVM2Graph extends Graph {
 
         List<Integer> finnalysIndicesToBe = new ArrayList<>();
         maxEndAddr = -1;
-        for (int e = 0; e < body.exceptions.length; e++) {
-            long fixedExStart = avm2code.pos2adr(avm2code.adr2pos(body.exceptions[e].start, true));
-            long fixedExEnd = avm2code.pos2adr(avm2code.adr2pos(body.exceptions[e].end, true));
+        for (int e = 0; e < body.getExceptions().length; e++) {
+            long fixedExStart = avm2code.pos2adr(avm2code.adr2pos(body.getExceptions()[e].start, true));
+            long fixedExEnd = avm2code.pos2adr(avm2code.adr2pos(body.getExceptions()[e].end, true));
             if (!previouslyCatchedExceptionIds.contains(e)) {
                 if (addr == fixedExStart) { //avm2code.getAddrThroughJumpAndDebugLine(fixedExStart)) {
-                    ABCException ex = body.exceptions[e];
+                    ABCException ex = body.getExceptions()[e];
                     if (ex.isFinally()) {
                         if (fixedExEnd >= maxEndAddr) {
                             finnalysIndicesToBe.add(e);
@@ -864,7 +864,7 @@ public class AVM2Graph extends Graph {
 
                             //filter finallys that have lower endAddr - they do not belong to these catches
                             for (int k = 0; k < finnalysIndicesToBe.size(); k++) {
-                                if (body.exceptions[finnalysIndicesToBe.get(k)].end < endAddr) {
+                                if (body.getExceptions()[finnalysIndicesToBe.get(k)].end < endAddr) {
                                     finnalysIndicesToBe.remove(k);
                                     k--;
                                 }
@@ -880,20 +880,20 @@ public class AVM2Graph extends Graph {
         Collections.sort(finnalysIndicesToBe, new Comparator<Integer>() {
             @Override
             public int compare(Integer o1, Integer o2) {
-                return body.exceptions[o2].end - body.exceptions[o1].end;
+                return body.getExceptions()[o2].end - body.getExceptions()[o1].end;
             }
         });
 
         GraphPart outSideExceptionPart = null;
         if (!catchedExceptionIds.isEmpty()) {
-            outSideExceptionPart = searchFirstPartOutSideTryCatch(localData, body.exceptions[catchedExceptionIds.get(0)], loops, allParts);
+            outSideExceptionPart = searchFirstPartOutSideTryCatch(localData, body.getExceptions()[catchedExceptionIds.get(0)], loops, allParts);
         }
 
         if (!finnalysIndicesToBe.isEmpty()) {
             long maxEnd = 0;
             int maxF = -1;
             for (int f : finnalysIndicesToBe) {
-                long fixedExEnd = avm2code.pos2adr(avm2code.adr2pos(body.exceptions[f].end, true));
+                long fixedExEnd = avm2code.pos2adr(avm2code.adr2pos(body.getExceptions()[f].end, true));
                 if (fixedExEnd > maxEnd) {
                     maxEnd = fixedExEnd;
                     maxF = f;
@@ -904,7 +904,7 @@ public class AVM2Graph extends Graph {
         }
 
         for (int e : finnalysIndicesToBe) {
-            ABCException finallyExceptionToBe = body.exceptions[e];
+            ABCException finallyExceptionToBe = body.getExceptions()[e];
             if (catchedExceptionIds.isEmpty() || outSideExceptionPart == null) {
                 //there's no exception, finally only                
                 break;
@@ -963,12 +963,12 @@ public class AVM2Graph extends Graph {
         getCatchedExceptionIds(part, parsedExceptionIds, catchedExceptionIds, finallyIndexRef, allParts, loops, localData);
         List<ABCException> catchedExceptions = new ArrayList<>();
         for (int e : catchedExceptionIds) {
-            catchedExceptions.add(body.exceptions[e]);
+            catchedExceptions.add(body.getExceptions()[e]);
         }
         ABCException finallyException = null;
         int finallyIndex = finallyIndexRef.getVal();
         if (finallyIndex > -1) {
-            finallyException = body.exceptions[finallyIndex];
+            finallyException = body.getExceptions()[finallyIndex];
         }
 
         if (finallyException != null) {
@@ -1378,7 +1378,7 @@ public class AVM2Graph extends Graph {
     @Override
     protected boolean canHandleVisited(BaseLocalData localData, GraphPart part) {
         AVM2LocalData aLocalData = (AVM2LocalData) localData;
-        for (ABCException ex : body.exceptions) {
+        for (ABCException ex : body.getExceptions()) {
             if (aLocalData.parsedExceptions.contains(ex)) {
                 continue;
             }
@@ -1405,7 +1405,7 @@ public class AVM2Graph extends Graph {
         AVM2LocalData aLocalData = (AVM2LocalData) localData;
 
         boolean inTry = false;
-        for (ABCException ex : body.exceptions) {
+        for (ABCException ex : body.getExceptions()) {
             if (aLocalData.parsedExceptions.contains(ex)) {
                 continue;
             }
@@ -2312,16 +2312,16 @@ public class AVM2Graph extends Graph {
     protected List<ThrowState> getThrowStates(BaseLocalData localData, Set<GraphPart> allParts) {
 
         AVM2LocalData avm2LocalData = (AVM2LocalData) localData;
-        avm2LocalData.codeStats = avm2LocalData.code.getStats(avm2LocalData.abc, avm2LocalData.methodBody, avm2LocalData.methodBody.init_scope_depth, false);
+        avm2LocalData.codeStats = avm2LocalData.code.getStats(avm2LocalData.abc, avm2LocalData.methodBody, avm2LocalData.methodBody.getInitScopeDepth(), false);
 
         List<ThrowState> ret = new ArrayList<>();
-        for (int e = 0; e < body.exceptions.length; e++) {
+        for (int e = 0; e < body.getExceptions().length; e++) {
             ThrowState ts = new ThrowState();
             ts.exceptionId = e;
             ts.state = 0;
-            ts.targetPart = searchPart(code.adr2pos(body.exceptions[e].target), allParts);
-            int startIp = code.adr2pos(body.exceptions[e].start, true);
-            int endIp = code.adr2pos(body.exceptions[e].end, true);
+            ts.targetPart = searchPart(code.adr2pos(body.getExceptions()[e].target), allParts);
+            int startIp = code.adr2pos(body.getExceptions()[e].start, true);
+            int endIp = code.adr2pos(body.getExceptions()[e].end, true);
             ts.startPart = searchPart(startIp, allParts);
             for (GraphPart p : allParts) {
                 if (p.start >= startIp && p.start < endIp) {
@@ -356,7 +356,7 @@ public abstract class InstructionDefinition implements Serializable {
 
         Traits traits = null;
         if (obj instanceof NewActivationAVM2Item) {
-            traits = localData.methodBody.traits;
+            traits = localData.methodBody.getTraits();
         } else if (obj instanceof ThisAVM2Item) {
             traits = localData.abc.instance_info.get(localData.classIndex).instance_traits;
         } else if (obj instanceof ClassAVM2Item) {
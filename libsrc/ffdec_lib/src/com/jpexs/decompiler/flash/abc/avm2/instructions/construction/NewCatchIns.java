@@ -39,7 +39,7 @@ public class NewCatchIns extends InstructionDefinition {
     @Override
     public void translate(AVM2LocalData localData, TranslateStack stack, AVM2Instruction ins, List<GraphTargetItem> output, String path) {
         int exInfo = ins.operands[0];
-        stack.push(new ExceptionAVM2Item(localData.methodBody.exceptions[exInfo]));
+        stack.push(new ExceptionAVM2Item(localData.methodBody.getExceptions()[exInfo]));
     }
 
     @Override
@@ -53,7 +53,7 @@ public class GetGlobalSlotIns extends InstructionDefinition {
         Multiname slotname = InstructionDefinition.searchSlotName(slotIndex, localData, obj, realObj);
         GraphTargetItem slotType = TypeItem.UNBOUNDED;
         if (obj instanceof NewActivationAVM2Item) {
-            for (Trait t : localData.methodBody.traits.traits) {
+            for (Trait t : localData.methodBody.getTraits().traits) {
                 if (t instanceof TraitSlotConst) {
                     TraitSlotConst tsc = (TraitSlotConst)t;
                     if (tsc.slot_id == slotIndex) {
@@ -60,7 +60,7 @@ public class GetLexIns extends InstructionDefinition {
         String multinameStr = localData.abc.constants.getMultiname(multinameIndex).getName(localData.abc.constants, new ArrayList<>(), true, true);
         for (int b = localData.callStack.size() - 1; b >= 0; b--) {
             MethodBody body = localData.callStack.get(b);
-            for (Trait t : body.traits.traits) {
+            for (Trait t : body.getTraits().traits) {
                 if (t instanceof TraitSlotConst) {
                     TraitSlotConst tsc = (TraitSlotConst) t;
                     if (Objects.equals(
@@ -85,7 +85,7 @@ public class GetLexIns extends InstructionDefinition {
             if (type.getVal().equals(TypeItem.UNKNOWN)) {
                 //TypeItem ti = new TypeItem(localData.abc.constants.getMultiname(multinameIndex).getNameWithNamespace(localData.abc.constants, true));
                 GraphTargetItem ti = AbcIndexing.multinameToType(multinameIndex, localData.abc.constants);
-                if (localData.abcIndex.findClass(ti, localData.abc, localData.scriptIndex) != null) {
+                if (localData.abcIndex.hasClass(ti, localData.abc, localData.scriptIndex)) {
                     type.setVal(ti);
                     callType.setVal(TypeItem.UNBOUNDED);
                     isStatic.setVal(true);
@@ -94,10 +94,7 @@ public class GetLexIns extends InstructionDefinition {
                 Namespace ns = localData.abc.constants.getMultiname(multinameIndex).getNamespace(localData.abc.constants);
                 if (ns != null) {
                     String rawNs = ns.getRawName(localData.abc.constants);
-                    AbcIndexing.TraitIndex traitIndex = localData.abcIndex.findScriptProperty(multinameStr, DottedChain.parseWithSuffix(rawNs));
-                    if (traitIndex != null) {
-                        type.setVal(traitIndex.returnType);
-                        callType.setVal(traitIndex.callReturnType);
+                    if (localData.abcIndex.findScriptPropertyTypeOrCallType(multinameStr, DottedChain.parseWithSuffix(rawNs), type, callType)) {
                         isStatic.setVal(true);
                         return;
                     }
@@ -155,7 +155,7 @@ public class GetPropertyIns extends InstructionDefinition {
             if (fprop.propertyName.equals(multiname)) {
                 for (int b = localData.callStack.size() - 1; b >= 0; b--) {
                     MethodBody body = localData.callStack.get(b);
-                    for (Trait t : body.traits.traits) {
+                    for (Trait t : body.getTraits().traits) {
                         if (t instanceof TraitSlotConst) {
                             TraitSlotConst tsc = (TraitSlotConst) t;
                             if (Objects.equals(
@@ -179,7 +179,7 @@ public class GetPropertyIns extends InstructionDefinition {
                         }
                         if (type.getVal().equals(TypeItem.UNKNOWN)) {                            
                             GraphTargetItem ti = AbcIndexing.multinameToType(multiname.multinameIndex, localData.abc.constants);//new TypeItem(localData.abc.constants.getMultiname(multiname.multinameIndex).getNameWithNamespace(localData.abc.constants, true));
-                            if (localData.abcIndex.findClass(ti, localData.abc, localData.scriptIndex) != null) {
+                            if (localData.abcIndex.hasClass(ti, localData.abc, localData.scriptIndex)) {
                                 type.setVal(ti);
                                 callType.setVal(TypeItem.UNBOUNDED);
                                 isStatic.setVal(true);
@@ -189,10 +189,7 @@ public class GetPropertyIns extends InstructionDefinition {
                             Namespace ns = localData.abc.constants.getMultiname(multiname.multinameIndex).getNamespace(localData.abc.constants);
                             if (ns != null) {
                                 String rawNs = ns.getRawName(localData.abc.constants);
-                                AbcIndexing.TraitIndex traitIndex = localData.abcIndex.findScriptProperty(multinameStr, DottedChain.parseWithSuffix(rawNs));
-                                if (traitIndex != null) {
-                                    type.setVal(traitIndex.returnType);
-                                    callType.setVal(traitIndex.callReturnType);
+                                if (localData.abcIndex.findScriptPropertyTypeOrCallType(multinameStr, DottedChain.parseWithSuffix(rawNs), type, callType)) {
                                     isStatic.setVal(true); //?
                                     return;
                                 }
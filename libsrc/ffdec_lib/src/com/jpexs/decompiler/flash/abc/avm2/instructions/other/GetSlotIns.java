@@ -56,7 +56,7 @@ public class GetSlotIns extends InstructionDefinition {
         }
         GraphTargetItem slotType = TypeItem.UNBOUNDED;
         if (obj instanceof NewActivationAVM2Item) {
-            for (Trait t : localData.methodBody.traits.traits) {
+            for (Trait t : localData.methodBody.getTraits().traits) {
                 if (t instanceof TraitSlotConst) {
                     TraitSlotConst tsc = (TraitSlotConst)t;
                     if (tsc.slot_id == slotIndex) {
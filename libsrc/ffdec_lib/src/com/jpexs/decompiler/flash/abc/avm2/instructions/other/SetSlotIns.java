@@ -143,7 +143,7 @@ public class SetSlotIns extends InstructionDefinition implements SetTypeIns {
 
         GraphTargetItem slotType = TypeItem.UNBOUNDED;
         if (obj instanceof NewActivationAVM2Item) {
-            for (Trait t : localData.methodBody.traits.traits) {
+            for (Trait t : localData.methodBody.getTraits().traits) {
                 if (t instanceof TraitSlotConst) {
                     TraitSlotConst tsc = (TraitSlotConst)t;
                     if (tsc.slot_id == slotIndex) {
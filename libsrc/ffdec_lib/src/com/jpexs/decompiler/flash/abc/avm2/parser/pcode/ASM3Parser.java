@@ -645,7 +645,7 @@ public class ASM3Parser {
         List<Integer> paramNames = new ArrayList<>();
         List<ValueKind> optional = new ArrayList<>();
         Stack<Integer> blockStack = new Stack<>();
-        body.traits = new Traits();
+        body.setTraits(new Traits());
         do {
             symb = lexer.lex();
             if (Arrays.asList(ParsedSymbol.TYPE_KEYWORD_BODY, ParsedSymbol.TYPE_KEYWORD_CODE, ParsedSymbol.TYPE_KEYWORD_METHOD).contains(symb.type)) {
@@ -658,7 +658,7 @@ public class ASM3Parser {
                     lexer.pushback(symb);
                     TraitSlotConst tsc = new TraitSlotConst();
                     parseSlotConst(abc, lexer, constants, tsc);
-                    body.traits.addTrait(tsc);
+                    body.getTraits().addTrait(tsc);
                 } else {
                     if (trait == null) {
                         throw new AVM2ParseException("No trait expected", lexer.yyline());
@@ -736,28 +736,28 @@ public class ASM3Parser {
             if (symb.type == ParsedSymbol.TYPE_KEYWORD_MAXSTACK) {
                 symb = lexer.lex();
                 expected(symb, ParsedSymbol.TYPE_INTEGER, "Integer");
-                body.max_stack = (int) (Integer) symb.value;
+                body.setMaxStack((int) (Integer) symb.value);
                 continue;
             }
 
             if (symb.type == ParsedSymbol.TYPE_KEYWORD_LOCALCOUNT) {
                 symb = lexer.lex();
                 expected(symb, ParsedSymbol.TYPE_INTEGER, "Integer");
-                body.max_regs = (int) (Integer) symb.value;
+                body.setMaxRegs((int) (Integer) symb.value);
                 continue;
             }
 
             if (symb.type == ParsedSymbol.TYPE_KEYWORD_INITSCOPEDEPTH) {
                 symb = lexer.lex();
                 expected(symb, ParsedSymbol.TYPE_INTEGER, "Integer");
-                body.init_scope_depth = (int) (Integer) symb.value;
+                body.setInitScopeDepth((int) (Integer) symb.value);
                 continue;
             }
 
             if (symb.type == ParsedSymbol.TYPE_KEYWORD_MAXSCOPEDEPTH) {
                 symb = lexer.lex();
                 expected(symb, ParsedSymbol.TYPE_INTEGER, "Integer");
-                body.max_scope_depth = (int) (Integer) symb.value;
+                body.setMaxScopeDepth((int) (Integer) symb.value);
                 continue;
             }
 
@@ -1208,9 +1208,9 @@ public class ASM3Parser {
             }
             ins.operands[oi.insOperandIndex] = relOffset;
         }
-        body.exceptions = new ABCException[exceptions.size()];
+        body.setExceptions(new ABCException[exceptions.size()]);
         for (int e = 0; e < exceptions.size(); e++) {
-            body.exceptions[e] = exceptions.get(e);
+            body.getExceptions()[e] = exceptions.get(e);
         }
 
         info.param_types = new int[paramTypes.size()];
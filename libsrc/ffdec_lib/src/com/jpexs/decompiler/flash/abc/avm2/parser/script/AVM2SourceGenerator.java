@@ -1907,7 +1907,7 @@ public class AVM2SourceGenerator implements SourceGenerator {
                     tsc.slot_id = slotId++;
                     tsc.name_index = abcIndex.getSelectedAbc().constants.getMultinameId(Multiname.createQName(false, abcIndex.getSelectedAbc().constants.getStringId(slotNames.get(i), true), abcIndex.getSelectedAbc().constants.getNamespaceId(Namespace.KIND_PACKAGE_INTERNAL, pkg, 0, true)), true);
                     tsc.type_index = typeName(localData, slotTypes.get(i));
-                    mbody.traits.traits.add(tsc);
+                    mbody.getTraits().traits.add(tsc);
                 }
                 for (int i = 1; i < paramRegCount; i++) {
                     NameAVM2Item param = new NameAVM2Item(registerTypes.get(i), 0, false, registerNames.get(i), "", null, false, new ArrayList<>(), abcIndex);
@@ -2023,7 +2023,7 @@ public class AVM2SourceGenerator implements SourceGenerator {
                     mbodyCode.add(new AVM2Instruction(0, AVM2Instructions.ReturnValue, null));
                 }
             }
-            mbody.exceptions = localData.exceptions.toArray(new ABCException[localData.exceptions.size()]);
+            mbody.setExceptions(localData.exceptions.toArray(new ABCException[localData.exceptions.size()]));
             int offset = 0;
             for (int i = 0; i < mbodyCode.size(); i++) {
                 AVM2Instruction ins = mbodyCode.get(i);
@@ -2031,13 +2031,13 @@ public class AVM2SourceGenerator implements SourceGenerator {
                     ExceptionMarkAVM2Instruction m = (ExceptionMarkAVM2Instruction) ins;
                     switch (m.markType) {
                         case MARK_E_START:
-                            mbody.exceptions[m.exceptionId].start = offset;
+                            mbody.getExceptions()[m.exceptionId].start = offset;
                             break;
                         case MARK_E_END:
-                            mbody.exceptions[m.exceptionId].end = offset;
+                            mbody.getExceptions()[m.exceptionId].end = offset;
                             break;
                         case MARK_E_TARGET:
-                            mbody.exceptions[m.exceptionId].target = offset;
+                            mbody.getExceptions()[m.exceptionId].target = offset;
                             break;
                     }
                     mbodyCode.remove(i);
@@ -2483,8 +2483,8 @@ public class AVM2SourceGenerator implements SourceGenerator {
                 } else {
 
                     AbcIndexing.ClassIndex ci = abcIndex.findClass(AbcIndexing.multinameToType(abc.instance_info.get(tc.class_info).name_index, constants), null, null/*FIXME?*/);
-                    while (ci != null && ci.parent != null) {
-                        ci = ci.parent;
+                    while (ci != null && ci.getParent() != null) {
+                        ci = ci.getParent();
                         Multiname origM = ci.abc.constants.getMultiname(ci.abc.instance_info.get(ci.index).name_index);
                         Namespace origNs = ci.abc.constants.getNamespace(origM.namespace_index);
                         if (origM.kind == Multiname.QNAME || origM.kind == Multiname.QNAMEA) {
@@ -2667,7 +2667,7 @@ public class AVM2SourceGenerator implements SourceGenerator {
             outABCs.add(ci.abc);
             names.add(ci.abc.constants.getMultiname(ni).getName(ci.abc.constants, null, true, true/*FIXME!!*/));
             namespaces.add(ci.abc.constants.getMultiname(ni).getNamespace(ci.abc.constants).getName(ci.abc.constants).toRawString());
-            ci = ci.parent;
+            ci = ci.getParent();
         }
     }
 
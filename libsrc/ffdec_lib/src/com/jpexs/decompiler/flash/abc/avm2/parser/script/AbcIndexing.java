@@ -37,6 +37,9 @@ import com.jpexs.decompiler.graph.DottedChain;
 import com.jpexs.decompiler.graph.GraphTargetItem;
 import com.jpexs.decompiler.graph.TypeItem;
 import com.jpexs.helpers.Reference;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -52,6 +55,11 @@ import java.util.logging.Logger;
  * Indexing of ABCs for faster access. Indexes ABC classes for faster class and
  * property resolving
  *
+ * An index of a library can be created from a snapshot of its names and types
+ * (see AbcIndexingSnapshot). Class existence and property types are then
+ * answered from the snapshot and the library is loaded on first access which
+ * needs its ABCs or traits.
+ *
  * @author JPEXS
  */
 public final class AbcIndexing {
@@ -62,6 +70,26 @@ public final class AbcIndexing {
 
     private ABC selectedAbc = null;
 
+    /**
+     * Loader of library SWF
+     */
+    public interface Loader {
+
+        public SWF load() throws IOException, InterruptedException;
+    }
+
+    private volatile boolean loaded = true;
+
+    private Loader loader = null;
+
+    private Map<ClassDef, ClassIndex> snapshotClasses;
+
+    private Map<PropertyDef, TraitIndex> snapshotInstanceProperties;
+
+    private Map<PropertyDef, TraitIndex> snapshotClassProperties;
+
+    private Map<PropertyNsDef, TraitIndex> snapshotScriptProperties;
+
     /**
      * Creates empty index with parent.
      *
@@ -81,11 +109,180 @@ public final class AbcIndexing {
         this.parent = parent;
         if (swf != null) {
             for (ABCContainerTag at : swf.getAbcList()) {
-                addAbc(at.getABC());
+                addAbcInternal(at.getABC());
             }
         }
     }
 
+    /**
+     * Creates index of a library from its snapshot.
+     *
+     * @param snapshot Snapshot data written by writeSnapshot
+     * @param loader Loader of the library, called on first access which needs
+     * ABCs or traits
+     * @throws IOException On invalid snapshot
+     */
+    AbcIndexing(ByteBuffer snapshot, Loader loader) throws IOException {
+        snapshotClasses = new HashMap<>();
+        int count = snapshot.getInt();
+        for (int i = 0; i < count; i++) {
+            ClassDef key = new ClassDef(AbcIndexingSnapshot.readType(snapshot), AbcIndexingSnapshot.readDottedChain(snapshot));
+            ClassIndex ci = new ClassIndex(-1, null, null, null);
+            ci.snapshotIndexing = this;
+            ci.snapshotKey = key;
+            ci.snapshotName = AbcIndexingSnapshot.readDottedChain(snapshot);
+            ci.snapshotParentName = AbcIndexingSnapshot.readDottedChain(snapshot);
+            snapshotClasses.put(key, ci);
+        }
+        snapshotInstanceProperties = readSnapshotProperties(snapshot);
+        snapshotClassProperties = readSnapshotProperties(snapshot);
+        snapshotScriptProperties = new HashMap<>();
+        count = snapshot.getInt();
+        for (int i = 0; i < count; i++) {
+            PropertyNsDef key = new PropertyNsDef(AbcIndexingSnapshot.readString(snapshot), AbcIndexingSnapshot.readDottedChain(snapshot), null, 0);
+            snapshotScriptProperties.put(key, readSnapshotTypes(snapshot));
+        }
+        this.loader = loader;
+        this.loaded = false;
+    }
+
+    private static Map<PropertyDef, TraitIndex> readSnapshotProperties(ByteBuffer snapshot) throws IOException {
+        Map<PropertyDef, TraitIndex> ret = new HashMap<>();
+        int count = snapshot.getInt();
+        for (int i = 0; i < count; i++) {
+            String propName = AbcIndexingSnapshot.readString(snapshot);
+            GraphTargetItem parentType = AbcIndexingSnapshot.readType(snapshot);
+            String propNsString = AbcIndexingSnapshot.readString(snapshot);
+            int propNsIndex = snapshot.getInt();
+            ret.put(new PropertyDef(propName, parentType, propNsString, propNsIndex), readSnapshotTypes(snapshot));
+        }
+        return ret;
+    }
+
+    private static TraitIndex readSnapshotTypes(ByteBuffer snapshot) throws IOException {
+        GraphTargetItem returnType = AbcIndexingSnapshot.readType(snapshot);
+        GraphTargetItem callReturnType = AbcIndexingSnapshot.readType(snapshot);
+        return new TraitIndex(null, null, returnType, callReturnType, null, null);
+    }
+
+    /**
+     * Writes snapshot of class names and property types of this index. Parent
+     * index is not included.
+     *
+     * @param os Output stream
+     * @throws IOException On error or when a type cannot be stored
+     */
+    void writeSnapshot(DataOutputStream os) throws IOException {
+        ensureLoaded();
+        os.writeInt(classes.size());
+        for (ClassDef key : classes.keySet()) {
+            ClassIndex ci = classes.get(key);
+            AbcIndexingSnapshot.writeType(os, key.type);
+            AbcIndexingSnapshot.writeDottedChain(os, key.pkg);
+            AbcIndexingSnapshot.writeDottedChain(os, ci.getName());
+            AbcIndexingSnapshot.writeDottedChain(os, ci.getParentName());
+        }
+        writeSnapshotProperties(os, instanceProperties);
+        writeSnapshotProperties(os, classProperties);
+        List<PropertyNsDef> scriptKeys = new ArrayList<>();
+        for (PropertyNsDef key : scriptProperties.keySet()) {
+            //private properties are found only with their ABC, which is not in the snapshot
+            if (key.abc == null) {
+                scriptKeys.add(key);
+            }
+        }
+        os.writeInt(scriptKeys.size());
+        for (PropertyNsDef key : scriptKeys) {
+            AbcIndexingSnapshot.writeString(os, key.propName);
+            AbcIndexingSnapshot.writeDottedChain(os, key.ns);
+            writeSnapshotTypes(os, scriptProperties.get(key));
+        }
+    }
+
+    private static void writeSnapshotProperties(DataOutputStream os, Map<PropertyDef, TraitIndex> map) throws IOException {
+        os.writeInt(map.size());
+        for (PropertyDef key : map.keySet()) {
+            AbcIndexingSnapshot.writeString(os, key.propName);
+            AbcIndexingSnapshot.writeType(os, key.parent);
+            AbcIndexingSnapshot.writeString(os, key.propNsString);
+            os.writeInt(key.propNsIndex);
+            writeSnapshotTypes(os, map.get(key));
+        }
+    }
+
+    private static void writeSnapshotTypes(DataOutputStream os, TraitIndex ti) throws IOException {
+        AbcIndexingSnapshot.writeType(os, ti.returnType);
+        AbcIndexingSnapshot.writeType(os, ti.callReturnType);
+    }
+
+    /**
+     * Checks whether the index was created from snapshot and its library was
+     * not loaded yet.
+     *
+     * @return True when not loaded
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Loads the library of index created from snapshot.
+     */
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            SWF swf = null;
+            try {
+                swf = loader.load();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException ex) {
+                Logger.getLogger(AbcIndexing.class.getName()).log(Level.SEVERE, "Cannot load library", ex);
+            }
+            if (swf != null) {
+                for (ABCContainerTag at : swf.getAbcList()) {
+                    addAbcInternal(at.getABC());
+                }
+            }
+            loader = null;
+            loaded = true;
+        }
+    }
+
+    private Map<ClassDef, ClassIndex> getClasses(boolean load) {
+        if (load) {
+            ensureLoaded();
+        }
+        return loaded ? classes : snapshotClasses;
+    }
+
+    private Map<PropertyDef, TraitIndex> getInstanceProperties(boolean load) {
+        if (load) {
+            ensureLoaded();
+        }
+        return loaded ? instanceProperties : snapshotInstanceProperties;
+    }
+
+    private Map<PropertyDef, TraitIndex> getClassProperties(boolean load) {
+        if (load) {
+            ensureLoaded();
+        }
+        return loaded ? classProperties : snapshotClassProperties;
+    }
+
+    private Map<PropertyNsDef, TraitIndex> getScriptProperties(boolean load) {
+        if (load) {
+            ensureLoaded();
+        }
+        return loaded ? scriptProperties : snapshotScriptProperties;
+    }
+
     /**
      * Creates index from SWF file.
      *
@@ -99,7 +296,7 @@ public final class AbcIndexing {
      * Creates empty index
      */
     public AbcIndexing() {
-        this(null, null);
+        this((SWF) null, null);
     }
 
     /**
@@ -186,6 +383,13 @@ public final class AbcIndexing {
             this.propNsString = propNsString;
         }
 
+        private PropertyDef(String propName, GraphTargetItem parent, String propNsString, int propNsIndex) {
+            this.propName = propName;
+            this.parent = parent;
+            this.propNsString = propNsString;
+            this.propNsIndex = propNsIndex;
+        }
+
         @Override
         public int hashCode() {
             int hash = 3;
@@ -333,6 +537,11 @@ public final class AbcIndexing {
             }
         }
 
+        private ClassDef(GraphTargetItem type, DottedChain pkg) {
+            this.type = type;
+            this.pkg = pkg;
+        }
+
         @Override
         public int hashCode() {
             int hash = 3;
@@ -369,13 +578,25 @@ public final class AbcIndexing {
 
         public ABC abc;
 
-        public ClassIndex parent;
+        private ClassIndex parent;
         
         public Integer scriptIndex;
 
+        /**
+         * Index which this class was read from snapshot of, null for loaded
+         * class
+         */
+        private AbcIndexing snapshotIndexing;
+
+        private ClassDef snapshotKey;
+
+        private DottedChain snapshotName;
+
+        private DottedChain snapshotParentName;
+
         @Override
         public String toString() {
-            return abc.constants.getMultiname(abc.instance_info.get(index).name_index).getNameWithNamespace(abc.constants, true).toPrintableString(true);
+            return getName().toPrintableString(true);
         }
 
         public ClassIndex(int index, ABC abc, ClassIndex parent, Integer scriptIndex) {
@@ -385,12 +606,45 @@ public final class AbcIndexing {
             this.scriptIndex = scriptIndex;
         }
 
+        /**
+         * Gets index of parent class. When the parent is in a library index
+         * which was not loaded yet, the library is loaded.
+         *
+         * @return Parent class or null
+         */
+        public ClassIndex getParent() {
+            if (parent != null && parent.snapshotIndexing != null) {
+                ClassIndex loadedParent = parent.snapshotIndexing.getClasses(true).get(parent.snapshotKey);
+                if (loadedParent != null) {
+                    parent = loadedParent;
+                }
+            }
+            return parent;
+        }
+
+        private DottedChain getName() {
+            if (snapshotIndexing != null) {
+                return snapshotName;
+            }
+            return abc.instance_info.get(index).getName(abc.constants).getNameWithNamespace(abc.constants, true);
+        }
+
+        private DottedChain getParentName() {
+            if (snapshotIndexing != null) {
+                return snapshotParentName;
+            }
+            if (parent == null) {
+                return null;
+            }
+            return parent.getName();
+        }
+
         @Override
         public int hashCode() {
             int hash = 5;
             hash = 37 * hash + this.index;
             hash = 37 * hash + System.identityHashCode(this.abc);
-            hash = 37 * hash + Objects.hashCode(this.parent);
+            hash = 37 * hash + Objects.hashCode(getParent());
             hash = 37 * hash + Objects.hashCode(this.scriptIndex);
             return hash;
         }
@@ -413,7 +667,7 @@ public final class AbcIndexing {
             if (this.abc != other.abc) {
                 return false;
             }
-            if (!Objects.equals(this.parent, other.parent)) {
+            if (!Objects.equals(getParent(), other.getParent())) {
                 return false;
             }
             return Objects.equals(this.scriptIndex, other.scriptIndex);
@@ -433,6 +687,24 @@ public final class AbcIndexing {
     private final Map<PropertyNsDef, TraitIndex> scriptProperties = new HashMap<>();   
     
     public ClassIndex findClass(GraphTargetItem cls, ABC abc, Integer scriptIndex) {
+        return findClass(cls, abc, scriptIndex, true);
+    }
+
+    /**
+     * Checks whether class exists. Does not load library indices created from
+     * snapshot.
+     *
+     * @param cls Class type
+     * @param abc ABC for private class resolving
+     * @param scriptIndex Script index for private class resolving
+     * @return True when class exists
+     */
+    public boolean hasClass(GraphTargetItem cls, ABC abc, Integer scriptIndex) {
+        return findClass(cls, abc, scriptIndex, false) != null;
+    }
+
+    private ClassIndex findClass(GraphTargetItem cls, ABC abc, Integer scriptIndex, boolean load) {
+        Map<ClassDef, ClassIndex> classes = getClasses(load);
         ClassDef keyWithScriptIndex = new ClassDef(cls, abc, scriptIndex);
         if (classes.containsKey(keyWithScriptIndex)) {
             return classes.get(keyWithScriptIndex);
@@ -446,11 +718,11 @@ public final class AbcIndexing {
         if (parent == null) {
             return null;
         }
-        return parent.findClass(cls, abc, scriptIndex);                
+        return parent.findClass(cls, abc, scriptIndex, load);                
     }
 
     public void findPropertyTypeOrCallType(ABC abc, GraphTargetItem cls, String propName, int ns, boolean findStatic, boolean findInstance, boolean findProtected, Reference<GraphTargetItem> type, Reference<GraphTargetItem> callType) {
-        TraitIndex traitIndex = findProperty(new PropertyDef(propName, cls, abc, ns), findStatic, findInstance, findProtected);
+        TraitIndex traitIndex = findProperty(new PropertyDef(propName, cls, abc, ns), findStatic, findInstance, findProtected, false);
         if (traitIndex == null) {
             type.setVal(TypeItem.UNKNOWN);
             callType.setVal(TypeItem.UNKNOWN);
@@ -462,7 +734,7 @@ public final class AbcIndexing {
     
     
     public GraphTargetItem findPropertyType(ABC abc, GraphTargetItem cls, String propName, int ns, boolean findStatic, boolean findInstance, boolean findProtected) {
-        TraitIndex traitIndex = findProperty(new PropertyDef(propName, cls, abc, ns), findStatic, findInstance, findProtected);
+        TraitIndex traitIndex = findProperty(new PropertyDef(propName, cls, abc, ns), findStatic, findInstance, findProtected, false);
         if (traitIndex == null) {
             return TypeItem.UNBOUNDED;
         }
@@ -470,7 +742,7 @@ public final class AbcIndexing {
     }
 
     public GraphTargetItem findPropertyCallType(ABC abc, GraphTargetItem cls, String propName, int ns, boolean findStatic, boolean findInstance, boolean findProtected) {
-        TraitIndex traitIndex = findProperty(new PropertyDef(propName, cls, abc, ns), findStatic, findInstance, findProtected);
+        TraitIndex traitIndex = findProperty(new PropertyDef(propName, cls, abc, ns), findStatic, findInstance, findProtected, false);
         if (traitIndex == null) {
             return TypeItem.UNBOUNDED;
         }
@@ -482,10 +754,35 @@ public final class AbcIndexing {
     }
 
     public TraitIndex findScriptProperty(String propName, DottedChain ns) {
+        return findScriptProperty(propName, ns, true);
+    }
+
+    /**
+     * Finds type of script property. Does not load library indices created
+     * from snapshot.
+     *
+     * @param propName Property name
+     * @param ns Namespace
+     * @param type Result type
+     * @param callType Result call type
+     * @return True when property was found
+     */
+    public boolean findScriptPropertyTypeOrCallType(String propName, DottedChain ns, Reference<GraphTargetItem> type, Reference<GraphTargetItem> callType) {
+        TraitIndex traitIndex = findScriptProperty(propName, ns, false);
+        if (traitIndex == null) {
+            return false;
+        }
+        type.setVal(traitIndex.returnType);
+        callType.setVal(traitIndex.callReturnType);
+        return true;
+    }
+
+    private TraitIndex findScriptProperty(String propName, DottedChain ns, boolean load) {
+        Map<PropertyNsDef, TraitIndex> scriptProperties = getScriptProperties(load);
         PropertyNsDef nsd = new PropertyNsDef(propName, ns, null, 0);
         if (!scriptProperties.containsKey(nsd)) {
             if (parent != null) {
-                return parent.findScriptProperty(propName, ns);
+                return parent.findScriptProperty(propName, ns, load);
             }
             return null;
         }
@@ -493,6 +790,7 @@ public final class AbcIndexing {
     }
 
     public TraitIndex findNsProperty(PropertyNsDef prop, boolean findStatic, boolean findInstance) {
+        ensureLoaded();
 
         if (findStatic && classNsProperties.containsKey(prop)) {
             if (!classNsProperties.containsKey(prop)) {
@@ -522,6 +820,26 @@ public final class AbcIndexing {
     }
 
     public TraitIndex findProperty(PropertyDef prop, boolean findStatic, boolean findInstance, boolean findProtected) {
+        return findProperty(prop, findStatic, findInstance, findProtected, true);
+    }
+
+    /**
+     * Checks whether property exists. Does not load library indices created
+     * from snapshot.
+     *
+     * @param prop Property key
+     * @param findStatic Search static properties
+     * @param findInstance Search instance properties
+     * @param findProtected Search protected properties
+     * @return True when property exists
+     */
+    public boolean hasProperty(PropertyDef prop, boolean findStatic, boolean findInstance, boolean findProtected) {
+        return findProperty(prop, findStatic, findInstance, findProtected, false) != null;
+    }
+
+    private TraitIndex findProperty(PropertyDef prop, boolean findStatic, boolean findInstance, boolean findProtected, boolean load) {
+        Map<PropertyDef, TraitIndex> classProperties = getClassProperties(load);
+        Map<PropertyDef, TraitIndex> instanceProperties = getInstanceProperties(load);
         /*System.out.println("searching " + prop);
         for (PropertyDef p : instanceProperties.keySet()) {
             if (p.parent.equals(new TypeItem("tests_classes.TestConvertParent"))) {
@@ -534,7 +852,7 @@ public final class AbcIndexing {
         if (findStatic && classProperties.containsKey(prop)) {
             if (!classProperties.containsKey(prop)) {
                 if (parent != null) {
-                    TraitIndex ret = parent.findProperty(prop, findStatic, findInstance, findProtected);
+                    TraitIndex ret = parent.findProperty(prop, findStatic, findInstance, findProtected, load);
                     if (ret != null) {
                         return ret;
                     }
@@ -548,7 +866,7 @@ public final class AbcIndexing {
         if (findInstance && instanceProperties.containsKey(prop)) {
             if (!instanceProperties.containsKey(prop)) {
                 if (parent != null) {
-                    TraitIndex ret = parent.findProperty(prop, findStatic, findInstance, findProtected);
+                    TraitIndex ret = parent.findProperty(prop, findStatic, findInstance, findProtected, load);
                     if (ret != null) {
                         return ret;
                     }
@@ -559,11 +877,10 @@ public final class AbcIndexing {
         }
 
         //now search parent class
-        AbcIndexing.ClassIndex ci = findClass(prop.parent, prop.abc, null);
-        if (ci != null && ci.parent != null && (prop.abc == null || prop.propNsIndex == 0)) {
-            AbcIndexing.ClassIndex ciParent = ci.parent;
-            DottedChain parentClass = ciParent.abc.instance_info.get(ciParent.index).getName(ciParent.abc.constants).getNameWithNamespace(ciParent.abc.constants, true);
-            TraitIndex pti = findProperty(new PropertyDef(prop.propName, new TypeItem(parentClass), prop.getPropNsString()), findStatic, findInstance, findProtected);
+        AbcIndexing.ClassIndex ci = findClass(prop.parent, prop.abc, null, load);
+        DottedChain parentClass = ci == null ? null : ci.getParentName();
+        if (parentClass != null && (prop.abc == null || prop.propNsIndex == 0)) {
+            TraitIndex pti = findProperty(new PropertyDef(prop.propName, new TypeItem(parentClass), prop.getPropNsString()), findStatic, findInstance, findProtected, load);
             if (pti != null) {
                 return pti;
             }
@@ -580,7 +897,7 @@ public final class AbcIndexing {
             }
         }*/
         if (parent != null) {
-            TraitIndex pti = parent.findProperty(prop, findStatic, findInstance, findProtected);
+            TraitIndex pti = parent.findProperty(prop, findStatic, findInstance, findProtected, load);
             if (pti != null) {
                 return pti;
             }
@@ -716,6 +1033,7 @@ public final class AbcIndexing {
     }
 
     public void removeAbc(ABC abc) {
+        ensureLoaded();
         abcs.remove(abc);
         Set<ClassDef> gti_keys = new HashSet<>(classes.keySet());
         for (ClassDef key : gti_keys) {
@@ -762,6 +1080,11 @@ public final class AbcIndexing {
     }
 
     public void addAbc(ABC abc) {
+        ensureLoaded();
+        addAbcInternal(abc);
+    }
+
+    private void addAbcInternal(ABC abc) {
         if (abc == null) {
             return;
         }
@@ -798,7 +1121,11 @@ public final class AbcIndexing {
             int parentClassName = abc.instance_info.get(cindex.index).super_index;
             if (parentClassName > 0) {
                 TypeItem parentClass = new TypeItem(abc.constants.getMultiname(parentClassName).getNameWithNamespace(abc.constants, true));
-                ClassIndex parentClassIndex = findClass(parentClass, abc, null);
+                //classes of library indices are not loaded, they are resolved on first getParent call
+                ClassIndex parentClassIndex = classes.get(new ClassDef(parentClass, abc, null));
+                if (parentClassIndex == null && parent != null) {
+                    parentClassIndex = parent.findClass(parentClass, abc, null, false);
+                }
                 if (parentClassIndex == null) {
                     //Parent class can be deleted, do not check. TODO: handle this better
                     //throw new RuntimeException("Parent class " + parentClass + " definition not found!");
@@ -811,6 +1138,7 @@ public final class AbcIndexing {
     }
 
     public void selectAbc(ABC abc) {
+        ensureLoaded();
         if (abcs.contains(abc)) {
             selectedAbc = abc;
         } else {
@@ -819,10 +1147,12 @@ public final class AbcIndexing {
     }
 
     public ABC getSelectedAbc() {
+        ensureLoaded();
         return selectedAbc;
     }
 
     public DottedChain nsValueToName(String valueStr) {
+        ensureLoaded();
         for (ABC abc : abcs) {
             DottedChain ret = abc.nsValueToName(valueStr);
             if (!ret.isEmpty()) {
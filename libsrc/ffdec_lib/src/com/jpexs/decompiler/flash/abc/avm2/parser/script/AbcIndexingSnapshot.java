@@ -0,0 +1,321 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash.abc.avm2.parser.script;
+
+import com.jpexs.decompiler.flash.SWC;
+import com.jpexs.decompiler.flash.SWF;
+import com.jpexs.decompiler.flash.abc.avm2.model.ApplyTypeAVM2Item;
+import com.jpexs.decompiler.flash.abc.avm2.model.NullAVM2Item;
+import com.jpexs.decompiler.flash.configuration.Configuration;
+import com.jpexs.decompiler.graph.DottedChain;
+import com.jpexs.decompiler.graph.GraphTargetItem;
+import com.jpexs.decompiler.graph.TypeItem;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * On-disk snapshot of built-in library (playerglobal.swc, airglobal.swc)
+ * indexing.
+ *
+ * The snapshot stores class names and property names and types of the library,
+ * keyed by hash of the SWC file, in the FFDec home directory. AbcIndexing
+ * created from it answers decompiler type queries without parsing the SWC. The
+ * SWC is parsed on first access which needs library ABCs or traits, usually by
+ * the compiler. The snapshot is rebuilt when the SWC file changes.
+ *
+ * @author JPEXS
+ */
+public final class AbcIndexingSnapshot {
+
+    private static final int MAGIC = 0x46464149; //FFAI
+
+    private static final int FORMAT_VERSION = 2;
+
+    private static final String SNAPSHOT_DIR = "abcindex";
+
+    private static final String SNAPSHOT_EXTENSION = ".abcidx";
+
+    private static final int TYPE_NULL = 0;
+
+    private static final int TYPE_UNBOUNDED = 1;
+
+    private static final int TYPE_TYPE = 2;
+
+    private static final int TYPE_APPLY = 3;
+
+    private static final int TYPE_NULL_ITEM = 4;
+
+    private static final int CHAIN_NULL = 0;
+
+    private static final int CHAIN_EMPTY = 1;
+
+    private static final int CHAIN_PARTS = 2;
+
+    private static final Logger logger = Logger.getLogger(AbcIndexingSnapshot.class.getName());
+
+    private AbcIndexingSnapshot() {
+    }
+
+    /**
+     * Loads AbcIndexing of a SWC library. Uses the snapshot when it is up to
+     * date, otherwise parses the SWC and stores a new snapshot.
+     *
+     * @param swcFile SWC library
+     * @return AbcIndexing
+     * @throws IOException On error
+     * @throws InterruptedException On interrupt
+     */
+    public static AbcIndexing load(File swcFile) throws IOException, InterruptedException {
+        if (!Configuration.useFlashLibSnapshot.get()) {
+            return new AbcIndexing(readSwc(swcFile));
+        }
+
+        byte[] hash = hashFile(swcFile);
+        File snapshotFile = getSnapshotFile(swcFile);
+        if (snapshotFile.exists()) {
+            try {
+                AbcIndexing index = readSnapshot(snapshotFile, hash, () -> readSwc(swcFile));
+                if (index != null) {
+                    return index;
+                }
+            } catch (IOException | BufferUnderflowException ex) {
+                logger.log(Level.WARNING, "Cannot read library snapshot " + snapshotFile + ", rebuilding", ex);
+            }
+        }
+
+        AbcIndexing index = new AbcIndexing(readSwc(swcFile));
+        try {
+            writeSnapshot(snapshotFile, hash, index);
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Cannot write library snapshot " + snapshotFile, ex);
+        }
+        return index;
+    }
+
+    private static SWF readSwc(File swcFile) throws IOException, InterruptedException {
+        try (InputStream is = new FileInputStream(swcFile)) {
+            SWC swc = new SWC(is);
+            return new SWF(swc.getOpenable("library.swf"), true);
+        }
+    }
+
+    private static File getSnapshotFile(File swcFile) {
+        return new File(Configuration.getPath(SNAPSHOT_DIR), swcFile.getName() + SNAPSHOT_EXTENSION);
+    }
+
+    private static byte[] hashFile(File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IOException(ex);
+        }
+        byte[] buffer = new byte[8192];
+        try (InputStream is = new FileInputStream(file)) {
+            int read;
+            while ((read = is.read(buffer)) > 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Reads snapshot through memory mapped buffer.
+     *
+     * @param snapshotFile Snapshot file
+     * @param expectedHash Hash of current SWC file
+     * @param loader Loader of the library
+     * @return AbcIndexing or null when snapshot is outdated
+     */
+    private static AbcIndexing readSnapshot(File snapshotFile, byte[] expectedHash, AbcIndexing.Loader loader) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshotFile.toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buf.getInt() != MAGIC || buf.getInt() != FORMAT_VERSION) {
+                return null;
+            }
+            byte[] hash = new byte[buf.getShort()];
+            buf.get(hash);
+            if (!Arrays.equals(hash, expectedHash)) {
+                return null;
+            }
+            return new AbcIndexing(buf, loader);
+        }
+    }
+
+    private static void writeSnapshot(File snapshotFile, byte[] hash, AbcIndexing index) throws IOException {
+        //build whole content first, the snapshot is not written when a type cannot be stored
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        index.writeSnapshot(new DataOutputStream(baos));
+
+        File tempFile = new File(snapshotFile.getPath() + ".tmp");
+        try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            dos.writeInt(MAGIC);
+            dos.writeInt(FORMAT_VERSION);
+            dos.writeShort(hash.length);
+            dos.write(hash);
+            baos.writeTo(dos);
+        }
+        try {
+            Files.move(tempFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            tempFile.delete();
+            throw ex;
+        }
+    }
+
+    static void writeString(DataOutputStream os, String s) throws IOException {
+        if (s == null) {
+            os.writeInt(-1);
+            return;
+        }
+        byte[] data = s.getBytes(StandardCharsets.UTF_8);
+        os.writeInt(data.length);
+        os.write(data);
+    }
+
+    static String readString(ByteBuffer buf) throws IOException {
+        int length = buf.getInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > buf.remaining()) {
+            throw new IOException("Invalid string length");
+        }
+        byte[] data = new byte[length];
+        buf.get(data);
+        return new String(data, StandardCharsets.UTF_8);
+    }
+
+    static void writeDottedChain(DataOutputStream os, DottedChain chain) throws IOException {
+        if (chain == null) {
+            os.write(CHAIN_NULL);
+            return;
+        }
+        if (chain.isEmpty()) {
+            os.write(CHAIN_EMPTY);
+            return;
+        }
+        os.write(CHAIN_PARTS);
+        os.writeInt(chain.size());
+        for (int i = 0; i < chain.size(); i++) {
+            writeString(os, chain.get(i));
+            os.writeBoolean(chain.isAttribute(i));
+            writeString(os, chain.getNamespaceSuffix(i));
+        }
+    }
+
+    static DottedChain readDottedChain(ByteBuffer buf) throws IOException {
+        int kind = buf.get();
+        switch (kind) {
+            case CHAIN_NULL:
+                return null;
+            case CHAIN_EMPTY:
+                return DottedChain.EMPTY;
+            case CHAIN_PARTS:
+                int size = buf.getInt();
+                if (size < 0 || size > buf.remaining()) {
+                    throw new IOException("Invalid name length");
+                }
+                String[] parts = new String[size];
+                boolean[] attributes = new boolean[size];
+                String[] suffixes = new String[size];
+                for (int i = 0; i < size; i++) {
+                    parts[i] = readString(buf);
+                    attributes[i] = buf.get() != 0;
+                    suffixes[i] = readString(buf);
+                }
+                return new DottedChain(attributes, parts, suffixes);
+            default:
+                throw new IOException("Invalid name kind " + kind);
+        }
+    }
+
+    static void writeType(DataOutputStream os, GraphTargetItem type) throws IOException {
+        if (type == null) {
+            os.write(TYPE_NULL);
+        } else if (type == TypeItem.UNBOUNDED) {
+            os.write(TYPE_UNBOUNDED);
+        } else if (type.getClass() == TypeItem.class) {
+            TypeItem ti = (TypeItem) type;
+            os.write(TYPE_TYPE);
+            writeDottedChain(os, ti.fullTypeName);
+            writeString(os, ti.ns);
+        } else if (type instanceof ApplyTypeAVM2Item) {
+            ApplyTypeAVM2Item at = (ApplyTypeAVM2Item) type;
+            os.write(TYPE_APPLY);
+            writeType(os, at.object);
+            os.writeInt(at.params.size());
+            for (GraphTargetItem param : at.params) {
+                writeType(os, param);
+            }
+        } else if (type instanceof NullAVM2Item) {
+            os.write(TYPE_NULL_ITEM);
+        } else {
+            throw new IOException("Unsupported type " + type.getClass().getName());
+        }
+    }
+
+    static GraphTargetItem readType(ByteBuffer buf) throws IOException {
+        int kind = buf.get();
+        switch (kind) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_UNBOUNDED:
+                return TypeItem.UNBOUNDED;
+            case TYPE_TYPE:
+                DottedChain name = readDottedChain(buf);
+                return new TypeItem(name, readString(buf));
+            case TYPE_APPLY:
+                GraphTargetItem object = readType(buf);
+                int count = buf.getInt();
+                if (count < 0 || count > buf.remaining()) {
+                    throw new IOException("Invalid type parameter count");
+                }
+                List<GraphTargetItem> params = new ArrayList<>();
+                for (int i = 0; i < count; i++) {
+                    params.add(readType(buf));
+                }
+                return new ApplyTypeAVM2Item(null, null, object, params);
+            case TYPE_NULL_ITEM:
+                return new NullAVM2Item(null, null);
+            default:
+                throw new IOException("Invalid type kind " + kind);
+        }
+    }
+}
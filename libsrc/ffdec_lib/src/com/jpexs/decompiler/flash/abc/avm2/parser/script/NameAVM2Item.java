@@ -309,8 +309,8 @@ public class NameAVM2Item extends AssignableAVM2Item {
         ABC abcV = abcIndex.getSelectedAbc();
         AVM2ConstantPool constants = abcV.constants;
         for (MethodBody b : callStack) {
-            for (int i = 0; i < b.traits.traits.size(); i++) {
-                Trait t = b.traits.traits.get(i);
+            for (int i = 0; i < b.getTraits().traits.size(); i++) {
+                Trait t = b.getTraits().traits.get(i);
                 if (t.getName(abcV).getName(constants, null, true, true).equals(variableName)) {
                     if (t instanceof TraitSlotConst) {
                         if (!localData.traitUsages.containsKey(b)) {
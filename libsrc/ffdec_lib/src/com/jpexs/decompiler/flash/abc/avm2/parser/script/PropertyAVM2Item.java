@@ -212,8 +212,8 @@ public class PropertyAVM2Item extends AssignableAVM2Item {
 
                     if (objType == null) {
                         for (MethodBody b : callStack) {
-                            for (int i = 0; i < b.traits.traits.size(); i++) {
-                                Trait t = b.traits.traits.get(i);
+                            for (int i = 0; i < b.getTraits().traits.size(); i++) {
+                                Trait t = b.getTraits().traits.get(i);
                                 if (t.getName(abc).getName(constants, null, true, true).equals(propertyName)) {
                                     if (t instanceof TraitSlotConst) {
                                         TraitSlotConst tsc = (TraitSlotConst) t;
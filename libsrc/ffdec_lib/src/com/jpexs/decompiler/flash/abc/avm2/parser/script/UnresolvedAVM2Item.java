@@ -475,7 +475,7 @@ public class UnresolvedAVM2Item extends AssignableAVM2Item {
                 if (ci == null) {
                     throw new CompilationException("This class not found", line);
                 }
-                ci = ci.parent;
+                ci = ci.getParent();
                 if (ci == null) {
                     ntype = new TypeItem("Object");
                 } else {
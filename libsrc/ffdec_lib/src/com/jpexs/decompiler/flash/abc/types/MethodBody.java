@@ -29,7 +29,9 @@ import com.jpexs.decompiler.flash.abc.avm2.parser.script.AbcIndexing;
 import com.jpexs.decompiler.flash.abc.types.traits.Trait;
 import com.jpexs.decompiler.flash.abc.types.traits.Traits;
 import com.jpexs.decompiler.flash.configuration.Configuration;
+import com.jpexs.decompiler.flash.dumpview.DumpInfoSpecialType;
 import com.jpexs.decompiler.flash.exporters.modes.ScriptExportMode;
+import com.jpexs.decompiler.flash.helpers.LazyObject;
 import com.jpexs.decompiler.flash.helpers.GraphTextWriter;
 import com.jpexs.decompiler.flash.helpers.HighlightedTextWriter;
 import com.jpexs.decompiler.flash.helpers.NulWriter;
@@ -41,11 +43,13 @@ import com.jpexs.decompiler.graph.Graph;
 import com.jpexs.decompiler.graph.GraphTargetItem;
 import com.jpexs.decompiler.graph.ScopeStack;
 import com.jpexs.decompiler.graph.model.LocalData;
+import com.jpexs.helpers.ByteArrayRange;
 import com.jpexs.helpers.CancellableWorker;
 import com.jpexs.helpers.Helper;
 import com.jpexs.helpers.MemoryInputStream;
 import com.jpexs.helpers.stat.Statistics;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -60,10 +64,13 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
+ * Method body. The body can be read lazily, then only method_info is read and
+ * the rest of the body (stats, code, exceptions and traits) is decoded from
+ * the ABC data on first access by its getters.
  *
  * @author JPEXS
  */
-public final class MethodBody implements Cloneable {
+public final class MethodBody implements Cloneable, LazyObject {
 
     private static final Logger logger = Logger.getLogger(MethodBody.class.getName());
 
@@ -77,22 +84,40 @@ public final class MethodBody implements Cloneable {
 
     public int method_info;
 
-    public int max_stack;
+    @SWFField
+    private int max_stack;
 
-    public int max_regs;
+    @SWFField
+    private int max_regs;
 
-    public int init_scope_depth;
+    @SWFField
+    private int init_scope_depth;
 
-    public int max_scope_depth;
+    @SWFField
+    private int max_scope_depth;
 
     @SWFField
     private byte[] codeBytes;
 
     private AVM2Code code;
 
-    public ABCException[] exceptions;
+    @SWFField
+    private ABCException[] exceptions;
+
+    @SWFField
+    private Traits traits;
+
+    /**
+     * ABC data of not yet decoded body, null when decoded
+     */
+    private volatile ByteArrayRange lazyData;
+
+    /**
+     * Position of body data after method_info in lazyData stream
+     */
+    private int lazyPos;
 
-    public Traits traits;
+    private int lazyLength;
 
     @Internal
     public transient List<GraphTargetItem> convertedItems;
@@ -109,6 +134,9 @@ public final class MethodBody implements Cloneable {
     @Internal
     private transient MethodBody lastConvertedBody = null;
 
+    @Internal
+    private transient volatile int modificationCount = 0;
+
     public MethodBody() {
         this.traits = new Traits();
         this.codeBytes = SWFInputStream.BYTE_ARRAY_EMPTY;
@@ -120,6 +148,175 @@ public final class MethodBody implements Cloneable {
         this.abc = abc;
     }
 
+    /**
+     * Reads body data which follows method_info.
+     *
+     * @param ais ABC input stream
+     * @throws IOException On I/O error
+     */
+    public void readData(ABCInputStream ais) throws IOException {
+        max_stack = ais.readU30("max_stack");
+        max_regs = ais.readU30("max_regs");
+        init_scope_depth = ais.readU30("init_scope_depth");
+        max_scope_depth = ais.readU30("max_scope_depth");
+        int code_length = ais.readU30("code_length");
+        codeBytes = ais.readBytes(code_length, "code", DumpInfoSpecialType.ABC_CODE);
+        code = null;
+        int ex_count = ais.readU30("ex_count");
+        exceptions = new ABCException[ex_count];
+        for (int j = 0; j < ex_count; j++) {
+            ABCException abce = new ABCException();
+            abce.start = ais.readU30("start");
+            abce.end = ais.readU30("end");
+            abce.target = ais.readU30("target");
+            abce.type_index = ais.readU30("type_index");
+            if (abc.hasExceptionSupport()) {
+                abce.name_index = ais.readU30("name_index");
+            } else {
+                abce.name_index = 0;
+            }
+            exceptions[j] = abce;
+        }
+        traits = ais.readTraits("traits");
+    }
+
+    /**
+     * Skips body data which follows method_info and keeps it for decoding on
+     * first access.
+     *
+     * @param ais ABC input stream
+     * @param data Data of the whole stream
+     * @throws IOException On I/O error
+     */
+    public void readDataLazy(ABCInputStream ais, ByteArrayRange data) throws IOException {
+        long pos = ais.getPosition();
+        for (int i = 0; i < 4; i++) {
+            ais.readU30("stat");
+        }
+        int code_length = ais.readU30("code_length");
+        ais.skipBytes(code_length);
+        int ex_count = ais.readU30("ex_count");
+        int ex_fields = abc.hasExceptionSupport() ? 5 : 4;
+        for (int j = 0; j < ex_count * ex_fields; j++) {
+            ais.readU30("exception");
+        }
+        ais.skipTraits();
+        lazyPos = (int) pos;
+        lazyLength = (int) (ais.getPosition() - pos);
+        lazyData = data;
+    }
+
+    /**
+     * Decodes lazily read body. Bodies can be accessed on multiple threads,
+     * only one of them decodes the data.
+     */
+    @Override
+    public void load() {
+        if (lazyData == null) {
+            return;
+        }
+        synchronized (this) {
+            ByteArrayRange data = lazyData;
+            if (data == null) {
+                return;
+            }
+            try {
+                ABCInputStream ais = new ABCInputStream(new MemoryInputStream(data.getArray(), data.getPos(), data.getLength()));
+                ais.seek(lazyPos);
+                readData(ais);
+            } catch (IOException ex) {
+                logger.log(Level.SEVERE, "Cannot decode method body", ex);
+                if (exceptions == null) {
+                    exceptions = new ABCException[0];
+                }
+                if (traits == null) {
+                    traits = new Traits();
+                }
+                if (codeBytes == null && code == null) {
+                    codeBytes = SWFInputStream.BYTE_ARRAY_EMPTY;
+                }
+            }
+            lazyData = null;
+        }
+    }
+
+    /**
+     * Writes raw data of lazily read body which was not decoded.
+     *
+     * @param os Output stream
+     * @return False when the body was decoded and must be written from its
+     * fields
+     * @throws IOException On I/O error
+     */
+    public boolean writeLazyData(OutputStream os) throws IOException {
+        ByteArrayRange data = lazyData;
+        if (data == null) {
+            return false;
+        }
+        os.write(data.getArray(), data.getPos() + lazyPos, lazyLength);
+        return true;
+    }
+
+    public int getMaxStack() {
+        load();
+        return max_stack;
+    }
+
+    public void setMaxStack(int max_stack) {
+        load();
+        this.max_stack = max_stack;
+    }
+
+    public int getMaxRegs() {
+        load();
+        return max_regs;
+    }
+
+    public void setMaxRegs(int max_regs) {
+        load();
+        this.max_regs = max_regs;
+    }
+
+    public int getInitScopeDepth() {
+        load();
+        return init_scope_depth;
+    }
+
+    public void setInitScopeDepth(int init_scope_depth) {
+        load();
+        this.init_scope_depth = init_scope_depth;
+    }
+
+    public int getMaxScopeDepth() {
+        load();
+        return max_scope_depth;
+    }
+
+    public void setMaxScopeDepth(int max_scope_depth) {
+        load();
+        this.max_scope_depth = max_scope_depth;
+    }
+
+    public ABCException[] getExceptions() {
+        load();
+        return exceptions;
+    }
+
+    public void setExceptions(ABCException[] exceptions) {
+        load();
+        this.exceptions = exceptions;
+    }
+
+    public Traits getTraits() {
+        load();
+        return traits;
+    }
+
+    public void setTraits(Traits traits) {
+        load();
+        this.traits = traits;
+    }
+
     public MethodBody(ABC abc, Traits traits, byte[] codeBytes, ABCException[] exceptions) {
         this.traits = traits;
         this.codeBytes = codeBytes;
@@ -128,15 +325,44 @@ public final class MethodBody implements Cloneable {
     }
 
     public synchronized void setCodeBytes(byte codeBytes[]) {
+        load();
         this.codeBytes = codeBytes;
         this.code = null;
+        codeChanged();
     }
 
     public void setModified() {
+        load();
         this.codeBytes = null;
+        codeChanged();
+    }
+
+    private void codeChanged() {
+        modificationCount++;
+        if (abc != null) {
+            abc.invalidateMultinameUsageIndexing(this);
+        }
+    }
+
+    /**
+     * Marks the code of this body as modified in place, for example by
+     * removing or inserting instructions.
+     */
+    public void codeModified() {
+        codeChanged();
+    }
+
+    /**
+     * Gets number of code modifications of this body.
+     *
+     * @return Modification count
+     */
+    public int getModificationCount() {
+        return modificationCount;
     }
 
     public synchronized byte[] getCodeBytes() {
+        load();
         if (codeBytes != null) {
             return codeBytes;
         } else {
@@ -145,25 +371,47 @@ public final class MethodBody implements Cloneable {
     }
 
     public synchronized AVM2Code getCode() {
+        load();
         if (code == null) {
-            AVM2Code avm2Code;
-            try {
-                ABCInputStream ais = new ABCInputStream(new MemoryInputStream(codeBytes));
-                avm2Code = new AVM2Code(ais, this);
-                avm2Code.removeWrongIndices(abc.constants);
-            } catch (UnknownInstructionCode | IOException ex) {
-                avm2Code = new AVM2Code();
-                logger.log(Level.SEVERE, null, ex);
-            }
-            avm2Code.compact();
-            code = avm2Code;
+            code = parseCode();
         }
         return code;
     }
 
+    /**
+     * Gets code of the body. When the code was not parsed yet, it is parsed
+     * but not kept in the body, so scanning all bodies does not hold
+     * instructions of every method in memory.
+     *
+     * @return Code
+     */
+    public synchronized AVM2Code getCodeNoCache() {
+        load();
+        if (code != null) {
+            return code;
+        }
+        return parseCode();
+    }
+
+    private AVM2Code parseCode() {
+        AVM2Code avm2Code;
+        try {
+            ABCInputStream ais = new ABCInputStream(new MemoryInputStream(codeBytes));
+            avm2Code = new AVM2Code(ais, this);
+            avm2Code.removeWrongIndices(abc.constants);
+        } catch (UnknownInstructionCode | IOException ex) {
+            avm2Code = new AVM2Code();
+            logger.log(Level.SEVERE, null, ex);
+        }
+        avm2Code.compact();
+        return avm2Code;
+    }
+
     public void setCode(AVM2Code code) {
+        load();
         this.code = code;
         this.codeBytes = null;
+        codeChanged();
     }
 
     public void markOffsets() {
@@ -173,18 +421,23 @@ public final class MethodBody implements Cloneable {
     @Override
     public String toString() {
         String s = "";
-        s += "method_info=" + method_info + " max_stack=" + max_stack + " max_regs=" + max_regs + " scope_depth=" + init_scope_depth + " max_scope=" + max_scope_depth;
+        s += "method_info=" + method_info + " max_stack=" + getMaxStack() + " max_regs=" + max_regs + " scope_depth=" + init_scope_depth + " max_scope=" + max_scope_depth;
         s += "\r\nCode:\r\n" + getCode().toString();
         return s;
     }
 
     public int removeDeadCode(AVM2ConstantPool constants, Trait trait, MethodInfo info) throws InterruptedException {
-        return getCode().removeDeadCode(this);
+        int ret = getCode().removeDeadCode(this);
+        codeChanged();
+        return ret;
     }
 
     public int removeTraps(ABC abc, Trait trait, int scriptIndex, int classIndex, boolean isStatic, String path) throws InterruptedException {
 
-        return getCode().removeTraps(trait, method_info, this, abc, scriptIndex, classIndex, isStatic, path);
+        int ret = getCode().removeTraps(trait, method_info, this, abc, scriptIndex, classIndex, isStatic, path);
+        //deobfuscators can change instruction operands directly
+        codeChanged();
+        return ret;
     }
 
     public void deobfuscate(DeobfuscationLevel level, Trait trait, int scriptIndex, int classIndex, boolean isStatic, String path) throws InterruptedException {
@@ -443,6 +696,7 @@ public final class MethodBody implements Cloneable {
     }
 
     public MethodBody clone(boolean deepTraits) {
+        load();
         try {
             MethodBody ret = (MethodBody) super.clone();
             if (code != null) {
@@ -469,6 +723,7 @@ public final class MethodBody implements Cloneable {
     }
 
     public boolean autoFillStats(ABC abc, int initScope, boolean hasThis) {
+        load();
         //System.out.println("--------------");
         CodeStats stats = getCode().getStats(abc, this, initScope, true);
         if (stats == null) {
@@ -492,6 +747,7 @@ public final class MethodBody implements Cloneable {
     }
 
     public boolean autoFillMaxRegs(ABC abc) {
+        load();
         CodeStats stats = getCode().getMaxLocal();
         if (stats == null) {
             return false;
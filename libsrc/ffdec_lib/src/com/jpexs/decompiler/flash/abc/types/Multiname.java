@@ -84,6 +84,18 @@ public class Multiname {
         return "";
     }
 
+    /**
+     * Gets namespace suffix, calculates suffixes of the constant pool first
+     * when they are not known yet.
+     *
+     * @param constants Constant pool
+     * @return Suffix like #123 or empty string
+     */
+    public String getNamespaceSuffix(AVM2ConstantPool constants) {
+        constants.ensureNamespaceSuffixes();
+        return getNamespaceSuffix();
+    }
+
     public void setDisplayNamespace(boolean displayNamespace) {
         this.displayNamespace = displayNamespace;
     }
@@ -382,7 +394,7 @@ public class Multiname {
                 DottedChain dc = getNameWithNamespace(abc.constants, withSuffix);
                 return dontDeobfuscate ? dc.toRawString() : dc.toPrintableString(true);
             }
-            return (isAttribute() ? "@" : "") + (dontDeobfuscate ? name : IdentifiersDeobfuscation.printIdentifier(true, name)) + (withSuffix ? getNamespaceSuffix() : "");
+            return (isAttribute() ? "@" : "") + (dontDeobfuscate ? name : IdentifiersDeobfuscation.printIdentifier(true, name)) + (withSuffix ? getNamespaceSuffix(abc.constants) : "");
         }
     }
 
@@ -401,7 +413,7 @@ public class Multiname {
                 DottedChain dc = getNameWithNamespace(constants, withSuffix);
                 return dontDeobfuscate ? dc.toRawString() : dc.toPrintableString(true);
             }
-            return (isAttribute() ? "@" : "") + (dontDeobfuscate ? name : IdentifiersDeobfuscation.printIdentifier(true, name)) + (withSuffix ? getNamespaceSuffix() : "");
+            return (isAttribute() ? "@" : "") + (dontDeobfuscate ? name : IdentifiersDeobfuscation.printIdentifier(true, name)) + (withSuffix ? getNamespaceSuffix(constants) : "");
         }
     }
 
@@ -417,9 +429,9 @@ public class Multiname {
         }
         String name = getName(constants, null, true, false);
         if (ns != null) {
-            return ns.getName(constants).add(name, withSuffix ? getNamespaceSuffix() : "");
+            return ns.getName(constants).add(name, withSuffix ? getNamespaceSuffix(constants) : "");
         }
-        return new DottedChain(new String[]{name}, new String[]{withSuffix ? getNamespaceSuffix() : ""});
+        return new DottedChain(new String[]{name}, new String[]{withSuffix ? getNamespaceSuffix(constants) : ""});
     }
 
     public Namespace getNamespace(AVM2ConstantPool constants) {
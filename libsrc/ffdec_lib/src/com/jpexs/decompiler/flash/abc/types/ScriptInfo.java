@@ -88,7 +88,7 @@ public class ScriptInfo {
                     || (ns.kind == Namespace.KIND_PACKAGE)) {
                 DottedChain packageName = ns.getName(abc.constants); // assume not null package
                 String objectName = name.getName(abc.constants, null, true, false);
-                String namespaceSuffix = name.getNamespaceSuffix();
+                String namespaceSuffix = name.getNamespaceSuffix(abc.constants);
                 List<Integer> traitIndices = new ArrayList<>();
 
                 traitIndices.add(j);
@@ -115,7 +115,7 @@ public class ScriptInfo {
 
                 DottedChain packageName = ns.getName(abc.constants);
                 String objectName = name.getName(abc.constants, null, true, false);
-                String namespaceSuffix = name.getNamespaceSuffix();
+                String namespaceSuffix = name.getNamespaceSuffix(abc.constants);
 
                 List<Integer> traitIndices = new ArrayList<>();
 
@@ -502,7 +502,7 @@ public abstract class Trait implements Cloneable, Serializable {
         Namespace ns = name.getNamespace(abc.constants);
         DottedChain packageName = ns == null ? DottedChain.EMPTY : ns.getName(abc.constants);
         String objectName = name.getName(abc.constants, null, true, false);
-        String namespaceSuffix = name.getNamespaceSuffix();
+        String namespaceSuffix = name.getNamespaceSuffix(abc.constants);
         return new ClassPath(packageName, objectName, namespaceSuffix); //assume not null name
     }
 
@@ -234,7 +234,7 @@ public class TraitClass extends Trait implements TraitWithSlot {
         if (sIndex > -1) {
             int nsIndex = abc.constants.getNamespaceId(Namespace.KIND_PACKAGE, DottedChain.TOPLEVEL, sIndex, false);
             if (nsIndex > -1) {
-                convertData.thisHasDefaultToPrimitive = null == index.findProperty(new AbcIndexing.PropertyDef("toString", new TypeItem(instanceInfo.getName(abc.constants).getNameWithNamespace(abc.constants, true)), abc, nsIndex), false, true, false);
+                convertData.thisHasDefaultToPrimitive = !index.hasProperty(new AbcIndexing.PropertyDef("toString", new TypeItem(instanceInfo.getName(abc.constants).getNameWithNamespace(abc.constants, true)), abc, nsIndex), false, true, false);
             } else {
                 convertData.thisHasDefaultToPrimitive = true;
             }
@@ -24,7 +24,6 @@ import com.jpexs.decompiler.flash.abc.avm2.model.GetPropertyAVM2Item;
 import com.jpexs.decompiler.flash.abc.avm2.parser.script.AbcIndexing;
 import com.jpexs.decompiler.flash.abc.types.ConvertData;
 import com.jpexs.decompiler.flash.abc.types.Multiname;
-import com.jpexs.decompiler.flash.configuration.Configuration;
 import com.jpexs.decompiler.flash.exporters.modes.ScriptExportMode;
 import com.jpexs.decompiler.flash.exporters.script.Dependency;
 import com.jpexs.decompiler.flash.helpers.GraphTextWriter;
@@ -32,14 +31,13 @@ import com.jpexs.decompiler.flash.helpers.NulWriter;
 import com.jpexs.decompiler.flash.search.MethodId;
 import com.jpexs.decompiler.graph.DottedChain;
 import com.jpexs.decompiler.graph.GraphTargetItem;
+import com.jpexs.helpers.SharedExecutor;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -255,14 +253,13 @@ public class Traits implements Cloneable, Serializable {
                 task.call();
             }
         } else {
-            ExecutorService executor = Executors.newFixedThreadPool(Configuration.getParallelThreadCount());
             List<Future<Void>> futureResults;
 
             futureResults = new ArrayList<>();
             for (int t = 0; t < traits.size(); t++) {
                 // each convert task needs a separate NulWriter, because they are executed parallel
                 TraitConvertTask task = new TraitConvertTask(abcIndex, traits.get(t), parent, convertData, makePackages, path, abc, isStatic, exportMode, scriptIndex, classIndex, new NulWriter(), fullyQualifiedNames, t, parallel);
-                Future<Void> future = executor.submit(task);
+                Future<Void> future = SharedExecutor.submit(abc.getSwf(), task);
                 futureResults.add(future);
             }
 
@@ -270,13 +267,14 @@ public class Traits implements Cloneable, Serializable {
                 try {
                     futureResults.get(f).get();
                 } catch (InterruptedException ex) {
-                    executor.shutdownNow();
+                    for (Future<Void> future : futureResults) {
+                        future.cancel(true);
+                    }
                     throw ex;
                 } catch (ExecutionException ex) {
                     Logger.getLogger(Traits.class.getName()).log(Level.SEVERE, "Error during traits converting", ex);
                 }
             }
-            executor.shutdown();
         }
     }
 
@@ -29,6 +29,7 @@ import com.jpexs.helpers.Reference;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -119,10 +120,15 @@ public class ActionGraphSource extends GraphSource {
 
     private List<Long> posCache = null;
 
+    private Map<Long, Integer> adrToPosCache = null;
+
     private void rebuildCache() {
         posCache = new ArrayList<>();
+        adrToPosCache = new HashMap<>();
         for (int i = 0; i < size(); i++) {
-            posCache.add(pos2adr(i));
+            long adr = pos2adr(i);
+            posCache.add(adr);
+            adrToPosCache.putIfAbsent(adr, i);
         }
     }
 
@@ -160,7 +166,8 @@ public class ActionGraphSource extends GraphSource {
         if (adr == 0) {
             return 0;
         }
-        int ret = posCache.indexOf((Long) adr);
+        Integer pos = adrToPosCache.get(adr);
+        int ret = pos == null ? -1 : pos;
         if (ret == -1) {
             if (!posCache.isEmpty() && (adr > posCache.get(posCache.size() - 1))) {
                 return size();
@@ -189,7 +196,8 @@ public class ActionGraphSource extends GraphSource {
         if (adr == 0) {
             return 0;
         }
-        int ret = posCache.indexOf((Long) adr);
+        Integer pos = adrToPosCache.get(adr);
+        int ret = pos == null ? -1 : pos;
         if (ret == -1) {
             if (!posCache.isEmpty() && (adr > posCache.get(posCache.size() - 1))) {
                 return size();
@@ -17,6 +17,7 @@
 package com.jpexs.decompiler.flash.cache;
 
 import com.jpexs.decompiler.flash.action.ActionList;
+import com.jpexs.decompiler.flash.configuration.Configuration;
 import com.jpexs.decompiler.flash.helpers.HighlightedText;
 import com.jpexs.decompiler.flash.tags.base.ASMSource;
 import com.jpexs.helpers.Cache;
@@ -27,7 +28,7 @@ import com.jpexs.helpers.Cache;
  */
 public class AS2Cache {
 
-    private final Cache<ASMSource, HighlightedText> cache = Cache.getInstance(true, false, "as2", false);
+    private final Cache<ASMSource, HighlightedText> cache = Cache.getInstance(true, false, "as2", false, Configuration.maxAs2CacheSize);
 
     private final Cache<ASMSource, ActionList> pcodeCache = Cache.getInstance(true, true, "as2pcode", false);
 
@@ -17,6 +17,7 @@
 package com.jpexs.decompiler.flash.cache;
 
 import com.jpexs.decompiler.flash.abc.ScriptPack;
+import com.jpexs.decompiler.flash.configuration.Configuration;
 import com.jpexs.decompiler.flash.helpers.HighlightedText;
 import com.jpexs.helpers.Cache;
 
@@ -26,7 +27,7 @@ import com.jpexs.helpers.Cache;
  */
 public class AS3Cache {
 
-    private final Cache<ScriptPack, HighlightedText> cache = Cache.getInstance(true, false, "as3", false);
+    private final Cache<ScriptPack, HighlightedText> cache = Cache.getInstance(true, false, "as3", false, Configuration.maxAs3CacheSize);
 
     public void clear() {
         cache.clear();
@@ -17,6 +17,7 @@
 package com.jpexs.decompiler.flash.configuration;
 
 import com.jpexs.decompiler.flash.ApplicationInfo;
+import com.jpexs.decompiler.flash.exporters.modes.AviCompressionMode;
 import com.jpexs.decompiler.flash.exporters.modes.ExeExportMode;
 import com.jpexs.decompiler.flash.helpers.CodeFormatting;
 import com.jpexs.decompiler.flash.helpers.FontHelper;
@@ -92,6 +93,14 @@ public final class Configuration {
     @ConfigurationCategory("")
     public static ConfigurationItem<Boolean> cacheOnDisk = null;
 
+    @ConfigurationDefaultBoolean(true)
+    @ConfigurationCategory("decompilation")
+    public static ConfigurationItem<Boolean> useFlashLibSnapshot = null;
+
+    @ConfigurationDefaultBoolean(true)
+    @ConfigurationCategory("decompilation")
+    public static ConfigurationItem<Boolean> useScriptSearchIndex = null;
+
     @ConfigurationDefaultBoolean(false)
     @ConfigurationCategory("")
     public static ConfigurationItem<Boolean> cacheImages = null;
@@ -365,6 +374,9 @@ public final class Configuration {
     @ConfigurationCategory("export")
     public static ConfigurationItem<ExeExportMode> exeExportMode = null;
 
+    @ConfigurationCategory("export")
+    public static ConfigurationItem<AviCompressionMode> aviExportCompression = null;
+
     @ConfigurationDefaultInt(1024 * 1024/*1MiB*/)
     @ConfigurationCategory("limit")
     public static ConfigurationItem<Integer> syntaxHighlightLimit = null;
@@ -789,10 +801,58 @@ public final class Configuration {
     @ConfigurationDefaultBoolean(true)
     @ConfigurationCategory("display")
     public static ConfigurationItem<Boolean> autoPlayPreviews = null;
+
+    @ConfigurationDefaultBoolean(false)
+    @ConfigurationCategory("display")
+    public static ConfigurationItem<Boolean> scanlineShapeRasterizer = null;
+
+    @ConfigurationDefaultBoolean(false)
+    @ConfigurationCategory("display")
+    public static ConfigurationItem<Boolean> rasterCache = null;
+
+    @ConfigurationDefaultBoolean(true)
+    @ConfigurationCategory("display")
+    public static ConfigurationItem<Boolean> dirtyRectanglePlayback = null;
     
     @ConfigurationDefaultInt(5 * 60 * 1000)
     @ConfigurationCategory("limit")
     public static ConfigurationItem<Integer> maxCachedTime = null;
+
+    @ConfigurationDefaultInt(256)
+    @ConfigurationCategory("limit")
+    public static ConfigurationItem<Integer> maxFrameCacheSize = null;
+
+    @ConfigurationDefaultInt(64)
+    @ConfigurationCategory("limit")
+    public static ConfigurationItem<Integer> maxSoundCacheSize = null;
+
+    @ConfigurationDefaultInt(64)
+    @ConfigurationCategory("limit")
+    public static ConfigurationItem<Integer> maxShapeExportDataCacheSize = null;
+
+    @ConfigurationDefaultInt(128)
+    @ConfigurationCategory("limit")
+    public static ConfigurationItem<Integer> maxRasterCacheSize = null;
+
+    @ConfigurationDefaultInt(512)
+    @ConfigurationCategory("limit")
+    public static ConfigurationItem<Integer> maxScriptSearchIndexSize = null;
+
+    @ConfigurationDefaultInt(1024)
+    @ConfigurationCategory("limit")
+    public static ConfigurationItem<Integer> mappedSwfOpenSize = null;
+
+    @ConfigurationDefaultInt(256)
+    @ConfigurationCategory("limit")
+    public static ConfigurationItem<Integer> maxDecodedImageStoreSize = null;
+
+    @ConfigurationDefaultInt(128)
+    @ConfigurationCategory("limit")
+    public static ConfigurationItem<Integer> maxAs2CacheSize = null;
+
+    @ConfigurationDefaultInt(128)
+    @ConfigurationCategory("limit")
+    public static ConfigurationItem<Integer> maxAs3CacheSize = null;
     
     @ConfigurationDefaultString("")
     @ConfigurationCategory("paths")
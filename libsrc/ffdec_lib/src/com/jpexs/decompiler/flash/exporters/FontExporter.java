@@ -24,7 +24,6 @@ import com.jpexs.decompiler.flash.AbortRetryIgnoreHandler;
 import com.jpexs.decompiler.flash.ApplicationInfo;
 import com.jpexs.decompiler.flash.EventListener;
 import com.jpexs.decompiler.flash.ReadOnlyTagList;
-import com.jpexs.decompiler.flash.RetryTask;
 import com.jpexs.decompiler.flash.SWF;
 import com.jpexs.decompiler.flash.SWFInputStream;
 import com.jpexs.decompiler.flash.configuration.Configuration;
@@ -40,6 +39,7 @@ import fontastic.FGlyph;
 import fontastic.FPoint;
 import fontastic.Fontastic;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -72,70 +72,55 @@ public class FontExporter {
         File foutdir = new File(outdir);
         Path.createDirectorySafe(foutdir);
 
-        int count = 0;
+        List<FontTag> fontTags = new ArrayList<>();
         for (Tag t : tags) {
             if (t instanceof FontTag) {
-                count++;
+                fontTags.add((FontTag) t);
             }
         }
 
-        if (count == 0) {
-            return ret;
-        }
-
-        int currentIndex = 1;
-        for (Tag t : tags) {
-            if (t instanceof FontTag) {
-                if (evl != null) {
-                    evl.handleExportingEvent("font", currentIndex, count, t.getName());
-                }
-
-                final FontTag st = (FontTag) t;
-                String ext = ".ttf";
-                if (settings.mode == FontExportMode.WOFF) {
-                    ext = ".woff";
-                }
-                final File file = new File(outdir + File.separator + Helper.makeFileName(st.getCharacterExportFileName() + ext));
-                new RetryTask(() -> {
-                    exportFont(st, settings.mode, file);
-                }, handler).run();
-
-                ret.add(file);
-
-                if (Thread.currentThread().isInterrupted()) {
-                    break;
-                }
-
-                if (evl != null) {
-                    evl.handleExportedEvent("font", currentIndex, count, t.getName());
-                }
-
-                currentIndex++;
+        return ParallelTagExporter.export(handler, "font", fontTags, (FontTag st) -> {
+            String ext = ".ttf";
+            if (settings.mode == FontExportMode.WOFF) {
+                ext = ".woff";
             }
-        }
-
-        return ret;
+            return new File(outdir + File.separator + Helper.makeFileName(st.getCharacterExportFileName() + ext));
+        }, (FontTag st, OutputStream os) -> {
+            exportFont(st, settings.mode, os);
+        }, evl);
     }
 
     public byte[] exportFont(final FontTag t, FontExportMode mode) {
         try {
-            String ext = null;
-            switch (mode) {
-                case TTF:
-                    ext = ".ttf";
-                    break;
-                case WOFF:
-                    ext = ".woff";
-            }
-            File f = File.createTempFile("temp", ext);
-            exportFont(t, mode, f);
-            return Helper.readFile(f.getPath());
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            exportFont(t, mode, baos);
+            return baos.toByteArray();
         } catch (IOException ex) {
             Logger.getLogger(FontExporter.class.getName()).log(Level.SEVERE, null, ex);
         }
         return SWFInputStream.BYTE_ARRAY_EMPTY;
     }
 
+    public void exportFont(FontTag t, FontExportMode mode, OutputStream os) throws IOException {
+        String ext = null;
+        switch (mode) {
+            case TTF:
+                ext = ".ttf";
+                break;
+            case WOFF:
+                ext = ".woff";
+        }
+        File f = File.createTempFile("temp", ext);
+        try {
+            exportFont(t, mode, f);
+            if (f.length() > 0) {
+                os.write(Helper.readFile(f.getPath()));
+            }
+        } finally {
+            f.delete();
+        }
+    }
+
     public void exportFont(FontTag ft, FontExportMode mode, File file) throws IOException {
         final FontTag t = ft.toClassicFont();
         List<SHAPE> shapes = t.getGlyphShapeTable();
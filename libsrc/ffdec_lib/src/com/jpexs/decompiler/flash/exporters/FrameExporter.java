@@ -26,6 +26,7 @@ import com.jpexs.decompiler.flash.configuration.Configuration;
 import com.jpexs.decompiler.flash.exporters.commonshape.ExportRectangle;
 import com.jpexs.decompiler.flash.exporters.commonshape.Matrix;
 import com.jpexs.decompiler.flash.exporters.commonshape.SVGExporter;
+import com.jpexs.decompiler.flash.exporters.modes.AviCompressionMode;
 import com.jpexs.decompiler.flash.exporters.modes.FontExportMode;
 import com.jpexs.decompiler.flash.exporters.modes.FrameExportMode;
 import com.jpexs.decompiler.flash.exporters.settings.ButtonExportSettings;
@@ -34,12 +35,16 @@ import com.jpexs.decompiler.flash.exporters.settings.SpriteExportSettings;
 import com.jpexs.decompiler.flash.exporters.shape.CanvasShapeExporter;
 import com.jpexs.decompiler.flash.helpers.BMPFile;
 import com.jpexs.decompiler.flash.helpers.ImageHelper;
+import com.jpexs.decompiler.flash.helpers.LazyObject;
+import com.jpexs.decompiler.flash.helpers.StreamingAviWriter;
+import com.jpexs.decompiler.flash.helpers.StreamingGifEncoder;
 import com.jpexs.decompiler.flash.tags.DefineSpriteTag;
 import com.jpexs.decompiler.flash.tags.SetBackgroundColorTag;
 import com.jpexs.decompiler.flash.tags.Tag;
 import com.jpexs.decompiler.flash.tags.base.CharacterTag;
 import com.jpexs.decompiler.flash.tags.base.FontTag;
 import com.jpexs.decompiler.flash.tags.base.RenderContext;
+import com.jpexs.decompiler.flash.tags.base.RenderSession;
 import com.jpexs.decompiler.flash.tags.enums.ImageFormat;
 import com.jpexs.decompiler.flash.timeline.DepthState;
 import com.jpexs.decompiler.flash.timeline.Frame;
@@ -58,6 +63,7 @@ import com.jpexs.decompiler.flash.types.filters.GLOWFILTER;
 import com.jpexs.decompiler.flash.types.filters.GRADIENTBEVELFILTER;
 import com.jpexs.decompiler.flash.types.filters.GRADIENTGLOWFILTER;
 import com.jpexs.helpers.Helper;
+import com.jpexs.helpers.OrderedParallelIterator;
 import com.jpexs.helpers.Path;
 import com.jpexs.helpers.SerializableImage;
 import com.jpexs.helpers.utf8.Utf8Helper;
@@ -92,9 +98,6 @@ import java.util.logging.Logger;
 import javax.imageio.stream.FileImageOutputStream;
 import javax.imageio.stream.ImageOutputStream;
 import net.kroo.elliot.GifSequenceWriter;
-import net.weiner.kevin.AnimatedGifEncoder;
-import org.monte.media.VideoFormatKeys;
-import org.monte.media.avi.AVIWriter;
 
 /**
  *
@@ -401,9 +404,31 @@ public class FrameExporter {
 
         final Color fbackgroundColor = backgroundColor;
         final boolean fusesTransparency = settings.mode == FrameExportMode.PNG || settings.mode == FrameExportMode.GIF;
+        int threadCount = Configuration.parallelSpeedUp.get() ? Configuration.getParallelThreadCount() : 1;
+        if (threadCount > 1 && settings.mode != FrameExportMode.PDF) {
+            // Frames are rendered on multiple threads from the shared timeline, see Timeline.toImage.
+            // Lazy parsing is guarded there, parse the characters here to not block the render threads on it
+            Set<Integer> neededCharacters = new HashSet<>();
+            tim.getNeededCharacters(fframes, neededCharacters);
+            for (int characterId : neededCharacters) {
+                CharacterTag character = swf.getCharacter(characterId);
+                if (character instanceof LazyObject) {
+                    ((LazyObject) character).load();
+                }
+            }
+        }
+
+        // Frames are rendered in the background while the previous ones are being written,
+        // frame buffers are returned to the session when the writer asks for the next frame
+        final RenderSession session = new RenderSession();
+        final OrderedParallelIterator<SerializableImage> renderedFrames = new OrderedParallelIterator<>(fframes.size(), threadCount == 1 ? 1 : threadCount * 2, swf,
+                (int index) -> SWF.frameToImageGet(session, tim, fframes.get(index), 0, null, 0, tim.displayRect, new Matrix(), null, fusesTransparency ? null : fbackgroundColor, settings.zoom));
+
         final Iterator<BufferedImage> frameImages = new Iterator<BufferedImage>() {
             private int pos = 0;
 
+            private SerializableImage previous = null;
+
             @Override
             public boolean hasNext() {
                 if (Thread.currentThread().isInterrupted()) {
@@ -430,19 +455,35 @@ public class FrameExporter {
                     evl.handleExportingEvent("frame", pos + 1, fframes.size(), tagName);
                 }
 
-                int fframe = fframes.get(pos++);
-                BufferedImage result = SWF.frameToImageGet(tim, fframe, 0, null, 0, tim.displayRect, new Matrix(), null, fusesTransparency ? null : fbackgroundColor, settings.zoom).getBufferedImage();
-                if (Thread.currentThread().isInterrupted()) {
+                pos++;
+                if (previous != null) {
+                    session.release(previous);
+                    previous = null;
+                }
+                SerializableImage result = renderedFrames.next();
+                if (Thread.currentThread().isInterrupted() || result == null) {
                     return null;
                 }
+                previous = result;
                 if (evl != null) {
                     evl.handleExportedEvent("frame", pos, fframes.size(), tagName);
                 }
 
-                return result;
+                return result.getBufferedImage();
             }
         };
 
+        try {
+            writeFrames(handler, swf, tim, foutdir, fframes, frameImages, fbackgroundColor, fusesTransparency, settings, evl, ret);
+        } finally {
+            renderedFrames.close();
+            session.clear();
+        }
+
+        return ret;
+    }
+
+    private void writeFrames(AbortRetryIgnoreHandler handler, SWF swf, Timeline tim, File foutdir, List<Integer> fframes, Iterator<BufferedImage> frameImages, Color fbackgroundColor, boolean fusesTransparency, FrameExportSettings settings, EventListener evl, List<File> ret) throws IOException, InterruptedException {
         switch (settings.mode) {
             case GIF:
                 new RetryTask(() -> {
@@ -576,8 +617,6 @@ public class FrameExporter {
                 }, handler).run();
                 break;
         }
-
-        return ret;
     }
 
     private static void drawText(float x, float y, Matrix trans, int textColor, Map<Integer, Font> existingFonts, FontTag font, String text, int textHeight, Graphics g) {
@@ -633,46 +672,58 @@ public class FrameExporter {
         return "[" + rgb.red + "," + rgb.green + "," + rgb.blue + "," + ((rgb instanceof RGBA) ? ((RGBA) rgb).getAlphaFloat() : 1) + "]";
     }
 
-    public static void makeAVI(Iterator<BufferedImage> images, float frameRate, File file, EventListener evl) throws IOException {
+    public static void makeAVI(Iterator<BufferedImage> images, float frameRate, File file, EventListener evl) throws IOException, InterruptedException {
+        AviCompressionMode compression = Configuration.aviExportCompression.get();
+        if (compression == null) {
+            compression = AviCompressionMode.PNG;
+        }
+        makeAVI(images, frameRate, file, compression, evl);
+    }
+
+    public static void makeAVI(Iterator<BufferedImage> images, float frameRate, File file, AviCompressionMode compression, EventListener evl) throws IOException, InterruptedException {
         if (!images.hasNext()) {
             return;
         }
 
-        AVIWriter out = new AVIWriter(file);
-        BufferedImage img0 = images.next();
-        out.addVideoTrack(VideoFormatKeys.ENCODING_AVI_PNG, 1, (int) frameRate, img0.getWidth(), img0.getHeight(), 0, 0);
+        int threadCount = Configuration.parallelSpeedUp.get() ? Configuration.getParallelThreadCount() : 1;
+        StreamingAviWriter out = new StreamingAviWriter(file, frameRate, compression, threadCount, null);
         try {
-            out.write(0, img0, 1);
             while (images.hasNext()) {
                 BufferedImage img = images.next();
                 if (img == null) {
                     break;
                 }
-                out.write(0, img, 1);
+                out.addFrame(img);
             }
+
+            out.finish();
         } finally {
             out.close();
         }
     }
 
-    public static void makeGIF(Iterator<BufferedImage> images, float frameRate, File file, EventListener evl) throws IOException {
+    public static void makeGIF(Iterator<BufferedImage> images, float frameRate, File file, EventListener evl) throws IOException, InterruptedException {
         if (!images.hasNext()) {
             return;
         }
 
-        AnimatedGifEncoder encoder = new AnimatedGifEncoder();
-        encoder.setRepeat(0); // repeat forever
-        encoder.start(file.getAbsolutePath());
-        encoder.setDelay((int) (1000.0 / frameRate));
-        while (images.hasNext()) {
-            BufferedImage img = images.next();
-            if (img == null) {
-                break;
+        int threadCount = Configuration.parallelSpeedUp.get() ? Configuration.getParallelThreadCount() : 1;
+        try (OutputStream fos = new BufferedOutputStream(new FileOutputStream(file))) {
+            StreamingGifEncoder encoder = new StreamingGifEncoder(fos, (int) (1000.0 / frameRate), 0, threadCount, null);
+            try {
+                while (images.hasNext()) {
+                    BufferedImage img = images.next();
+                    if (img == null) {
+                        break;
+                    }
+                    encoder.addFrame(img);
+                }
+
+                encoder.finish();
+            } finally {
+                encoder.cancel();
             }
-            encoder.addFrame(img);
         }
-
-        encoder.finish();
     }
 
     public static void makeGIFOld(Iterator<BufferedImage> images, float frameRate, File file, EventListener evl) throws IOException {
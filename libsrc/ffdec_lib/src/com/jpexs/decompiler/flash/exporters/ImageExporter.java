@@ -19,8 +19,6 @@ package com.jpexs.decompiler.flash.exporters;
 import com.jpexs.decompiler.flash.AbortRetryIgnoreHandler;
 import com.jpexs.decompiler.flash.EventListener;
 import com.jpexs.decompiler.flash.ReadOnlyTagList;
-import com.jpexs.decompiler.flash.RetryTask;
-import com.jpexs.decompiler.flash.exporters.modes.ImageExportMode;
 import com.jpexs.decompiler.flash.exporters.settings.ImageExportSettings;
 import com.jpexs.decompiler.flash.helpers.BMPFile;
 import com.jpexs.decompiler.flash.helpers.ImageHelper;
@@ -29,9 +27,7 @@ import com.jpexs.decompiler.flash.tags.base.ImageTag;
 import com.jpexs.decompiler.flash.tags.enums.ImageFormat;
 import com.jpexs.helpers.Helper;
 import com.jpexs.helpers.Path;
-import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
@@ -56,70 +52,37 @@ public class ImageExporter {
         File foutdir = new File(outdir);
         Path.createDirectorySafe(foutdir);
 
-        int count = 0;
+        List<ImageTag> imageTags = new ArrayList<>();
         for (Tag t : tags) {
             if (t instanceof ImageTag) {
-                count++;
+                imageTags.add((ImageTag) t);
             }
         }
 
-        if (count == 0) {
-            return ret;
-        }
-
-        int currentIndex = 1;
-        for (Tag t : tags) {
-            if (t instanceof ImageTag) {
-                if (evl != null) {
-                    evl.handleExportingEvent("image", currentIndex, count, t.getName());
-                }
-
-                final ImageTag imageTag = (ImageTag) t;
-
-                ImageFormat fileFormat = imageTag.getImageFormat();
-                ImageFormat originalFormat = fileFormat;
-                if (settings.mode == ImageExportMode.PNG) {
-                    fileFormat = ImageFormat.PNG;
-                }
-
-                if (settings.mode == ImageExportMode.JPEG) {
-                    fileFormat = ImageFormat.JPEG;
-                }
-
-                if (settings.mode == ImageExportMode.BMP) {
-                    fileFormat = ImageFormat.BMP;
-                }
-
-                {
-                    final File file = new File(outdir + File.separator + Helper.makeFileName(imageTag.getCharacterExportFileName() + "." + ImageHelper.getImageFormatString(fileFormat)));
-                    final ImageFormat ffileFormat = fileFormat;
-
-                    new RetryTask(() -> {
-                        if (ffileFormat == originalFormat) {
-                            try (OutputStream fos = new BufferedOutputStream(new FileOutputStream(file))) {
-                                fos.write(Helper.readStream(imageTag.getImageData()));
-                            }
-                        } else if (ffileFormat == ImageFormat.BMP) {
-                            BMPFile.saveBitmap(imageTag.getImageCached().getBufferedImage(), file);
-                        } else {
-                            ImageHelper.write(imageTag.getImageCached().getBufferedImage(), ffileFormat, file);
-                        }
-                    }, handler).run();
-                    ret.add(file);
-                }
-                
-                if (Thread.currentThread().isInterrupted()) {
-                    break;
-                }
-
-                if (evl != null) {
-                    evl.handleExportedEvent("image", currentIndex, count, t.getName());
-                }
-
-                currentIndex++;
+        return ParallelTagExporter.export(handler, "image", imageTags, (ImageTag imageTag) -> {
+            return new File(outdir + File.separator + Helper.makeFileName(imageTag.getCharacterExportFileName() + "." + ImageHelper.getImageFormatString(getFileFormat(imageTag, settings))));
+        }, (ImageTag imageTag, OutputStream os) -> {
+            ImageFormat fileFormat = getFileFormat(imageTag, settings);
+            if (fileFormat == imageTag.getImageFormat()) {
+                os.write(Helper.readStream(imageTag.getImageData()));
+            } else if (fileFormat == ImageFormat.BMP) {
+                BMPFile.saveBitmap(imageTag.getImageCached().getBufferedImage(), os);
+            } else {
+                ImageHelper.write(imageTag.getImageCached().getBufferedImage(), fileFormat, os);
             }
-        }
+        }, evl);
+    }
 
-        return ret;
+    private static ImageFormat getFileFormat(ImageTag imageTag, ImageExportSettings settings) {
+        switch (settings.mode) {
+            case PNG:
+                return ImageFormat.PNG;
+            case JPEG:
+                return ImageFormat.JPEG;
+            case BMP:
+                return ImageFormat.BMP;
+            default:
+                return imageTag.getImageFormat();
+        }
     }
 }
@@ -19,7 +19,6 @@ package com.jpexs.decompiler.flash.exporters;
 import com.jpexs.decompiler.flash.AbortRetryIgnoreHandler;
 import com.jpexs.decompiler.flash.EventListener;
 import com.jpexs.decompiler.flash.ReadOnlyTagList;
-import com.jpexs.decompiler.flash.RetryTask;
 import com.jpexs.decompiler.flash.SWF;
 import com.jpexs.decompiler.flash.SWFInputStream;
 import com.jpexs.decompiler.flash.SWFOutputStream;
@@ -33,10 +32,8 @@ import com.jpexs.decompiler.flash.tags.Tag;
 import com.jpexs.decompiler.flash.tags.VideoFrameTag;
 import com.jpexs.helpers.Helper;
 import com.jpexs.helpers.Path;
-import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
@@ -62,43 +59,18 @@ public class MovieExporter {
         File foutdir = new File(outdir);
         Path.createDirectorySafe(foutdir);
 
-        int count = 0;
+        List<DefineVideoStreamTag> videoStreams = new ArrayList<>();
         for (Tag t : tags) {
             if (t instanceof DefineVideoStreamTag) {
-                count++;
+                videoStreams.add((DefineVideoStreamTag) t);
             }
         }
 
-        if (count == 0) {
-            return ret;
-        }
-
-        int currentIndex = 1;
-        for (Tag t : tags) {
-            if (t instanceof DefineVideoStreamTag) {
-                if (evl != null) {
-                    evl.handleExportingEvent("movie", currentIndex, count, t.getName());
-                }
-
-                final DefineVideoStreamTag videoStream = (DefineVideoStreamTag) t;
-                final File file = new File(outdir + File.separator + Helper.makeFileName(videoStream.getCharacterExportFileName() + ".flv"));
-                new RetryTask(() -> {
-                    try (OutputStream fos = new BufferedOutputStream(new FileOutputStream(file))) {
-                        fos.write(exportMovie(videoStream, settings.mode));
-                    }
-                }, handler).run();
-
-                if (Thread.currentThread().isInterrupted()) {
-                    break;
-                }
-                if (evl != null) {
-                    evl.handleExportedEvent("movie", currentIndex, count, t.getName());
-                }
-
-                currentIndex++;
-            }
-        }
-        return ret;
+        return ParallelTagExporter.export(handler, "movie", videoStreams, (DefineVideoStreamTag videoStream) -> {
+            return new File(outdir + File.separator + Helper.makeFileName(videoStream.getCharacterExportFileName() + ".flv"));
+        }, (DefineVideoStreamTag videoStream, OutputStream fos) -> {
+            fos.write(exportMovie(videoStream, settings.mode));
+        }, evl);
     }
 
     public byte[] exportMovie(DefineVideoStreamTag videoStream, MovieExportMode mode) throws IOException {
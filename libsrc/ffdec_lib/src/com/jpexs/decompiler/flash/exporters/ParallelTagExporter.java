@@ -0,0 +1,215 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash.exporters;
+
+import com.jpexs.decompiler.flash.AbortRetryIgnoreHandler;
+import com.jpexs.decompiler.flash.EventListener;
+import com.jpexs.decompiler.flash.RetryTask;
+import com.jpexs.decompiler.flash.SWF;
+import com.jpexs.decompiler.flash.configuration.Configuration;
+import com.jpexs.decompiler.flash.helpers.LazyObject;
+import com.jpexs.decompiler.flash.tags.Tag;
+import com.jpexs.decompiler.flash.tags.base.CharacterTag;
+import com.jpexs.helpers.OrderedParallelIterator;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Exports tags to separate files. When parallel speedup is enabled, the file
+ * contents are produced by the shared executor while the calling thread writes
+ * the finished files in tag order, so the progress events and the retry
+ * handler calls stay sequential.
+ *
+ * @author JPEXS
+ */
+public class ParallelTagExporter {
+
+    /**
+     * Writes the exported content of one tag.
+     *
+     * @param <T> Tag type
+     */
+    @FunctionalInterface
+    public interface ItemExporter<T> {
+
+        public void export(T item, OutputStream os) throws IOException, InterruptedException;
+    }
+
+    private static class ExportedItem {
+
+        private byte[] data;
+
+        private Exception error;
+    }
+
+    private ParallelTagExporter() {
+    }
+
+    public static int getThreadCount() {
+        return Configuration.parallelSpeedUp.get() ? Configuration.getParallelThreadCount() : 1;
+    }
+
+    public static <T extends Tag> List<File> export(AbortRetryIgnoreHandler handler, String exportType, List<T> tags, Function<T, File> fileProvider, ItemExporter<T> exporter, EventListener evl) throws IOException, InterruptedException {
+        return export(handler, exportType, tags, fileProvider, exporter, evl, getThreadCount());
+    }
+
+    public static <T extends Tag> List<File> export(AbortRetryIgnoreHandler handler, String exportType, List<T> tags, Function<T, File> fileProvider, ItemExporter<T> exporter, EventListener evl, int threadCount) throws IOException, InterruptedException {
+        List<File> ret = new ArrayList<>();
+        int count = tags.size();
+        if (count == 0 || Thread.currentThread().isInterrupted()) {
+            return ret;
+        }
+
+        if (threadCount < 2 || count == 1) {
+            for (int i = 0; i < count; i++) {
+                final T tag = tags.get(i);
+                if (evl != null) {
+                    evl.handleExportingEvent(exportType, i + 1, count, tag.getName());
+                }
+
+                final File file = fileProvider.apply(tag);
+                new RetryTask(() -> {
+                    exportItem(tag, file, exporter);
+                }, handler).run();
+                ret.add(file);
+
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+
+                if (evl != null) {
+                    evl.handleExportedEvent(exportType, i + 1, count, tag.getName());
+                }
+            }
+
+            return ret;
+        }
+
+        loadLazyObjects(tags);
+
+        SWF swf = tags.get(0).getSwf();
+        try (OrderedParallelIterator<ExportedItem> items = new OrderedParallelIterator<>(count, threadCount * 2, swf,
+                (int index) -> produceItem(tags.get(index), exporter))) {
+            for (int i = 0; i < count; i++) {
+                final T tag = tags.get(i);
+                if (evl != null) {
+                    evl.handleExportingEvent(exportType, i + 1, count, tag.getName());
+                }
+
+                final ExportedItem item = items.next();
+                if (item == null) {
+                    break;
+                }
+
+                final File file = fileProvider.apply(tag);
+                final boolean[] retrying = new boolean[1];
+                new RetryTask(() -> {
+                    if (retrying[0]) {
+                        exportItem(tag, file, exporter);
+                        return;
+                    }
+
+                    retrying[0] = true;
+                    if (item.error != null) {
+                        throwError(item.error);
+                    }
+
+                    try (OutputStream fos = new FileOutputStream(file)) {
+                        fos.write(item.data);
+                    }
+                }, handler).run();
+                ret.add(file);
+
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+
+                if (evl != null) {
+                    evl.handleExportedEvent(exportType, i + 1, count, tag.getName());
+                }
+            }
+        }
+
+        return ret;
+    }
+
+    private static <T> void exportItem(T tag, File file, ItemExporter<T> exporter) throws IOException, InterruptedException {
+        try (OutputStream fos = new BufferedOutputStream(new FileOutputStream(file))) {
+            exporter.export(tag, fos);
+        }
+    }
+
+    private static <T> ExportedItem produceItem(T tag, ItemExporter<T> exporter) {
+        ExportedItem item = new ExportedItem();
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            exporter.export(tag, baos);
+            item.data = baos.toByteArray();
+        } catch (Exception ex) {
+            item.error = ex;
+        }
+
+        return item;
+    }
+
+    private static void throwError(Exception ex) throws IOException, InterruptedException {
+        if (ex instanceof IOException) {
+            throw (IOException) ex;
+        }
+
+        if (ex instanceof InterruptedException) {
+            throw (InterruptedException) ex;
+        }
+
+        if (ex instanceof RuntimeException) {
+            throw (RuntimeException) ex;
+        }
+
+        throw new IOException(ex);
+    }
+
+    /**
+     * Lazy objects are not loaded thread safely, load them before the items
+     * are produced in parallel.
+     */
+    private static void loadLazyObjects(List<? extends Tag> tags) {
+        for (Tag tag : tags) {
+            if (tag instanceof LazyObject) {
+                ((LazyObject) tag).load();
+            }
+
+            Set<Integer> needed = new HashSet<>();
+            tag.getNeededCharactersDeep(needed);
+            SWF swf = tag.getSwf();
+            for (int characterId : needed) {
+                CharacterTag character = swf.getCharacter(characterId);
+                if (character instanceof LazyObject) {
+                    ((LazyObject) character).load();
+                }
+            }
+        }
+    }
+}
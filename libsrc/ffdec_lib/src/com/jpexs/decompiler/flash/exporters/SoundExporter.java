@@ -19,7 +19,6 @@ package com.jpexs.decompiler.flash.exporters;
 import com.jpexs.decompiler.flash.AbortRetryIgnoreHandler;
 import com.jpexs.decompiler.flash.EventListener;
 import com.jpexs.decompiler.flash.ReadOnlyTagList;
-import com.jpexs.decompiler.flash.RetryTask;
 import com.jpexs.decompiler.flash.exporters.modes.SoundExportMode;
 import com.jpexs.decompiler.flash.exporters.settings.SoundExportSettings;
 import com.jpexs.decompiler.flash.flv.AUDIODATA;
@@ -35,10 +34,8 @@ import com.jpexs.decompiler.flash.types.sound.SoundFormat;
 import com.jpexs.helpers.ByteArrayRange;
 import com.jpexs.helpers.Helper;
 import com.jpexs.helpers.Path;
-import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
@@ -64,65 +61,37 @@ public class SoundExporter {
         File foutdir = new File(outdir);
         Path.createDirectorySafe(foutdir);
 
-        int count = 0;
+        List<Tag> soundTags = new ArrayList<>();
         for (Tag t : tags) {
             if (t instanceof SoundTag) {
-                count++;
+                soundTags.add(t);
             }
         }
 
-        if (count == 0) {
-            return ret;
-        }
-
-        int currentIndex = 1;
-        for (Tag t : tags) {
-            if (t instanceof SoundTag) {
-                if (evl != null) {
-                    evl.handleExportingEvent("sound", currentIndex, count, t.getName());
-                }
-
-                final SoundTag st = (SoundTag) t;
-
-                String ext = "wav";
-                SoundFormat fmt = st.getSoundFormat();
-                switch (fmt.getNativeExportFormat()) {
-                    case MP3:
-                        if (settings.mode.hasMP3()) {
-                            ext = "mp3";
-                        }
-                        break;
-                    case FLV:
-                        if (settings.mode.hasFlv()) {
-                            ext = "flv";
-                        }
-                        break;
-                }
-                if (settings.mode == SoundExportMode.FLV) {
-                    ext = "flv";
-                }
-
-                final File file = new File(outdir + File.separator + Helper.makeFileName(st.getCharacterExportFileName()) + "." + ext);
-                new RetryTask(() -> {
-                    try (OutputStream os = new BufferedOutputStream(new FileOutputStream(file))) {
-                        exportSound(os, st, settings.mode);
+        return ParallelTagExporter.export(handler, "sound", soundTags, (Tag t) -> {
+            SoundTag st = (SoundTag) t;
+            String ext = "wav";
+            SoundFormat fmt = st.getSoundFormat();
+            switch (fmt.getNativeExportFormat()) {
+                case MP3:
+                    if (settings.mode.hasMP3()) {
+                        ext = "mp3";
+                    }
+                    break;
+                case FLV:
+                    if (settings.mode.hasFlv()) {
+                        ext = "flv";
                     }
-                }, handler).run();
-
-                ret.add(file);
-
-                if (Thread.currentThread().isInterrupted()) {
                     break;
-                }
-
-                if (evl != null) {
-                    evl.handleExportedEvent("sound", currentIndex, count, t.getName());
-                }
-
-                currentIndex++;
             }
-        }
-        return ret;
+            if (settings.mode == SoundExportMode.FLV) {
+                ext = "flv";
+            }
+
+            return new File(outdir + File.separator + Helper.makeFileName(st.getCharacterExportFileName()) + "." + ext);
+        }, (Tag t, OutputStream os) -> {
+            exportSound(os, (SoundTag) t, settings.mode);
+        }, evl);
     }
 
     public byte[] exportSound(SoundTag t, SoundExportMode mode) throws IOException {
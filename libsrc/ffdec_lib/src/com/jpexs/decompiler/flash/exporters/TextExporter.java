@@ -62,45 +62,26 @@ public class TextExporter {
         File foutdir = new File(outdir);
         Path.createDirectorySafe(foutdir);
 
-        int count = 0;
+        List<TextTag> textTags = new ArrayList<>();
         for (Tag t : tags) {
             if (t instanceof TextTag) {
-                count++;
+                textTags.add((TextTag) t);
             }
         }
 
-        if (count == 0) {
+        if (textTags.isEmpty()) {
             return ret;
         }
 
-        int currentIndex = 1;
         if (settings.mode == TextExportMode.SVG) {
-            for (Tag t : tags) {
-                if (t instanceof TextTag) {
-                    if (evl != null) {
-                        evl.handleExportingEvent("text", currentIndex, count, t.getName());
-                    }
-
-                    final TextTag textTag = (TextTag) t;
-                    final File file = new File(outdir + File.separator + Helper.makeFileName(textTag.getCharacterExportFileName() + ".svg"));
-                    new RetryTask(() -> {
-                        try (OutputStream fos = new BufferedOutputStream(new FileOutputStream(file))) {
-                            ExportRectangle rect = new ExportRectangle(textTag.getRect());
-                            SVGExporter exporter = new SVGExporter(rect, settings.zoom);
-                            textTag.toSVG(exporter, -2, new CXFORMWITHALPHA(), 0);
-                            fos.write(Utf8Helper.getBytes(exporter.getSVG()));
-                        }
-                    }, handler).run();
-                    ret.add(file);
-
-                    if (evl != null) {
-                        evl.handleExportedEvent("text", currentIndex, count, t.getName());
-                    }
-
-                    currentIndex++;
-                }
-            }
-            return ret;
+            return ParallelTagExporter.export(handler, "text", textTags, (TextTag textTag) -> {
+                return new File(outdir + File.separator + Helper.makeFileName(textTag.getCharacterExportFileName() + ".svg"));
+            }, (TextTag textTag, OutputStream fos) -> {
+                ExportRectangle rect = new ExportRectangle(textTag.getRect());
+                SVGExporter exporter = new SVGExporter(rect, settings.zoom);
+                textTag.toSVG(exporter, -2, new CXFORMWITHALPHA(), 0);
+                fos.write(Utf8Helper.getBytes(exporter.getSVG()));
+            }, evl);
         }
 
         if (settings.singleFile) {
@@ -136,38 +117,18 @@ public class TextExporter {
             }
             ret.add(file);
         } else {
-            for (Tag t : tags) {
-                if (t instanceof TextTag) {
-                    if (evl != null) {
-                        evl.handleExportingEvent("text", currentIndex, count, t.getName());
-                    }
-
-                    final TextTag textTag = (TextTag) t;
-                    final File file = new File(outdir + File.separator + Helper.makeFileName(textTag.getCharacterExportFileName() + ".txt"));
-                    new RetryTask(() -> {
-                        try (OutputStream fos = new BufferedOutputStream(new FileOutputStream(file))) {
-                            if (settings.mode == TextExportMode.FORMATTED) {
-                                fos.write(Utf8Helper.getBytes(textTag.getFormattedText(false).text));
-                            } else {
-                                String separator = Configuration.textExportSingleFileRecordSeparator.get();
-                                separator = Helper.newLine + separator + Helper.newLine;
-                                List<String> texts = textTag.getTexts();
-                                fos.write(Utf8Helper.getBytes(String.join(separator, texts)));
-                            }
-                        }
-                    }, handler).run();
-                    ret.add(file);
-
-                    if (Thread.currentThread().isInterrupted()) {
-                        break;
-                    }
-                    if (evl != null) {
-                        evl.handleExportedEvent("text", currentIndex, count, t.getName());
-                    }
-
-                    currentIndex++;
+            ret.addAll(ParallelTagExporter.export(handler, "text", textTags, (TextTag textTag) -> {
+                return new File(outdir + File.separator + Helper.makeFileName(textTag.getCharacterExportFileName() + ".txt"));
+            }, (TextTag textTag, OutputStream fos) -> {
+                if (settings.mode == TextExportMode.FORMATTED) {
+                    fos.write(Utf8Helper.getBytes(textTag.getFormattedText(false).text));
+                } else {
+                    String separator = Configuration.textExportSingleFileRecordSeparator.get();
+                    separator = Helper.newLine + separator + Helper.newLine;
+                    List<String> texts = textTag.getTexts();
+                    fos.write(Utf8Helper.getBytes(String.join(separator, texts)));
                 }
-            }
+            }, evl));
         }
         return ret;
     }
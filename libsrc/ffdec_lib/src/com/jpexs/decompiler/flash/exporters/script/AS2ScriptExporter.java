@@ -24,6 +24,7 @@ import com.jpexs.decompiler.flash.exporters.settings.ScriptExportSettings;
 import com.jpexs.decompiler.flash.tags.base.ASMSource;
 import com.jpexs.helpers.CancellableWorker;
 import com.jpexs.helpers.Helper;
+import com.jpexs.helpers.SharedExecutor;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -32,8 +33,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
@@ -107,26 +106,22 @@ public class AS2ScriptExporter {
                 logger.log(Level.SEVERE, "Error during AS2 export", ex);
             }
         } else {
-            ExecutorService executor = Executors.newFixedThreadPool(Configuration.getParallelThreadCount());
             List<Future<File>> futureResults = new ArrayList<>();
             for (ExportScriptTask task : tasks) {
-                Future<File> future = executor.submit(task);
+                Future<File> future = SharedExecutor.submit(task.asm.getSwf(), task);
                 futureResults.add(future);
             }
 
             try {
-                executor.shutdown();
-                if (!executor.awaitTermination(Configuration.exportTimeout.get(), TimeUnit.SECONDS)) {
+                if (!SharedExecutor.awaitAll(futureResults, Configuration.exportTimeout.get(), TimeUnit.SECONDS)) {
                     logger.log(Level.SEVERE, "{0} ActionScript export limit reached", Helper.formatTimeToText(Configuration.exportTimeout.get()));
                 }
             } catch (InterruptedException ex) {
-            } finally {
-                executor.shutdownNow();
             }
 
             for (int f = 0; f < futureResults.size(); f++) {
                 try {
-                    if (futureResults.get(f).isDone()) {
+                    if (futureResults.get(f).isDone() && !futureResults.get(f).isCancelled()) {
                         ret.add(futureResults.get(f).get());
                     }
                 } catch (InterruptedException ex) {
@@ -111,8 +111,8 @@ public class DependencyParser {
         MethodBody body = abc.findBody(method_index);
         if (body != null) {
             body = body.convertMethodBodyCanUseLast(Configuration.autoDeobfuscate.get(), "", isStatic, scriptIndex, classIndex, abc, trait);
-            body.traits.getDependencies(scriptIndex, classIndex, isStatic, ignoredCustom, abc, dependencies, uses, ignorePackage, fullyQualifiedNames);
-            for (ABCException ex : body.exceptions) {
+            body.getTraits().getDependencies(scriptIndex, classIndex, isStatic, ignoredCustom, abc, dependencies, uses, ignorePackage, fullyQualifiedNames);
+            for (ABCException ex : body.getExceptions()) {
                 parseDependenciesFromMultiname(ignoredCustom, abc, dependencies, uses, abc.constants.getMultiname(ex.type_index), ignorePackage, fullyQualifiedNames, DependencyType.EXPRESSION /* or signature?*/);
             }
             for (AVM2Instruction ins : body.getCode().code) {
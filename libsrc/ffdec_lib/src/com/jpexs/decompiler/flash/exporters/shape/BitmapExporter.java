@@ -105,58 +105,11 @@ public class BitmapExporter extends ShapeExporterBase {
 
     private boolean scaleStrokes;
 
-    private class TransformedStroke implements Stroke {
-
-        /**
-         * To make this serializable without problems.
-         */
-        private static final long serialVersionUID = 1;
-
-        /**
-         * the AffineTransform used to transform the shape before stroking.
-         */
-        private final AffineTransform transform;
-
-        /**
-         * The inverse of {@link #transform}, used to transform back after
-         * stroking.
-         */
-        private final AffineTransform inverse;
-
-        /**
-         * Our base stroke.
-         */
-        private final Stroke stroke;
-
-        /**
-         * Creates a TransformedStroke based on another Stroke and an
-         * AffineTransform.
-         */
-        public TransformedStroke(Stroke base, AffineTransform at)
-                throws NoninvertibleTransformException {
-            this.transform = new AffineTransform(at);
-            this.inverse = transform.createInverse();
-            this.stroke = base;
+    public static void export(int shapeNum, SWF swf, SHAPE shape, Color defaultColor, SerializableImage image, double unzoom, Matrix transformation, Matrix strokeTransformation, ColorTransform colorTransform, boolean scaleStrokes) {
+        if (Configuration.scanlineShapeRasterizer.get() && ScanlineShapeExporter.export(shapeNum, swf, shape, defaultColor, image, unzoom, transformation, strokeTransformation, colorTransform, scaleStrokes)) {
+            return;
         }
 
-        /**
-         * Strokes the given Shape with this stroke, creating an outline.
-         *
-         * This outline is distorted by our AffineTransform relative to the
-         * outline which would be given by the base stroke, but only in terms of
-         * scaling (i.e. thickness of the lines), as translation and rotation
-         * are undone after the stroking.
-         */
-        @Override
-        public Shape createStrokedShape(Shape s) {
-            Shape sTrans = transform.createTransformedShape(s);
-            Shape sTransStroked = stroke.createStrokedShape(sTrans);
-            Shape sStroked = inverse.createTransformedShape(sTransStroked);
-            return sStroked;
-        }
-    }
-
-    public static void export(int shapeNum, SWF swf, SHAPE shape, Color defaultColor, SerializableImage image, double unzoom, Matrix transformation, Matrix strokeTransformation, ColorTransform colorTransform, boolean scaleStrokes) {
         BitmapExporter exporter = new BitmapExporter(shapeNum, swf, shape, defaultColor, colorTransform);
         exporter.exportTo(image, unzoom, transformation, strokeTransformation, scaleStrokes);
     }
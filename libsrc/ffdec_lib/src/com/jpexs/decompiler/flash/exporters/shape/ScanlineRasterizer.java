@@ -0,0 +1,374 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash.exporters.shape;
+
+import java.awt.geom.PathIterator;
+import java.util.Arrays;
+
+/**
+ * Anti-aliased scanline rasterizer which fills paths directly into int
+ * pixels of an image.
+ *
+ * Coverage of the pixels is computed analytically from signed areas of the
+ * edges, the winding of each pixel is then folded by even-odd or non-zero
+ * rule. Path is rendered in horizontal bands, so only a small accumulation
+ * buffer is needed. Instance must be used by one thread only.
+ *
+ * @author JPEXS
+ */
+public class ScanlineRasterizer {
+
+    /**
+     * Paint of spans of pixels
+     */
+    public interface SpanPaint {
+
+        /**
+         * Gets colors of pixels in a span.
+         *
+         * @param x Device X coordinate of first pixel
+         * @param y Device Y coordinate
+         * @param length Number of pixels
+         * @param colors Target array for premultiplied ARGB colors
+         */
+        public void paint(int x, int y, int length, int[] colors);
+    }
+
+    private static final int BAND_HEIGHT = 32;
+
+    private final int[] pixels;
+
+    private final int offset;
+
+    private final int scanlineStride;
+
+    private final boolean premultiplied;
+
+    private final boolean opaque;
+
+    private int clipMinX;
+
+    private int clipMinY;
+
+    private int clipMaxX;
+
+    private int clipMaxY;
+
+    private float[] edges = new float[256];
+
+    private int edgeCount;
+
+    private float[] accumulation = new float[0];
+
+    private int[] coverage = new int[0];
+
+    private int[] colors = new int[0];
+
+    /**
+     * Constructs rasterizer.
+     *
+     * @param pixels Pixels of the target
+     * @param offset Index of the top left pixel
+     * @param scanlineStride Distance between rows
+     * @param width Width
+     * @param height Height
+     * @param premultiplied Pixels are premultiplied ARGB
+     * @param opaque Pixels are RGB without alpha
+     */
+    public ScanlineRasterizer(int[] pixels, int offset, int scanlineStride, int width, int height, boolean premultiplied, boolean opaque) {
+        this.pixels = pixels;
+        this.offset = offset;
+        this.scanlineStride = scanlineStride;
+        this.premultiplied = premultiplied;
+        this.opaque = opaque;
+        this.clipMaxX = width;
+        this.clipMaxY = height;
+    }
+
+    /**
+     * Limits drawing to a rectangle of pixels.
+     *
+     * @param minX Left
+     * @param minY Top
+     * @param maxX Right, exclusive
+     * @param maxY Bottom, exclusive
+     */
+    public void clip(int minX, int minY, int maxX, int maxY) {
+        clipMinX = Math.max(clipMinX, minX);
+        clipMinY = Math.max(clipMinY, minY);
+        clipMaxX = Math.min(clipMaxX, maxX);
+        clipMaxY = Math.min(clipMaxY, maxY);
+    }
+
+    private void addEdge(double x0, double y0, double x1, double y1) {
+        if (y0 == y1) {
+            return;
+        }
+        if (edges.length < (edgeCount + 1) * 4) {
+            edges = Arrays.copyOf(edges, edges.length * 2);
+        }
+        int i = edgeCount * 4;
+        edges[i] = (float) x0;
+        edges[i + 1] = (float) y0;
+        edges[i + 2] = (float) x1;
+        edges[i + 3] = (float) y1;
+        edgeCount++;
+    }
+
+    /**
+     * Fills path. All subpaths are closed.
+     *
+     * @param iterator Flattened path iterator in device coordinates, its
+     * winding rule is used
+     * @param paint Paint
+     */
+    public void fill(PathIterator iterator, SpanPaint paint) {
+        boolean evenOdd = iterator.getWindingRule() == PathIterator.WIND_EVEN_ODD;
+        edgeCount = 0;
+        double[] coords = new double[6];
+        double startX = 0;
+        double startY = 0;
+        double lastX = 0;
+        double lastY = 0;
+        double minX = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        while (!iterator.isDone()) {
+            int type = iterator.currentSegment(coords);
+            switch (type) {
+                case PathIterator.SEG_MOVETO:
+                    addEdge(lastX, lastY, startX, startY);
+                    startX = lastX = coords[0];
+                    startY = lastY = coords[1];
+                    break;
+                case PathIterator.SEG_LINETO:
+                    addEdge(lastX, lastY, coords[0], coords[1]);
+                    lastX = coords[0];
+                    lastY = coords[1];
+                    break;
+                case PathIterator.SEG_CLOSE:
+                    addEdge(lastX, lastY, startX, startY);
+                    lastX = startX;
+                    lastY = startY;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Path iterator must be flattened");
+            }
+            if (type != PathIterator.SEG_CLOSE) {
+                if (!Double.isFinite(lastX) || !Double.isFinite(lastY)) {
+                    return;
+                }
+                minX = Math.min(minX, lastX);
+                maxX = Math.max(maxX, lastX);
+                minY = Math.min(minY, lastY);
+                maxY = Math.max(maxY, lastY);
+            }
+            iterator.next();
+        }
+        addEdge(lastX, lastY, startX, startY);
+        if (edgeCount == 0) {
+            return;
+        }
+
+        int left = Math.max(clipMinX, (int) Math.floor(minX));
+        int right = Math.min(clipMaxX, (int) Math.ceil(maxX));
+        int top = Math.max(clipMinY, (int) Math.floor(minY));
+        int bottom = Math.min(clipMaxY, (int) Math.ceil(maxY));
+        if (left >= right || top >= bottom) {
+            return;
+        }
+
+        int width = right - left;
+        int stride = width + 2;
+        if (accumulation.length < stride * BAND_HEIGHT) {
+            accumulation = new float[stride * BAND_HEIGHT];
+        }
+        if (coverage.length < width) {
+            coverage = new int[width];
+            colors = new int[width];
+        }
+        for (int bandY = top; bandY < bottom; bandY += BAND_HEIGHT) {
+            int bandHeight = Math.min(BAND_HEIGHT, bottom - bandY);
+            for (int i = 0; i < edgeCount * 4; i += 4) {
+                accumulate(edges[i], edges[i + 1], edges[i + 2], edges[i + 3], bandY, bandHeight, left, width);
+            }
+            for (int y = 0; y < bandHeight; y++) {
+                renderRow(y * stride, bandY + y, left, width, evenOdd, paint);
+            }
+        }
+    }
+
+    private void accumulate(double x0, double y0, double x1, double y1, int bandY, int bandHeight, int left, int width) {
+        double dir = 1;
+        if (y0 > y1) {
+            double t = x0;
+            x0 = x1;
+            x1 = t;
+            t = y0;
+            y0 = y1;
+            y1 = t;
+            dir = -1;
+        }
+        double ys = y0 - bandY;
+        double ye = y1 - bandY;
+        if (ye <= 0 || ys >= bandHeight) {
+            return;
+        }
+
+        double dxdy = (x1 - x0) / (y1 - y0);
+        double x = x0 - left;
+        if (ys < 0) {
+            x -= ys * dxdy;
+            ys = 0;
+        }
+        if (ye > bandHeight) {
+            ye = bandHeight;
+        }
+
+        float[] acc = accumulation;
+        int stride = width + 2;
+        int yEnd = (int) Math.ceil(ye);
+        for (int y = (int) ys; y < yEnd; y++) {
+            int lineStart = y * stride;
+            double dy = Math.min(y + 1, ye) - Math.max(y, ys);
+            double xNext = x + dxdy * dy;
+            double d = dy * dir;
+            double xa = x < xNext ? x : xNext;
+            double xb = x < xNext ? xNext : x;
+            x = xNext;
+            xa = xa < 0 ? 0 : (xa > width ? width : xa);
+            xb = xb < 0 ? 0 : (xb > width ? width : xb);
+
+            double xaFloor = Math.floor(xa);
+            int xai = (int) xaFloor;
+            double xbCeil = Math.ceil(xb);
+            int xbi = (int) xbCeil;
+            if (xbi <= xai + 1) {
+                double xmf = 0.5 * (xa + xb) - xaFloor;
+                acc[lineStart + xai] += d - d * xmf;
+                acc[lineStart + xai + 1] += d * xmf;
+            } else {
+                double s = 1 / (xb - xa);
+                double xaf = xa - xaFloor;
+                double a0 = 0.5 * s * (1 - xaf) * (1 - xaf);
+                double xbf = xb - xbCeil + 1;
+                double am = 0.5 * s * xbf * xbf;
+                acc[lineStart + xai] += d * a0;
+                if (xbi == xai + 2) {
+                    acc[lineStart + xai + 1] += d * (1 - a0 - am);
+                } else {
+                    double a1 = s * (1.5 - xaf);
+                    acc[lineStart + xai + 1] += d * (a1 - a0);
+                    for (int xi = xai + 2; xi < xbi - 1; xi++) {
+                        acc[lineStart + xi] += d * s;
+                    }
+                    double a2 = a1 + (xbi - xai - 3) * s;
+                    acc[lineStart + xbi - 1] += d * (1 - a2 - am);
+                }
+                acc[lineStart + xbi] += d * am;
+            }
+        }
+    }
+
+    private void renderRow(int lineStart, int y, int left, int width, boolean evenOdd, SpanPaint paint) {
+        float[] acc = accumulation;
+        int[] cov = coverage;
+        float winding = 0;
+        for (int x = 0; x < width; x++) {
+            winding += acc[lineStart + x];
+            acc[lineStart + x] = 0;
+            float a = Math.abs(winding);
+            if (evenOdd) {
+                a = a % 2;
+                if (a > 1) {
+                    a = 2 - a;
+                }
+            } else if (a > 1) {
+                a = 1;
+            }
+            cov[x] = (int) (a * 255 + 0.5f);
+        }
+        acc[lineStart + width] = 0;
+        acc[lineStart + width + 1] = 0;
+
+        int rowOffset = offset + y * scanlineStride + left;
+        int x = 0;
+        while (x < width) {
+            if (cov[x] == 0) {
+                x++;
+                continue;
+            }
+            int spanStart = x;
+            while (x < width && cov[x] != 0) {
+                x++;
+            }
+            paint.paint(left + spanStart, y, x - spanStart, colors);
+            for (int i = spanStart; i < x; i++) {
+                blend(rowOffset + i, colors[i - spanStart], cov[i]);
+            }
+        }
+    }
+
+    private static int mul255(int a, int b) {
+        int t = a * b + 128;
+        return (t + (t >> 8)) >> 8;
+    }
+
+    private void blend(int index, int color, int cov) {
+        int sa = color >>> 24;
+        int sr = (color >> 16) & 0xff;
+        int sg = (color >> 8) & 0xff;
+        int sb = color & 0xff;
+        if (cov < 255) {
+            sa = mul255(sa, cov);
+            sr = mul255(sr, cov);
+            sg = mul255(sg, cov);
+            sb = mul255(sb, cov);
+        }
+        if (sa == 0) {
+            return;
+        }
+        if (sa == 255) {
+            pixels[index] = 0xff000000 | (sr << 16) | (sg << 8) | sb;
+            return;
+        }
+
+        int dst = pixels[index];
+        int da = opaque ? 255 : dst >>> 24;
+        int dr = (dst >> 16) & 0xff;
+        int dg = (dst >> 8) & 0xff;
+        int db = dst & 0xff;
+        if (!premultiplied && !opaque && da < 255) {
+            dr = mul255(dr, da);
+            dg = mul255(dg, da);
+            db = mul255(db, da);
+        }
+
+        int inv = 255 - sa;
+        int ra = sa + mul255(da, inv);
+        int rr = sr + mul255(dr, inv);
+        int rg = sg + mul255(dg, inv);
+        int rb = sb + mul255(db, inv);
+        if (!premultiplied && !opaque && ra < 255) {
+            rr = Math.min(255, rr * 255 / ra);
+            rg = Math.min(255, rg * 255 / ra);
+            rb = Math.min(255, rb * 255 / ra);
+        }
+        pixels[index] = (ra << 24) | (rr << 16) | (rg << 8) | rb;
+    }
+}
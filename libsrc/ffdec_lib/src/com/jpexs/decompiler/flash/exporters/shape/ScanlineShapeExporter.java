@@ -0,0 +1,694 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash.exporters.shape;
+
+import com.jpexs.decompiler.flash.SWF;
+import com.jpexs.decompiler.flash.configuration.Configuration;
+import com.jpexs.decompiler.flash.exporters.commonshape.Matrix;
+import com.jpexs.decompiler.flash.tags.base.ImageTag;
+import com.jpexs.decompiler.flash.types.ColorTransform;
+import com.jpexs.decompiler.flash.types.FILLSTYLE;
+import com.jpexs.decompiler.flash.types.GRADIENT;
+import com.jpexs.decompiler.flash.types.GRADRECORD;
+import com.jpexs.decompiler.flash.types.LINESTYLE2;
+import com.jpexs.decompiler.flash.types.RGB;
+import com.jpexs.decompiler.flash.types.SHAPE;
+import com.jpexs.helpers.SerializableImage;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Area;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.NoninvertibleTransformException;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Shape exporter which renders shapes to an image by ScanlineRasterizer
+ * instead of Java2D.
+ *
+ * Fills, gradients and bitmaps are painted directly to the pixels of the
+ * image, so threads rendering different images do not wait for each other.
+ * Only outlines of the strokes are created by Java2D strokes.
+ *
+ * @author JPEXS
+ */
+public class ScanlineShapeExporter extends ShapeExporterBase {
+
+    private static final int GRADIENT_SIZE = 1024;
+
+    private static final double GRADIENT_RADIUS = 16384;
+
+    private static final double FLATNESS = 0.1;
+
+    private static final float[] SRGB_TO_LINEAR = new float[256];
+
+    private static final AffineTransform IDENTITY_TRANSFORM = new AffineTransform();
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            float c = i / 255f;
+            SRGB_TO_LINEAR[i] = c <= 0.04045f ? c / 12.92f : (float) Math.pow((c + 0.055f) / 1.055f, 2.4);
+        }
+    }
+
+    private final SWF swf;
+
+    private final Color defaultColor;
+
+    private final ScanlineRasterizer rasterizer;
+
+    private final GeneralPath path = new GeneralPath(GeneralPath.WIND_EVEN_ODD);
+
+    private AffineTransform transform;
+
+    private ScanlineRasterizer.SpanPaint fillPaint;
+
+    private ScanlineRasterizer.SpanPaint linePaint;
+
+    private ScanlineRasterizer.SpanPaint lineColorPaint;
+
+    private Stroke lineStroke;
+
+    private Matrix strokeTransformation;
+
+    private double thicknessScale;
+
+    private double thicknessScaleX;
+
+    private double thicknessScaleY;
+
+    private double unzoom;
+
+    private boolean scaleStrokes;
+
+    /**
+     * Renders shape to the image when the image and the clip of its graphics
+     * are supported by the rasterizer.
+     *
+     * @param shapeNum Shape number
+     * @param swf SWF
+     * @param shape Shape
+     * @param defaultColor Color of fills without fill style
+     * @param image Target image
+     * @param unzoom Unzoom
+     * @param transformation Transformation
+     * @param strokeTransformation Transformation of the strokes
+     * @param colorTransform Color transform
+     * @param scaleStrokes Scale strokes
+     * @return False when the image cannot be rendered by this exporter and
+     * nothing was drawn
+     */
+    public static boolean export(int shapeNum, SWF swf, SHAPE shape, Color defaultColor, SerializableImage image, double unzoom, Matrix transformation, Matrix strokeTransformation, ColorTransform colorTransform, boolean scaleStrokes) {
+        ScanlineRasterizer rasterizer = createRasterizer(image);
+        if (rasterizer == null) {
+            return false;
+        }
+
+        ScanlineShapeExporter exporter = new ScanlineShapeExporter(shapeNum, swf, shape, defaultColor, colorTransform, rasterizer);
+        exporter.exportTo(image, unzoom, transformation, strokeTransformation, scaleStrokes);
+        return true;
+    }
+
+    private static ScanlineRasterizer createRasterizer(SerializableImage image) {
+        if (image.getClass() != SerializableImage.class) {
+            // custom graphics, for example PDF
+            return null;
+        }
+
+        BufferedImage bufferedImage = image.getBufferedImage();
+        int type = bufferedImage.getType();
+        if (type != BufferedImage.TYPE_INT_ARGB_PRE && type != BufferedImage.TYPE_INT_ARGB && type != BufferedImage.TYPE_INT_RGB) {
+            return null;
+        }
+
+        WritableRaster raster = bufferedImage.getRaster();
+        if (!(raster.getDataBuffer() instanceof DataBufferInt) || !(raster.getSampleModel() instanceof SinglePixelPackedSampleModel)) {
+            return null;
+        }
+
+        Graphics2D graphics = (Graphics2D) image.getGraphics();
+        AffineTransform oldTransform = graphics.getTransform();
+        graphics.setTransform(IDENTITY_TRANSFORM);
+        Shape clip = graphics.getClip();
+        graphics.setTransform(oldTransform);
+        Rectangle2D clipRect = null;
+        if (clip instanceof Rectangle2D) {
+            clipRect = (Rectangle2D) clip;
+        } else if (clip instanceof Area && ((Area) clip).isRectangular()) {
+            clipRect = clip.getBounds2D();
+        } else if (clip != null) {
+            return null;
+        }
+
+        DataBufferInt dataBuffer = (DataBufferInt) raster.getDataBuffer();
+        int stride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+        int offset = dataBuffer.getOffset() - raster.getSampleModelTranslateY() * stride - raster.getSampleModelTranslateX();
+        ScanlineRasterizer rasterizer = new ScanlineRasterizer(dataBuffer.getData(), offset, stride, image.getWidth(), image.getHeight(),
+                type == BufferedImage.TYPE_INT_ARGB_PRE, type == BufferedImage.TYPE_INT_RGB);
+        if (clipRect != null) {
+            // pixels with centers inside the clip
+            rasterizer.clip((int) Math.ceil(clipRect.getMinX() - 0.5), (int) Math.ceil(clipRect.getMinY() - 0.5),
+                    (int) Math.ceil(clipRect.getMaxX() - 0.5), (int) Math.ceil(clipRect.getMaxY() - 0.5));
+        }
+        return rasterizer;
+    }
+
+    private ScanlineShapeExporter(int shapeNum, SWF swf, SHAPE shape, Color defaultColor, ColorTransform colorTransform, ScanlineRasterizer rasterizer) {
+        super(shapeNum, swf, shape, colorTransform);
+        this.swf = swf;
+        this.defaultColor = defaultColor;
+        this.rasterizer = rasterizer;
+    }
+
+    private void exportTo(SerializableImage image, double unzoom, Matrix transformation, Matrix strokeTransformation, boolean scaleStrokes) {
+        this.scaleStrokes = scaleStrokes;
+        this.strokeTransformation = strokeTransformation;
+        this.unzoom = unzoom;
+        com.jpexs.decompiler.flash.exporters.commonshape.Point p00 = strokeTransformation.transform(0, 0);
+        com.jpexs.decompiler.flash.exporters.commonshape.Point p11 = strokeTransformation.transform(1, 1);
+        thicknessScale = p00.distanceTo(p11) / Math.sqrt(2);
+        thicknessScaleX = Math.abs(p11.x - p00.x);
+        thicknessScaleY = Math.abs(p11.y - p00.y);
+
+        transform = transformation.toTransform();
+        transform.preConcatenate(AffineTransform.getScaleInstance(1 / SWF.unitDivisor, 1 / SWF.unitDivisor));
+        super.export();
+
+        // Same graphics state as after BitmapExporter
+        ((Graphics2D) image.getGraphics()).setTransform(transform);
+    }
+
+    @Override
+    public void beginShape() {
+    }
+
+    @Override
+    public void endShape() {
+    }
+
+    @Override
+    public void beginFills() {
+    }
+
+    @Override
+    public void endFills() {
+    }
+
+    @Override
+    public void beginLines() {
+    }
+
+    @Override
+    public void endLines(boolean close) {
+        if (close) {
+            path.closePath();
+        }
+
+        finalizePath();
+    }
+
+    @Override
+    public void beginFill(RGB color) {
+        finalizePath();
+        if (color == null) {
+            fillPaint = defaultColor == null ? null : createColorPaint(defaultColor.getRGB());
+        } else {
+            fillPaint = createColorPaint(color.toColor().getRGB());
+        }
+    }
+
+    @Override
+    public void beginGradientFill(int type, GRADRECORD[] gradientRecords, Matrix matrix, int spreadMethod, int interpolationMethod, float focalPointRatio) {
+        finalizePath();
+        fillPaint = createGradientPaint(type, gradientRecords, matrix, spreadMethod, interpolationMethod, focalPointRatio);
+    }
+
+    @Override
+    public void beginBitmapFill(int bitmapId, Matrix matrix, boolean repeat, boolean smooth, ColorTransform colorTransform) {
+        finalizePath();
+        fillPaint = createBitmapPaint(bitmapId, matrix, repeat, smooth, colorTransform);
+    }
+
+    @Override
+    public void endFill() {
+        finalizePath();
+        fillPaint = null;
+    }
+
+    @Override
+    public void lineStyle(double thickness, RGB color, boolean pixelHinting, String scaleMode, int startCaps, int endCaps, int joints, float miterLimit) {
+        finalizePath();
+        linePaint = null;
+        lineColorPaint = color == null ? null : createColorPaint(color.toColor().getRGB());
+        int capStyle = BasicStroke.CAP_ROUND;
+        switch (startCaps) {
+            case LINESTYLE2.NO_CAP:
+                capStyle = BasicStroke.CAP_BUTT;
+                break;
+            case LINESTYLE2.SQUARE_CAP:
+                capStyle = BasicStroke.CAP_SQUARE;
+                break;
+        }
+        int joinStyle = BasicStroke.JOIN_ROUND;
+        switch (joints) {
+            case LINESTYLE2.BEVEL_JOIN:
+                joinStyle = BasicStroke.JOIN_BEVEL;
+                break;
+            case LINESTYLE2.MITER_JOIN:
+                joinStyle = BasicStroke.JOIN_MITER;
+                break;
+        }
+        if (scaleStrokes) {
+            switch (scaleMode) {
+                case "VERTICAL":
+                    thickness *= thicknessScaleY;
+                    break;
+                case "HORIZONTAL":
+                    thickness *= thicknessScaleX;
+                    break;
+                case "NORMAL":
+                    thickness *= thicknessScale;
+                    break;
+            }
+        }
+
+        //always display minimum stroke of 1 pixel, no matter how zoomed it is
+        if (thickness * unzoom < 1 * SWF.unitDivisor) {
+            thickness = 1 * SWF.unitDivisor / unzoom;
+        }
+
+        if (joinStyle == BasicStroke.JOIN_MITER) {
+            lineStroke = new BasicStroke((float) thickness, capStyle, joinStyle, miterLimit);
+            if (Configuration.allowMiterClipLinestyle.get()) {
+                lineStroke = new MiterClipBasicStroke((BasicStroke) lineStroke);
+            }
+        } else {
+            lineStroke = new BasicStroke((float) thickness, capStyle, joinStyle);
+        }
+
+        try {
+            lineStroke = new TransformedStroke(lineStroke, strokeTransformation.toTransform());
+        } catch (NoninvertibleTransformException net) {
+            // ignore
+        }
+    }
+
+    @Override
+    public void lineGradientStyle(int type, GRADRECORD[] gradientRecords, Matrix matrix, int spreadMethod, int interpolationMethod, float focalPointRatio) {
+        linePaint = createGradientPaint(type, gradientRecords, matrix, spreadMethod, interpolationMethod, focalPointRatio);
+    }
+
+    @Override
+    public void lineBitmapStyle(int bitmapId, Matrix matrix, boolean repeat, boolean smooth, ColorTransform colorTransform) {
+        linePaint = createBitmapPaint(bitmapId, matrix, repeat, smooth, colorTransform);
+    }
+
+    @Override
+    public void moveTo(double x, double y) {
+        path.moveTo(x, y);
+    }
+
+    @Override
+    public void lineTo(double x, double y) {
+        path.lineTo(x, y);
+    }
+
+    @Override
+    public void curveTo(double controlX, double controlY, double anchorX, double anchorY) {
+        path.quadTo(controlX, controlY, anchorX, anchorY);
+    }
+
+    protected void finalizePath() {
+        if (fillPaint != null) {
+            rasterizer.fill(path.getPathIterator(transform, FLATNESS), fillPaint);
+        }
+        ScanlineRasterizer.SpanPaint strokePaint = linePaint != null && lineStroke != null ? linePaint : lineColorPaint;
+        if (strokePaint != null) {
+            if (lineStroke != null) {
+                rasterizer.fill(lineStroke.createStrokedShape(path).getPathIterator(transform, FLATNESS), strokePaint);
+            } else {
+                Shape devicePath = transform.createTransformedShape(path);
+                rasterizer.fill(new BasicStroke().createStrokedShape(devicePath).getPathIterator(null, FLATNESS), strokePaint);
+            }
+        }
+
+        path.reset();
+        lineStroke = null;
+        lineColorPaint = null;
+        fillPaint = null;
+    }
+
+    private static int premultiply(int argb) {
+        int a = argb >>> 24;
+        if (a == 255) {
+            return argb;
+        }
+        int r = ((argb >> 16) & 0xff) * a / 255;
+        int g = ((argb >> 8) & 0xff) * a / 255;
+        int b = (argb & 0xff) * a / 255;
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    private static ScanlineRasterizer.SpanPaint createColorPaint(int argb) {
+        int color = premultiply(argb);
+        return (int x, int y, int length, int[] colors) -> Arrays.fill(colors, 0, length, color);
+    }
+
+    /**
+     * Gets transform from device pixels to the paint coordinates.
+     *
+     * @param matrix Paint matrix
+     * @return Transform or null when the paint is not visible
+     */
+    private AffineTransform getInversePaintTransform(Matrix matrix) {
+        AffineTransform paintTransform = matrix.toTransform();
+        double det = paintTransform.getScaleX() * paintTransform.getScaleY() - paintTransform.getShearX() * paintTransform.getShearY();
+        if (Math.abs(det) <= Double.MIN_VALUE) {
+            // use only the translate values as BitmapExporter does
+            paintTransform.setToTranslation(paintTransform.getTranslateX(), paintTransform.getTranslateY());
+        }
+        AffineTransform deviceTransform = new AffineTransform(transform);
+        deviceTransform.concatenate(paintTransform);
+        try {
+            return deviceTransform.createInverse();
+        } catch (NoninvertibleTransformException ex) {
+            return null;
+        }
+    }
+
+    private ScanlineRasterizer.SpanPaint createGradientPaint(int type, GRADRECORD[] gradientRecords, Matrix matrix, int spreadMethod, int interpolationMethod, float focalPointRatio) {
+        List<Float> ratios = new ArrayList<>();
+        List<Integer> colors = new ArrayList<>();
+        for (int i = 0; i < gradientRecords.length; i++) {
+            if ((i > 0) && (gradientRecords[i - 1].ratio == gradientRecords[i].ratio)) {
+                continue;
+            }
+            ratios.add(gradientRecords[i].getRatioFloat());
+            colors.add(gradientRecords[i].color.toColor().getRGB());
+        }
+        if (colors.isEmpty()) {
+            return null;
+        }
+        if (colors.size() == 1) {
+            return createColorPaint(colors.get(0));
+        }
+
+        AffineTransform inverse = getInversePaintTransform(matrix);
+        if (inverse == null) {
+            return null;
+        }
+
+        int[] table = createGradientTable(ratios, colors, interpolationMethod == GRADIENT.INTERPOLATION_LINEAR_RGB_MODE);
+        double focalX = 0;
+        if (type == FILLSTYLE.FOCAL_RADIAL_GRADIENT) {
+            // focus must be inside the circle
+            focalX = Math.max(-0.99, Math.min(0.99, focalPointRatio)) * GRADIENT_RADIUS;
+        }
+        return new GradientPaint(table, inverse, type != FILLSTYLE.LINEAR_GRADIENT, focalX, spreadMethod);
+    }
+
+    private static int[] createGradientTable(List<Float> ratios, List<Integer> colors, boolean linearRgb) {
+        int[] table = new int[GRADIENT_SIZE];
+        int last = ratios.size() - 1;
+        int stop = 0;
+        for (int i = 0; i < GRADIENT_SIZE; i++) {
+            float t = i / (float) (GRADIENT_SIZE - 1);
+            int argb;
+            if (t <= ratios.get(0)) {
+                argb = colors.get(0);
+            } else if (t >= ratios.get(last)) {
+                argb = colors.get(last);
+            } else {
+                while (stop < last - 1 && t > ratios.get(stop + 1)) {
+                    stop++;
+                }
+                float r0 = ratios.get(stop);
+                float r1 = ratios.get(stop + 1);
+                float f = r1 > r0 ? Math.max(0, Math.min(1, (t - r0) / (r1 - r0))) : 1;
+                argb = interpolate(colors.get(stop), colors.get(stop + 1), f, linearRgb);
+            }
+            table[i] = premultiply(argb);
+        }
+        return table;
+    }
+
+    private static int interpolateChannel(int c0, int c1, float f, boolean linearRgb) {
+        if (!linearRgb) {
+            return Math.round(c0 + (c1 - c0) * f);
+        }
+        float c = SRGB_TO_LINEAR[c0] + (SRGB_TO_LINEAR[c1] - SRGB_TO_LINEAR[c0]) * f;
+        c = c <= 0.0031308f ? c * 12.92f : (float) (1.055 * Math.pow(c, 1 / 2.4) - 0.055);
+        return Math.max(0, Math.min(255, Math.round(c * 255)));
+    }
+
+    private static int interpolate(int argb0, int argb1, float f, boolean linearRgb) {
+        int a = Math.round((argb0 >>> 24) + ((argb1 >>> 24) - (argb0 >>> 24)) * f);
+        int r = interpolateChannel((argb0 >> 16) & 0xff, (argb1 >> 16) & 0xff, f, linearRgb);
+        int g = interpolateChannel((argb0 >> 8) & 0xff, (argb1 >> 8) & 0xff, f, linearRgb);
+        int b = interpolateChannel(argb0 & 0xff, argb1 & 0xff, f, linearRgb);
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+
+    private ScanlineRasterizer.SpanPaint createBitmapPaint(int bitmapId, Matrix matrix, boolean repeat, boolean smooth, ColorTransform colorTransform) {
+        ImageTag imageTag = swf.getImage(bitmapId);
+        if (imageTag != null) {
+            SerializableImage img = imageTag.getImageCached();
+            if (img != null) {
+                if (colorTransform != null) {
+                    img = colorTransform.apply(img);
+                }
+                AffineTransform inverse = getInversePaintTransform(matrix);
+                if (inverse == null) {
+                    return null;
+                }
+                return new BitmapPaint(getPremultipliedPixels(img.getBufferedImage()), img.getWidth(), img.getHeight(), inverse, repeat, smooth);
+            }
+        }
+
+        return createColorPaint(SWF.ERROR_COLOR.getRGB());
+    }
+
+    private static int[] getPremultipliedPixels(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        WritableRaster raster = image.getRaster();
+        if (image.getType() == BufferedImage.TYPE_INT_ARGB_PRE
+                && raster.getDataBuffer() instanceof DataBufferInt
+                && raster.getSampleModel() instanceof SinglePixelPackedSampleModel
+                && ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride() == width
+                && raster.getDataBuffer().getOffset() == 0
+                && raster.getSampleModelTranslateX() == 0
+                && raster.getSampleModelTranslateY() == 0) {
+            return ((DataBufferInt) raster.getDataBuffer()).getData();
+        }
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = premultiply(pixels[i]);
+        }
+        return pixels;
+    }
+
+    private static class GradientPaint implements ScanlineRasterizer.SpanPaint {
+
+        private final int[] table;
+
+        private final double m00;
+
+        private final double m01;
+
+        private final double m02;
+
+        private final double m10;
+
+        private final double m11;
+
+        private final double m12;
+
+        private final boolean radial;
+
+        private final double focalX;
+
+        private final int spreadMethod;
+
+        public GradientPaint(int[] table, AffineTransform inverse, boolean radial, double focalX, int spreadMethod) {
+            this.table = table;
+            this.m00 = inverse.getScaleX();
+            this.m01 = inverse.getShearX();
+            this.m02 = inverse.getTranslateX();
+            this.m10 = inverse.getShearY();
+            this.m11 = inverse.getScaleY();
+            this.m12 = inverse.getTranslateY();
+            this.radial = radial;
+            this.focalX = focalX;
+            this.spreadMethod = spreadMethod;
+        }
+
+        private int getIndex(double t) {
+            switch (spreadMethod) {
+                case GRADIENT.SPREAD_REFLECT_MODE:
+                    t = Math.abs(t) % 2;
+                    if (t > 1) {
+                        t = 2 - t;
+                    }
+                    break;
+                case GRADIENT.SPREAD_REPEAT_MODE:
+                    t = t - Math.floor(t);
+                    break;
+                default:
+                    t = t < 0 ? 0 : (t > 1 ? 1 : t);
+                    break;
+            }
+            return (int) (t * (GRADIENT_SIZE - 1));
+        }
+
+        @Override
+        public void paint(int x, int y, int length, int[] colors) {
+            // sampled at top left corner of the pixels like Java2D gradients
+            double gx = m00 * x + m01 * y + m02;
+            double gy = m10 * x + m11 * y + m12;
+            double c = focalX * focalX - GRADIENT_RADIUS * GRADIENT_RADIUS;
+            for (int i = 0; i < length; i++) {
+                double t;
+                if (!radial) {
+                    t = (gx + GRADIENT_RADIUS) / (2 * GRADIENT_RADIUS);
+                } else if (focalX == 0) {
+                    t = Math.sqrt(gx * gx + gy * gy) / GRADIENT_RADIUS;
+                } else {
+                    // ratio of the distance from focus to the distance of the circle from focus in the same direction
+                    double dx = gx - focalX;
+                    double a = dx * dx + gy * gy;
+                    double b = focalX * dx;
+                    t = a == 0 ? 0 : a / (Math.sqrt(b * b - a * c) - b);
+                }
+                int index = getIndex(t);
+                colors[i] = table[index < 0 || index >= GRADIENT_SIZE ? 0 : index];
+                gx += m00;
+                gy += m10;
+            }
+        }
+    }
+
+    private static class BitmapPaint implements ScanlineRasterizer.SpanPaint {
+
+        private final int[] pixels;
+
+        private final int width;
+
+        private final int height;
+
+        private final double m00;
+
+        private final double m01;
+
+        private final double m02;
+
+        private final double m10;
+
+        private final double m11;
+
+        private final double m12;
+
+        private final boolean repeat;
+
+        private final boolean smooth;
+
+        public BitmapPaint(int[] pixels, int width, int height, AffineTransform inverse, boolean repeat, boolean smooth) {
+            this.pixels = pixels;
+            this.width = width;
+            this.height = height;
+            this.m00 = inverse.getScaleX();
+            this.m01 = inverse.getShearX();
+            this.m02 = inverse.getTranslateX();
+            this.m10 = inverse.getShearY();
+            this.m11 = inverse.getScaleY();
+            this.m12 = inverse.getTranslateY();
+            this.repeat = repeat;
+            this.smooth = smooth;
+        }
+
+        private int getPixel(int x, int y) {
+            if (repeat) {
+                x = Math.floorMod(x, width);
+                y = Math.floorMod(y, height);
+            } else {
+                x = x < 0 ? 0 : (x >= width ? width - 1 : x);
+                y = y < 0 ? 0 : (y >= height ? height - 1 : y);
+            }
+            return pixels[y * width + x];
+        }
+
+        private int sample(double u, double v) {
+            if (!repeat && (u < 0 || v < 0 || u >= width || v >= height)) {
+                return 0;
+            }
+            if (!smooth) {
+                return getPixel((int) Math.floor(u), (int) Math.floor(v));
+            }
+            if (!repeat) {
+                u -= 0.5;
+                v -= 0.5;
+            }
+            double uFloor = Math.floor(u);
+            double vFloor = Math.floor(v);
+            int x = (int) uFloor;
+            int y = (int) vFloor;
+            int wx = (int) ((u - uFloor) * 256);
+            int wy = (int) ((v - vFloor) * 256);
+            int p00 = getPixel(x, y);
+            int p10 = getPixel(x + 1, y);
+            int p01 = getPixel(x, y + 1);
+            int p11 = getPixel(x + 1, y + 1);
+            int ret = 0;
+            for (int shift = 0; shift < 32; shift += 8) {
+                int top = ((p00 >>> shift) & 0xff) * (256 - wx) + ((p10 >>> shift) & 0xff) * wx;
+                int bottom = ((p01 >>> shift) & 0xff) * (256 - wx) + ((p11 >>> shift) & 0xff) * wx;
+                ret |= (((top * (256 - wy) + bottom * wy) + 32768) >>> 16) << shift;
+            }
+            return ret;
+        }
+
+        @Override
+        public void paint(int x, int y, int length, int[] colors) {
+            if (width <= 0 || height <= 0) {
+                Arrays.fill(colors, 0, length, 0);
+                return;
+            }
+            // repeated bitmaps are sampled at top left corner of the pixels
+            // like Java2D TexturePaint, clipped bitmaps at centers like drawn images
+            double px = repeat ? x : x + 0.5;
+            double py = repeat ? y : y + 0.5;
+            double u = m00 * px + m01 * py + m02;
+            double v = m10 * px + m11 * py + m12;
+            for (int i = 0; i < length; i++) {
+                colors[i] = sample(u, v);
+                u += m00;
+                v += m10;
+            }
+        }
+    }
+}
@@ -18,19 +18,36 @@ package com.jpexs.decompiler.flash.exporters.shape;
 
 import com.jpexs.decompiler.flash.exporters.commonshape.FillStyle;
 import com.jpexs.decompiler.flash.exporters.commonshape.LineStyle;
+import com.jpexs.helpers.SizeEstimable;
 import java.util.List;
 
 /**
  *
  * @author JPEXS
  */
-public class ShapeExportData {
+public class ShapeExportData implements SizeEstimable {
 
     public List<FillStyle> fillStyles;
 
     public List<LineStyle> lineStyles;
 
-    public List<List<IEdge>> fillPaths;
+    public List<ShapePath> fillPaths;
 
-    public List<List<IEdge>> linePaths;
+    public List<ShapePath> linePaths;
+
+    @Override
+    public long getEstimatedSize() {
+        long size = 64;
+        if (fillPaths != null) {
+            for (ShapePath path : fillPaths) {
+                size += path.getEstimatedSize();
+            }
+        }
+        if (linePaths != null) {
+            for (ShapePath path : linePaths) {
+                size += path.getEstimatedSize();
+            }
+        }
+        return size;
+    }
 }
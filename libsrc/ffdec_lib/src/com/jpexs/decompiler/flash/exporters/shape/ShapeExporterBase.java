@@ -54,9 +54,9 @@ public abstract class ShapeExporterBase implements IShapeExporter {
 
     private final List<LineStyle> _lineStyles;
 
-    private final List<List<IEdge>> _fillPaths;
+    private final List<ShapePath> _fillPaths;
 
-    private final List<List<IEdge>> _linePaths;
+    private final List<ShapePath> _linePaths;
 
     private final ColorTransform colorTransform;
 
@@ -95,11 +95,11 @@ public abstract class ShapeExporterBase implements IShapeExporter {
                 t.printStackTrace();
             }
             int count = lineEdgeMaps.size();
-            List<List<IEdge>> fillPaths = new ArrayList<>(count);
-            List<List<IEdge>> linePaths = new ArrayList<>(count);
+            List<ShapePath> fillPaths = new ArrayList<>(count);
+            List<ShapePath> linePaths = new ArrayList<>(count);
             for (int i = 0; i < count; i++) {
-                fillPaths.add(createPathFromEdgeMap(fillEdgeMaps.get(i)));
-                linePaths.add(createPathFromEdgeMap(lineEdgeMaps.get(i)));
+                fillPaths.add(ShapePath.create(createPathFromEdgeMap(fillEdgeMaps.get(i)), true));
+                linePaths.add(ShapePath.create(createPathFromEdgeMap(lineEdgeMaps.get(i)), false));
             }
 
             cachedData = new ShapeExportData();
@@ -265,21 +265,19 @@ public abstract class ShapeExporterBase implements IShapeExporter {
         }
     }
 
-    private void exportFillPath(List<IEdge> path) {
-        int posX = Integer.MAX_VALUE;
-        int posY = Integer.MAX_VALUE;
+    private void exportFillPath(ShapePath path) {
         int fillStyleIdx = Integer.MAX_VALUE;
-        if (path.size() > 0) {
+        if (!path.isEmpty()) {
             beginFills();
-            for (int i = 0; i < path.size(); i++) {
-                IEdge e = path.get(i);
-                if (fillStyleIdx != e.getFillStyleIdx()) {
+            byte[] commands = path.commands;
+            int[] data = path.data;
+            int pos = 0;
+            for (int i = 0; i < commands.length; i++) {
+                if (commands[i] == ShapePath.STYLE) {
                     if (fillStyleIdx != Integer.MAX_VALUE) {
                         endFill();
                     }
-                    fillStyleIdx = e.getFillStyleIdx();
-                    posX = Integer.MAX_VALUE;
-                    posY = Integer.MAX_VALUE;
+                    fillStyleIdx = data[pos++];
                     if (fillStyleIdx - 1 < _fillStyles.size()) {
                         FillStyle fillStyle = _fillStyles.get(fillStyleIdx - 1);
                         switch (fillStyle.fillStyleType) {
@@ -319,18 +317,9 @@ public abstract class ShapeExporterBase implements IShapeExporter {
                         // which represents the font color. We just report null in this case.
                         beginFill(null);
                     }
-                }
-                if (posX != e.getFromX() || posY != e.getFromY()) {
-                    moveTo(e.getFromX(), e.getFromY());
-                }
-                if (e instanceof CurvedEdge) {
-                    CurvedEdge c = (CurvedEdge) e;
-                    curveTo(c.getControlX(), c.getControlY(), c.toX, c.toY);
                 } else {
-                    lineTo(e.getToX(), e.getToY());
+                    pos = replayCommand(commands[i], data, pos);
                 }
-                posX = e.getToX();
-                posY = e.getToY();
             }
             if (fillStyleIdx != Integer.MAX_VALUE) {
                 endFill();
@@ -339,25 +328,19 @@ public abstract class ShapeExporterBase implements IShapeExporter {
         }
     }
 
-    private void exportLinePath(List<IEdge> path) {
-        int posX = Integer.MAX_VALUE;
-        int posY = Integer.MAX_VALUE;
-        int lastMoveToX = posX;
-        int lastMoveToY = posY;
-        int lineStyleIdx = Integer.MAX_VALUE;
-        if (path.size() > 0) {
+    private void exportLinePath(ShapePath path) {
+        if (!path.isEmpty()) {
             boolean autoClose = true;
             beginLines();
-            for (int i = 0; i < path.size(); i++) {
-                IEdge e = path.get(i);
-                if (lineStyleIdx != e.getLineStyleIdx()) {
-                    lineStyleIdx = e.getLineStyleIdx();
-                    posX = Integer.MAX_VALUE;
-                    posY = Integer.MAX_VALUE;
+            byte[] commands = path.commands;
+            int[] data = path.data;
+            int pos = 0;
+            for (int i = 0; i < commands.length; i++) {
+                if (commands[i] == ShapePath.STYLE) {
+                    int lineStyleIdx = data[pos++];
                     LineStyle lineStyle = null;
-                    try {
+                    if (lineStyleIdx >= 1 && lineStyleIdx <= _lineStyles.size()) {
                         lineStyle = _lineStyles.get(lineStyleIdx - 1);
-                    } catch (Exception ex) {
                     }
                     if (lineStyle != null) {
                         String scaleMode = "NORMAL";
@@ -432,22 +415,27 @@ public abstract class ShapeExporterBase implements IShapeExporter {
                         // We should never get here
                         lineStyle(1, new RGB(Color.black), false, "NORMAL", 0, 0, 0, 3);
                     }
-                }
-                if (posX != e.getFromX() || posY != e.getFromY()) {
-                    moveTo(e.getFromX(), e.getFromY());
-                    lastMoveToX = e.getFromX();
-                    lastMoveToY = e.getFromY();
-                }
-                if (e instanceof CurvedEdge) {
-                    CurvedEdge c = (CurvedEdge) e;
-                    curveTo(c.getControlX(), c.getControlY(), c.toX, c.toY);
                 } else {
-                    lineTo(e.getToX(), e.getToY());
+                    pos = replayCommand(commands[i], data, pos);
                 }
-                posX = e.getToX();
-                posY = e.getToY();
             }
-            endLines(autoClose && lastMoveToX == posX && lastMoveToY == posY);
+            endLines(autoClose && path.isEndClosed());
+        }
+    }
+
+    private int replayCommand(byte command, int[] data, int pos) {
+        switch (command) {
+            case ShapePath.MOVE_TO:
+                moveTo(data[pos], data[pos + 1]);
+                return pos + 2;
+            case ShapePath.LINE_TO:
+                lineTo(data[pos], data[pos + 1]);
+                return pos + 2;
+            case ShapePath.CURVE_TO:
+                curveTo(data[pos], data[pos + 1], data[pos + 2], data[pos + 3]);
+                return pos + 4;
+            default:
+                throw new IllegalStateException("Unknown path command " + command);
         }
     }
 
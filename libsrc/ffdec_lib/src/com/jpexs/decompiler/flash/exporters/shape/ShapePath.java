@@ -0,0 +1,147 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash.exporters.shape;
+
+import com.jpexs.helpers.SizeEstimable;
+import java.util.List;
+
+/**
+ * Immutable path of a shape group stored in primitive arrays.
+ *
+ * The path is a sequence of style, moveTo, lineTo and curveTo commands created
+ * once from the sorted edges of the shape, exporters replay the commands
+ * without processing the edges again.
+ *
+ * @author JPEXS
+ */
+public final class ShapePath implements SizeEstimable {
+
+    /**
+     * Starts a new style, argument is the style index.
+     */
+    public static final byte STYLE = 0;
+
+    /**
+     * Moves to a point, arguments are x and y.
+     */
+    public static final byte MOVE_TO = 1;
+
+    /**
+     * Line to a point, arguments are x and y.
+     */
+    public static final byte LINE_TO = 2;
+
+    /**
+     * Quadratic curve, arguments are control x, control y, anchor x and
+     * anchor y.
+     */
+    public static final byte CURVE_TO = 3;
+
+    public static final ShapePath EMPTY = new ShapePath(new byte[0], new int[0], false);
+
+    final byte[] commands;
+
+    final int[] data;
+
+    final boolean endClosed;
+
+    private ShapePath(byte[] commands, int[] data, boolean endClosed) {
+        this.commands = commands;
+        this.data = data;
+        this.endClosed = endClosed;
+    }
+
+    /**
+     * Creates path from the edges.
+     *
+     * @param edges Edges sorted by style
+     * @param fill True when the edges are grouped by fill style, false for
+     * line style
+     * @return Path
+     */
+    public static ShapePath create(List<IEdge> edges, boolean fill) {
+        if (edges.isEmpty()) {
+            return EMPTY;
+        }
+        int commandCount = 0;
+        int dataLength = 0;
+        byte[] commands = new byte[edges.size() * 3];
+        int[] data = new int[edges.size() * 7];
+        int posX = Integer.MAX_VALUE;
+        int posY = Integer.MAX_VALUE;
+        int lastMoveToX = posX;
+        int lastMoveToY = posY;
+        int styleIdx = Integer.MAX_VALUE;
+        for (IEdge e : edges) {
+            int edgeStyleIdx = fill ? e.getFillStyleIdx() : e.getLineStyleIdx();
+            if (styleIdx != edgeStyleIdx) {
+                styleIdx = edgeStyleIdx;
+                posX = Integer.MAX_VALUE;
+                posY = Integer.MAX_VALUE;
+                commands[commandCount++] = STYLE;
+                data[dataLength++] = styleIdx;
+            }
+            if (posX != e.getFromX() || posY != e.getFromY()) {
+                commands[commandCount++] = MOVE_TO;
+                data[dataLength++] = e.getFromX();
+                data[dataLength++] = e.getFromY();
+                lastMoveToX = e.getFromX();
+                lastMoveToY = e.getFromY();
+            }
+            if (e instanceof CurvedEdge) {
+                CurvedEdge c = (CurvedEdge) e;
+                commands[commandCount++] = CURVE_TO;
+                data[dataLength++] = c.getControlX();
+                data[dataLength++] = c.getControlY();
+            } else {
+                commands[commandCount++] = LINE_TO;
+            }
+            data[dataLength++] = e.getToX();
+            data[dataLength++] = e.getToY();
+            posX = e.getToX();
+            posY = e.getToY();
+        }
+        byte[] trimmedCommands = new byte[commandCount];
+        System.arraycopy(commands, 0, trimmedCommands, 0, commandCount);
+        int[] trimmedData = new int[dataLength];
+        System.arraycopy(data, 0, trimmedData, 0, dataLength);
+        return new ShapePath(trimmedCommands, trimmedData, lastMoveToX == posX && lastMoveToY == posY);
+    }
+
+    /**
+     * Checks whether the path contains no commands.
+     *
+     * @return True when the path is empty
+     */
+    public boolean isEmpty() {
+        return commands.length == 0;
+    }
+
+    /**
+     * Checks whether the last subpath ends at its moveTo point.
+     *
+     * @return True when the last subpath is closed
+     */
+    public boolean isEndClosed() {
+        return endClosed;
+    }
+
+    @Override
+    public long getEstimatedSize() {
+        return 48 + commands.length + data.length * 4L;
+    }
+}
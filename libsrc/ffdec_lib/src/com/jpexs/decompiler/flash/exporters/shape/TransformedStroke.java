@@ -0,0 +1,79 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash.exporters.shape;
+
+import java.awt.Shape;
+import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.NoninvertibleTransformException;
+
+/**
+ * Stroke which strokes the shape in transformed coordinates, so the thickness
+ * of the lines is scaled by the transform.
+ *
+ * @author JPEXS
+ */
+public class TransformedStroke implements Stroke {
+
+    /**
+     * To make this serializable without problems.
+     */
+    private static final long serialVersionUID = 1;
+
+    /**
+     * the AffineTransform used to transform the shape before stroking.
+     */
+    private final AffineTransform transform;
+
+    /**
+     * The inverse of {@link #transform}, used to transform back after
+     * stroking.
+     */
+    private final AffineTransform inverse;
+
+    /**
+     * Our base stroke.
+     */
+    private final Stroke stroke;
+
+    /**
+     * Creates a TransformedStroke based on another Stroke and an
+     * AffineTransform.
+     */
+    public TransformedStroke(Stroke base, AffineTransform at)
+            throws NoninvertibleTransformException {
+        this.transform = new AffineTransform(at);
+        this.inverse = transform.createInverse();
+        this.stroke = base;
+    }
+
+    /**
+     * Strokes the given Shape with this stroke, creating an outline.
+     *
+     * This outline is distorted by our AffineTransform relative to the
+     * outline which would be given by the base stroke, but only in terms of
+     * scaling (i.e. thickness of the lines), as translation and rotation
+     * are undone after the stroking.
+     */
+    @Override
+    public Shape createStrokedShape(Shape s) {
+        Shape sTrans = transform.createTransformedShape(s);
+        Shape sTransStroked = stroke.createStrokedShape(sTrans);
+        Shape sStroked = inverse.createTransformedShape(sTransStroked);
+        return sStroked;
+    }
+}
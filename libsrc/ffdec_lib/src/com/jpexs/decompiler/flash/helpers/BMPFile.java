@@ -93,6 +93,12 @@ public class BMPFile extends Component {
         }
     }
 
+    public static void saveBitmap(Image image, OutputStream os) throws IOException {
+        BMPFile b = new BMPFile();
+        b.fo = os;
+        b.save(image, image.getWidth(null), image.getHeight(null));
+    }
+
     /*
      *  The saveMethod is the main method of the process. This method
      *  will call the convertImage method to convert the memory image to
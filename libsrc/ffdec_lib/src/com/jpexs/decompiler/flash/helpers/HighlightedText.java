@@ -17,6 +17,8 @@
 package com.jpexs.decompiler.flash.helpers;
 
 import com.jpexs.decompiler.flash.helpers.hilight.Highlighting;
+import com.jpexs.helpers.MappedFileMap;
+import com.jpexs.helpers.SizeEstimable;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
@@ -26,7 +28,11 @@ import java.util.List;
  *
  * @author JPEXS
  */
-public class HighlightedText implements Serializable {
+public class HighlightedText implements Serializable, SizeEstimable {
+
+    static {
+        MappedFileMap.registerCodec(new HighlightedTextCacheCodec());
+    }
 
     public static HighlightedText EMPTY = new HighlightedText();
 
@@ -71,6 +77,15 @@ public class HighlightedText implements Serializable {
         this.specialHighlights = writer.specialHilights;
     }
 
+    public HighlightedText(String text, List<Highlighting> traitHighlights, List<Highlighting> classHighlights, List<Highlighting> methodHighlights, List<Highlighting> instructionHighlights, List<Highlighting> specialHighlights) {
+        this.text = text;
+        this.traitHighlights = traitHighlights;
+        this.classHighlights = classHighlights;
+        this.methodHighlights = methodHighlights;
+        this.instructionHighlights = instructionHighlights;
+        this.specialHighlights = specialHighlights;
+    }
+
     private HighlightedText() {
         this("");
     }
@@ -83,4 +98,14 @@ public class HighlightedText implements Serializable {
         this.instructionHighlights = new ArrayList<>();
         this.specialHighlights = new ArrayList<>();
     }
+
+    @Override
+    public long getEstimatedSize() {
+        long highlightCount = traitHighlights.size()
+                + classHighlights.size()
+                + methodHighlights.size()
+                + instructionHighlights.size()
+                + specialHighlights.size();
+        return text.length() * 2L + highlightCount * 128;
+    }
 }
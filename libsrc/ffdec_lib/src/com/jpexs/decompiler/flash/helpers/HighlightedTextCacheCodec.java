@@ -0,0 +1,207 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash.helpers;
+
+import com.jpexs.decompiler.flash.helpers.hilight.HighlightData;
+import com.jpexs.decompiler.flash.helpers.hilight.HighlightSpecialType;
+import com.jpexs.decompiler.flash.helpers.hilight.HighlightType;
+import com.jpexs.decompiler.flash.helpers.hilight.Highlighting;
+import com.jpexs.decompiler.graph.DottedChain;
+import com.jpexs.helpers.CacheCodec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stores decompiled text with its highlights in binary form.
+ *
+ * @author JPEXS
+ */
+public class HighlightedTextCacheCodec implements CacheCodec<HighlightedText> {
+
+    private static final HighlightType[] HIGHLIGHT_TYPES = HighlightType.values();
+
+    private static final HighlightSpecialType[] SPECIAL_TYPES = HighlightSpecialType.values();
+
+    @Override
+    public boolean canEncode(Object value) {
+        return value != null && value.getClass() == HighlightedText.class;
+    }
+
+    @Override
+    public ByteBuffer encode(HighlightedText value) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream os = new DataOutputStream(baos);
+        writeString(os, value.text);
+        writeHighlights(os, value.getTraitHighlights());
+        writeHighlights(os, value.getClassHighlights());
+        writeHighlights(os, value.getMethodHighlights());
+        writeHighlights(os, value.getInstructionHighlights());
+        writeHighlights(os, value.getSpecialHighlights());
+        os.flush();
+        return ByteBuffer.wrap(baos.toByteArray());
+    }
+
+    @Override
+    public HighlightedText decode(ByteBuffer data) throws IOException {
+        byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+        DataInputStream is = new DataInputStream(new ByteArrayInputStream(bytes));
+        String text = readString(is);
+        List<Highlighting> traitHighlights = readHighlights(is);
+        List<Highlighting> classHighlights = readHighlights(is);
+        List<Highlighting> methodHighlights = readHighlights(is);
+        List<Highlighting> instructionHighlights = readHighlights(is);
+        List<Highlighting> specialHighlights = readHighlights(is);
+        return new HighlightedText(text, traitHighlights, classHighlights, methodHighlights, instructionHighlights, specialHighlights);
+    }
+
+    private static void writeString(DataOutputStream os, String value) throws IOException {
+        if (value == null) {
+            os.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        os.writeInt(bytes.length);
+        os.write(bytes);
+    }
+
+    private static String readString(DataInputStream is) throws IOException {
+        int length = is.readInt();
+        if (length == -1) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        is.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeHighlights(DataOutputStream os, List<Highlighting> highlights) throws IOException {
+        os.writeInt(highlights.size());
+        for (Highlighting h : highlights) {
+            os.writeByte(h.type == null ? -1 : h.type.ordinal());
+            writeString(os, h.HighlightedText);
+            os.writeInt(h.startPos);
+            os.writeInt(h.len);
+            writeData(os, h.getProperties());
+        }
+    }
+
+    private static List<Highlighting> readHighlights(DataInputStream is) throws IOException {
+        int count = is.readInt();
+        List<Highlighting> ret = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int type = is.readByte();
+            String highlightedText = readString(is);
+            int startPos = is.readInt();
+            int len = is.readInt();
+            HighlightData data = readData(is);
+            Highlighting h = new Highlighting(startPos, data, type == -1 ? null : HIGHLIGHT_TYPES[type], highlightedText);
+            h.HighlightedText = highlightedText;
+            h.len = len;
+            ret.add(h);
+        }
+        return ret;
+    }
+
+    private static void writeData(DataOutputStream os, HighlightData data) throws IOException {
+        if (data == null) {
+            os.writeBoolean(false);
+            return;
+        }
+        os.writeBoolean(true);
+        os.writeBoolean(data.declaration);
+        writeDottedChain(os, data.declaredType);
+        writeString(os, data.localName);
+        os.writeByte(data.subtype == null ? -1 : data.subtype.ordinal());
+        writeString(os, data.specialValue);
+        os.writeLong(data.index);
+        os.writeLong(data.offset);
+        os.writeLong(data.fileOffset);
+        os.writeLong(data.firstLineOffset);
+        os.writeInt(data.regIndex);
+        os.writeInt(data.namespaceIndex);
+        os.writeBoolean(data.isStatic);
+        writeString(os, data.propertyType);
+        writeString(os, data.propertySubType);
+    }
+
+    private static HighlightData readData(DataInputStream is) throws IOException {
+        if (!is.readBoolean()) {
+            return null;
+        }
+        HighlightData data = new HighlightData();
+        data.declaration = is.readBoolean();
+        data.declaredType = readDottedChain(is);
+        data.localName = readString(is);
+        int subtype = is.readByte();
+        data.subtype = subtype == -1 ? null : SPECIAL_TYPES[subtype];
+        data.specialValue = readString(is);
+        data.index = is.readLong();
+        data.offset = is.readLong();
+        data.fileOffset = is.readLong();
+        data.firstLineOffset = is.readLong();
+        data.regIndex = is.readInt();
+        data.namespaceIndex = is.readInt();
+        data.isStatic = is.readBoolean();
+        data.propertyType = readString(is);
+        data.propertySubType = readString(is);
+        return data;
+    }
+
+    private static void writeDottedChain(DataOutputStream os, DottedChain chain) throws IOException {
+        if (chain == null) {
+            os.writeInt(-2);
+            return;
+        }
+        if (chain.isEmpty()) {
+            os.writeInt(-1);
+            return;
+        }
+        os.writeInt(chain.size());
+        for (int i = 0; i < chain.size(); i++) {
+            writeString(os, chain.get(i));
+            os.writeBoolean(chain.isAttribute(i));
+            writeString(os, chain.getNamespaceSuffix(i));
+        }
+    }
+
+    private static DottedChain readDottedChain(DataInputStream is) throws IOException {
+        int size = is.readInt();
+        if (size == -2) {
+            return null;
+        }
+        if (size == -1) {
+            return DottedChain.EMPTY;
+        }
+        String[] parts = new String[size];
+        boolean[] attributes = new boolean[size];
+        String[] namespaceSuffixes = new String[size];
+        for (int i = 0; i < size; i++) {
+            parts[i] = readString(is);
+            attributes[i] = is.readBoolean();
+            namespaceSuffixes[i] = readString(is);
+        }
+        return new DottedChain(attributes, parts, namespaceSuffixes);
+    }
+}
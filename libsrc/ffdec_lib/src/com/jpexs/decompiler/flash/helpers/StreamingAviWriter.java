@@ -0,0 +1,241 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash.helpers;
+
+import com.jpexs.decompiler.flash.exporters.modes.AviCompressionMode;
+import com.jpexs.helpers.SharedExecutor;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import org.monte.media.Buffer;
+import org.monte.media.BufferFlag;
+import org.monte.media.Codec;
+import org.monte.media.Format;
+import org.monte.media.Registry;
+import org.monte.media.VideoFormatKeys;
+import org.monte.media.avi.AVIWriter;
+
+/**
+ * AVI writer which compresses frames on the shared executor. Frames are
+ * compressed while the next frames are being rendered and their chunks are
+ * written in order by the thread which adds them. Number of frames waiting
+ * for compression or writing is limited.
+ *
+ * @author JPEXS
+ */
+public class StreamingAviWriter {
+
+    private final AVIWriter out;
+
+    private final float frameRate;
+
+    private final AviCompressionMode mode;
+
+    private final int lookAhead;
+
+    private final Object owner;
+
+    private final Deque<Future<Buffer>> queue = new ArrayDeque<>();
+
+    private Format encoderFormat;
+
+    private Format inputFormat;
+
+    private Format outputFormat;
+
+    private int width;
+
+    private int height;
+
+    /**
+     * Constructs writer.
+     *
+     * @param file Output file
+     * @param frameRate Frame rate
+     * @param mode Compression mode
+     * @param threadCount Number of frames compressed at once, 1 = compress in
+     * the calling thread
+     * @param owner Owner of the compression tasks in SharedExecutor, can be
+     * null
+     * @throws IOException On I/O error
+     */
+    public StreamingAviWriter(File file, float frameRate, AviCompressionMode mode, int threadCount, Object owner) throws IOException {
+        this.out = new AVIWriter(file);
+        this.frameRate = frameRate;
+        this.mode = mode;
+        this.lookAhead = threadCount < 2 ? 0 : threadCount * 2;
+        this.owner = owner;
+    }
+
+    /**
+     * Adds next frame. The image can be reused by the caller after this
+     * method returns.
+     *
+     * @param image Image
+     * @throws IOException On I/O error
+     * @throws InterruptedException On interrupt
+     */
+    public void addFrame(BufferedImage image) throws IOException, InterruptedException {
+        if (inputFormat == null) {
+            addVideoTrack(image.getWidth(), image.getHeight());
+        }
+
+        final BufferedImage copy = copyImage(image);
+        if (lookAhead == 0) {
+            writeSample(compress(copy));
+            return;
+        }
+
+        while (queue.size() >= lookAhead) {
+            writeSample(takeSample());
+        }
+        queue.add(SharedExecutor.submit(owner, () -> compress(copy)));
+    }
+
+    /**
+     * Writes remaining frames.
+     *
+     * @throws IOException On I/O error
+     * @throws InterruptedException On interrupt
+     */
+    public void finish() throws IOException, InterruptedException {
+        while (!queue.isEmpty()) {
+            writeSample(takeSample());
+        }
+    }
+
+    /**
+     * Cancels frames which were not written yet and closes the file.
+     *
+     * @throws IOException On I/O error
+     */
+    public void close() throws IOException {
+        for (Future<Buffer> future : queue) {
+            future.cancel(true);
+        }
+        queue.clear();
+        out.close();
+    }
+
+    private void addVideoTrack(int width, int height) throws IOException {
+        this.width = width;
+        this.height = height;
+        String encoding;
+        int depth;
+        switch (mode) {
+            case MJPEG:
+                encoding = VideoFormatKeys.ENCODING_AVI_MJPG;
+                depth = 24;
+                break;
+            case UNCOMPRESSED:
+                encoding = VideoFormatKeys.ENCODING_AVI_DIB;
+                depth = 24;
+                break;
+            default:
+                encoding = VideoFormatKeys.ENCODING_AVI_PNG;
+                depth = 0;
+                break;
+        }
+        out.addVideoTrack(encoding, 1, (int) frameRate, width, height, depth, 0);
+
+        Format trackFormat = out.getFormat(0);
+        encoderFormat = trackFormat.prepend(VideoFormatKeys.MimeTypeKey, VideoFormatKeys.MIME_AVI);
+        inputFormat = trackFormat.prepend(
+                VideoFormatKeys.EncodingKey, VideoFormatKeys.ENCODING_BUFFERED_IMAGE,
+                VideoFormatKeys.DataClassKey, BufferedImage.class);
+        outputFormat = trackFormat.prepend(
+                VideoFormatKeys.FixedFrameRateKey, true,
+                VideoFormatKeys.QualityKey, out.getCompressionQuality(0),
+                VideoFormatKeys.MimeTypeKey, VideoFormatKeys.MIME_AVI,
+                VideoFormatKeys.DataClassKey, byte[].class);
+    }
+
+    /**
+     * Copies the image. JPEG and uncompressed frames have no alpha channel,
+     * they are converted to RGB while copying.
+     */
+    private BufferedImage copyImage(BufferedImage image) {
+        if (image.getWidth() != width || image.getHeight() != height) {
+            throw new IllegalArgumentException("Dimensions of image (width=" + image.getWidth() + ", height=" + image.getHeight() + ") differ from the video (width=" + width + ", height=" + height + ")");
+        }
+        if (mode == AviCompressionMode.PNG) {
+            return new BufferedImage(image.getColorModel(), image.copyData(null), image.isAlphaPremultiplied(), null);
+        }
+
+        BufferedImage copy = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = copy.createGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return copy;
+    }
+
+    /**
+     * Compresses the frame, codecs are not thread safe so every frame gets
+     * own codec.
+     */
+    private Buffer compress(BufferedImage image) throws IOException {
+        Codec codec = Registry.getInstance().getEncoder(encoderFormat);
+        if (codec == null) {
+            throw new UnsupportedOperationException("No codec for this format: " + outputFormat);
+        }
+        codec.setInputFormat(inputFormat);
+        if (codec.setOutputFormat(outputFormat) == null) {
+            throw new UnsupportedOperationException("Codec " + codec + " does not support format " + outputFormat);
+        }
+
+        Buffer inputBuffer = new Buffer();
+        inputBuffer.flags = EnumSet.noneOf(BufferFlag.class);
+        inputBuffer.data = image;
+        Buffer outputBuffer = new Buffer();
+        if (codec.process(inputBuffer, outputBuffer) != Codec.CODEC_OK) {
+            throw new IOException("Codec failed to encode the frame");
+        }
+        return outputBuffer;
+    }
+
+    private Buffer takeSample() throws IOException, InterruptedException {
+        Future<Buffer> future = queue.poll();
+        try {
+            return future.get();
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private void writeSample(Buffer sample) throws IOException {
+        if (sample.isFlag(BufferFlag.DISCARD)) {
+            return;
+        }
+        out.writeSample(0, (byte[]) sample.data, sample.offset, sample.length, sample.isFlag(BufferFlag.KEYFRAME));
+    }
+}
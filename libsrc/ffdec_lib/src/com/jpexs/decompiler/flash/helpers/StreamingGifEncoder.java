@@ -0,0 +1,709 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash.helpers;
+
+import com.jpexs.helpers.SharedExecutor;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import net.weiner.kevin.NeuQuant;
+
+/**
+ * Animated GIF encoder which writes frames as they come. Every frame after the
+ * first one contains only the rectangle of pixels changed since the previous
+ * frame, unchanged pixels inside it are transparent. Palette of the first
+ * frame is stored as the global color table and it is reused by the next
+ * frames when their colors map to it closely enough, other frames get own
+ * local color table. Quantization and compression of the frames run on the
+ * shared executor while the next frames are being rendered, frames are
+ * written in order by the thread which adds them.
+ *
+ * @author JPEXS
+ */
+public class StreamingGifEncoder {
+
+    private static final int MAX_LZW_BITS = 12;
+
+    private static final int LZW_HASH_SIZE = 5003;
+
+    private static final int QUANTIZER_SAMPLE = 10;
+
+    private static final int DISPOSE_NONE = 1;
+
+    private static final int DISPOSE_BACKGROUND = 2;
+
+    private final OutputStream out;
+
+    private final int delay;
+
+    private final int repeat;
+
+    private final int lookAhead;
+
+    private final Object owner;
+
+    private final Deque<Future<EncodedFrame>> queue = new ArrayDeque<>();
+
+    private int width;
+
+    private int height;
+
+    private int[] previousPixels;
+
+    private Palette globalPalette;
+
+    private EncodedFrame pendingFrame;
+
+    private boolean started = false;
+
+    private static class Palette {
+
+        private final int[] colors;
+
+        private final int bits;
+
+        private final int transparentIndex;
+
+        private int averageError;
+
+        private int maxError;
+
+        public Palette(int[] colors) {
+            this.colors = colors;
+            transparentIndex = colors.length;
+            int b = 1;
+            while ((1 << b) < colors.length + 1) {
+                b++;
+            }
+            bits = b;
+        }
+
+        public byte[] toColorTable() {
+            byte[] table = new byte[3 << bits];
+            for (int i = 0; i < colors.length; i++) {
+                table[i * 3] = (byte) (colors[i] >> 16);
+                table[i * 3 + 1] = (byte) (colors[i] >> 8);
+                table[i * 3 + 2] = (byte) colors[i];
+            }
+            return table;
+        }
+    }
+
+    /**
+     * Finds nearest palette colors, remembers recently mapped colors. Each
+     * encoded frame uses its own mapper, so the palette can be shared.
+     */
+    private static class ColorMapper {
+
+        private final Palette palette;
+
+        private final int[] cacheKeys = new int[1 << 14];
+
+        private final byte[] cacheValues = new byte[1 << 14];
+
+        public ColorMapper(Palette palette) {
+            this.palette = palette;
+            Arrays.fill(cacheKeys, -1);
+        }
+
+        public int map(int rgb) {
+            int slot = (rgb ^ (rgb >>> 14)) & (cacheKeys.length - 1);
+            if (cacheKeys[slot] == rgb) {
+                return cacheValues[slot] & 0xff;
+            }
+
+            int[] colors = palette.colors;
+            int best = 0;
+            int bestDistance = Integer.MAX_VALUE;
+            for (int i = 0; i < colors.length; i++) {
+                int d = distance(rgb, colors[i]);
+                if (d < bestDistance) {
+                    bestDistance = d;
+                    best = i;
+                    if (d == 0) {
+                        break;
+                    }
+                }
+            }
+            cacheKeys[slot] = rgb;
+            cacheValues[slot] = (byte) best;
+            return best;
+        }
+    }
+
+    private static class EncodedFrame {
+
+        private int[] pixels;
+
+        private boolean fullFrame;
+
+        private boolean empty;
+
+        private boolean needsClear;
+
+        private int x;
+
+        private int y;
+
+        private int width;
+
+        private int height;
+
+        private Palette palette;
+
+        private boolean localPalette;
+
+        private byte[] data;
+
+        private int delay;
+
+        private int dispose = DISPOSE_NONE;
+    }
+
+    /**
+     * Constructs encoder.
+     *
+     * @param out Output stream, it is not closed by the encoder
+     * @param delayMs Delay between frames in milliseconds
+     * @param repeat Number of repetitions, 0 = forever, -1 = no repeat
+     * @param threadCount Number of frames encoded at once, 1 = encode in the
+     * calling thread
+     * @param owner Owner of the encoding tasks in SharedExecutor, can be null
+     */
+    public StreamingGifEncoder(OutputStream out, int delayMs, int repeat, int threadCount, Object owner) {
+        this.out = out;
+        this.delay = Math.round(delayMs / 10.0f);
+        this.repeat = repeat;
+        this.lookAhead = threadCount < 2 ? 0 : threadCount * 2;
+        this.owner = owner;
+    }
+
+    /**
+     * Adds next frame. Pixels of the image are copied, the image can be
+     * reused by the caller after this method returns.
+     *
+     * @param image Image
+     * @throws IOException On I/O error
+     * @throws InterruptedException On interrupt
+     */
+    public void addFrame(BufferedImage image) throws IOException, InterruptedException {
+        if (!started) {
+            width = image.getWidth();
+            height = image.getHeight();
+        }
+
+        final int[] pixels = getImagePixels(image);
+        if (!started) {
+            EncodedFrame frame = encode(null, pixels, null);
+            globalPalette = frame.palette;
+            frame.localPalette = false;
+            writeHeader();
+            started = true;
+            queueFrame(frame);
+        } else {
+            final int[] prev = previousPixels;
+            final Palette global = globalPalette;
+            if (lookAhead == 0) {
+                queueFrame(encode(prev, pixels, global));
+            } else {
+                while (queue.size() >= lookAhead) {
+                    queueFrame(takeFrame());
+                }
+                queue.add(SharedExecutor.submit(owner, () -> encode(prev, pixels, global)));
+            }
+        }
+        previousPixels = pixels;
+    }
+
+    /**
+     * Writes remaining frames and the GIF trailer.
+     *
+     * @throws IOException On I/O error
+     * @throws InterruptedException On interrupt
+     */
+    public void finish() throws IOException, InterruptedException {
+        if (!started) {
+            return;
+        }
+
+        while (!queue.isEmpty()) {
+            queueFrame(takeFrame());
+        }
+        if (pendingFrame != null) {
+            writeFrame(pendingFrame);
+            pendingFrame = null;
+        }
+        out.write(0x3b);
+        out.flush();
+        started = false;
+        previousPixels = null;
+    }
+
+    /**
+     * Cancels frames which are being encoded.
+     */
+    public void cancel() {
+        for (Future<EncodedFrame> future : queue) {
+            future.cancel(true);
+        }
+        queue.clear();
+    }
+
+    private EncodedFrame takeFrame() throws IOException, InterruptedException {
+        Future<EncodedFrame> future = queue.poll();
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            cancel();
+            throw ex;
+        } catch (ExecutionException ex) {
+            cancel();
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Frames are written with one frame delay, so the delay of identical
+     * frames can be added to the previous frame and the previous frame can be
+     * cleared when the next frame makes some pixels transparent.
+     */
+    private void queueFrame(EncodedFrame frame) throws IOException {
+        frame.delay = delay;
+        if (pendingFrame != null) {
+            if (frame.empty) {
+                pendingFrame.delay += frame.delay;
+                return;
+            }
+            if (frame.needsClear) {
+                if (!pendingFrame.fullFrame) {
+                    EncodedFrame full = encode(null, pendingFrame.pixels, globalPalette);
+                    full.delay = pendingFrame.delay;
+                    pendingFrame = full;
+                }
+                pendingFrame.dispose = DISPOSE_BACKGROUND;
+            }
+            writeFrame(pendingFrame);
+        }
+        pendingFrame = frame;
+    }
+
+    private int[] getImagePixels(BufferedImage image) {
+        BufferedImage copy = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = copy.createGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return ((DataBufferInt) copy.getRaster().getDataBuffer()).getData();
+    }
+
+    private static boolean isTransparent(int argb) {
+        return (argb >>> 24) < 0x80;
+    }
+
+    /**
+     * Checks whether the pixel looks different in GIF, transparency has only
+     * one bit there.
+     */
+    private static boolean isChanged(int prev, int argb) {
+        if (prev == argb) {
+            return false;
+        }
+        boolean t1 = isTransparent(prev);
+        boolean t2 = isTransparent(argb);
+        if (t1 || t2) {
+            return t1 != t2;
+        }
+        return ((prev ^ argb) & 0xffffff) != 0;
+    }
+
+    private static int distance(int rgb1, int rgb2) {
+        int dr = ((rgb1 >> 16) & 0xff) - ((rgb2 >> 16) & 0xff);
+        int dg = ((rgb1 >> 8) & 0xff) - ((rgb2 >> 8) & 0xff);
+        int db = (rgb1 & 0xff) - (rgb2 & 0xff);
+        return (dr < 0 ? -dr : dr) + (dg < 0 ? -dg : dg) + (db < 0 ? -db : db);
+    }
+
+    /**
+     * Encodes frame.
+     *
+     * @param prev Pixels of previous frame, null = encode whole frame
+     * @param pixels Pixels of the frame
+     * @param global Global palette, null = create palette of the frame
+     * @return Encoded frame
+     */
+    private EncodedFrame encode(int[] prev, int[] pixels, Palette global) {
+        EncodedFrame frame = new EncodedFrame();
+        frame.pixels = pixels;
+
+        int minX = 0;
+        int minY = 0;
+        int maxX = width - 1;
+        int maxY = height - 1;
+        if (prev != null) {
+            minX = width;
+            minY = height;
+            maxX = -1;
+            maxY = -1;
+            for (int y = 0, i = 0; y < height; y++) {
+                for (int x = 0; x < width; x++, i++) {
+                    if (!isChanged(prev[i], pixels[i])) {
+                        continue;
+                    }
+                    if (isTransparent(pixels[i])) {
+                        frame.needsClear = true;
+                    }
+                    if (x < minX) {
+                        minX = x;
+                    }
+                    if (x > maxX) {
+                        maxX = x;
+                    }
+                    if (y < minY) {
+                        minY = y;
+                    }
+                    if (y > maxY) {
+                        maxY = y;
+                    }
+                }
+            }
+            if (maxX == -1) {
+                frame.empty = true;
+                return frame;
+            }
+            if (frame.needsClear) {
+                prev = null;
+                minX = 0;
+                minY = 0;
+                maxX = width - 1;
+                maxY = height - 1;
+            }
+        }
+
+        frame.fullFrame = prev == null;
+        frame.x = minX;
+        frame.y = minY;
+        frame.width = maxX - minX + 1;
+        frame.height = maxY - minY + 1;
+
+        // Colors of the pixels which need to be drawn, -1 = transparent
+        int[] colors = new int[frame.width * frame.height];
+        int visibleCount = 0;
+        for (int y = minY, j = 0; y <= maxY; y++) {
+            for (int x = minX, i = y * width + minX; x <= maxX; x++, i++, j++) {
+                int p = pixels[i];
+                if (isTransparent(p) || (prev != null && !isChanged(prev[i], p))) {
+                    colors[j] = -1;
+                } else {
+                    colors[j] = p & 0xffffff;
+                    visibleCount++;
+                }
+            }
+        }
+
+        byte[] indexed = new byte[colors.length];
+        Palette palette = global;
+        if (palette == null || !mapColors(colors, indexed, palette, true)) {
+            palette = createPalette(colors, visibleCount);
+            mapColors(colors, indexed, palette, false);
+            frame.localPalette = true;
+        }
+
+        frame.palette = palette;
+        frame.data = compress(indexed, Math.max(2, palette.bits));
+        return frame;
+    }
+
+    /**
+     * Maps colors to palette indices.
+     *
+     * @param colors Colors, -1 = transparent
+     * @param indexed Result indices
+     * @param palette Palette
+     * @param checkError Check whether the error is not much bigger than the
+     * error of the palette on its own frame
+     * @return False when the palette does not fit the colors
+     */
+    private static boolean mapColors(int[] colors, byte[] indexed, Palette palette, boolean checkError) {
+        long errorSum = 0;
+        int maxError = 0;
+        int visibleCount = 0;
+        int maxAllowedError = Math.max(palette.maxError, 24);
+        ColorMapper mapper = new ColorMapper(palette);
+        for (int i = 0; i < colors.length; i++) {
+            int c = colors[i];
+            if (c == -1) {
+                indexed[i] = (byte) palette.transparentIndex;
+                continue;
+            }
+            int index = mapper.map(c);
+            indexed[i] = (byte) index;
+            int error = distance(c, palette.colors[index]);
+            if (checkError && error > maxAllowedError) {
+                return false;
+            }
+            errorSum += error;
+            visibleCount++;
+            if (error > maxError) {
+                maxError = error;
+            }
+        }
+
+        int averageError = visibleCount == 0 ? 0 : (int) (errorSum / visibleCount);
+        if (checkError) {
+            return averageError <= Math.max(palette.averageError * 2, 2);
+        }
+        palette.averageError = averageError;
+        palette.maxError = maxError;
+        return true;
+    }
+
+    /**
+     * Creates palette of 255 colors at most, last index is transparent.
+     */
+    private static Palette createPalette(int[] colors, int visibleCount) {
+        int[] distinct = new int[255];
+        int distinctCount = 0;
+        int[] hashKeys = new int[1024];
+        Arrays.fill(hashKeys, -1);
+        for (int c : colors) {
+            if (c == -1) {
+                continue;
+            }
+            int slot = (c * 0x9E3779B1) >>> 22;
+            while (hashKeys[slot] != -1 && hashKeys[slot] != c) {
+                slot = (slot + 1) & 1023;
+            }
+            if (hashKeys[slot] == c) {
+                continue;
+            }
+            if (distinctCount == distinct.length) {
+                distinctCount = -1;
+                break;
+            }
+            hashKeys[slot] = c;
+            distinct[distinctCount++] = c;
+        }
+
+        if (distinctCount != -1) {
+            int[] exact = new int[Math.max(1, distinctCount)];
+            System.arraycopy(distinct, 0, exact, 0, distinctCount);
+            return new Palette(exact);
+        }
+
+        int[] visible = new int[visibleCount];
+        for (int i = 0, j = 0; i < colors.length; i++) {
+            if (colors[i] != -1) {
+                visible[j++] = colors[i];
+            }
+        }
+
+        byte[] table = new NeuQuant(visible, visible.length * 3, QUANTIZER_SAMPLE).process();
+        int[] quantized = new int[256];
+        for (int i = 0; i < quantized.length; i++) {
+            quantized[i] = ((table[i * 3] & 0xff) << 16) | ((table[i * 3 + 1] & 0xff) << 8) | (table[i * 3 + 2] & 0xff);
+        }
+
+        // One index is needed for transparency, drop one color of the closest pair
+        int dropped = 0;
+        int minDistance = Integer.MAX_VALUE;
+        for (int i = 0; i < quantized.length && minDistance > 0; i++) {
+            for (int j = i + 1; j < quantized.length; j++) {
+                int d = distance(quantized[i], quantized[j]);
+                if (d < minDistance) {
+                    minDistance = d;
+                    dropped = j;
+                    if (d == 0) {
+                        break;
+                    }
+                }
+            }
+        }
+        int[] result = new int[255];
+        System.arraycopy(quantized, 0, result, 0, dropped);
+        System.arraycopy(quantized, dropped + 1, result, dropped, result.length - dropped);
+        return new Palette(result);
+    }
+
+    private void writeHeader() throws IOException {
+        writeString("GIF89a");
+        writeShort(width);
+        writeShort(height);
+        out.write(0x80 | 0x70 | (globalPalette.bits - 1));
+        out.write(0);
+        out.write(0);
+        out.write(globalPalette.toColorTable());
+        if (repeat >= 0) {
+            out.write(0x21);
+            out.write(0xff);
+            out.write(11);
+            writeString("NETSCAPE2.0");
+            out.write(3);
+            out.write(1);
+            writeShort(repeat);
+            out.write(0);
+        }
+    }
+
+    private void writeFrame(EncodedFrame frame) throws IOException {
+        // Graphic control extension
+        out.write(0x21);
+        out.write(0xf9);
+        out.write(4);
+        out.write((frame.dispose << 2) | 1);
+        writeShort(Math.min(frame.delay, 0xffff));
+        out.write(frame.palette.transparentIndex);
+        out.write(0);
+
+        // Image descriptor
+        out.write(0x2c);
+        writeShort(frame.x);
+        writeShort(frame.y);
+        writeShort(frame.width);
+        writeShort(frame.height);
+        if (frame.localPalette) {
+            out.write(0x80 | (frame.palette.bits - 1));
+            out.write(frame.palette.toColorTable());
+        } else {
+            out.write(0);
+        }
+        out.write(frame.data);
+    }
+
+    private void writeShort(int value) throws IOException {
+        out.write(value & 0xff);
+        out.write((value >> 8) & 0xff);
+    }
+
+    private void writeString(String s) throws IOException {
+        for (int i = 0; i < s.length(); i++) {
+            out.write((byte) s.charAt(i));
+        }
+    }
+
+    /**
+     * Compresses indexed pixels with GIF variant of LZW, including the code
+     * size byte and the data sub-blocks.
+     */
+    private static byte[] compress(byte[] pixels, int codeSize) {
+        LzwWriter w = new LzwWriter(codeSize);
+        int[] hashKeys = new int[LZW_HASH_SIZE];
+        int[] hashCodes = new int[LZW_HASH_SIZE];
+        Arrays.fill(hashKeys, -1);
+
+        int clearCode = 1 << codeSize;
+        int nextCode = clearCode + 2;
+        w.write(clearCode);
+        int prefix = pixels[0] & 0xff;
+        for (int i = 1; i < pixels.length; i++) {
+            int c = pixels[i] & 0xff;
+            int key = (c << MAX_LZW_BITS) + prefix;
+            int slot = (c << 4) ^ prefix;
+            while (hashKeys[slot] != -1 && hashKeys[slot] != key) {
+                slot -= slot == 0 ? 1 - LZW_HASH_SIZE : 1;
+            }
+            if (hashKeys[slot] == key) {
+                prefix = hashCodes[slot];
+                continue;
+            }
+            w.write(prefix);
+            if (nextCode < (1 << MAX_LZW_BITS)) {
+                hashKeys[slot] = key;
+                hashCodes[slot] = nextCode++;
+                if (nextCode - 1 == (1 << w.codeBits) && w.codeBits < MAX_LZW_BITS) {
+                    w.codeBits++;
+                }
+            } else {
+                w.write(clearCode);
+                Arrays.fill(hashKeys, -1);
+                nextCode = clearCode + 2;
+                w.codeBits = codeSize + 1;
+            }
+            prefix = c;
+        }
+        w.write(prefix);
+        w.write(clearCode + 1);
+        return w.finish();
+    }
+
+    private static class LzwWriter {
+
+        private final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+        private final byte[] block = new byte[255];
+
+        private int blockSize = 0;
+
+        private int bitBuffer = 0;
+
+        private int bitCount = 0;
+
+        private int codeBits;
+
+        public LzwWriter(int codeSize) {
+            baos.write(codeSize);
+            codeBits = codeSize + 1;
+        }
+
+        public void write(int code) {
+            bitBuffer |= code << bitCount;
+            bitCount += codeBits;
+            while (bitCount >= 8) {
+                writeByte(bitBuffer & 0xff);
+                bitBuffer >>>= 8;
+                bitCount -= 8;
+            }
+        }
+
+        private void writeByte(int b) {
+            block[blockSize++] = (byte) b;
+            if (blockSize == block.length) {
+                flushBlock();
+            }
+        }
+
+        private void flushBlock() {
+            if (blockSize > 0) {
+                baos.write(blockSize);
+                baos.write(block, 0, blockSize);
+                blockSize = 0;
+            }
+        }
+
+        public byte[] finish() {
+            if (bitCount > 0) {
+                writeByte(bitBuffer & 0xff);
+            }
+            flushBlock();
+            baos.write(0);
+            return baos.toByteArray();
+        }
+    }
+}
@@ -28,6 +28,7 @@ import com.jpexs.decompiler.flash.helpers.HighlightedTextWriter;
 import com.jpexs.decompiler.flash.tags.base.ASMSource;
 import com.jpexs.decompiler.flash.treeitems.Openable;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -58,6 +59,9 @@ public class ActionScriptSearch {
                     ? Pattern.compile(txt, ignoreCase ? (Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE) : 0)
                     : Pattern.compile(Pattern.quote(txt), ignoreCase ? (Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE) : 0);
 
+            ScriptSearchIndex index = swf.getScriptSearchIndex();
+            BitSet candidates = index == null || regexp ? null : index.getCandidates(txt);
+
             int pos = 0;
             List<Future<HighlightedText>> futures = new ArrayList<>();
             try {
@@ -65,6 +69,18 @@ public class ActionScriptSearch {
                     pos++;
                     ASMSource asm = item.getValue();
 
+                    String key = index == null ? null : ScriptSearchIndex.getKey(asm, pcode);
+                    Boolean indexedMatch = findIndexed(index, key, candidates, pat);
+                    if (indexedMatch != null) {
+                        if (listener != null) {
+                            listener.onSearch(pos, asms.size(), item.getKey());
+                        }
+                        if (indexedMatch) {
+                            found.add(new ActionSearchResult(asm, pcode, item.getKey()));
+                        }
+                        continue;
+                    }
+
                     if (pcode) {
                         if (listener != null) {
                             listener.onSearch(pos, asms.size(), item.getKey());
@@ -73,6 +89,9 @@ public class ActionScriptSearch {
                         HighlightedTextWriter writer = new HighlightedTextWriter(Configuration.getCodeFormatting(), true);
                         asm.getASMSource(ScriptExportMode.PCODE, writer, null);
                         String text = writer.toString();
+                        if (index != null) {
+                            index.add(key, text);
+                        }
                         if (pat.matcher(text).find()) {
                             found.add(new ActionSearchResult(asm, pcode, item.getKey()));
                         }
@@ -92,6 +111,10 @@ public class ActionScriptSearch {
                                     listener.onSearch(fpos, asms.size(), item.getKey());
                                 }
 
+                                if (index != null && !index.contains(key)) {
+                                    index.add(key, result.text);
+                                }
+
                                 if (pat.matcher(result.text).find()) {
                                     ActionSearchResult searchResult = new ActionSearchResult(asm, pcode, item.getKey());
                                     found.add(searchResult);
@@ -116,6 +139,9 @@ public class ActionScriptSearch {
                     future.cancel(true);
                 }
             }
+            if (index != null) {
+                index.save();
+            }
             return found;
         }
 
@@ -151,6 +177,10 @@ public class ActionScriptSearch {
                     ? Pattern.compile(txt, ignoreCase ? (Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE) : 0)
                     : Pattern.compile(Pattern.quote(txt), ignoreCase ? (Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE) : 0);
 
+            SWF swf = (openable instanceof SWF) ? (SWF) openable : ((ABC) openable).getSwf();
+            ScriptSearchIndex index = swf == null ? null : swf.getScriptSearchIndex();
+            BitSet candidates = index == null || regexp ? null : index.getCandidates(txt);
+
             int pos = 0;
             List<Future<HighlightedText>> futures = new ArrayList<>();
             try {
@@ -184,10 +214,21 @@ public class ActionScriptSearch {
                         for (MethodId methodInfo : methodInfos) {
                             int bodyIndex = abc.findBodyIndex(methodInfo.getMethodIndex());
                             if (bodyIndex != -1) {
+                                String key = index == null ? null : ScriptSearchIndex.getPCodeKey(pack, bodyIndex);
+                                Boolean indexedMatch = findIndexed(index, key, candidates, pat);
+                                if (indexedMatch != null) {
+                                    if (indexedMatch) {
+                                        found.add(new ABCSearchResult(pack, methodInfo.getClassIndex(), methodInfo.getTraitId()));
+                                    }
+                                    continue;
+                                }
                                 MethodBody body = abc.bodies.get(bodyIndex);
                                 HighlightedTextWriter writer = new HighlightedTextWriter(Configuration.getCodeFormatting(), true);
                                 abc.bodies.get(bodyIndex).getCode().toASMSource(abc, abc.constants, abc.method_info.get(body.method_info), body, ScriptExportMode.PCODE, writer);
                                 String text = writer.toString();
+                                if (index != null) {
+                                    index.add(key, text);
+                                }
                                 if (pat.matcher(text).find()) {
                                     ABCSearchResult searchResult = new ABCSearchResult(pack, methodInfo.getClassIndex(), methodInfo.getTraitId());
                                     found.add(searchResult);
@@ -195,6 +236,18 @@ public class ActionScriptSearch {
                             }
                         }
                     } else {
+                        String key = index == null ? null : ScriptSearchIndex.getKey(pack);
+                        Boolean indexedMatch = findIndexed(index, key, candidates, pat);
+                        if (indexedMatch != null) {
+                            if (listener != null) {
+                                listener.onSearch(pos, fscope.size(), pack.getClassPath().toString());
+                            }
+                            if (indexedMatch) {
+                                found.add(new ABCSearchResult(pack));
+                            }
+                            continue;
+                        }
+
                         int fpos = pos;
                         Future<HighlightedText> text = SWF.getCachedFuture(pack, new ScriptDecompiledListener<HighlightedText>() {
                             @Override
@@ -216,6 +269,10 @@ public class ActionScriptSearch {
                                     }
                                 }
 
+                                if (index != null && !index.contains(key)) {
+                                    index.add(key, result.text);
+                                }
+
                                 if (pat.matcher(result.text).find()) {
                                     ABCSearchResult searchResult = new ABCSearchResult(pack);
                                     found.add(searchResult);
@@ -241,9 +298,35 @@ public class ActionScriptSearch {
                     future.cancel(true);
                 }
             }
+            if (index != null) {
+                index.save();
+            }
 
             return found;
         }
         return null;
     }
+
+    /**
+     * Matches script text stored in the search index.
+     *
+     * @param index Index or null
+     * @param key Key of the script
+     * @param candidates Candidates of literal search or null
+     * @param pat Pattern
+     * @return Whether the script matches or null when it is not indexed
+     */
+    private static Boolean findIndexed(ScriptSearchIndex index, String key, BitSet candidates, Pattern pat) {
+        if (index == null || !index.contains(key)) {
+            return null;
+        }
+        if (!index.isCandidate(key, candidates)) {
+            return false;
+        }
+        String text = index.getText(key);
+        if (text == null) {
+            return null;
+        }
+        return pat.matcher(text).find();
+    }
 }
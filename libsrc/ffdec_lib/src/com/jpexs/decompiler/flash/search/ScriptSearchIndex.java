@@ -0,0 +1,598 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash.search;
+
+import com.jpexs.decompiler.flash.abc.ScriptPack;
+import com.jpexs.decompiler.flash.configuration.Configuration;
+import com.jpexs.decompiler.flash.configuration.ConfigurationCategory;
+import com.jpexs.decompiler.flash.configuration.ConfigurationItem;
+import com.jpexs.decompiler.flash.tags.base.ASMSource;
+import com.jpexs.helpers.ByteArrayRange;
+import com.jpexs.helpers.Helper;
+import com.jpexs.helpers.utf8.Utf8Helper;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Full text index of decompiled scripts and P-code of one SWF.
+ *
+ * Texts are stored deflated together with an inverted index of their
+ * case-folded character trigrams. Searching a literal text first intersects
+ * the trigram postings, so only candidate scripts have to be inflated and
+ * matched. Regular expressions are matched against the stored texts, so
+ * scripts are not decompiled again either way.
+ *
+ * The index is stored in the FFDec home directory, keyed by hash of the SWF
+ * data and of the settings which affect decompiled text. It is only valid
+ * while the SWF is not modified. Least recently used index files are removed
+ * when their total size exceeds maxScriptSearchIndexSize setting.
+ *
+ * @author JPEXS
+ */
+public class ScriptSearchIndex {
+
+    private static final int MAGIC = 0x46465349; //FFSI
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final String INDEX_DIR = "searchindex";
+
+    private static final String INDEX_EXTENSION = ".ssidx";
+
+    private static final List<String> TEXT_CATEGORIES = Arrays.asList("script", "format", "decompilation");
+
+    private static final Logger logger = Logger.getLogger(ScriptSearchIndex.class.getName());
+
+    private static File directory = null;
+
+    private static volatile String settingsHash = null;
+
+    private static boolean settingsListenersAdded = false;
+
+    private static volatile int generation = 0;
+
+    private final int createdGeneration = generation;
+
+    private final String name;
+
+    private final Map<String, Integer> documentIds = new HashMap<>();
+
+    private final List<String> keys = new ArrayList<>();
+
+    private final List<byte[]> texts = new ArrayList<>();
+
+    private final List<int[]> trigrams = new ArrayList<>();
+
+    private final Map<Integer, BitSet> postings = new HashMap<>();
+
+    private boolean dirty = false;
+
+    private ScriptSearchIndex(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Gets name of index for SWF data and current settings.
+     *
+     * @param contentHash Hash of SWF data
+     * @return Name
+     */
+    public static String getName(byte[] contentHash) {
+        return Helper.byteArrayToHex(contentHash) + "-" + getSettingsHash();
+    }
+
+    /**
+     * Gets hash of settings which affect decompiled text. It is computed once
+     * and then again only after some of the settings changes.
+     *
+     * @return Hash
+     */
+    private static String getSettingsHash() {
+        String ret = settingsHash;
+        if (ret == null) {
+            synchronized (ScriptSearchIndex.class) {
+                if (!settingsListenersAdded) {
+                    for (ConfigurationItem<?> item : getSettingsItems().values()) {
+                        addSettingsListener(item);
+                    }
+                    settingsListenersAdded = true;
+                }
+                ret = Helper.byteArrayToHex(Arrays.copyOf(sha256(Utf8Helper.getBytes(getSettingsFingerprint())), 4));
+                settingsHash = ret;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Gets hash of SWF data.
+     *
+     * @param data Uncompressed SWF data
+     * @return Hash
+     */
+    public static byte[] getContentHash(byte[] data) {
+        return sha256(data);
+    }
+
+    private static byte[] sha256(byte[] data) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(data);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new Error(ex);
+        }
+    }
+
+    private static <T> void addSettingsListener(ConfigurationItem<T> item) {
+        item.addListener((T newValue) -> settingsHash = null);
+    }
+
+    private static Map<String, ConfigurationItem<?>> getSettingsItems() {
+        Map<String, ConfigurationItem<?>> ret = new TreeMap<>();
+        for (Field field : Configuration.getConfigurationFields().values()) {
+            ConfigurationCategory category = field.getAnnotation(ConfigurationCategory.class);
+            if (category == null || !TEXT_CATEGORIES.contains(category.value())) {
+                continue;
+            }
+            try {
+                ConfigurationItem<?> item = (ConfigurationItem<?>) field.get(null);
+                if (item != null) {
+                    ret.put(ConfigurationItem.getName(field), item);
+                }
+            } catch (IllegalArgumentException | IllegalAccessException ex) {
+                //ignore
+            }
+        }
+        return ret;
+    }
+
+    private static String getSettingsFingerprint() {
+        Map<String, Object> values = new TreeMap<>();
+        for (Map.Entry<String, ConfigurationItem<?>> entry : getSettingsItems().entrySet()) {
+            values.put(entry.getKey(), entry.getValue().get());
+        }
+        return values.toString();
+    }
+
+    /**
+     * Sets directory where indices are stored.
+     *
+     * @param directory Directory or null for searchindex directory in FFDec
+     * home
+     */
+    public static synchronized void setDirectory(File directory) {
+        ScriptSearchIndex.directory = directory;
+    }
+
+    private static synchronized File getDirectory() {
+        if (directory != null) {
+            if (!directory.exists()) {
+                directory.mkdirs();
+            }
+            return directory;
+        }
+        return Configuration.getPath(INDEX_DIR);
+    }
+
+    private static File[] getIndexFiles() {
+        File[] files = getDirectory().listFiles((File dir, String fileName) -> fileName.endsWith(INDEX_EXTENSION));
+        return files == null ? new File[0] : files;
+    }
+
+    /**
+     * Removes all stored indices. Indices already loaded are not saved
+     * anymore.
+     */
+    public static synchronized void clearAll() {
+        generation++;
+        for (File file : getIndexFiles()) {
+            if (!file.delete()) {
+                logger.log(Level.WARNING, "Cannot delete search index {0}", file);
+            }
+        }
+    }
+
+    /**
+     * Gets total size of stored indices.
+     *
+     * @return Size in bytes
+     */
+    public static long getStoredSize() {
+        long ret = 0;
+        for (File file : getIndexFiles()) {
+            ret += file.length();
+        }
+        return ret;
+    }
+
+    /**
+     * Removes least recently used index files above the size limit.
+     *
+     * @param keep File which is kept
+     */
+    private static void removeLeastRecentlyUsed(File keep) {
+        long maxSize = Configuration.maxScriptSearchIndexSize.get() * 1024L * 1024L;
+        if (maxSize <= 0) {
+            return;
+        }
+        File[] files = getIndexFiles();
+        Map<File, Long> lastModified = new HashMap<>();
+        for (File file : files) {
+            lastModified.put(file, file.lastModified());
+        }
+        Arrays.sort(files, (File f1, File f2) -> Long.compare(lastModified.get(f2), lastModified.get(f1)));
+        long size = keep.length();
+        for (File file : files) {
+            if (file.equals(keep)) {
+                continue;
+            }
+            size += file.length();
+            if (size > maxSize) {
+                size -= file.length();
+                if (!file.delete()) {
+                    logger.log(Level.WARNING, "Cannot delete search index {0}", file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether the index was removed by clearAll.
+     *
+     * @return True when removed
+     */
+    public boolean isCleared() {
+        return createdGeneration != generation;
+    }
+
+    /**
+     * Gets index key of AS1/2 script.
+     *
+     * @param asm Script
+     * @param pcode P-code or decompiled text
+     * @return Key or null when the script has no name assigned yet
+     */
+    public static String getKey(ASMSource asm, boolean pcode) {
+        String scriptName = asm.getScriptName();
+        if (scriptName == null || scriptName.equals("-")) {
+            return null;
+        }
+        ByteArrayRange actionBytes = asm.getActionBytes();
+        CRC32 crc = new CRC32();
+        crc.update(actionBytes.getArray(), actionBytes.getPos(), actionBytes.getLength());
+        return (pcode ? "as2pcode:" : "as2:") + scriptName + ":" + asm.toString() + ":" + Long.toHexString(crc.getValue());
+    }
+
+    /**
+     * Gets index key of decompiled AS3 script.
+     *
+     * @param pack Script pack
+     * @return Key or null when the pack is not placed in a SWF
+     */
+    public static String getKey(ScriptPack pack) {
+        int abcIndex = getAbcIndex(pack);
+        if (abcIndex == -1) {
+            return null;
+        }
+        return "as3:" + abcIndex + ":" + pack.scriptIndex + ":" + pack.traitIndices + ":" + pack.getClassPath().toRawString();
+    }
+
+    /**
+     * Gets index key of AS3 method body P-code.
+     *
+     * @param pack Script pack
+     * @param bodyIndex Method body index
+     * @return Key or null when the pack is not placed in a SWF
+     */
+    public static String getPCodeKey(ScriptPack pack, int bodyIndex) {
+        int abcIndex = getAbcIndex(pack);
+        if (abcIndex == -1) {
+            return null;
+        }
+        return "as3pcode:" + abcIndex + ":" + bodyIndex;
+    }
+
+    private static int getAbcIndex(ScriptPack pack) {
+        if (pack.abc.parentTag == null || pack.abc.getSwf() == null) {
+            return -1;
+        }
+        return pack.abc.getSwf().getAbcList().indexOf(pack.abc.parentTag);
+    }
+
+    /**
+     * Gets sorted distinct trigram codes of case folded text.
+     *
+     * @param text Text
+     * @return Trigram codes
+     */
+    public static int[] getTrigrams(String text) {
+        if (text.length() < 3) {
+            return new int[0];
+        }
+        Set<Integer> ret = new HashSet<>();
+        int c1 = fold(text.charAt(0));
+        int c2 = fold(text.charAt(1));
+        for (int i = 2; i < text.length(); i++) {
+            int c3 = fold(text.charAt(i));
+            ret.add((c1 * 31 + c2) * 31 + c3);
+            c1 = c2;
+            c2 = c3;
+        }
+        int[] arr = new int[ret.size()];
+        int i = 0;
+        for (int t : ret) {
+            arr[i++] = t;
+        }
+        Arrays.sort(arr);
+        return arr;
+    }
+
+    private static int fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * Loads index from FFDec home directory or creates empty one. Loaded index
+     * file is marked as recently used.
+     *
+     * @param name Name from getName
+     * @return Index
+     */
+    public static ScriptSearchIndex load(String name) {
+        ScriptSearchIndex index = new ScriptSearchIndex(name);
+        File file = index.getFile();
+        if (!file.exists()) {
+            return index;
+        }
+        file.setLastModified(System.currentTimeMillis());
+        try (DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (dis.readInt() != MAGIC || dis.readInt() != FORMAT_VERSION) {
+                return index;
+            }
+            int count = dis.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = dis.readUTF();
+                byte[] text = new byte[dis.readInt()];
+                dis.readFully(text);
+                int[] docTrigrams = new int[dis.readInt()];
+                for (int t = 0; t < docTrigrams.length; t++) {
+                    docTrigrams[t] = dis.readInt();
+                }
+                index.put(key, text, docTrigrams);
+            }
+        } catch (IOException ex) {
+            logger.log(Level.WARNING, "Cannot read search index " + file + ", rebuilding", ex);
+            return new ScriptSearchIndex(name);
+        }
+        index.dirty = false;
+        return index;
+    }
+
+    private File getFile() {
+        return new File(getDirectory(), name + INDEX_EXTENSION);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Saves index to FFDec home directory when it has changed. Least recently
+     * used indices are removed above the size limit.
+     */
+    public synchronized void save() {
+        if (!dirty || isCleared()) {
+            return;
+        }
+        File file = getFile();
+        File tempFile = new File(file.getPath() + ".tmp");
+        try {
+            try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+                dos.writeInt(MAGIC);
+                dos.writeInt(FORMAT_VERSION);
+                dos.writeInt(documentIds.size());
+                for (int id : documentIds.values()) {
+                    dos.writeUTF(keys.get(id));
+                    byte[] text = texts.get(id);
+                    dos.writeInt(text.length);
+                    dos.write(text);
+                    int[] docTrigrams = trigrams.get(id);
+                    dos.writeInt(docTrigrams.length);
+                    for (int t : docTrigrams) {
+                        dos.writeInt(t);
+                    }
+                }
+            }
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            dirty = false;
+            removeLeastRecentlyUsed(file);
+        } catch (IOException ex) {
+            tempFile.delete();
+            logger.log(Level.WARNING, "Cannot write search index " + file, ex);
+        }
+    }
+
+    /**
+     * Adds or replaces text of a script.
+     *
+     * @param key Key
+     * @param text Decompiled text or P-code
+     */
+    public void add(String key, String text) {
+        if (key == null) {
+            return;
+        }
+        int[] textTrigrams = getTrigrams(text);
+        byte[] deflated = deflate(Utf8Helper.getBytes(text));
+        synchronized (this) {
+            put(key, deflated, textTrigrams);
+        }
+    }
+
+    private void put(String key, byte[] deflated, int[] textTrigrams) {
+        Integer oldId = documentIds.get(key);
+        if (oldId != null) {
+            texts.set(oldId, null);
+            trigrams.set(oldId, null);
+        }
+        int id = keys.size();
+        keys.add(key);
+        texts.add(deflated);
+        trigrams.add(textTrigrams);
+        documentIds.put(key, id);
+        for (int t : textTrigrams) {
+            BitSet docs = postings.get(t);
+            if (docs == null) {
+                docs = new BitSet();
+                postings.put(t, docs);
+            }
+            docs.set(id);
+        }
+        dirty = true;
+    }
+
+    public synchronized boolean contains(String key) {
+        return key != null && documentIds.containsKey(key);
+    }
+
+    /**
+     * Gets stored text.
+     *
+     * @param key Key
+     * @return Text or null when it is not indexed
+     */
+    public String getText(String key) {
+        byte[] deflated;
+        synchronized (this) {
+            Integer id = key == null ? null : documentIds.get(key);
+            if (id == null) {
+                return null;
+            }
+            deflated = texts.get(id);
+        }
+        try {
+            return new String(inflate(deflated), Utf8Helper.charset);
+        } catch (DataFormatException ex) {
+            logger.log(Level.WARNING, "Corrupted search index entry " + key, ex);
+            return null;
+        }
+    }
+
+    /**
+     * Checks whether indexed text can contain a literal, ignoring case. False
+     * means it surely does not contain it.
+     *
+     * @param key Key of indexed text
+     * @param candidates Result of getCandidates
+     * @return True when the text is a candidate
+     */
+    public synchronized boolean isCandidate(String key, BitSet candidates) {
+        if (candidates == null) {
+            return true;
+        }
+        Integer id = documentIds.get(key);
+        return id != null && candidates.get(id);
+    }
+
+    /**
+     * Gets texts which contain all trigrams of a literal.
+     *
+     * @param literal Searched literal
+     * @return Document ids for isCandidate or null when the literal is too
+     * short to filter
+     */
+    public synchronized BitSet getCandidates(String literal) {
+        int[] literalTrigrams = getTrigrams(literal);
+        if (literalTrigrams.length == 0) {
+            return null;
+        }
+        BitSet ret = null;
+        for (int t : literalTrigrams) {
+            BitSet docs = postings.get(t);
+            if (docs == null) {
+                return new BitSet();
+            }
+            if (ret == null) {
+                ret = (BitSet) docs.clone();
+            } else {
+                ret.and(docs);
+            }
+        }
+        return ret;
+    }
+
+    private static byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+            byte[] buf = new byte[8192];
+            while (!deflater.finished()) {
+                baos.write(buf, 0, deflater.deflate(buf));
+            }
+            return baos.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data);
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(data.length * 4);
+            byte[] buf = new byte[8192];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buf);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                baos.write(buf, 0, count);
+            }
+            return baos.toByteArray();
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -28,6 +28,7 @@ import com.jpexs.decompiler.flash.types.BasicType;
 import com.jpexs.decompiler.flash.types.annotations.SWFType;
 import com.jpexs.decompiler.flash.types.annotations.SWFVersion;
 import com.jpexs.helpers.ByteArrayRange;
+import com.jpexs.helpers.DecodedImageStore;
 import com.jpexs.helpers.JpegFixer;
 import com.jpexs.helpers.SerializableImage;
 import java.awt.Dimension;
@@ -255,8 +256,9 @@ public class DefineBitsJPEG3Tag extends ImageTag implements AloneTag {
 
     @Override
     public Dimension getImageDimension() {
-        if (cachedImage != null) {
-            return new Dimension(cachedImage.getWidth(), cachedImage.getHeight());
+        DecodedImageStore.Handle handle = imageHandle;
+        if (handle != null) {
+            return new Dimension(handle.getWidth(), handle.getHeight());
         }
 
         try {
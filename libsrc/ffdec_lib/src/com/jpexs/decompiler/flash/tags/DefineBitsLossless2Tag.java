@@ -209,17 +209,35 @@ public class DefineBitsLossless2Tag extends ImageTag implements AloneTag {
     }
 
     private void uncompressData() {
+        if (bitmapFormat == FORMAT_8BIT_COLORMAPPED) {
+            colorMapData = readColorMapData();
+        } else if (bitmapFormat == FORMAT_32BIT_ARGB) {
+            bitmapData = readBitmapData();
+        }
+        decompressed = true;
+    }
+
+    private SWFInputStream getUncompressedDataStream() throws IOException {
+        byte[] uncompressedData = SWFInputStream.uncompressByteArray(zlibBitmapData.getArray(), zlibBitmapData.getPos(), zlibBitmapData.getLength());
+        return new SWFInputStream(swf, uncompressedData);
+    }
+
+    private ALPHACOLORMAPDATA readColorMapData() {
         try {
-            byte[] uncompressedData = SWFInputStream.uncompressByteArray(zlibBitmapData.getArray(), zlibBitmapData.getPos(), zlibBitmapData.getLength());
-            SWFInputStream sis = new SWFInputStream(swf, uncompressedData);
-            if (bitmapFormat == FORMAT_8BIT_COLORMAPPED) {
-                colorMapData = sis.readALPHACOLORMAPDATA(bitmapColorTableSize, bitmapWidth, bitmapHeight, "colorMapData");
-            } else if (bitmapFormat == FORMAT_32BIT_ARGB) {
-                bitmapData = sis.readALPHABITMAPDATA(bitmapFormat, bitmapWidth, bitmapHeight, "bitmapData");
-            }
+            SWFInputStream sis = getUncompressedDataStream();
+            return sis.readALPHACOLORMAPDATA(bitmapColorTableSize, bitmapWidth, bitmapHeight, "colorMapData");
         } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    private ALPHABITMAPDATA readBitmapData() {
+        try {
+            SWFInputStream sis = getUncompressedDataStream();
+            return sis.readALPHABITMAPDATA(bitmapFormat, bitmapWidth, bitmapHeight, "bitmapData");
+        } catch (IOException ex) {
+            return null;
         }
-        decompressed = true;
     }
 
     @Override
@@ -242,13 +260,14 @@ public class DefineBitsLossless2Tag extends ImageTag implements AloneTag {
         SerializableImage bi = new SerializableImage(bitmapWidth, bitmapHeight, SerializableImage.TYPE_INT_ARGB_PRE);
         int[] pixels = ((DataBufferInt) bi.getRaster().getDataBuffer()).getData();
 
+        // Uncompressed data is not kept in the tag, decoded image store keeps the pixels
         ALPHACOLORMAPDATA colorMapData = null;
         ALPHABITMAPDATA bitmapData = null;
         if (bitmapFormat == FORMAT_8BIT_COLORMAPPED) {
-            colorMapData = getColorMapData();
+            colorMapData = decompressed ? this.colorMapData : readColorMapData();
         }
         if (bitmapFormat == FORMAT_32BIT_ARGB) {
-            bitmapData = getBitmapData();
+            bitmapData = decompressed ? this.bitmapData : readBitmapData();
         }
         int pos32aligned = 0;
         int pos = 0;
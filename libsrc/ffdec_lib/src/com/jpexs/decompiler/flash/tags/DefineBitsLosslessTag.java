@@ -205,17 +205,35 @@ public class DefineBitsLosslessTag extends ImageTag implements AloneTag {
     }
 
     private void uncompressData() {
+        if (bitmapFormat == FORMAT_8BIT_COLORMAPPED) {
+            colorMapData = readColorMapData();
+        } else if ((bitmapFormat == FORMAT_15BIT_RGB) || (bitmapFormat == FORMAT_24BIT_RGB)) {
+            bitmapData = readBitmapData();
+        }
+        decompressed = true;
+    }
+
+    private SWFInputStream getUncompressedDataStream() throws IOException {
+        byte[] uncompressedData = SWFInputStream.uncompressByteArray(zlibBitmapData.getArray(), zlibBitmapData.getPos(), zlibBitmapData.getLength());
+        return new SWFInputStream(swf, uncompressedData);
+    }
+
+    private COLORMAPDATA readColorMapData() {
         try {
-            byte[] uncompressedData = SWFInputStream.uncompressByteArray(zlibBitmapData.getArray(), zlibBitmapData.getPos(), zlibBitmapData.getLength());
-            SWFInputStream sis = new SWFInputStream(swf, uncompressedData);
-            if (bitmapFormat == FORMAT_8BIT_COLORMAPPED) {
-                colorMapData = sis.readCOLORMAPDATA(bitmapColorTableSize, bitmapWidth, bitmapHeight, "colorMapData");
-            } else if ((bitmapFormat == FORMAT_15BIT_RGB) || (bitmapFormat == FORMAT_24BIT_RGB)) {
-                bitmapData = sis.readBITMAPDATA(bitmapFormat, bitmapWidth, bitmapHeight, "bitmapData");
-            }
+            SWFInputStream sis = getUncompressedDataStream();
+            return sis.readCOLORMAPDATA(bitmapColorTableSize, bitmapWidth, bitmapHeight, "colorMapData");
         } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    private BITMAPDATA readBitmapData() {
+        try {
+            SWFInputStream sis = getUncompressedDataStream();
+            return sis.readBITMAPDATA(bitmapFormat, bitmapWidth, bitmapHeight, "bitmapData");
+        } catch (IOException ex) {
+            return null;
         }
-        decompressed = true;
     }
 
     @Override
@@ -235,9 +253,10 @@ public class DefineBitsLosslessTag extends ImageTag implements AloneTag {
 
     @Override
     protected SerializableImage getImage() {
+        // Uncompressed data is not kept in the tag, decoded image store keeps the pixels
         int[] pixels = new int[bitmapWidth * bitmapHeight];
         if (bitmapFormat == FORMAT_8BIT_COLORMAPPED) {
-            COLORMAPDATA colorMapData = getColorMapData();
+            COLORMAPDATA colorMapData = decompressed ? this.colorMapData : readColorMapData();
             int pos32aligned = 0;
             int pos = 0;
             for (int y = 0; y < bitmapHeight; y++) {
@@ -257,7 +276,7 @@ public class DefineBitsLosslessTag extends ImageTag implements AloneTag {
                 }
             }
         } else if ((bitmapFormat == FORMAT_15BIT_RGB) || (bitmapFormat == FORMAT_24BIT_RGB)) {
-            BITMAPDATA bitmapData = getBitmapData();
+            BITMAPDATA bitmapData = decompressed ? this.bitmapData : readBitmapData();
             int pos = 0;
             int[] bitmapPixelData = null;
             if (bitmapFormat == FORMAT_15BIT_RGB) {
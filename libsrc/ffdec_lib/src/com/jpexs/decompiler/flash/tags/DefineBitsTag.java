@@ -26,6 +26,7 @@ import com.jpexs.decompiler.flash.types.BasicType;
 import com.jpexs.decompiler.flash.types.annotations.SWFType;
 import com.jpexs.decompiler.flash.types.annotations.SWFVersion;
 import com.jpexs.helpers.ByteArrayRange;
+import com.jpexs.helpers.DecodedImageStore;
 import com.jpexs.helpers.SerializableImage;
 import java.awt.Dimension;
 import java.awt.Graphics;
@@ -219,8 +220,9 @@ public class DefineBitsTag extends ImageTag implements TagChangedListener {
 
     @Override
     public Dimension getImageDimension() {
-        if (cachedImage != null) {
-            return new Dimension(cachedImage.getWidth(), cachedImage.getHeight());
+        DecodedImageStore.Handle handle = imageHandle;
+        if (handle != null) {
+            return new Dimension(handle.getWidth(), handle.getHeight());
         }
 
         InputStream imageStream = getOriginalImageData();
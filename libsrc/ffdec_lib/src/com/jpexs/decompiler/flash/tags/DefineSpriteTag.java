@@ -150,7 +150,7 @@ public class DefineSpriteTag extends DrawableTag implements Timelined {
     }
 
     @Override
-    public Timeline getTimeline() {
+    public synchronized Timeline getTimeline() {
         if (timeline == null) {
             timeline = new Timeline(swf, this, spriteId, getRect());
         }
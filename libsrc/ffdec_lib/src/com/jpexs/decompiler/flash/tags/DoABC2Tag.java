@@ -83,8 +83,20 @@ public class DoABC2Tag extends Tag implements ABCContainerTag {
      * @throws IOException
      */
     public DoABC2Tag(SWFInputStream sis, ByteArrayRange data) throws IOException {
+        this(sis, data, false);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param sis
+     * @param data
+     * @param lazy Decode method bodies on first access
+     * @throws IOException
+     */
+    public DoABC2Tag(SWFInputStream sis, ByteArrayRange data, boolean lazy) throws IOException {
         super(sis.getSwf(), ID, NAME, data);
-        readData(sis, data, 0, false, false, false);
+        readData(sis, data, 0, false, false, lazy);
     }
 
     @Override
@@ -96,7 +108,7 @@ public class DoABC2Tag extends Tag implements ABCContainerTag {
 
         // put it to the dumpview:
         sis.readByteRangeEx(sis.available(), "abcBytes", DumpInfoSpecialType.ABC_BYTES, null);
-        abc = new ABC(ais, swf, this);
+        abc = new ABC(ais, swf, this, lazy);
     }
 
     /**
@@ -138,6 +150,9 @@ public class DoABC2Tag extends Tag implements ABCContainerTag {
     @Override
     public void setModified(boolean value) {
         super.setModified(value);
+        if (value && getABC() != null) {
+            getABC().invalidateMultinameUsageIndexing();
+        }
         if (value == false && !isModified()) {
             ABC abc = getABC();
             for (ScriptInfo si : abc.script_info) {
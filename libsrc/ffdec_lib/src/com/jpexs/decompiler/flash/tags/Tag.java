@@ -432,6 +432,24 @@ public abstract class Tag implements NeedsCharacters, Exportable, Serializable {
         }
     }
 
+    /**
+     * Gets bytes which writeTag writes, including the tag header. Unmodified
+     * tags return their original range without copying.
+     *
+     * @return Tag bytes
+     */
+    public ByteArrayRange getTagData() {
+        if (Configuration._debugCopy.get() || isModified()) {
+            byte[] newData = getData();
+            byte[] newHeaderData = getHeader(newData.length);
+            byte[] tagData = new byte[newHeaderData.length + newData.length];
+            System.arraycopy(newHeaderData, 0, tagData, 0, newHeaderData.length);
+            System.arraycopy(newData, 0, tagData, newHeaderData.length, newData.length);
+            return new ByteArrayRange(tagData);
+        }
+        return originalRange;
+    }
+
     public Tag cloneTag() throws InterruptedException, IOException {
         byte[] data = getData();
         SWFInputStream tagDataStream = new SWFInputStream(swf, data, getDataPos(), data.length);
@@ -565,6 +583,9 @@ public abstract class Tag implements NeedsCharacters, Exportable, Serializable {
         if (value && oldValue != value) {
             informListeners();
         }
+        if (value && swf != null) {
+            swf.invalidateRasterCache(this);
+        }
     }
 
     public final void addEventListener(TagChangedListener listener) {
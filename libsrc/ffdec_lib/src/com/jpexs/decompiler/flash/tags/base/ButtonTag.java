@@ -130,13 +130,14 @@ public abstract class ButtonTag extends DrawableTag implements Timelined {
     }
 
     @Override
-    public Timeline getTimeline() {
+    public synchronized Timeline getTimeline() {
         if (timeline != null) {
             return timeline;
         }
 
-        timeline = new Timeline(swf, this, getCharacterId(), getRect());
-        initTimeline(timeline);
+        Timeline newTimeline = new Timeline(swf, this, getCharacterId(), getRect());
+        initTimeline(newTimeline);
+        timeline = newTimeline;
         return timeline;
     }
 
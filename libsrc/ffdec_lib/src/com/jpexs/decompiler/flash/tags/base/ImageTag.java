@@ -42,6 +42,7 @@ import com.jpexs.decompiler.flash.types.shaperecords.EndShapeRecord;
 import com.jpexs.decompiler.flash.types.shaperecords.StraightEdgeRecord;
 import com.jpexs.decompiler.flash.types.shaperecords.StyleChangeRecord;
 import com.jpexs.helpers.ByteArrayRange;
+import com.jpexs.helpers.DecodedImageStore;
 import com.jpexs.helpers.SerializableImage;
 import java.awt.Dimension;
 import java.awt.Shape;
@@ -61,7 +62,10 @@ public abstract class ImageTag extends DrawableTag {
     @SWFType(BasicType.UI16)
     public int characterID;
 
-    protected SerializableImage cachedImage;
+    /**
+     * Handle of decoded image in the decoded image store.
+     */
+    protected transient DecodedImageStore.Handle imageHandle;
 
     public ImageTag(SWF swf, int id, String name, ByteArrayRange data) {
         super(swf, id, name, data);
@@ -108,13 +112,29 @@ public abstract class ImageTag extends DrawableTag {
     }
 
     public SerializableImage getImageCached() {
-        if (cachedImage != null) {
-            return cachedImage;
+        DecodedImageStore store = DecodedImageStore.getInstance();
+        DecodedImageStore.Handle handle = imageHandle;
+        if (handle != null) {
+            SerializableImage image = store.get(handle);
+            if (image != null) {
+                return image;
+            }
         }
 
         SerializableImage image = getImage();
         if (Configuration.cacheImages.get()) {
-            cachedImage = image;
+            DecodedImageStore.Handle newHandle = store.put(image);
+            synchronized (this) {
+                if (imageHandle != handle) {
+                    // Other thread decoded the image at the same time
+                    store.remove(newHandle);
+                    return image;
+                }
+                imageHandle = newHandle;
+            }
+            if (handle != null) {
+                store.remove(handle);
+            }
         }
 
         return image;
@@ -261,7 +281,14 @@ public abstract class ImageTag extends DrawableTag {
     }
 
     public void clearCache() {
-        cachedImage = null;
+        DecodedImageStore.Handle handle;
+        synchronized (this) {
+            handle = imageHandle;
+            imageHandle = null;
+        }
+        if (handle != null) {
+            DecodedImageStore.getInstance().remove(handle);
+        }
     }
 
     @Override
@@ -0,0 +1,177 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash.tags.base;
+
+import com.jpexs.decompiler.flash.exporters.commonshape.Matrix;
+import com.jpexs.decompiler.flash.types.ColorTransform;
+import java.util.Arrays;
+
+/**
+ * Key of rasterized display object in the raster cache.
+ *
+ * Linear part of the transformation is quantized to 16.16 fixed point like in
+ * SWF matrices, translation is reduced to its subpixel part, so the raster can
+ * be reused for all the placements which differ only by whole pixels.
+ *
+ * @author JPEXS
+ */
+public class RasterCacheKey {
+
+    private static final double FIXED_ONE = 65536.0;
+
+    private final int characterId;
+
+    private final int ratio;
+
+    private final int[] transformation;
+
+    private final int[] strokeTransformation;
+
+    private final int[] colorTransform;
+
+    private final Object filters;
+
+    private final double unzoom;
+
+    private final boolean scaleStrokes;
+
+    private final int drawMode;
+
+    private final boolean scanlineRasterizer;
+
+    private final int hash;
+
+    /**
+     * Constructs key.
+     *
+     * @param characterId Character id
+     * @param ratio Morph ratio
+     * @param transformation Quantized transformation, see quantize
+     * @param subPixelX Horizontal subpixel offset in twips
+     * @param subPixelY Vertical subpixel offset in twips
+     * @param strokeTransformation Quantized stroke transformation
+     * @param colorTransform Color transform or null
+     * @param filters Filter list, compared by identity
+     * @param unzoom Unzoom
+     * @param scaleStrokes Scale strokes
+     * @param drawMode Draw mode
+     * @param scanlineRasterizer Rendered by scanline rasterizer
+     */
+    public RasterCacheKey(int characterId, int ratio, Matrix transformation, int subPixelX, int subPixelY, Matrix strokeTransformation, ColorTransform colorTransform, Object filters, double unzoom, boolean scaleStrokes, int drawMode, boolean scanlineRasterizer) {
+        this.characterId = characterId;
+        this.ratio = ratio;
+        this.transformation = new int[]{
+            toFixed(transformation.scaleX),
+            toFixed(transformation.rotateSkew0),
+            toFixed(transformation.rotateSkew1),
+            toFixed(transformation.scaleY),
+            subPixelX,
+            subPixelY
+        };
+        this.strokeTransformation = new int[]{
+            toFixed(strokeTransformation.scaleX),
+            toFixed(strokeTransformation.rotateSkew0),
+            toFixed(strokeTransformation.rotateSkew1),
+            toFixed(strokeTransformation.scaleY)
+        };
+        if (colorTransform == null) {
+            this.colorTransform = null;
+        } else {
+            this.colorTransform = new int[]{
+                colorTransform.getRedMulti(),
+                colorTransform.getGreenMulti(),
+                colorTransform.getBlueMulti(),
+                colorTransform.getAlphaMulti(),
+                colorTransform.getRedAdd(),
+                colorTransform.getGreenAdd(),
+                colorTransform.getBlueAdd(),
+                colorTransform.getAlphaAdd()
+            };
+        }
+        this.filters = filters;
+        this.unzoom = unzoom;
+        this.scaleStrokes = scaleStrokes;
+        this.drawMode = drawMode;
+        this.scanlineRasterizer = scanlineRasterizer;
+
+        int h = 7;
+        h = 31 * h + characterId;
+        h = 31 * h + ratio;
+        h = 31 * h + Arrays.hashCode(this.transformation);
+        h = 31 * h + Arrays.hashCode(this.strokeTransformation);
+        h = 31 * h + Arrays.hashCode(this.colorTransform);
+        h = 31 * h + System.identityHashCode(filters);
+        h = 31 * h + Double.hashCode(unzoom);
+        h = 31 * h + (scaleStrokes ? 1 : 0);
+        h = 31 * h + drawMode;
+        h = 31 * h + (scanlineRasterizer ? 1 : 0);
+        hash = h;
+    }
+
+    private static int toFixed(double value) {
+        return (int) Math.round(value * FIXED_ONE);
+    }
+
+    /**
+     * Gets linear part of the transformation quantized to 16.16 fixed point.
+     *
+     * @param transformation Transformation
+     * @return Quantized transformation without translation
+     */
+    public static Matrix quantize(Matrix transformation) {
+        Matrix ret = new Matrix();
+        ret.scaleX = toFixed(transformation.scaleX) / FIXED_ONE;
+        ret.rotateSkew0 = toFixed(transformation.rotateSkew0) / FIXED_ONE;
+        ret.rotateSkew1 = toFixed(transformation.rotateSkew1) / FIXED_ONE;
+        ret.scaleY = toFixed(transformation.scaleY) / FIXED_ONE;
+        return ret;
+    }
+
+    public int getCharacterId() {
+        return characterId;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final RasterCacheKey other = (RasterCacheKey) obj;
+        return hash == other.hash
+                && characterId == other.characterId
+                && ratio == other.ratio
+                && drawMode == other.drawMode
+                && scaleStrokes == other.scaleStrokes
+                && scanlineRasterizer == other.scanlineRasterizer
+                && filters == other.filters
+                && Double.doubleToLongBits(unzoom) == Double.doubleToLongBits(other.unzoom)
+                && Arrays.equals(transformation, other.transformation)
+                && Arrays.equals(strokeTransformation, other.strokeTransformation)
+                && Arrays.equals(colorTransform, other.colorTransform);
+    }
+}
@@ -23,6 +23,9 @@ import java.awt.Point;
 import java.util.List;
 
 /**
+ * State of one rendering call. A context must not be shared by threads which
+ * render at the same time, the caches and the session it refers to are thread
+ * safe.
  *
  * @author JPEXS
  */
@@ -40,11 +43,20 @@ public class RenderContext {
 
     public Cache<DisplayObjectCacheKey, SerializableImage> displayObjectCache;
 
+    /**
+     * Long-lived cache of rasterized shapes, texts and static sprites, items
+     * are owned by the character ids they were rendered from. Null disables
+     * the raster caching.
+     */
+    public Cache<RasterCacheKey, SerializableImage> rasterCache;
+
+    /**
+     * Pool of reusable intermediate images, null means the images are
+     * allocated for each drawing.
+     */
+    public RenderSession renderSession;
+
     public void clearPlaceObjectCache(PlaceObjectTypeTag placeObject) {
-        for (DisplayObjectCacheKey k : displayObjectCache.keys()) {
-            if (k.placeObject == placeObject) {
-                displayObjectCache.remove(k);
-            }
-        }
+        displayObjectCache.removeOwner(placeObject);
     }
 }
@@ -0,0 +1,171 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash.tags.base;
+
+import com.jpexs.helpers.SerializableImage;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Pool of reusable images for rendering many frames, for example in frame
+ * export.
+ *
+ * Frame buffers are kept until they are released back, scratch images for
+ * clips and intermediate layers are kept up to the maximum scratch size. The
+ * session can be shared by threads rendering frames in parallel.
+ *
+ * @author JPEXS
+ */
+public class RenderSession {
+
+    private static final long DEFAULT_MAX_SCRATCH_SIZE = 64L * 1024 * 1024;
+
+    private final long maxScratchSize;
+
+    private final Map<Long, Deque<SerializableImage>> freeFrames = new HashMap<>();
+
+    private final Map<Long, Deque<SerializableImage>> freeScratches = new HashMap<>();
+
+    private final Set<SerializableImage> frames = Collections.newSetFromMap(new WeakHashMap<>());
+
+    private long scratchSize = 0;
+
+    private int allocatedCount = 0;
+
+    private int reusedCount = 0;
+
+    /**
+     * Constructs render session with default maximum scratch size.
+     */
+    public RenderSession() {
+        this(DEFAULT_MAX_SCRATCH_SIZE);
+    }
+
+    /**
+     * Constructs render session.
+     *
+     * @param maxScratchSize Maximum size of unused scratch images kept for
+     * reuse in bytes
+     */
+    public RenderSession(long maxScratchSize) {
+        this.maxScratchSize = maxScratchSize;
+    }
+
+    private static long sizeKey(int width, int height) {
+        return ((long) width << 32) | height;
+    }
+
+    private static long byteSize(SerializableImage image) {
+        return (long) image.getWidth() * image.getHeight() * 4;
+    }
+
+    private SerializableImage acquire(Map<Long, Deque<SerializableImage>> pool, int width, int height) {
+        Deque<SerializableImage> free = pool.get(sizeKey(width, height));
+        SerializableImage image = free == null ? null : free.poll();
+        if (image == null) {
+            allocatedCount++;
+            return new SerializableImage(width, height, SerializableImage.TYPE_INT_ARGB_PRE);
+        }
+        reusedCount++;
+        image.resetGraphics();
+        return image;
+    }
+
+    /**
+     * Gets frame buffer. Content of the image is undefined, it has to be
+     * cleared by the caller.
+     *
+     * @param width Width
+     * @param height Height
+     * @return Image of TYPE_INT_ARGB_PRE type
+     */
+    public synchronized SerializableImage acquireFrame(int width, int height) {
+        SerializableImage image = acquire(freeFrames, width, height);
+        frames.add(image);
+        return image;
+    }
+
+    /**
+     * Gets scratch image. Content of the image is undefined, it has to be
+     * cleared by the caller.
+     *
+     * @param width Width
+     * @param height Height
+     * @return Image of TYPE_INT_ARGB_PRE type
+     */
+    public synchronized SerializableImage acquire(int width, int height) {
+        Deque<SerializableImage> free = freeScratches.get(sizeKey(width, height));
+        if (free != null && !free.isEmpty()) {
+            scratchSize -= byteSize(free.peek());
+        }
+        return acquire(freeScratches, width, height);
+    }
+
+    /**
+     * Returns image acquired from this session back to the pool. The image
+     * must not be used by the caller afterwards.
+     *
+     * @param image Image
+     */
+    public synchronized void release(SerializableImage image) {
+        boolean frame = frames.contains(image);
+        Deque<SerializableImage> free = (frame ? freeFrames : freeScratches).computeIfAbsent(sizeKey(image.getWidth(), image.getHeight()), k -> new ArrayDeque<>());
+        if (free.contains(image)) {
+            return;
+        }
+        if (!frame) {
+            long size = byteSize(image);
+            if (scratchSize + size > maxScratchSize) {
+                return;
+            }
+            scratchSize += size;
+        }
+        free.add(image);
+    }
+
+    /**
+     * Gets number of images allocated by this session.
+     *
+     * @return Number of allocated images
+     */
+    public synchronized int getAllocatedCount() {
+        return allocatedCount;
+    }
+
+    /**
+     * Gets number of images reused from the pool.
+     *
+     * @return Number of reused images
+     */
+    public synchronized int getReusedCount() {
+        return reusedCount;
+    }
+
+    /**
+     * Removes all the pooled images.
+     */
+    public synchronized void clear() {
+        freeFrames.clear();
+        freeScratches.clear();
+        scratchSize = 0;
+    }
+}
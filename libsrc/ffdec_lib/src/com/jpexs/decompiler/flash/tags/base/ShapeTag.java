@@ -61,7 +61,7 @@ public abstract class ShapeTag extends DrawableTag implements LazyObject {
 
     public RECT shapeBounds;
 
-    public SHAPEWITHSTYLE shapes;
+    public volatile SHAPEWITHSTYLE shapes;
 
     protected ByteArrayRange shapeData;
 
@@ -79,18 +79,26 @@ public abstract class ShapeTag extends DrawableTag implements LazyObject {
     public abstract int getShapeNum();
 
     public SHAPEWITHSTYLE getShapes() {
-        if (shapes == null && shapeData != null) {
-            try {
-                SWFInputStream sis = new SWFInputStream(swf, shapeData.getArray(), 0, shapeData.getPos() + shapeData.getLength());
-                sis.seek(shapeData.getPos());
-                shapes = sis.readSHAPEWITHSTYLE(getShapeNum(), false, "shapes");
-                shapeData = null; // not needed anymore, give it to GC
-            } catch (IOException ex) {
-                Logger.getLogger(ShapeTag.class.getName()).log(Level.SEVERE, null, ex);
-            }
+        SHAPEWITHSTYLE ret = shapes;
+        if (ret != null) {
+            return ret;
         }
 
-        return shapes;
+        // Shapes can be rendered on multiple threads, only one of them parses the data
+        synchronized (this) {
+            if (shapes == null && shapeData != null) {
+                try {
+                    SWFInputStream sis = new SWFInputStream(swf, shapeData.getArray(), 0, shapeData.getPos() + shapeData.getLength());
+                    sis.seek(shapeData.getPos());
+                    shapes = sis.readSHAPEWITHSTYLE(getShapeNum(), false, "shapes");
+                    shapeData = null; // not needed anymore, give it to GC
+                } catch (IOException ex) {
+                    Logger.getLogger(ShapeTag.class.getName()).log(Level.SEVERE, null, ex);
+                }
+            }
+
+            return shapes;
+        }
     }
 
     @Override
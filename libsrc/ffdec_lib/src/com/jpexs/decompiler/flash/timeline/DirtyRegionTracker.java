@@ -0,0 +1,224 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash.timeline;
+
+import com.jpexs.decompiler.flash.SWF;
+import com.jpexs.decompiler.flash.exporters.commonshape.ExportRectangle;
+import com.jpexs.decompiler.flash.exporters.commonshape.Matrix;
+import com.jpexs.decompiler.flash.tags.base.BoundedTag;
+import com.jpexs.decompiler.flash.tags.base.CharacterTag;
+import com.jpexs.decompiler.flash.tags.base.DrawableTag;
+import com.jpexs.decompiler.flash.types.RGB;
+import com.jpexs.decompiler.flash.types.filters.FILTER;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Tracks changes between consecutively rendered frames of a timeline.
+ *
+ * The depth states of the last rendered frame are compared with the states of
+ * the next frame and the bounds of the changed depths are collected, so only
+ * the changed region of a retained image has to be rendered again.
+ *
+ * @author JPEXS
+ */
+public class DirtyRegionTracker {
+
+    private Timeline timeline;
+
+    private int frame = -1;
+
+    private int time;
+
+    private ExportRectangle dirtyRect;
+
+    private final Map<CharacterTag, Boolean> nestedFilters = new HashMap<>();
+
+    /**
+     * Compares the frame with the last frame passed to this method and
+     * remembers it for the next call.
+     *
+     * @param timeline Timeline
+     * @param frame Frame
+     * @param time Time
+     * @return False when the whole frame has to be rendered, true when only
+     * the dirty rectangle has to be rendered
+     */
+    public synchronized boolean update(Timeline timeline, int frame, int time) {
+        Timeline prevTimeline = this.timeline;
+        int prevFrame = this.frame;
+        int prevTime = this.time;
+        this.timeline = timeline;
+        this.frame = frame;
+        this.time = time;
+        dirtyRect = null;
+        if (prevTimeline != timeline || prevFrame < 0) {
+            nestedFilters.clear();
+            return false;
+        }
+        if (frame >= timeline.getFrameCount() || prevFrame >= timeline.getFrameCount()) {
+            return false;
+        }
+
+        Frame prev = timeline.getFrame(prevFrame);
+        Frame cur = timeline.getFrame(frame);
+        if (!sameColor(prev.backgroundColor, cur.backgroundColor)) {
+            return false;
+        }
+
+        Set<Integer> depths = new HashSet<>(prev.layers.keySet());
+        depths.addAll(cur.layers.keySet());
+        for (int depth : depths) {
+            DepthState a = prev.layers.get(depth);
+            DepthState b = cur.layers.get(depth);
+            if (!isChanged(a, prevTime, b, time)) {
+                continue;
+            }
+            if (hasNestedFilters(a) || hasNestedFilters(b)) {
+                return false;
+            }
+            addBounds(a);
+            addBounds(b);
+        }
+        return true;
+    }
+
+    /**
+     * Gets union of bounds of the depths changed by the last update.
+     *
+     * @return Rectangle in twips of the timeline or null when nothing changed
+     */
+    public synchronized ExportRectangle getDirtyRect() {
+        return dirtyRect;
+    }
+
+    /**
+     * Forgets the last frame, the next update renders the whole frame.
+     */
+    public synchronized void reset() {
+        timeline = null;
+        frame = -1;
+        dirtyRect = null;
+        nestedFilters.clear();
+    }
+
+    private boolean isChanged(DepthState a, int timeA, DepthState b, int timeB) {
+        if (a == null || b == null) {
+            return a != b;
+        }
+        if (a.characterId != b.characterId
+                || a.isVisible != b.isVisible
+                || a.blendMode != b.blendMode
+                || a.clipDepth != b.clipDepth
+                || a.ratio != b.ratio
+                || a.cacheAsBitmap() != b.cacheAsBitmap()
+                || !Objects.equals(a.matrix, b.matrix)
+                || a.colorTransForm != b.colorTransForm
+                || !Objects.equals(a.filters, b.filters)) {
+            return true;
+        }
+        CharacterTag character = timeline.swf.getCharacter(b.characterId);
+        if (character instanceof DrawableTag && !((DrawableTag) character).isSingleFrame()) {
+            return a.instanceId != b.instanceId || a.time + timeA != b.time + timeB;
+        }
+        return false;
+    }
+
+    private void addBounds(DepthState ds) {
+        if (ds == null) {
+            return;
+        }
+        CharacterTag character = timeline.swf.getCharacter(ds.characterId);
+        if (!(character instanceof BoundedTag)) {
+            return;
+        }
+        ExportRectangle rect = new Matrix(ds.matrix).transform(new ExportRectangle(((BoundedTag) character).getRectWithStrokes()));
+        double delta = getFilterDelta(ds.filters);
+        rect.xMin -= delta;
+        rect.xMax += delta;
+        rect.yMin -= delta;
+        rect.yMax += delta;
+        if (dirtyRect == null) {
+            dirtyRect = rect;
+        } else {
+            dirtyRect.xMin = Math.min(dirtyRect.xMin, rect.xMin);
+            dirtyRect.yMin = Math.min(dirtyRect.yMin, rect.yMin);
+            dirtyRect.xMax = Math.max(dirtyRect.xMax, rect.xMax);
+            dirtyRect.yMax = Math.max(dirtyRect.yMax, rect.yMax);
+        }
+    }
+
+    private static double getFilterDelta(List<FILTER> filters) {
+        double delta = 0;
+        if (filters != null) {
+            for (FILTER filter : filters) {
+                delta = Math.max(delta, Math.max(filter.getDeltaX(), filter.getDeltaY()));
+            }
+        }
+        return delta * SWF.unitDivisor;
+    }
+
+    /**
+     * Checks whether the character places objects with filters. Bounds of
+     * such character do not include the filtered area.
+     */
+    private boolean hasNestedFilters(DepthState ds) {
+        if (ds == null) {
+            return false;
+        }
+        return hasNestedFilters(timeline.swf.getCharacter(ds.characterId), new HashSet<>());
+    }
+
+    private boolean hasNestedFilters(CharacterTag character, Set<CharacterTag> visited) {
+        if (!(character instanceof Timelined) || !visited.add(character)) {
+            return false;
+        }
+        Boolean cached = nestedFilters.get(character);
+        if (cached != null) {
+            return cached;
+        }
+        boolean result = false;
+        Timeline characterTimeline = ((Timelined) character).getTimeline();
+        loop:
+        for (Frame f : characterTimeline.getFrames()) {
+            for (int depth : f.layers.keySet()) {
+                DepthState ds = f.layers.getShared(depth);
+                if (ds == null) {
+                    continue;
+                }
+                if ((ds.filters != null && !ds.filters.isEmpty())
+                        || hasNestedFilters(timeline.swf.getCharacter(ds.characterId), visited)) {
+                    result = true;
+                    break loop;
+                }
+            }
+        }
+        nestedFilters.put(character, result);
+        return result;
+    }
+
+    private static boolean sameColor(RGB a, RGB b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return a.toColor().equals(b.toColor());
+    }
+}
@@ -33,7 +33,6 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
-import java.util.TreeMap;
 
 /**
  *
@@ -43,7 +42,7 @@ public class Frame implements TreeItem, Exportable {
 
     public final int frame;
 
-    public TreeMap<Integer, DepthState> layers = new TreeMap<>();
+    public final FrameLayers layers;
 
     public RGB backgroundColor = new RGBA(0, 0, 0, 0);
 
@@ -74,16 +73,14 @@ public class Frame implements TreeItem, Exportable {
     public Frame(Timeline timeline, int frame) {
         this.timeline = timeline;
         this.frame = frame;
+        this.layers = new FrameLayers(this);
     }
 
     public Frame(Frame obj, int frame) {
         this.frame = frame;
-        layers = new TreeMap<>();
         backgroundColor = obj.backgroundColor;
         timeline = obj.timeline;
-        for (int depth : obj.layers.keySet()) {
-            layers.put(depth, new DepthState(obj.layers.get(depth), this, true));
-        }
+        layers = new FrameLayers(obj.layers, this);
         //Do not copy sounds
     }
 
@@ -0,0 +1,377 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash.timeline;
+
+import java.lang.ref.SoftReference;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Depth states of a frame, sorted by depth.
+ *
+ * Frames of a timeline share unchanged depth states in a persistent tree, so
+ * a frame stores only the depths placed or removed in it. The frame's own
+ * DepthState copy of a shared state is created on first access and it is
+ * softly referenced, so states returned by get are read only. A state is
+ * modified by putting it to the frame, states put to the frame are kept.
+ *
+ * @author JPEXS
+ */
+public class FrameLayers extends AbstractMap<Integer, DepthState> {
+
+    private final Frame frame;
+
+    /**
+     * Depth states visible in the frame. Values are either states of this
+     * frame or read only snapshots shared with other frames.
+     */
+    private Node root;
+
+    /**
+     * States put to this frame.
+     */
+    private Map<Integer, DepthState> own;
+
+    /**
+     * Copies of the shared snapshots created on access. Copies are created
+     * again when they are collected, modifications of them are lost.
+     */
+    private SoftReference<Map<Integer, DepthState>> copies;
+
+    public FrameLayers(Frame frame) {
+        this.frame = frame;
+    }
+
+    /**
+     * Creates layers of the next frame. States of the previous frame are
+     * shared, only states put to the previous frame are copied.
+     *
+     * @param previous Layers of the previous frame
+     * @param frame Frame
+     */
+    FrameLayers(FrameLayers previous, Frame frame) {
+        this.frame = frame;
+        synchronized (previous) {
+            root = previous.root;
+            if (previous.own != null) {
+                for (Map.Entry<Integer, DepthState> en : previous.own.entrySet()) {
+                    root = insert(root, en.getKey(), new DepthState(en.getValue(), frame, true));
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether the frames have the same depth states. Frames without
+     * change share the tree of the previous frame.
+     *
+     * @param other Other layers
+     * @return True when the layers are the same
+     */
+    synchronized boolean isSharedWith(FrameLayers other) {
+        return root == other.root;
+    }
+
+    /**
+     * Gets depth state for reading without creating a copy for this frame.
+     * The frame, time and tween fields of the result can belong to another
+     * frame and the result must not be modified.
+     *
+     * @param depth Depth
+     * @return Depth state or null
+     */
+    public synchronized DepthState getShared(int depth) {
+        Node n = find(root, depth);
+        return n == null ? null : n.state;
+    }
+
+    /**
+     * Gets depth state of this frame. The result must not be modified unless
+     * it is put to the frame first.
+     *
+     * @param key Depth
+     * @return Depth state or null
+     */
+    @Override
+    public synchronized DepthState get(Object key) {
+        if (!(key instanceof Integer)) {
+            return null;
+        }
+        int depth = (Integer) key;
+        if (own != null) {
+            DepthState ds = own.get(depth);
+            if (ds != null) {
+                return ds;
+            }
+        }
+        Node n = find(root, depth);
+        if (n == null) {
+            return null;
+        }
+        Map<Integer, DepthState> copyMap = copies == null ? null : copies.get();
+        if (copyMap == null) {
+            copyMap = new HashMap<>();
+            copies = new SoftReference<>(copyMap);
+        }
+        DepthState ds = copyMap.get(depth);
+        if (ds == null) {
+            ds = copy(n.state);
+            copyMap.put(depth, ds);
+        }
+        return ds;
+    }
+
+    private DepthState copy(DepthState shared) {
+        DepthState ds = new DepthState(shared, frame, true);
+        ds.time = shared.time + (frame.frame - shared.frame.frame);
+        if (frame.timeline != null) {
+            frame.timeline.initTweenState(ds);
+        }
+        return ds;
+    }
+
+    @Override
+    public synchronized boolean containsKey(Object key) {
+        if (!(key instanceof Integer)) {
+            return false;
+        }
+        return find(root, (Integer) key) != null;
+    }
+
+    @Override
+    public synchronized DepthState put(Integer key, DepthState value) {
+        Node n = find(root, key);
+        root = insert(root, key, value);
+        if (own == null) {
+            own = new HashMap<>();
+        }
+        DepthState ret = own.put(key, value);
+        removeCopy(key);
+        return ret != null ? ret : (n == null ? null : n.state);
+    }
+
+    @Override
+    public synchronized DepthState remove(Object key) {
+        if (!(key instanceof Integer)) {
+            return null;
+        }
+        int depth = (Integer) key;
+        Node n = find(root, depth);
+        if (n == null) {
+            return null;
+        }
+        root = delete(root, depth);
+        if (own != null) {
+            own.remove(depth);
+        }
+        removeCopy(depth);
+        return n.state;
+    }
+
+    private void removeCopy(int depth) {
+        Map<Integer, DepthState> copyMap = copies == null ? null : copies.get();
+        if (copyMap != null) {
+            copyMap.remove(depth);
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        root = null;
+        own = null;
+        copies = null;
+    }
+
+    @Override
+    public synchronized int size() {
+        return root == null ? 0 : root.size;
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * Applies detected tweens to states put to this frame.
+     */
+    synchronized void initTweenStates() {
+        if (own != null && frame.timeline != null) {
+            for (DepthState ds : own.values()) {
+                frame.timeline.initTweenState(ds);
+            }
+        }
+    }
+
+    /**
+     * Gets snapshot of depths in ascending order.
+     *
+     * @return Set of depths
+     */
+    @Override
+    public synchronized Set<Integer> keySet() {
+        final List<Integer> keys = new ArrayList<>(size());
+        collectKeys(root, keys);
+        return new AbstractSet<Integer>() {
+            @Override
+            public Iterator<Integer> iterator() {
+                return keys.iterator();
+            }
+
+            @Override
+            public int size() {
+                return keys.size();
+            }
+        };
+    }
+
+    /**
+     * Gets snapshot of entries in ascending order of depths.
+     *
+     * @return Set of entries
+     */
+    @Override
+    public synchronized Set<Entry<Integer, DepthState>> entrySet() {
+        final List<Integer> keys = new ArrayList<>(size());
+        collectKeys(root, keys);
+        final List<Entry<Integer, DepthState>> entries = new ArrayList<>(keys.size());
+        for (Integer depth : keys) {
+            entries.add(new SimpleImmutableEntry<>(depth, get(depth)));
+        }
+        return new AbstractSet<Entry<Integer, DepthState>>() {
+            @Override
+            public Iterator<Entry<Integer, DepthState>> iterator() {
+                return entries.iterator();
+            }
+
+            @Override
+            public int size() {
+                return entries.size();
+            }
+        };
+    }
+
+    private static void collectKeys(Node n, List<Integer> keys) {
+        while (n != null) {
+            collectKeys(n.left, keys);
+            keys.add(n.depth);
+            n = n.right;
+        }
+    }
+
+    private static Node find(Node n, int depth) {
+        while (n != null) {
+            if (depth < n.depth) {
+                n = n.left;
+            } else if (depth > n.depth) {
+                n = n.right;
+            } else {
+                return n;
+            }
+        }
+        return null;
+    }
+
+    private static int height(Node n) {
+        return n == null ? 0 : n.height;
+    }
+
+    private static Node insert(Node n, int depth, DepthState state) {
+        if (n == null) {
+            return new Node(depth, state, null, null);
+        }
+        if (depth < n.depth) {
+            return balance(n.depth, n.state, insert(n.left, depth, state), n.right);
+        }
+        if (depth > n.depth) {
+            return balance(n.depth, n.state, n.left, insert(n.right, depth, state));
+        }
+        return new Node(depth, state, n.left, n.right);
+    }
+
+    private static Node delete(Node n, int depth) {
+        if (n == null) {
+            return null;
+        }
+        if (depth < n.depth) {
+            return balance(n.depth, n.state, delete(n.left, depth), n.right);
+        }
+        if (depth > n.depth) {
+            return balance(n.depth, n.state, n.left, delete(n.right, depth));
+        }
+        if (n.left == null) {
+            return n.right;
+        }
+        if (n.right == null) {
+            return n.left;
+        }
+        Node min = n.right;
+        while (min.left != null) {
+            min = min.left;
+        }
+        return balance(min.depth, min.state, n.left, delete(n.right, min.depth));
+    }
+
+    private static Node balance(int depth, DepthState state, Node left, Node right) {
+        int diff = height(left) - height(right);
+        if (diff > 1) {
+            if (height(left.left) >= height(left.right)) {
+                return new Node(left.depth, left.state, left.left, new Node(depth, state, left.right, right));
+            }
+            Node lr = left.right;
+            return new Node(lr.depth, lr.state, new Node(left.depth, left.state, left.left, lr.left), new Node(depth, state, lr.right, right));
+        }
+        if (diff < -1) {
+            if (height(right.right) >= height(right.left)) {
+                return new Node(right.depth, right.state, new Node(depth, state, left, right.left), right.right);
+            }
+            Node rl = right.left;
+            return new Node(rl.depth, rl.state, new Node(depth, state, left, rl.left), new Node(right.depth, right.state, rl.right, right.right));
+        }
+        return new Node(depth, state, left, right);
+    }
+
+    private static class Node {
+
+        private final int depth;
+
+        private final DepthState state;
+
+        private final Node left;
+
+        private final Node right;
+
+        private final int height;
+
+        private final int size;
+
+        public Node(int depth, DepthState state, Node left, Node right) {
+            this.depth = depth;
+            this.state = state;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.size = (left == null ? 0 : left.size) + (right == null ? 0 : right.size) + 1;
+        }
+    }
+}
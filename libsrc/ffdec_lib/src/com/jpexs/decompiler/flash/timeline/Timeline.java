@@ -47,6 +47,7 @@ import com.jpexs.decompiler.flash.tags.base.DrawableTag;
 import com.jpexs.decompiler.flash.tags.base.ImageTag;
 import com.jpexs.decompiler.flash.tags.base.MorphShapeTag;
 import com.jpexs.decompiler.flash.tags.base.PlaceObjectTypeTag;
+import com.jpexs.decompiler.flash.tags.base.RasterCacheKey;
 import com.jpexs.decompiler.flash.tags.base.RemoveTag;
 import com.jpexs.decompiler.flash.tags.base.RenderContext;
 import com.jpexs.decompiler.flash.tags.base.ShapeTag;
@@ -56,6 +57,7 @@ import com.jpexs.decompiler.flash.types.BlendMode;
 import com.jpexs.decompiler.flash.types.CLIPACTIONS;
 import com.jpexs.decompiler.flash.types.CXFORMWITHALPHA;
 import com.jpexs.decompiler.flash.types.ColorTransform;
+import com.jpexs.decompiler.flash.types.ConstantColorColorTransform;
 import com.jpexs.decompiler.flash.types.MATRIX;
 import com.jpexs.decompiler.flash.types.RECT;
 import com.jpexs.decompiler.flash.types.SOUNDINFO;
@@ -77,12 +79,16 @@ import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import org.w3c.dom.Element;
 
 /**
@@ -109,6 +115,11 @@ public class Timeline {
 
     private final Map<Integer, Integer> depthMaxFrame = new HashMap<>();
 
+    /**
+     * Depth to map of motion tween start frame to end frame.
+     */
+    private final Map<Integer, TreeMap<Integer, Integer>> depthTweens = new HashMap<>();
+
     public final List<ASMSource> asmSources = new ArrayList<>();
 
     private final List<ASMSourceContainer> asmSourceContainers = new ArrayList<>();
@@ -203,12 +214,16 @@ public class Timeline {
 
     private synchronized int getMaxDepthInternal() {
         int max_depth = 0;
-        for (Frame f : frames) {
+        for (int i = 0; i < frames.size(); i++) {
+            Frame f = frames.get(i);
+            if (i > 0 && f.layers.isSharedWith(frames.get(i - 1).layers)) {
+                continue;
+            }
             for (int depth : f.layers.keySet()) {
                 if (depth > max_depth) {
                     max_depth = depth;
                 }
-                int clipDepth = f.layers.get(depth).clipDepth;
+                int clipDepth = f.layers.getShared(depth).clipDepth;
                 if (clipDepth > max_depth) {
                     max_depth = clipDepth;
                 }
@@ -311,9 +326,10 @@ public class Timeline {
                 int depth = po.getDepth();
                 DepthState fl = frame.layers.get(depth);
                 if (fl == null) {
-                    frame.layers.put(depth, fl = new DepthState(swf, frame));
+                    fl = new DepthState(swf, frame);
                     fl.depth = depth;
                 }
+                frame.layers.put(depth, fl);
                 frame.layersChanged = true;
                 fl.placeObjectTag = po;
                 fl.minPlaceObjectNum = Math.max(fl.minPlaceObjectNum, po.getPlaceObjectNum());
@@ -418,54 +434,104 @@ public class Timeline {
     }
 
     private synchronized void detectTweens() {
-        for (int d = 1; d <= maxDepth; d++) {
-            int characterId = -1;
-            int len = 0;
-            for (int f = 0; f <= frames.size(); f++) {
-                DepthState ds = f >= frames.size() ? null : frames.get(f).layers.get(d);
-
-                if (ds != null && characterId != -1 && ds.characterId == characterId) {
-                    len++;
-                } else {
-                    if (characterId != -1) {
-                        int startPos = f - len;
-                        List<DepthState> matrices = new ArrayList<>(len);
-                        for (int k = 0; k < len; k++) {
-                            matrices.add(frames.get(startPos + k).layers.get(d));
-                        }
-
-                        List<TweenRange> ranges = TweenDetector.detectRanges(matrices);
-                        for (TweenRange r : ranges) {
-                            for (int t = r.startPosition; t <= r.endPosition; t++) {
-                                DepthState layer = frames.get(startPos + t).layers.get(d);
-                                layer.motionTween = true;
-                                layer.key = false;
-                            }
-
-                            frames.get(startPos + r.startPosition).layers.get(d).key = true;
-                        }
+        depthTweens.clear();
+        Map<Integer, TweenRun> runs = new HashMap<>();
+        for (int f = 0; f <= frames.size(); f++) {
+            if (f > 0 && f < frames.size() && frames.get(f).layers.isSharedWith(frames.get(f - 1).layers)) {
+                continue;
+            }
+            Set<Integer> depths = new TreeSet<>(runs.keySet());
+            if (f < frames.size()) {
+                depths.addAll(frames.get(f).layers.keySet());
+            }
+            for (int d : depths) {
+                if (d < 1 || d > maxDepth) {
+                    continue;
+                }
+                DepthState ds = f >= frames.size() ? null : frames.get(f).layers.getShared(d);
+                TweenRun run = runs.get(d);
+                if (ds != null && run != null && ds.characterId == run.characterId) {
+                    if (f == run.start + 1) {
+                        run.states.add(ds);
                     }
-
-                    len = 1;
+                    continue;
+                }
+                if (run != null) {
+                    runs.remove(d);
+                    addTweens(d, run, f - run.start);
+                }
+                if (ds != null && ds.characterId != -1) {
+                    runs.put(d, new TweenRun(f, ds));
                 }
+            }
+        }
+
+        for (Frame frame : frames) {
+            frame.layers.initTweenStates();
+        }
+    }
 
-                characterId = ds == null ? -1 : ds.characterId;
+    private void addTweens(int depth, TweenRun run, int len) {
+        //only states of first two frames are kept, the detector does not use others
+        DepthState second = run.states.size() > 1 ? run.states.get(1) : null;
+        List<TweenRange> ranges = TweenDetector.detectRanges(run.states.get(0), second, len);
+        for (TweenRange r : ranges) {
+            TreeMap<Integer, Integer> tweens = depthTweens.get(depth);
+            if (tweens == null) {
+                tweens = new TreeMap<>();
+                depthTweens.put(depth, tweens);
             }
+            tweens.put(run.start + r.startPosition, run.start + r.endPosition);
+        }
+    }
+
+    /**
+     * Sets motion tween and key flags of depth state from detected tweens.
+     *
+     * @param ds Depth state
+     */
+    void initTweenState(DepthState ds) {
+        TreeMap<Integer, Integer> tweens = depthTweens.get(ds.depth);
+        if (tweens == null) {
+            return;
         }
+        Map.Entry<Integer, Integer> tween = tweens.floorEntry(ds.frame.frame);
+        if (tween == null || tween.getValue() < ds.frame.frame) {
+            return;
+        }
+        ds.motionTween = true;
+        ds.key = tween.getKey() == ds.frame.frame;
     }
 
     private synchronized void calculateMaxDepthFrames() {
         depthMaxFrame.clear();
-        for (int d = 1; d <= maxDepth; d++) {
-            for (int f = frames.size() - 1; f >= 0; f--) {
-                if (frames.get(f).layers.get(d) != null) {
+        for (int f = frames.size() - 1; f >= 0; f--) {
+            if (f < frames.size() - 1 && frames.get(f).layers.isSharedWith(frames.get(f + 1).layers)) {
+                continue;
+            }
+            for (int d : frames.get(f).layers.keySet()) {
+                if (d >= 1 && d <= maxDepth && !depthMaxFrame.containsKey(d)) {
                     depthMaxFrame.put(d, f);
-                    break;
                 }
             }
         }
     }
 
+    private static class TweenRun {
+
+        private final int start;
+
+        private final int characterId;
+
+        private final List<DepthState> states = new ArrayList<>(2);
+
+        public TweenRun(int start, DepthState first) {
+            this.start = start;
+            this.characterId = first.characterId;
+            states.add(first);
+        }
+    }
+
     private void createASPackages() {
         for (ASMSource asm : asmSources) {
             if (asm instanceof DoInitActionTag) {
@@ -572,7 +638,7 @@ public class Timeline {
     public void getNeededCharacters(int frame, Set<Integer> usedCharacters) {
         Frame frameObj = getFrame(frame);
         for (int depth : frameObj.layers.keySet()) {
-            DepthState layer = frameObj.layers.get(depth);
+            DepthState layer = frameObj.layers.getShared(depth);
             if (layer.characterId != -1) {
                 if (!swf.getCharacters().containsKey(layer.characterId)) {
                     continue;
@@ -645,6 +711,99 @@ public class Timeline {
      toImage(frame, time, renderContext, image, isClip, transforms[i], absoluteTransformation, colorTransform, targetRect[i]);
      }
      }*/
+    private boolean canUseRasterCache(DrawableTag drawable, RenderContext renderContext, boolean isClip, int clipDepth, int blendMode, ColorTransform clrTrans) {
+        if (renderContext.rasterCache == null || isClip || clipDepth > -1 || blendMode > 1 || fontFrameNum != -1) {
+            return false;
+        }
+        if (clrTrans instanceof ConstantColorColorTransform) {
+            return false;
+        }
+        if (!Configuration.rasterCache.get()) {
+            return false;
+        }
+        if (drawable instanceof ShapeTag || drawable instanceof MorphShapeTag || drawable instanceof TextTag) {
+            return true;
+        }
+        if (drawable instanceof DefineSpriteTag) {
+            // Sprite children react to the cursor and are tracked under it
+            return renderContext.cursorPosition == null && renderContext.borderImage == null && drawable.isSingleFrame();
+        }
+        return false;
+    }
+
+    /**
+     * Gets raster of the drawable from the raster cache, renders and caches it
+     * when it is missing. The raster is rendered with quantized linear
+     * transformation and subpixel offset only, so it is reused when the
+     * drawable moves by whole pixels.
+     *
+     * @param drawMatrix Receives translation of the raster in the target image
+     * @return Raster or null when the raster would be too large to cache
+     */
+    private SerializableImage getCachedRaster(DrawableTag drawable, Matrix mat, Matrix strokeTransform, Matrix drawMatrix, RECT boundRect, SerializableImage image, int dframe, int time, int ratio, RenderContext renderContext, ColorTransform clrTrans, List<FILTER> filters, double unzoom, boolean scaleStrokes, int drawMode, int blendMode) {
+        double unitDivisor = SWF.unitDivisor;
+        double pixelX = Math.floor(mat.translateX / unitDivisor);
+        double pixelY = Math.floor(mat.translateY / unitDivisor);
+        int subPixelX = (int) Math.round(mat.translateX - pixelX * unitDivisor);
+        int subPixelY = (int) Math.round(mat.translateY - pixelY * unitDivisor);
+
+        Matrix linear = RasterCacheKey.quantize(mat);
+        Matrix strokeLinear = RasterCacheKey.quantize(strokeTransform);
+
+        Matrix subPixel = linear.clone();
+        subPixel.translateX = subPixelX;
+        subPixel.translateY = subPixelY;
+        ExportRectangle rect = subPixel.transform(new ExportRectangle(boundRect));
+        if (filters != null) {
+            for (FILTER filter : filters) {
+                double dx = filter.getDeltaX() * unzoom * unitDivisor;
+                double dy = filter.getDeltaY() * unzoom * unitDivisor;
+                rect.xMin -= dx;
+                rect.xMax += dx;
+                rect.yMin -= dy;
+                rect.yMax += dy;
+            }
+        }
+        int originX = (int) Math.floor(rect.xMin / unitDivisor) - 1;
+        int originY = (int) Math.floor(rect.yMin / unitDivisor) - 1;
+        long width = (long) Math.ceil(rect.xMax / unitDivisor) - originX + 1;
+        long height = (long) Math.ceil(rect.yMax / unitDivisor) - originY + 1;
+        long maxArea = Math.max((long) image.getWidth() * image.getHeight(), 256 * 256);
+        if (width <= 0 || height <= 0 || width * height > maxArea) {
+            return null;
+        }
+
+        drawMatrix.translate(pixelX + originX, pixelY + originY);
+
+        int characterId = drawable.getCharacterId();
+        RasterCacheKey key = new RasterCacheKey(characterId, ratio, linear, subPixelX, subPixelY, strokeLinear, clrTrans, filters, unzoom, scaleStrokes, drawMode, Configuration.scanlineShapeRasterizer.get());
+        SerializableImage raster = renderContext.rasterCache.get(key);
+        if (raster != null) {
+            return raster;
+        }
+
+        // New image is transparent, fillTransparent would leave Src composite in its graphics
+        raster = new SerializableImage((int) width, (int) height, SerializableImage.TYPE_INT_ARGB_PRE);
+        Matrix m = subPixel.clone();
+        m.translateX -= originX * unitDivisor;
+        m.translateY -= originY * unitDivisor;
+        ExportRectangle rasterViewRect = new ExportRectangle(0, 0, width * unitDivisor / unzoom, height * unitDivisor / unzoom);
+        drawable.toImage(dframe, time, ratio, renderContext, raster, raster, false, m, strokeLinear, m, m, clrTrans, unzoom, true, rasterViewRect, scaleStrokes, drawMode, blendMode);
+        if (filters != null) {
+            for (FILTER filter : filters) {
+                raster = filter.apply(raster, unzoom);
+            }
+        }
+
+        Set<Object> owners = new HashSet<>();
+        Set<Integer> needed = new HashSet<>();
+        drawable.getNeededCharactersDeep(needed);
+        owners.addAll(needed);
+        owners.add(characterId);
+        renderContext.rasterCache.put(key, raster, owners);
+        return raster;
+    }
+
     private void drawDrawable(Matrix strokeTransform, DepthState layer, Matrix layerMatrix, Graphics2D g, ColorTransform colorTransForm, int blendMode, int parentBlendMode, List<Clip> clips, Matrix transformation, boolean isClip, int clipDepth, Matrix absMat, int time, int ratio, RenderContext renderContext, SerializableImage image, SerializableImage fullImage, DrawableTag drawable, List<FILTER> filters, double unzoom, ColorTransform clrTrans, boolean sameImage, ExportRectangle viewRect, Matrix fullTransformation, boolean scaleStrokes, int drawMode) {
         Matrix drawMatrix = new Matrix();
         int drawableFrameCount = drawable.getNumFrames();
@@ -754,6 +913,16 @@ public class Timeline {
         drawMatrix.translateY /= SWF.unitDivisor;
 
         boolean canUseSameImage = true;
+        SerializableImage pooledImage = null;
+        if (img == null && canUseRasterCache(drawable, renderContext, isClip, clipDepth, blendMode, clrTrans)) {
+            int rasterRatio = drawable instanceof MorphShapeTag ? ratio : 0;
+            Matrix rasterDrawMatrix = new Matrix();
+            img = getCachedRaster(drawable, mat, strokeTransform, rasterDrawMatrix, boundRect, image, dframe, time, rasterRatio, renderContext, clrTrans, filters, unzoom, scaleStrokes, drawMode, layer.blendMode);
+            if (img != null) {
+                drawMatrix = rasterDrawMatrix;
+                canUseSameImage = false;
+            }
+        }
         if (img == null) {
             int newWidth = (int) (rect.getWidth() / SWF.unitDivisor);
             int newHeight = (int) (rect.getHeight() / SWF.unitDivisor);
@@ -817,7 +986,12 @@ public class Timeline {
                     };
                 }*/
             } else {
-                img = new SerializableImage(newWidth, newHeight, SerializableImage.TYPE_INT_ARGB_PRE);
+                if (renderContext.renderSession != null) {
+                    img = renderContext.renderSession.acquire(newWidth, newHeight);
+                    pooledImage = img;
+                } else {
+                    img = new SerializableImage(newWidth, newHeight, SerializableImage.TYPE_INT_ARGB_PRE);
+                }
                 img.fillTransparent();
             }
 
@@ -857,8 +1031,11 @@ public class Timeline {
             }
 
             if (!sameImage && cacheAsBitmap && renderContext.displayObjectCache != null) {
+                if (img == pooledImage) {
+                    pooledImage = null;
+                }
                 renderContext.clearPlaceObjectCache(layer.placeObjectTag);
-                renderContext.displayObjectCache.put(new DisplayObjectCacheKey(layer.placeObjectTag, unzoom, viewRect), img);
+                renderContext.displayObjectCache.put(new DisplayObjectCacheKey(layer.placeObjectTag, unzoom, viewRect), img, Collections.singleton(layer.placeObjectTag));
             }
         }
 
@@ -917,7 +1094,14 @@ public class Timeline {
             }
         }
         if (clipDepth > -1) {
-            BufferedImage mask = new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
+            SerializableImage pooledMask = null;
+            BufferedImage mask;
+            if (renderContext.renderSession != null && image.getType() == SerializableImage.TYPE_INT_ARGB_PRE) {
+                pooledMask = renderContext.renderSession.acquire(image.getWidth(), image.getHeight());
+                mask = pooledMask.getBufferedImage();
+            } else {
+                mask = new BufferedImage(image.getWidth(), image.getHeight(), image.getType());
+            }
             Graphics2D gm = (Graphics2D) mask.getGraphics();
             gm.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
             gm.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
@@ -929,6 +1113,9 @@ public class Timeline {
             gm.drawImage(img.getBufferedImage(), 0, 0, null);
             Clip clip = new Clip(Helper.imageToShape(mask), clipDepth); // Maybe we can get current outline instead converting from image (?)
             clips.add(clip);
+            if (pooledMask != null) {
+                renderContext.renderSession.release(pooledMask);
+            }
         } else {
             if (renderContext.cursorPosition != null) {
                 int dx = (int) (viewRect.xMin * unzoom);
@@ -968,8 +1155,40 @@ public class Timeline {
                 ((BlendModeSetable) g).setBlendMode(0);
             }
         }
+        if (pooledImage != null) {
+            renderContext.renderSession.release(pooledImage);
+        }
     }
 
+    /**
+     * Renders frame to image.
+     *
+     * Frames of the same timeline can be rendered on multiple threads at once
+     * when each of them uses own RenderContext and target images. Rendering
+     * only reads the frames and their depth states. Lazily created state is
+     * guarded: timeline initialization, sprite and button timelines and
+     * parsing of shapes are synchronized, images are decoded by
+     * ImageTag.getImageCached and the shared caches of SWF are synchronized.
+     * The SWF must not be modified while rendering.
+     *
+     * @param frame Frame
+     * @param time Time
+     * @param renderContext Render context
+     * @param image Target image
+     * @param fullImage Full image
+     * @param isClip Is clip
+     * @param transformation Transformation
+     * @param strokeTransformation Stroke transformation
+     * @param absoluteTransformation Absolute transformation
+     * @param colorTransform Color transform
+     * @param unzoom Unzoom
+     * @param sameImage Same image
+     * @param viewRect View rectangle
+     * @param fullTransformation Full transformation
+     * @param scaleStrokes Scale strokes
+     * @param drawMode Draw mode
+     * @param blendMode Blend mode
+     */
     public void toImage(int frame, int time, RenderContext renderContext, SerializableImage image, SerializableImage fullImage, boolean isClip, Matrix transformation, Matrix strokeTransformation, Matrix absoluteTransformation, ColorTransform colorTransform, double unzoom, boolean sameImage, ExportRectangle viewRect, Matrix fullTransformation, boolean scaleStrokes, int drawMode, int blendMode) {
         //double unzoom = SWF.unitDivisor;
         //unzoom = SWF.unitDivisor;
@@ -28,13 +28,33 @@ import java.util.List;
  */
 public class TweenDetector {
 
+    /**
+     * Detects tween ranges of a run of depth states with the same character.
+     *
+     * Only the first two states are compared, so callers do not need to keep
+     * the states of the whole run.
+     *
+     * @param first State in the first frame of the run
+     * @param second State in the second frame of the run, null when the run
+     * has a single frame
+     * @param length Number of frames in the run
+     * @return Detected ranges
+     */
+    public static List<TweenRange> detectRanges(DepthState first, DepthState second, int length) {
+        if (length < 2 || second == null || first.placeObjectTag == second.placeObjectTag) {
+            return new ArrayList<>();
+        }
+
+        return new ArrayList<>(Arrays.asList(new TweenRange(0, length - 1)));
+    }
+
     public static List<TweenRange> detectRanges(List<DepthState> depthStates) {
         //TODO: make this working :-(
-        if (depthStates.size() < 2 || depthStates.get(0).placeObjectTag == depthStates.get(1).placeObjectTag) {
+        if (depthStates.size() < 2) {
             return new ArrayList<>();
         }
 
-        return new ArrayList<>(Arrays.asList(new TweenRange(0, depthStates.size() - 1)));
+        return detectRanges(depthStates.get(0), depthStates.get(1), depthStates.size());
         /*
 
          List<TweenRange> ret = new ArrayList<>();
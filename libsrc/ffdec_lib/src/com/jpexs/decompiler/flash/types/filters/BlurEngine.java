@@ -0,0 +1,325 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash.types.filters;
+
+import com.jpexs.helpers.SharedExecutor;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Box blur of ARGB pixels used by filters.
+ *
+ * Rows of the horizontal pass and bands of columns of the vertical pass are
+ * blurred in parallel on SharedExecutor pool. Premultiplication is done
+ * together with the first horizontal pass and unpremultiplication together
+ * with the last vertical pass. The vertical pass walks the image row by row
+ * over a band of columns, so it reads the pixels sequentially. Temporary
+ * arrays are kept per thread and reused by next blurs.
+ *
+ * @author JPEXS
+ */
+public class BlurEngine {
+
+    /**
+     * Number of columns blurred together in vertical pass
+     */
+    private static final int BAND_WIDTH = 64;
+
+    /**
+     * Minimum number of pixels processed by one parallel task
+     */
+    private static final int MIN_TASK_PIXELS = 16384;
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private static class Scratch {
+
+        private int[] pixels = new int[0];
+
+        private int[] sums = new int[0];
+
+        private int[] getPixels(int size) {
+            if (pixels.length < size) {
+                pixels = new int[size];
+            }
+            return pixels;
+        }
+
+        private int[] getSums(int size) {
+            if (sums.length < size) {
+                sums = new int[size];
+            }
+            return sums;
+        }
+    }
+
+    private interface RangeAction {
+
+        public void run(int from, int to);
+    }
+
+    private static class RangeTask extends RecursiveAction {
+
+        private final int from;
+
+        private final int to;
+
+        private final int chunk;
+
+        private final RangeAction action;
+
+        public RangeTask(int from, int to, int chunk, RangeAction action) {
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= chunk) {
+                action.run(from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RangeTask(from, middle, chunk, action), new RangeTask(middle, to, chunk, action));
+        }
+    }
+
+    private BlurEngine() {
+    }
+
+    private static void forRange(int count, int chunk, boolean parallel, RangeAction action) {
+        if (!parallel || count <= chunk) {
+            action.run(0, count);
+            return;
+        }
+        ForkJoinPool pool = SharedExecutor.getPool();
+        RangeTask task = new RangeTask(0, count, chunk, action);
+        Thread thread = Thread.currentThread();
+        if (thread instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) thread).getPool() == pool) {
+            task.invoke();
+        } else {
+            pool.invoke(task);
+        }
+    }
+
+    /**
+     * Blurs pixels in place.
+     *
+     * @param pixels Not premultiplied ARGB pixels
+     * @param width Width
+     * @param height Height
+     * @param hRadius Horizontal blur size, box radius is half of it
+     * @param vRadius Vertical blur size, box radius is half of it
+     * @param iterations Number of passes
+     * @param mask Only pixels with nonzero alpha in mask are used and
+     * written, null for all pixels
+     * @param parallel Process parts of the image on multiple threads
+     */
+    public static void blur(int[] pixels, int width, int height, int hRadius, int vRadius, int iterations, int[] mask, boolean parallel) {
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+        if (iterations <= 0) {
+            forRange(height, Math.max(1, MIN_TASK_PIXELS / width), parallel, (int from, int to) -> {
+                premultiply(pixels, from * width, to * width);
+                unpremultiply(pixels, from * width, to * width);
+            });
+            return;
+        }
+
+        int rowChunk = Math.max(1, MIN_TASK_PIXELS / width);
+        int bandCount = (width + BAND_WIDTH - 1) / BAND_WIDTH;
+        int bandChunk = Math.max(1, MIN_TASK_PIXELS / (BAND_WIDTH * height));
+        for (int i = 0; i < iterations; i++) {
+            boolean first = i == 0;
+            boolean last = i == iterations - 1;
+            forRange(height, rowChunk, parallel, (int from, int to) -> {
+                int[] newColors = SCRATCH.get().getPixels(width);
+                for (int y = from; y < to; y++) {
+                    if (first) {
+                        premultiply(pixels, y * width, (y + 1) * width);
+                    }
+                    boxBlurRow(pixels, mask, newColors, width, y, hRadius / 2);
+                }
+            });
+            forRange(bandCount, bandChunk, parallel, (int from, int to) -> {
+                Scratch scratch = SCRATCH.get();
+                for (int band = from; band < to; band++) {
+                    int x0 = band * BAND_WIDTH;
+                    int x1 = Math.min(width, x0 + BAND_WIDTH);
+                    boxBlurColumns(pixels, mask, scratch, width, height, x0, x1, vRadius / 2);
+                    if (last) {
+                        for (int y = 0; y < height; y++) {
+                            unpremultiply(pixels, y * width + x0, y * width + x1);
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    private static void boxBlurRow(int[] pixels, int[] mask, int[] newColors, int w, int y, int radius) {
+        int index = y * w;
+        int hits = 0;
+        int r = 0;
+        int g = 0;
+        int b = 0;
+        int a = 0;
+        for (int x = -radius; x < w; x++) {
+            int oldPixel = x - radius - 1;
+            if (oldPixel >= 0) {
+                if (mask == null || (mask[index + oldPixel] >>> 24) > 0) {
+                    int color = pixels[index + oldPixel];
+                    a -= color >>> 24;
+                    r -= (color >> 16) & 0xff;
+                    g -= (color >> 8) & 0xff;
+                    b -= color & 0xff;
+                    hits--;
+                }
+            }
+
+            int newPixel = x + radius;
+            if (newPixel < w) {
+                if (mask == null || (mask[index + newPixel] >>> 24) > 0) {
+                    int color = pixels[index + newPixel];
+                    a += color >>> 24;
+                    r += (color >> 16) & 0xff;
+                    g += (color >> 8) & 0xff;
+                    b += color & 0xff;
+                    hits++;
+                }
+            }
+
+            if (x >= 0) {
+                if (hits == 0 || (mask != null && (mask[index + x] >>> 24) == 0)) {
+                    newColors[x] = 0;
+                } else {
+                    newColors[x] = ((a / hits) << 24) | ((r / hits) << 16) | ((g / hits) << 8) | (b / hits);
+                }
+            }
+        }
+
+        System.arraycopy(newColors, 0, pixels, index, w);
+    }
+
+    private static void boxBlurColumns(int[] pixels, int[] mask, Scratch scratch, int w, int h, int x0, int x1, int radius) {
+        int bw = x1 - x0;
+        int[] newColors = scratch.getPixels(bw * h);
+        int[] sums = scratch.getSums(bw * 5);
+        Arrays.fill(sums, 0, bw * 5, 0);
+        int aOffset = 0;
+        int rOffset = bw;
+        int gOffset = 2 * bw;
+        int bOffset = 3 * bw;
+        int hitsOffset = 4 * bw;
+
+        for (int y = -radius; y < h; y++) {
+            int oldRow = y - radius - 1;
+            if (oldRow >= 0) {
+                int rowIndex = oldRow * w + x0;
+                for (int i = 0; i < bw; i++) {
+                    if (mask == null || (mask[rowIndex + i] >>> 24) > 0) {
+                        int color = pixels[rowIndex + i];
+                        sums[aOffset + i] -= color >>> 24;
+                        sums[rOffset + i] -= (color >> 16) & 0xff;
+                        sums[gOffset + i] -= (color >> 8) & 0xff;
+                        sums[bOffset + i] -= color & 0xff;
+                        sums[hitsOffset + i]--;
+                    }
+                }
+            }
+
+            int newRow = y + radius;
+            if (newRow < h) {
+                int rowIndex = newRow * w + x0;
+                for (int i = 0; i < bw; i++) {
+                    if (mask == null || (mask[rowIndex + i] >>> 24) > 0) {
+                        int color = pixels[rowIndex + i];
+                        sums[aOffset + i] += color >>> 24;
+                        sums[rOffset + i] += (color >> 16) & 0xff;
+                        sums[gOffset + i] += (color >> 8) & 0xff;
+                        sums[bOffset + i] += color & 0xff;
+                        sums[hitsOffset + i]++;
+                    }
+                }
+            }
+
+            if (y >= 0) {
+                int rowIndex = y * w + x0;
+                int newIndex = y * bw;
+                for (int i = 0; i < bw; i++) {
+                    int hits = sums[hitsOffset + i];
+                    if (hits == 0 || (mask != null && (mask[rowIndex + i] >>> 24) == 0)) {
+                        newColors[newIndex + i] = 0;
+                    } else {
+                        newColors[newIndex + i] = ((sums[aOffset + i] / hits) << 24) | ((sums[rOffset + i] / hits) << 16) | ((sums[gOffset + i] / hits) << 8) | (sums[bOffset + i] / hits);
+                    }
+                }
+            }
+        }
+
+        for (int y = 0; y < h; y++) {
+            System.arraycopy(newColors, y * bw, pixels, y * w + x0, bw);
+        }
+    }
+
+    private static void premultiply(int[] p, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int rgb = p[i];
+            int a = rgb >> 24 & 0xff;
+            int r = rgb >> 16 & 0xff;
+            int g = rgb >> 8 & 0xff;
+            int b = rgb & 0xff;
+            float f = (float) a * 0.003921569F;
+            r = (int) ((float) r * f);
+            g = (int) ((float) g * f);
+            b = (int) ((float) b * f);
+            p[i] = a << 24 | r << 16 | g << 8 | b;
+        }
+    }
+
+    private static void unpremultiply(int[] p, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int rgb = p[i];
+            int a = rgb >> 24 & 0xff;
+            if (a == 0 || a == 255) {
+                continue;
+            }
+            int r = rgb >> 16 & 0xff;
+            int g = rgb >> 8 & 0xff;
+            int b = rgb & 0xff;
+            float f = 255F / (float) a;
+            r = (int) ((float) r * f);
+            g = (int) ((float) g * f);
+            b = (int) ((float) b * f);
+            if (r > 255) {
+                r = 255;
+            }
+            if (g > 255) {
+                g = 255;
+            }
+            if (b > 255) {
+                b = 255;
+            }
+            p[i] = a << 24 | r << 16 | g << 8 | b;
+        }
+    }
+}
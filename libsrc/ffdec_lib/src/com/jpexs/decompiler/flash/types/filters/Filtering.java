@@ -16,6 +16,7 @@
  */
 package com.jpexs.decompiler.flash.types.filters;
 
+import com.jpexs.decompiler.flash.configuration.Configuration;
 import com.jpexs.decompiler.flash.types.RGBA;
 import com.jpexs.helpers.SerializableImage;
 import java.awt.AlphaComposite;
@@ -56,177 +57,6 @@ public class Filtering {
 
     private static final Rectangle RECTANGLE_512_1 = new Rectangle(512, 1);
 
-    private static void boxBlurHorizontal(int[] pixels, int[] mask, int[] newColors, int w, int h, int radius) {
-        int index = 0;
-
-        for (int y = 0; y < h; y++) {
-            int hits = 0;
-            long r = 0;
-            long g = 0;
-            long b = 0;
-            long a = 0;
-            for (int x = -radius; x < w; x++) {
-                int oldPixel = x - radius - 1;
-                if (oldPixel >= 0) {
-
-                    int color = pixels[index + oldPixel];
-                    if ((mask == null) || (((mask[index + oldPixel] >> 24) & 0xff) > 0)) {
-                        if (color != 0) {
-                            a -= (color >> 24) & 0xff;
-                            r -= ((color >> 16) & 0xff);
-                            g -= ((color >> 8) & 0xff);
-                            b -= ((color) & 0xff);
-
-                        }
-                        hits--;
-                    }
-                }
-
-                int newPixel = x + radius;
-                if (newPixel < w) {
-                    int color = pixels[index + newPixel];
-                    if ((mask == null) || (((mask[index + newPixel] >> 24) & 0xff) > 0)) {
-                        if (color != 0) {
-                            a += (color >> 24) & 0xff;
-                            r += ((color >> 16) & 0xff);
-                            g += ((color >> 8) & 0xff);
-                            b += ((color) & 0xff);
-                        }
-                        hits++;
-                    }
-                }
-
-                if (x >= 0) {
-                    if ((mask == null) || (((mask[index + x] >> 24) & 0xff) > 0)) {
-                        if (hits == 0) {
-                            newColors[x] = 0;
-                        } else {
-                            newColors[x] = RGBA.toInt((int) (r / hits) & 0xff, (int) (g / hits) & 0xff, (int) (b / hits) & 0xff, (int) (a / hits));
-                        }
-                    } else {
-                        newColors[x] = 0;
-                    }
-                }
-            }
-
-            System.arraycopy(newColors, 0, pixels, index, w);
-
-            index += w;
-        }
-    }
-
-    private static void boxBlurVertical(int[] pixels, int[] mask, int[] newColors, int w, int h, int radius) {
-        int oldPixelOffset = -(radius + 1) * w;
-        int newPixelOffset = (radius) * w;
-
-        for (int x = 0; x < w; x++) {
-            int hits = 0;
-            long r = 0;
-            long g = 0;
-            long b = 0;
-            long a = 0;
-            int index = -radius * w + x;
-            for (int y = -radius; y < h; y++) {
-                int oldPixel = y - radius - 1;
-                if (oldPixel >= 0) {
-                    int color = pixels[index + oldPixelOffset];
-                    if ((mask == null) || (((mask[index + oldPixelOffset] >> 24) & 0xff) > 0)) {
-                        if (color != 0) {
-                            a -= (color >> 24) & 0xff;
-                            r -= ((color >> 16) & 0xff);
-                            g -= ((color >> 8) & 0xff);
-                            b -= ((color) & 0xff);
-
-                        }
-                        hits--;
-                    }
-
-                }
-
-                int newPixel = y + radius;
-                if (newPixel < h) {
-                    if ((mask == null) || (((mask[index + newPixelOffset] >> 24) & 0xff) > 0)) {
-                        int color = pixels[index + newPixelOffset];
-                        if (color != 0) {
-                            a += (color >> 24) & 0xff;
-                            r += ((color >> 16) & 0xff);
-                            g += ((color >> 8) & 0xff);
-                            b += ((color) & 0xff);
-
-                        }
-                        hits++;
-                    }
-                }
-
-                if (y >= 0) {
-                    if ((mask == null) || (((mask[y * w + x] >> 24) & 0xff) > 0)) {
-                        if (hits == 0) {
-                            newColors[y] = 0;
-                        } else {
-                            newColors[y] = RGBA.toInt((int) (r / hits) & 0xff, (int) (g / hits) & 0xff, (int) (b / hits) & 0xff, (int) (a / hits) & 0xff);
-                        }
-                    } else {
-                        newColors[y] = 0;
-                    }
-                }
-
-                index += w;
-            }
-
-            for (int y = 0; y < h; y++) {
-                pixels[y * w + x] = newColors[y];
-            }
-        }
-    }
-
-    private static void premultiply(int[] p) {
-        int length = p.length;
-        int offset = 0;
-        length += offset;
-        for (int i = offset; i < length; i++) {
-            int rgb = p[i];
-            int a = rgb >> 24 & 0xff;
-            int r = rgb >> 16 & 0xff;
-            int g = rgb >> 8 & 0xff;
-            int b = rgb & 0xff;
-            float f = (float) a * 0.003921569F;
-            r = (int) ((float) r * f);
-            g = (int) ((float) g * f);
-            b = (int) ((float) b * f);
-            p[i] = a << 24 | r << 16 | g << 8 | b;
-        }
-    }
-
-    private static void unpremultiply(int[] p) {
-        int length = p.length;
-        int offset = 0;
-        length += offset;
-        for (int i = offset; i < length; i++) {
-            int rgb = p[i];
-            int a = rgb >> 24 & 0xff;
-            int r = rgb >> 16 & 0xff;
-            int g = rgb >> 8 & 0xff;
-            int b = rgb & 0xff;
-            if (a == 0 || a == 255) {
-                continue;
-            }
-            float f = 255F / (float) a;
-            r = (int) ((float) r * f);
-            g = (int) ((float) g * f);
-            b = (int) ((float) b * f);
-            if (r > 255) {
-                r = 255;
-            }
-            if (g > 255) {
-                g = 255;
-            }
-            if (b > 255) {
-                b = 255;
-            }
-            p[i] = a << 24 | r << 16 | g << 8 | b;
-        }
-    }
-
     public static SerializableImage blur(SerializableImage src, int hRadius, int vRadius, int iterations) {
         int[] pixels = (int[]) getRGB(src.getBufferedImage()).clone();
         int width = src.getWidth();
@@ -238,16 +68,7 @@ public class Filtering {
     }
 
     private static void blur(int[] src, int width, int height, int hRadius, int vRadius, int iterations, int[] mask) {
-        int[] inPixels = src;
-        premultiply(inPixels);
-
-        int[] tempRow = new int[width];
-        int[] tempColumn = new int[height];
-        for (int i = 0; i < iterations; i++) {
-            boxBlurHorizontal(inPixels, mask, tempRow, width, height, hRadius / 2);
-            boxBlurVertical(inPixels, mask, tempColumn, width, height, vRadius / 2);
-        }
-        unpremultiply(inPixels);
+        BlurEngine.blur(src, width, height, hRadius, vRadius, iterations, mask, Configuration.parallelSpeedUp.get());
     }
 
     public static SerializableImage bevel(SerializableImage src, int blurX, int blurY, float strength, int type, int highlightColor, int shadowColor, float angle, float distance, boolean knockout, int iterations) {
@@ -92,6 +92,21 @@ public class Graph {
     private boolean debugPrintGraph = false;
     protected boolean debugDoNotProcess = false;
 
+    /**
+     * Index of blocks created by last makeGraph call
+     */
+    private GraphPartIndex partIndex;
+
+    /**
+     * Blocks list indexed by partIndex
+     */
+    private List<GraphPart> indexedBlocks;
+
+    /**
+     * Set of parts reachable from heads, all of them are in partIndex
+     */
+    private Set<GraphPart> indexedPartSet;
+
     private static final Logger logger = Logger.getLogger(Graph.class.getName());
 
     public GraphSource getGraphCode() {
@@ -115,7 +130,7 @@ public class Graph {
         heads = makeGraph(code, new ArrayList<>(), exceptions);
         int time = 1;
         List<GraphPart> ordered = new ArrayList<>();
-        List<GraphPart> visited = new ArrayList<>();
+        Set<GraphPart> visited = new HashSet<>();
         for (GraphPart head : heads) {
             time = head.setTime(time, ordered, visited);
             head.setNumblocks(1);
@@ -609,6 +624,9 @@ public class Graph {
         for (GraphPart head : heads) {
             populateParts(head, allParts);
         }
+        if (partIndex != null) {
+            indexedPartSet = allParts;
+        }
         afterPopupateAllParts(allParts);
         if (debugPrintAllParts) {
             System.err.println("parts:");
@@ -2952,6 +2970,11 @@ public class Graph {
             alternateEntries.add(ex.target);
         }
         HashMap<Integer, List<Integer>> refs = code.visitCode(alternateEntries);
+        partIndex = new GraphPartIndex(code.size());
+        indexedBlocks = allBlocks;
+        for (GraphPart p : allBlocks) {
+            partIndex.add(p);
+        }
         List<GraphPart> ret = new ArrayList<>();
         boolean[] visited = new boolean[code.size()];
         ret.add(makeGraph(null, new GraphPath(), code, 0, 0, allBlocks, refs, visited));
@@ -2968,10 +2991,43 @@ public class Graph {
         return ip;
     }
 
+    private void addBlock(List<GraphPart> allBlocks, GraphPart part) {
+        allBlocks.add(part);
+        if (allBlocks == indexedBlocks) {
+            partIndex.add(part);
+        }
+    }
+
+    /**
+     * Checks whether the part index describes exactly the given blocks list.
+     *
+     * @param allParts Parts
+     * @return True when index is complete for the list
+     */
+    private boolean isIndexOf(Collection<? extends GraphPart> allParts) {
+        return partIndex != null && allParts == indexedBlocks && partIndex.size() == allParts.size();
+    }
+
     public GraphPart searchPart(int ip, Collection<? extends GraphPart> allParts) {
         if (ip < 0) {
             return null;
         }
+        if (partIndex != null) {
+            GraphPart p = partIndex.get(ip);
+            if (isIndexOf(allParts)) {
+                return p;
+            }
+            if (allParts instanceof Set) {
+                //parts can be modified after the graph was made (see translatePart),
+                //so verify the indexed part before using it
+                if (p != null && ip >= p.start && ip <= p.end && allParts.contains(p)) {
+                    return p;
+                }
+                if (p == null && allParts == indexedPartSet) {
+                    return null;
+                }
+            }
+        }
         for (GraphPart p : allParts) {
             if (ip >= p.start && ip <= p.end) {
                 return p;
@@ -2980,6 +3036,15 @@ public class Graph {
         return null;
     }
 
+    private GraphPart searchPartByStart(int ip, List<GraphPart> allBlocks) {
+        for (GraphPart p : allBlocks) {
+            if (p.start == ip) {
+                return p;
+            }
+        }
+        return null;
+    }
+
     private GraphPart makeGraph(GraphPart parent, GraphPath path, GraphSource code, int startip, int lastIp, List<GraphPart> allBlocks, HashMap<Integer, List<Integer>> refs, boolean[] visited) throws InterruptedException {
         if (Thread.currentThread().isInterrupted()) {
             throw new InterruptedException();
@@ -3010,7 +3075,7 @@ public class Graph {
                 part.end = lastIp;
                 GraphPart found = searchPart(ip, allBlocks);
 
-                allBlocks.add(part);
+                addBlock(allBlocks, part);
 
                 if (found != null) {
                     part.nextParts.add(found);
@@ -3042,7 +3107,7 @@ public class Graph {
 
                     if ((ins instanceof ActionDefineFunction) || (ins instanceof ActionDefineFunction2)) {
                         part.end = lastIp;
-                        allBlocks.add(part);
+                        addBlock(allBlocks, part);
                         GraphPart nextGraphPart = new GraphPart(ip, -1);
                         nextGraphPart.path = path;
                         part.nextParts.add(nextGraphPart);
@@ -3054,18 +3119,18 @@ public class Graph {
                 continue;
             } else if (ins.isExit()) {
                 part.end = ip;
-                allBlocks.add(part);
+                addBlock(allBlocks, part);
                 break;
             } else if (ins.isJump()) {
                 part.end = ip;
-                allBlocks.add(part);
+                addBlock(allBlocks, part);
                 ip = ins.getBranches(code).get(0);
                 makeGraph(part, path, code, ip, lastIp, allBlocks, refs, visited);
                 break;
             } else if (ins.isBranch()) {
                 part.end = ip;
 
-                allBlocks.add(part);
+                addBlock(allBlocks, part);
                 List<Integer> branches = ins.getBranches(code);
                 for (int i = 0; i < branches.size(); i++) {
                     makeGraph(part, path.sub(i, ip), code, branches.get(i), ip, allBlocks, refs, visited);
@@ -3077,22 +3142,21 @@ public class Graph {
         if ((part.end == -1) && (ip >= code.size())) {
             if (part.start == code.size()) {
                 part.end = code.size();
-                allBlocks.add(part);
+                addBlock(allBlocks, part);
             } else {
                 part.end = ip - 1;
-                for (GraphPart p : allBlocks) {
-                    if (p.start == ip) {
-                        p.refs.add(part);
-                        part.nextParts.add(p);
-                        allBlocks.add(part);
-                        return ret;
-                    }
+                GraphPart p = isIndexOf(allBlocks) ? partIndex.getByStart(ip) : searchPartByStart(ip, allBlocks);
+                if (p != null) {
+                    p.refs.add(part);
+                    part.nextParts.add(p);
+                    addBlock(allBlocks, part);
+                    return ret;
                 }
                 GraphPart gp = new GraphPart(ip, ip);
-                allBlocks.add(gp);
+                addBlock(allBlocks, gp);
                 gp.refs.add(part);
                 part.nextParts.add(gp);
-                allBlocks.add(part);
+                addBlock(allBlocks, part);
             }
         }
         return ret;
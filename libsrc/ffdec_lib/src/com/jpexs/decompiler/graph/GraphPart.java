@@ -21,6 +21,7 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  *
@@ -108,7 +109,7 @@ public class GraphPart implements Serializable {
      currentStack.falseStack = stack;
      }
      }*/
-    public int setTime(int time, List<GraphPart> ordered, List<GraphPart> visited) {
+    public int setTime(int time, List<GraphPart> ordered, Set<GraphPart> visited) {
         if (visited.contains(this)) {
             return time;
         }
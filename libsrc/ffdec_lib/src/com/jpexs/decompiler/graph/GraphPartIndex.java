@@ -0,0 +1,107 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.graph;
+
+import java.util.Arrays;
+
+/**
+ * Index of GraphParts by instruction position.
+ *
+ * Every ip maps to the first added part which covers it, so lookups return
+ * the same part as a linear scan over parts in the order they were added.
+ *
+ * @author JPEXS
+ */
+public class GraphPartIndex {
+
+    private GraphPart[] partsByIp;
+
+    private GraphPart[] partsByStart;
+
+    private int size = 0;
+
+    public GraphPartIndex(int codeSize) {
+        int capacity = Math.max(codeSize + 1, 16);
+        partsByIp = new GraphPart[capacity];
+        partsByStart = new GraphPart[capacity];
+    }
+
+    private void ensureCapacity(int ip) {
+        if (ip < partsByIp.length) {
+            return;
+        }
+        int newCapacity = Math.max(ip + 1, partsByIp.length * 2);
+        partsByIp = Arrays.copyOf(partsByIp, newCapacity);
+        partsByStart = Arrays.copyOf(partsByStart, newCapacity);
+    }
+
+    /**
+     * Adds part to the index. Part start and end must not change afterwards.
+     *
+     * @param part Part
+     */
+    public void add(GraphPart part) {
+        size++;
+        if (part.start < 0) {
+            return;
+        }
+        ensureCapacity(Math.max(part.start, part.end));
+        if (partsByStart[part.start] == null) {
+            partsByStart[part.start] = part;
+        }
+        for (int ip = part.start; ip <= part.end; ip++) {
+            if (partsByIp[ip] == null) {
+                partsByIp[ip] = part;
+            }
+        }
+    }
+
+    /**
+     * Gets part which contains the ip.
+     *
+     * @param ip Instruction position
+     * @return Part or null when no indexed part contains the ip
+     */
+    public GraphPart get(int ip) {
+        if (ip < 0 || ip >= partsByIp.length) {
+            return null;
+        }
+        return partsByIp[ip];
+    }
+
+    /**
+     * Gets part which starts at the ip.
+     *
+     * @param ip Instruction position
+     * @return Part or null when no indexed part starts at the ip
+     */
+    public GraphPart getByStart(int ip) {
+        if (ip < 0 || ip >= partsByStart.length) {
+            return null;
+        }
+        return partsByStart[ip];
+    }
+
+    /**
+     * Gets number of parts added to the index.
+     *
+     * @return Number of added parts
+     */
+    public int size() {
+        return size;
+    }
+}
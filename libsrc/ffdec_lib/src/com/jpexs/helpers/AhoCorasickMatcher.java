@@ -0,0 +1,179 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.helpers;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * Aho-Corasick automaton for searching multiple byte sequences in one pass.
+ *
+ * The automaton is a complete transition table, so each input byte costs one
+ * array lookup regardless of the number of patterns.
+ *
+ * @author JPEXS
+ */
+public class AhoCorasickMatcher {
+
+    private static final int[] NO_MATCHES = new int[0];
+
+    private final int[][] transitions;
+
+    private final int[][] matches;
+
+    private final int[] patternLengths;
+
+    private final int maxPatternLength;
+
+    /**
+     * Constructs matcher. Empty patterns are ignored.
+     *
+     * @param patterns Byte sequences to search
+     */
+    public AhoCorasickMatcher(byte[]... patterns) {
+        patternLengths = new int[patterns.length];
+        List<int[]> trie = new ArrayList<>();
+        List<int[]> output = new ArrayList<>();
+        trie.add(newState());
+        output.add(NO_MATCHES);
+        int maxLength = 0;
+        for (int p = 0; p < patterns.length; p++) {
+            byte[] pattern = patterns[p];
+            patternLengths[p] = pattern.length;
+            if (pattern.length == 0) {
+                continue;
+            }
+            maxLength = Math.max(maxLength, pattern.length);
+            int state = 0;
+            for (byte b : pattern) {
+                int c = b & 0xff;
+                if (trie.get(state)[c] == -1) {
+                    trie.get(state)[c] = trie.size();
+                    trie.add(newState());
+                    output.add(NO_MATCHES);
+                }
+                state = trie.get(state)[c];
+            }
+            output.set(state, append(output.get(state), p));
+        }
+        maxPatternLength = maxLength;
+
+        int stateCount = trie.size();
+        transitions = trie.toArray(new int[stateCount][]);
+        matches = output.toArray(new int[stateCount][]);
+        int[] fail = new int[stateCount];
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < 256; c++) {
+            int child = transitions[0][c];
+            if (child == -1) {
+                transitions[0][c] = 0;
+            } else {
+                fail[child] = 0;
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.remove();
+            matches[state] = concat(matches[state], matches[fail[state]]);
+            for (int c = 0; c < 256; c++) {
+                int child = transitions[state][c];
+                if (child == -1) {
+                    transitions[state][c] = transitions[fail[state]][c];
+                } else {
+                    fail[child] = transitions[fail[state]][c];
+                    queue.add(child);
+                }
+            }
+        }
+    }
+
+    private static int[] newState() {
+        int[] state = new int[256];
+        Arrays.fill(state, -1);
+        return state;
+    }
+
+    private static int[] append(int[] array, int value) {
+        int[] ret = Arrays.copyOf(array, array.length + 1);
+        ret[array.length] = value;
+        return ret;
+    }
+
+    private static int[] concat(int[] a, int[] b) {
+        if (b.length == 0) {
+            return a;
+        }
+        if (a.length == 0) {
+            return b;
+        }
+        int[] ret = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, ret, a.length, b.length);
+        return ret;
+    }
+
+    /**
+     * Gets initial state.
+     *
+     * @return Initial state
+     */
+    public int getInitialState() {
+        return 0;
+    }
+
+    /**
+     * Gets state after reading a byte.
+     *
+     * @param state Current state
+     * @param b Byte
+     * @return Next state
+     */
+    public int next(int state, byte b) {
+        return transitions[state][b & 0xff];
+    }
+
+    /**
+     * Gets indices of patterns which end at the last read byte.
+     *
+     * @param state State
+     * @return Pattern indices, empty array when there is no match
+     */
+    public int[] getMatches(int state) {
+        return matches[state];
+    }
+
+    /**
+     * Gets length of pattern.
+     *
+     * @param pattern Pattern index
+     * @return Length
+     */
+    public int getPatternLength(int pattern) {
+        return patternLengths[pattern];
+    }
+
+    /**
+     * Gets length of the longest pattern.
+     *
+     * @return Length
+     */
+    public int getMaxPatternLength() {
+        return maxPatternLength;
+    }
+}
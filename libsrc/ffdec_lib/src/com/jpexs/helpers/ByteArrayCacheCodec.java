@@ -0,0 +1,45 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.helpers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Stores byte arrays as they are.
+ *
+ * @author JPEXS
+ */
+public class ByteArrayCacheCodec implements CacheCodec<byte[]> {
+
+    @Override
+    public boolean canEncode(Object value) {
+        return value instanceof byte[];
+    }
+
+    @Override
+    public ByteBuffer encode(byte[] value) throws IOException {
+        return ByteBuffer.wrap(value);
+    }
+
+    @Override
+    public byte[] decode(ByteBuffer data) throws IOException {
+        byte[] ret = new byte[data.remaining()];
+        data.get(ret);
+        return ret;
+    }
+}
@@ -17,17 +17,21 @@
 package com.jpexs.helpers;
 
 import com.jpexs.decompiler.flash.configuration.Configuration;
+import com.jpexs.decompiler.flash.configuration.ConfigurationItem;
 import com.jpexs.decompiler.flash.helpers.Freed;
 import java.io.File;
 import java.io.IOException;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -41,6 +45,10 @@ public class Cache<K, V> implements Freed {
 
     private Map<K, V> cache;
     private Map<K, Long> lastAccessed;
+    private Map<K, Long> sizes;
+    private long totalSize = 0;
+    private Map<Object, Set<K>> keysByOwner;
+    private Map<K, Set<Object>> ownersByKey;
 
     private static final List<WeakReference<Cache>> instances = new ArrayList<>();
 
@@ -55,6 +63,20 @@ public class Cache<K, V> implements Freed {
     private final String name;
     
     private final boolean temporary;
+
+    private final ConfigurationItem<Integer> maxSize;
+
+    private final CacheStatistics statistics;
+
+    private static final Map<String, CacheStatistics> statisticsByName = new ConcurrentHashMap<>();
+
+    /**
+     * Cache which exceeds its maximum size is shrunk to this ratio of the
+     * maximum size, so the eviction does not run on every put.
+     */
+    private static final double EVICTION_TARGET_RATIO = 0.9;
+
+    private static final long DEFAULT_ITEM_SIZE = 64;
             
     private static final long CLEAN_INTERVAL = 5 * 1000; //5 seconds
     
@@ -78,6 +100,24 @@ public class Cache<K, V> implements Freed {
     }
 
     public static <K, V> Cache<K, V> getInstance(boolean weak, boolean memoryOnly, String name, boolean temporary) {
+        return getInstance(weak, memoryOnly, name, temporary, null);
+    }
+
+    /**
+     * Gets cache instance.
+     *
+     * @param <K> Key type
+     * @param <V> Value type
+     * @param weak Use weak keys
+     * @param memoryOnly Do not use file storage
+     * @param name Name of the cache
+     * @param temporary Remove items which were not accessed for
+     * Configuration.maxCachedTime
+     * @param maxSize Maximum estimated size of the items in megabytes, least
+     * recently used items are removed above it. Null or 0 means unlimited.
+     * @return Cache
+     */
+    public static <K, V> Cache<K, V> getInstance(boolean weak, boolean memoryOnly, String name, boolean temporary, ConfigurationItem<Integer> maxSize) {
         if (oldCleaner == null) {
             oldCleaner = new Thread("Old cache cleaner") {
                 @Override
@@ -95,7 +135,7 @@ public class Cache<K, V> implements Freed {
             oldCleaner.setPriority(Thread.MIN_PRIORITY);
             oldCleaner.start();
         }
-        Cache<K, V> instance = new Cache<>(weak, memoryOnly, name, temporary);
+        Cache<K, V> instance = new Cache<>(weak, memoryOnly, name, temporary, maxSize);
         instances.add(new WeakReference<>(instance));
         return instance;
     }
@@ -141,7 +181,7 @@ public class Cache<K, V> implements Freed {
         Map<K, V> newCache = null;
         if (thisStorageType == STORAGE_FILES) {
             try {
-                newCache = new FileHashMap<>(File.createTempFile("ffdec_cache_" + name + "_", ".tmp"));
+                newCache = new MappedFileMap<>(File.createTempFile("ffdec_cache_" + name + "_", ".tmp"));
             } catch (IOException ex) {
                 thisStorageType = STORAGE_MEMORY;
             }
@@ -157,14 +197,20 @@ public class Cache<K, V> implements Freed {
             ((Freed) this.cache).free();
         }
         this.lastAccessed = new WeakHashMap<>();
+        this.sizes = new WeakHashMap<>();
+        this.totalSize = 0;
+        this.keysByOwner = new HashMap<>();
+        this.ownersByKey = new HashMap<>();
         this.cache = newCache;
     }
 
-    private Cache(boolean weak, boolean memoryOnly, String name, boolean temporary) {
+    private Cache(boolean weak, boolean memoryOnly, String name, boolean temporary, ConfigurationItem<Integer> maxSize) {
         this.weak = weak;
         this.name = name;
         this.memoryOnly = memoryOnly;
         this.temporary = temporary;
+        this.maxSize = maxSize;
+        this.statistics = statisticsByName.computeIfAbsent(name, CacheStatistics::new);
         initCache();
     }
 
@@ -172,6 +218,8 @@ public class Cache<K, V> implements Freed {
         boolean ret = cache.containsKey(key);
         if (ret) {
             lastAccessed.put(key, System.currentTimeMillis());
+        } else {
+            statistics.miss();
         }
         return ret;
     }
@@ -179,25 +227,217 @@ public class Cache<K, V> implements Freed {
     public synchronized void clear() {
         cache.clear();
         lastAccessed.clear();
+        sizes.clear();
+        totalSize = 0;
+        keysByOwner.clear();
+        ownersByKey.clear();
     }
 
     public synchronized void remove(K key) {
-        if (cache.containsKey(key)) {
-            cache.remove(key);
-        }
+        // Removing through keySet does not read the value back from file storage
+        cache.keySet().remove(key);
         if (lastAccessed.containsKey(key)) {
             lastAccessed.remove(key);
         }
+        Long size = sizes.remove(key);
+        if (size != null) {
+            totalSize -= size;
+        }
+        Set<Object> owners = ownersByKey.remove(key);
+        if (owners != null) {
+            for (Object owner : owners) {
+                Set<K> keys = keysByOwner.get(owner);
+                if (keys != null) {
+                    keys.remove(key);
+                    if (keys.isEmpty()) {
+                        keysByOwner.remove(owner);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all the items which were put with the owner.
+     *
+     * @param owner Owner
+     * @return Number of removed items
+     */
+    public synchronized int removeOwner(Object owner) {
+        Set<K> keys = keysByOwner.get(owner);
+        if (keys == null) {
+            return 0;
+        }
+        List<K> toRemove = new ArrayList<>(keys);
+        for (K key : toRemove) {
+            remove(key);
+        }
+        return toRemove.size();
     }
 
     public synchronized V get(K key) {
-        lastAccessed.put(key, System.currentTimeMillis());
-        return cache.get(key);
+        V ret = cache.get(key);
+        if (ret != null || cache.containsKey(key)) {
+            lastAccessed.put(key, System.currentTimeMillis());
+            statistics.hit();
+        } else {
+            statistics.miss();
+        }
+        return ret;
+    }
+
+    /**
+     * Puts the item to the cache and indexes it by its owners, so it can be
+     * removed by removeOwner without scanning all the keys. The index keeps
+     * strong references to the key.
+     *
+     * @param key Key
+     * @param value Value
+     * @param owners Owners, for example character ids the value was created
+     * from
+     */
+    public synchronized void put(K key, V value, Collection<?> owners) {
+        Set<Object> oldOwners = ownersByKey.get(key);
+        if (oldOwners != null) {
+            remove(key);
+        }
+        if (!owners.isEmpty()) {
+            Set<Object> keyOwners = new HashSet<>(owners);
+            ownersByKey.put(key, keyOwners);
+            for (Object owner : keyOwners) {
+                Set<K> keys = keysByOwner.get(owner);
+                if (keys == null) {
+                    keys = new HashSet<>();
+                    keysByOwner.put(owner, keys);
+                }
+                keys.add(key);
+            }
+        }
+        put(key, value);
     }
 
     public synchronized void put(K key, V value) {
         cache.put(key, value);
         lastAccessed.put(key, System.currentTimeMillis());
+        long size = estimateSize(value);
+        Long oldSize = sizes.put(key, size);
+        totalSize += size - (oldSize == null ? 0 : oldSize);
+        long limit = getMaxSizeBytes();
+        if (limit > 0 && totalSize > limit) {
+            evict(limit);
+        }
+    }
+
+    private long getMaxSizeBytes() {
+        if (maxSize == null) {
+            return 0;
+        }
+        Integer mb = maxSize.get();
+        if (mb == null || mb <= 0) {
+            return 0;
+        }
+        return mb * 1024L * 1024L;
+    }
+
+    /**
+     * Removes least recently used items until the size fits into the target
+     * ratio of the limit.
+     *
+     * @param limit Maximum size in bytes
+     */
+    private void evict(long limit) {
+        // Items of weak caches may have been collected without being removed
+        totalSize = 0;
+        for (Long size : sizes.values()) {
+            totalSize += size;
+        }
+        if (totalSize <= limit) {
+            return;
+        }
+
+        long target = (long) (limit * EVICTION_TARGET_RATIO);
+        TreeMap<Long, List<K>> keysByTime = new TreeMap<>();
+        for (K key : sizes.keySet()) {
+            Long time = lastAccessed.get(key);
+            if (time == null) {
+                time = 0L;
+            }
+            List<K> keys = keysByTime.get(time);
+            if (keys == null) {
+                keys = new ArrayList<>();
+                keysByTime.put(time, keys);
+            }
+            keys.add(key);
+        }
+
+        int num = 0;
+        loop:
+        for (List<K> keys : keysByTime.values()) {
+            for (K key : keys) {
+                if (totalSize <= target) {
+                    break loop;
+                }
+                remove(key);
+                num++;
+            }
+        }
+        statistics.evicted(num);
+    }
+
+    /**
+     * Estimates memory used by the value.
+     *
+     * @param value Value
+     * @return Size in bytes
+     */
+    private static long estimateSize(Object value) {
+        if (value instanceof SerializableImage) {
+            SerializableImage image = (SerializableImage) value;
+            return (long) image.getWidth() * image.getHeight() * 4;
+        }
+        if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        }
+        if (value instanceof String) {
+            return ((String) value).length() * 2L;
+        }
+        if (value instanceof SizeEstimable) {
+            return ((SizeEstimable) value).getEstimatedSize();
+        }
+        return DEFAULT_ITEM_SIZE;
+    }
+
+    /**
+     * Gets estimated size of the cached items.
+     *
+     * @return Size in bytes
+     */
+    public synchronized long getSize() {
+        return totalSize;
+    }
+
+    public CacheStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Gets statistics of the name, so other stores can count their hits and
+     * misses among the caches.
+     *
+     * @param name Name
+     * @return Statistics
+     */
+    static CacheStatistics getStatisticsByName(String name) {
+        return statisticsByName.computeIfAbsent(name, CacheStatistics::new);
+    }
+
+    /**
+     * Gets statistics of all the cache names.
+     *
+     * @return Statistics
+     */
+    public static Collection<CacheStatistics> getAllStatistics() {
+        return new ArrayList<>(statisticsByName.values());
     }
 
     @Override
@@ -233,21 +473,18 @@ public class Cache<K, V> implements Freed {
                 num++;
             }
         }        
+        statistics.evicted(num);
         return num;
     }
     
     private static void clearAllOld() {
-        int num = 0;
         for (WeakReference<Cache> cw : instances) {
             Cache c = cw.get();
             if (c != null) {
                 if (c.temporary) {
-                    num += c.clearOld();
+                    c.clearOld();
                 }
             }
         }        
-        if (num > 0) {
-            System.gc();
-        }
     }
 }
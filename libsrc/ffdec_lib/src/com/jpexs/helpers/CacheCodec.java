@@ -0,0 +1,55 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.helpers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Binary encoding of values stored in MappedFileMap.
+ *
+ * @author JPEXS
+ * @param <V> Value type
+ */
+public interface CacheCodec<V> {
+
+    /**
+     * Checks whether the value can be encoded by this codec.
+     *
+     * @param value Value
+     * @return True when the value is supported
+     */
+    public boolean canEncode(Object value);
+
+    /**
+     * Encodes the value.
+     *
+     * @param value Value
+     * @return Buffer with encoded data between its position and limit
+     * @throws IOException On error
+     */
+    public ByteBuffer encode(V value) throws IOException;
+
+    /**
+     * Decodes the value. The data buffer is valid only during this call.
+     *
+     * @param data Encoded data between position and limit
+     * @return Value
+     * @throws IOException On error
+     */
+    public V decode(ByteBuffer data) throws IOException;
+}
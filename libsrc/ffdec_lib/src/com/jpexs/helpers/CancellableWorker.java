@@ -123,12 +123,14 @@ public abstract class CancellableWorker<T> implements RunnableFuture<T> {
 
     @Override
     public final T get() throws InterruptedException, ExecutionException {
+        SharedExecutor.awaitDone(future);
         return future.get();
     }
 
     @Override
     public final T get(long timeout, TimeUnit unit) throws InterruptedException,
             ExecutionException, TimeoutException {
+        SharedExecutor.awaitDone(future, timeout, unit);
         return future.get(timeout, unit);
     }
 
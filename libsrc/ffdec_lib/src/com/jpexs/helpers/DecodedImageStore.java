@@ -0,0 +1,297 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.helpers;
+
+import com.jpexs.decompiler.flash.configuration.Configuration;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Store of decoded images which keeps the pixels outside of the java heap in
+ * direct buffers. The owner of the image keeps only the handle, the image is
+ * copied back to the heap when it is needed and softly referenced, so it is
+ * reused until the heap runs low. Least recently used pixels are removed above
+ * Configuration.maxDecodedImageStoreSize, the owner decodes the image again
+ * then. Images larger than the maximum size are kept on the heap.
+ *
+ * @author JPEXS
+ */
+public class DecodedImageStore {
+
+    private static final DecodedImageStore instance = new DecodedImageStore();
+
+    /**
+     * Store which exceeds its maximum size is shrunk to this ratio of the
+     * maximum size, so the eviction does not run on every put.
+     */
+    private static final double EVICTION_TARGET_RATIO = 0.9;
+
+    private final Map<Handle, Boolean> handles = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long totalSize = 0;
+
+    private final CacheStatistics statistics = Cache.getStatisticsByName("decodedImage");
+
+    /**
+     * Handle of the stored image.
+     */
+    public static final class Handle {
+
+        private final int width;
+
+        private final int height;
+
+        private final int imageType;
+
+        private ByteBuffer pixels;
+
+        /**
+         * Image which does not fit into the store, it is kept on the heap.
+         */
+        private SerializableImage heapImage;
+
+        /**
+         * Last image copied to the heap, it is reused until the heap runs
+         * low.
+         */
+        private SoftReference<SerializableImage> recent;
+
+        private Handle(int width, int height, int imageType, SerializableImage image) {
+            this.width = width;
+            this.height = height;
+            this.imageType = imageType;
+            this.recent = new SoftReference<>(image);
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        private long getSize() {
+            return (long) width * height * 4;
+        }
+    }
+
+    public static DecodedImageStore getInstance() {
+        return instance;
+    }
+
+    /**
+     * Stores pixels of the image.
+     *
+     * @param image Decoded image
+     * @return Handle of the image
+     */
+    public Handle put(SerializableImage image) {
+        BufferedImage bufferedImage = image.getBufferedImage();
+        int width = bufferedImage.getWidth();
+        int height = bufferedImage.getHeight();
+        int imageType = getStoredType(bufferedImage);
+        Handle handle = new Handle(width, height, imageType, image);
+        long size = handle.getSize();
+        long limit = getMaxSizeBytes();
+        if (size == 0 || (limit > 0 && size > limit)) {
+            handle.heapImage = image;
+            return handle;
+        }
+
+        int[] data;
+        if (imageType == bufferedImage.getType() && hasPackedData(bufferedImage.getRaster())) {
+            data = ((DataBufferInt) bufferedImage.getRaster().getDataBuffer()).getData();
+        } else {
+            data = bufferedImage.getRGB(0, 0, width, height, null, 0, width);
+        }
+
+        ByteBuffer pixels;
+        synchronized (this) {
+            if (limit > 0 && totalSize + size > limit) {
+                evict(Math.max(0, (long) (limit * EVICTION_TARGET_RATIO) - size));
+            }
+            pixels = allocate(size);
+            if (pixels == null) {
+                handle.heapImage = image;
+                return handle;
+            }
+            handle.pixels = pixels;
+            handles.put(handle, Boolean.TRUE);
+            totalSize += size;
+        }
+        pixels.duplicate().order(ByteOrder.nativeOrder()).asIntBuffer().put(data, 0, width * height);
+        return handle;
+    }
+
+    /**
+     * Gets the image of the handle.
+     *
+     * @param handle Handle
+     * @return Image or null when the pixels were removed from the store
+     */
+    public SerializableImage get(Handle handle) {
+        ByteBuffer pixels;
+        synchronized (this) {
+            SerializableImage image = handle.heapImage;
+            if (image == null) {
+                image = handle.recent.get();
+            }
+            pixels = handle.pixels;
+            if (pixels != null) {
+                handles.get(handle);
+            }
+            if (image != null) {
+                statistics.hit();
+                return image;
+            }
+            if (pixels == null) {
+                statistics.miss();
+                return null;
+            }
+        }
+
+        statistics.hit();
+        SerializableImage image = new SerializableImage(handle.width, handle.height, handle.imageType);
+        int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        pixels.duplicate().order(ByteOrder.nativeOrder()).asIntBuffer().get(data);
+        synchronized (this) {
+            SerializableImage recent = handle.recent.get();
+            if (recent != null) {
+                return recent;
+            }
+            handle.recent = new SoftReference<>(image);
+        }
+        return image;
+    }
+
+    /**
+     * Removes pixels of the handle from the store.
+     *
+     * @param handle Handle
+     */
+    public synchronized void remove(Handle handle) {
+        if (handles.remove(handle) != null) {
+            totalSize -= handle.getSize();
+        }
+        handle.pixels = null;
+        handle.heapImage = null;
+        handle.recent.clear();
+    }
+
+    public synchronized void clear() {
+        for (Handle handle : handles.keySet()) {
+            handle.pixels = null;
+            handle.recent.clear();
+        }
+        handles.clear();
+        totalSize = 0;
+    }
+
+    /**
+     * Gets size of the stored pixels.
+     *
+     * @return Size in bytes
+     */
+    public synchronized long getSize() {
+        return totalSize;
+    }
+
+    public synchronized int getCount() {
+        return handles.size();
+    }
+
+    public CacheStatistics getStatistics() {
+        return statistics;
+    }
+
+    private ByteBuffer allocate(long size) {
+        if (size > Integer.MAX_VALUE) {
+            return null;
+        }
+        try {
+            return ByteBuffer.allocateDirect((int) size);
+        } catch (OutOfMemoryError ex) {
+            // Direct memory limit of the JVM is lower than the store size
+            evict(0);
+        }
+        try {
+            return ByteBuffer.allocateDirect((int) size);
+        } catch (OutOfMemoryError ex) {
+            return null;
+        }
+    }
+
+    private void evict(long target) {
+        List<Handle> toRemove = new ArrayList<>();
+        Iterator<Handle> iterator = handles.keySet().iterator();
+        while (totalSize > target && iterator.hasNext()) {
+            Handle handle = iterator.next();
+            iterator.remove();
+            totalSize -= handle.getSize();
+            toRemove.add(handle);
+        }
+        for (Handle handle : toRemove) {
+            handle.pixels = null;
+        }
+        statistics.evicted(toRemove.size());
+    }
+
+    private static long getMaxSizeBytes() {
+        if (Configuration.maxDecodedImageStoreSize == null) {
+            return 0;
+        }
+        Integer mb = Configuration.maxDecodedImageStoreSize.get();
+        if (mb == null || mb <= 0) {
+            return 0;
+        }
+        return mb * 1024L * 1024L;
+    }
+
+    private static int getStoredType(BufferedImage image) {
+        switch (image.getType()) {
+            case BufferedImage.TYPE_INT_ARGB:
+            case BufferedImage.TYPE_INT_ARGB_PRE:
+            case BufferedImage.TYPE_INT_RGB:
+                if (hasPackedData(image.getRaster())) {
+                    return image.getType();
+                }
+                break;
+        }
+        return image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+    }
+
+    private static boolean hasPackedData(WritableRaster raster) {
+        if (!(raster.getDataBuffer() instanceof DataBufferInt) || !(raster.getSampleModel() instanceof SinglePixelPackedSampleModel)) {
+            return false;
+        }
+        SinglePixelPackedSampleModel sampleModel = (SinglePixelPackedSampleModel) raster.getSampleModel();
+        return raster.getParent() == null
+                && raster.getDataBuffer().getOffset() == 0
+                && sampleModel.getScanlineStride() == raster.getWidth();
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.helpers;
+
+import com.jpexs.helpers.streams.SeekableInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Input stream of a file region which is memory mapped on read.
+ *
+ * Only a window of the region around the read position is mapped at once, so
+ * many streams of a large file do not take much address space. The window is
+ * moved when reading outside of it.
+ *
+ * @author JPEXS
+ */
+public class MappedFileInputStream extends SeekableInputStream {
+
+    private static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private final File file;
+
+    private final long startPos;
+
+    private final long maxLength;
+
+    private final int windowSize;
+
+    private ByteBuffer window;
+
+    private long windowStart;
+
+    private long pos;
+
+    public MappedFileInputStream(File file, long startPos) throws IOException {
+        this(file, startPos, Long.MAX_VALUE);
+    }
+
+    public MappedFileInputStream(File file, long startPos, long maxLength) throws IOException {
+        this(file, startPos, maxLength, DEFAULT_WINDOW_SIZE);
+    }
+
+    MappedFileInputStream(File file, long startPos, long maxLength, int windowSize) throws IOException {
+        long fileLength = file.length();
+        if (startPos < 0 || startPos > fileLength) {
+            throw new IOException("Invalid startPos");
+        }
+        this.file = file;
+        this.startPos = startPos;
+        this.maxLength = Math.min(maxLength, fileLength - startPos);
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Gets mapped window which contains current position.
+     *
+     * @return Window, its position 0 is at windowStart
+     * @throws IOException On error
+     */
+    private ByteBuffer getWindow() throws IOException {
+        if (window == null || pos < windowStart || pos >= windowStart + window.limit()) {
+            window = null;
+            long newStart = pos - pos % windowSize;
+            long size = Math.min(windowSize, maxLength - newStart);
+            // the mapping stays valid after the channel is closed
+            try ( RandomAccessFile raf = new RandomAccessFile(file, "r");  FileChannel channel = raf.getChannel()) {
+                window = channel.map(FileChannel.MapMode.READ_ONLY, startPos + newStart, size);
+            }
+            windowStart = newStart;
+        }
+        return window;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long getStartPos() {
+        return startPos;
+    }
+
+    public long getPos() {
+        return pos;
+    }
+
+    /**
+     * Gets length of the mapped region.
+     *
+     * @return Length in bytes
+     */
+    public long getLength() {
+        return maxLength;
+    }
+
+    @Override
+    public void seek(long pos) throws IOException {
+        if (pos < 0) {
+            throw new IOException("Seek to negative position");
+        }
+        this.pos = pos;
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        seek(0);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (pos < maxLength) {
+            int ret = getWindow().get((int) (pos - windowStart)) & 0xff;
+            pos++;
+            return ret;
+        }
+
+        return -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (pos >= maxLength) {
+            return -1;
+        }
+        int toRead = (int) Math.min(maxLength - pos, len);
+        int read = 0;
+        while (read < toRead) {
+            ByteBuffer buf = getWindow().duplicate();
+            buf.position((int) (pos - windowStart));
+            int count = Math.min(buf.remaining(), toRead - read);
+            buf.get(bytes, off + read, count);
+            pos += count;
+            read += count;
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long toSkip = Math.max(0, Math.min(n, maxLength - pos));
+        pos += toSkip;
+        return toSkip;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, maxLength - pos));
+    }
+}
@@ -0,0 +1,483 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.helpers;
+
+import com.jpexs.decompiler.flash.helpers.Freed;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Map which stores its values in a memory mapped file. Keys are kept in
+ * memory.
+ *
+ * Values are encoded by the first registered codec which accepts them, java
+ * serialization is used when there is no such codec. Codecs of types outside
+ * of this package are registered by the types themselves. Space of removed and
+ * shrunk values is reused by later values.
+ *
+ * @author JPEXS
+ * @param <K>
+ * @param <V>
+ */
+public class MappedFileMap<K, V> extends AbstractMap<K, V> implements Freed {
+
+    private static final Logger logger = Logger.getLogger(MappedFileMap.class.getName());
+
+    private static final int SEGMENT_SIZE = 1 << 25; // 32 MB
+
+    private static final int ALIGNMENT = 8;
+
+    private static final List<CacheCodec<?>> codecs = new ArrayList<>();
+
+    private static final CacheCodec<Object> fallbackCodec = new SerializableCacheCodec();
+
+    static {
+        codecs.add(new SerializableImageCacheCodec());
+        codecs.add(new ByteArrayCacheCodec());
+    }
+
+    /**
+     * Registers codec. Codecs registered later have lower priority.
+     *
+     * @param codec Codec
+     */
+    public static synchronized void registerCodec(CacheCodec<?> codec) {
+        codecs.add(codec);
+    }
+
+    private static synchronized int findCodec(Object value) {
+        for (int i = 0; i < codecs.size(); i++) {
+            if (codecs.get(i).canEncode(value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static synchronized <V> CacheCodec<V> getCodec(int index) {
+        if (index == -1) {
+            return (CacheCodec<V>) fallbackCodec;
+        }
+        return (CacheCodec<V>) codecs.get(index);
+    }
+
+    private static class StoredValue {
+
+        public long offset;
+
+        public int length;
+
+        public int capacity;
+
+        public int codec;
+    }
+
+    private static class Gap implements Comparable<Gap> {
+
+        public final long offset;
+
+        public final long length;
+
+        public Gap(long offset, long length) {
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int compareTo(Gap o) {
+            int ret = Long.compare(length, o.length);
+            if (ret != 0) {
+                return ret;
+            }
+            return Long.compare(offset, o.offset);
+        }
+    }
+
+    private final Map<K, StoredValue> values = new HashMap<>();
+
+    private final TreeMap<Long, Gap> gapsByOffset = new TreeMap<>();
+
+    private final TreeSet<Gap> gapsBySize = new TreeSet<>();
+
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+
+    private long fileLen = 0;
+
+    private final RandomAccessFile file;
+
+    private final FileChannel channel;
+
+    private final File fileName;
+
+    private boolean deleted = false;
+
+    public MappedFileMap(File file) throws IOException {
+        this.file = new RandomAccessFile(file, "rw");
+        this.file.setLength(0);
+        this.channel = this.file.getChannel();
+        this.fileName = file;
+        file.deleteOnExit();
+    }
+
+    private void checkDeleted() {
+        if (deleted) {
+            throw new NullPointerException();
+        }
+    }
+
+    private MappedByteBuffer getSegment(int index) throws IOException {
+        while (segments.size() <= index) {
+            segments.add(channel.map(FileChannel.MapMode.READ_WRITE, (long) segments.size() * SEGMENT_SIZE, SEGMENT_SIZE));
+        }
+        return segments.get(index);
+    }
+
+    private void write(long pos, ByteBuffer data) throws IOException {
+        ByteBuffer src = data.duplicate();
+        while (src.hasRemaining()) {
+            int segmentOffset = (int) (pos % SEGMENT_SIZE);
+            int len = Math.min(src.remaining(), SEGMENT_SIZE - segmentOffset);
+            ByteBuffer dst = getSegment((int) (pos / SEGMENT_SIZE)).duplicate();
+            dst.position(segmentOffset);
+            ByteBuffer part = src.duplicate();
+            part.limit(part.position() + len);
+            dst.put(part);
+            src.position(src.position() + len);
+            pos += len;
+        }
+    }
+
+    private ByteBuffer read(long pos, int length) throws IOException {
+        int segmentOffset = (int) (pos % SEGMENT_SIZE);
+        if (segmentOffset + length <= SEGMENT_SIZE) {
+            ByteBuffer ret = getSegment((int) (pos / SEGMENT_SIZE)).duplicate();
+            ret.position(segmentOffset);
+            ret.limit(segmentOffset + length);
+            return ret.slice();
+        }
+
+        ByteBuffer ret = ByteBuffer.allocate(length);
+        while (ret.hasRemaining()) {
+            segmentOffset = (int) (pos % SEGMENT_SIZE);
+            int len = Math.min(ret.remaining(), SEGMENT_SIZE - segmentOffset);
+            ByteBuffer src = getSegment((int) (pos / SEGMENT_SIZE)).duplicate();
+            src.position(segmentOffset);
+            src.limit(segmentOffset + len);
+            ret.put(src);
+            pos += len;
+        }
+        ret.flip();
+        return ret;
+    }
+
+    private long allocate(int capacity) {
+        Gap gap = gapsBySize.ceiling(new Gap(Long.MIN_VALUE, capacity));
+        if (gap == null) {
+            long offset = fileLen;
+            fileLen += capacity;
+            return offset;
+        }
+        removeGap(gap);
+        if (gap.length > capacity) {
+            addGap(new Gap(gap.offset + capacity, gap.length - capacity));
+        }
+        return gap.offset;
+    }
+
+    private void release(long offset, long length) {
+        Entry<Long, Gap> before = gapsByOffset.floorEntry(offset);
+        if (before != null && before.getValue().offset + before.getValue().length == offset) {
+            removeGap(before.getValue());
+            offset = before.getValue().offset;
+            length += before.getValue().length;
+        }
+        Gap after = gapsByOffset.get(offset + length);
+        if (after != null) {
+            removeGap(after);
+            length += after.length;
+        }
+        if (offset + length == fileLen) {
+            fileLen = offset;
+        } else {
+            addGap(new Gap(offset, length));
+        }
+    }
+
+    private void addGap(Gap gap) {
+        gapsByOffset.put(gap.offset, gap);
+        gapsBySize.add(gap);
+    }
+
+    private void removeGap(Gap gap) {
+        gapsByOffset.remove(gap.offset);
+        gapsBySize.remove(gap);
+    }
+
+    private static int align(int length) {
+        int ret = (length + ALIGNMENT - 1) & ~(ALIGNMENT - 1);
+        return ret < length ? length : ret;
+    }
+
+    /**
+     * Gets size of the stored data including unused space.
+     *
+     * @return Size in bytes
+     */
+    public synchronized long getDataSize() {
+        return fileLen;
+    }
+
+    @Override
+    public synchronized boolean containsKey(Object key) {
+        checkDeleted();
+        return values.containsKey(key);
+    }
+
+    @Override
+    public synchronized V get(Object key) {
+        checkDeleted();
+        StoredValue stored = values.get(key);
+        if (stored == null) {
+            return null;
+        }
+        try {
+            CacheCodec<V> codec = getCodec(stored.codec);
+            return codec.decode(read(stored.offset, stored.length));
+        } catch (IOException ex) {
+            logger.log(Level.SEVERE, null, ex);
+            return null;
+        }
+    }
+
+    /**
+     * Stores the value.
+     *
+     * @param key Key
+     * @param value Value
+     * @return Always null, previous value is not decoded
+     */
+    @Override
+    public synchronized V put(K key, V value) {
+        checkDeleted();
+        int codecIndex = findCodec(value);
+        ByteBuffer data;
+        try {
+            CacheCodec<V> codec = getCodec(codecIndex);
+            data = codec.encode(value);
+        } catch (IOException ex) {
+            logger.log(Level.SEVERE, null, ex);
+            return null;
+        }
+
+        int length = data.remaining();
+        StoredValue stored = values.get(key);
+        if (stored != null) {
+            int capacity = align(length);
+            if (capacity > stored.capacity) {
+                release(stored.offset, stored.capacity);
+                stored = null;
+            } else if (capacity < stored.capacity) {
+                release(stored.offset + capacity, stored.capacity - capacity);
+                stored.capacity = capacity;
+            }
+        }
+        if (stored == null) {
+            stored = new StoredValue();
+            stored.capacity = align(length);
+            stored.offset = allocate(stored.capacity);
+        }
+        stored.length = length;
+        stored.codec = codecIndex;
+        try {
+            write(stored.offset, data);
+        } catch (IOException ex) {
+            logger.log(Level.SEVERE, null, ex);
+            values.remove(key);
+            release(stored.offset, stored.capacity);
+            return null;
+        }
+        values.put(key, stored);
+        return null;
+    }
+
+    @Override
+    public synchronized V remove(Object key) {
+        checkDeleted();
+        V value = get(key);
+        discard(key);
+        return value;
+    }
+
+    private void discard(Object key) {
+        StoredValue stored = values.remove(key);
+        if (stored != null) {
+            release(stored.offset, stored.capacity);
+        }
+    }
+
+    /**
+     * Gets the keys. Removing a key from the set does not decode its value.
+     *
+     * @return Set of keys
+     */
+    @Override
+    public Set<K> keySet() {
+        checkDeleted();
+        return new AbstractSet<K>() {
+            @Override
+            public Iterator<K> iterator() {
+                Iterator<K> it;
+                synchronized (MappedFileMap.this) {
+                    it = new ArrayList<>(values.keySet()).iterator();
+                }
+                return new Iterator<K>() {
+                    private K last;
+
+                    @Override
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    @Override
+                    public K next() {
+                        last = it.next();
+                        return last;
+                    }
+
+                    @Override
+                    public void remove() {
+                        synchronized (MappedFileMap.this) {
+                            discard(last);
+                        }
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+
+            @Override
+            public boolean remove(Object o) {
+                synchronized (MappedFileMap.this) {
+                    checkDeleted();
+                    if (!values.containsKey(o)) {
+                        return false;
+                    }
+                    discard(o);
+                    return true;
+                }
+            }
+
+            @Override
+            public int size() {
+                return MappedFileMap.this.size();
+            }
+        };
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        checkDeleted();
+        Set<Entry<K, V>> ret = new HashSet<>();
+        for (K key : keySet()) {
+            ret.add(new AbstractMap.SimpleEntry<K, V>(key, null) {
+                @Override
+                public V getValue() {
+                    return MappedFileMap.this.get(getKey());
+                }
+
+                @Override
+                public V setValue(V value) {
+                    return MappedFileMap.this.put(getKey(), value);
+                }
+            });
+        }
+        return ret;
+    }
+
+    /**
+     * Removes all the values. The file keeps its size and its space is reused.
+     */
+    @Override
+    public synchronized void clear() {
+        checkDeleted();
+        values.clear();
+        gapsByOffset.clear();
+        gapsBySize.clear();
+        fileLen = 0;
+    }
+
+    public synchronized void delete() {
+        checkDeleted();
+        values.clear();
+        gapsByOffset.clear();
+        gapsBySize.clear();
+        segments.clear();
+        try {
+            channel.close();
+            file.close();
+        } catch (IOException ex) {
+            logger.log(Level.SEVERE, null, ex);
+        }
+        // Fails on some systems while mapped buffers are not garbage collected, deleteOnExit is used then
+        fileName.delete();
+        deleted = true;
+    }
+
+    @Override
+    public synchronized boolean isFreeing() {
+        return !deleted;
+    }
+
+    @Override
+    public synchronized void free() {
+        if (!deleted) {
+            delete();
+        }
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    @Override
+    public synchronized int size() {
+        return values.size();
+    }
+}
@@ -57,6 +57,14 @@ public class MemoryInputStream extends SeekableInputStream {
         return buffer;
     }
 
+    public int getStartPos() {
+        return startPos;
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
     public long getPos() {
         return pos;
     }
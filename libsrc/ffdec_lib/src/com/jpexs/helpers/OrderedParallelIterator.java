@@ -0,0 +1,148 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.helpers;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Iterator which produces its items on SharedExecutor threads.
+ *
+ * At most lookAhead items are being produced or waiting for the consumer at
+ * once. Items are returned in the order of their indices regardless of the
+ * order in which they were finished.
+ *
+ * @author JPEXS
+ * @param <T> Item type
+ */
+public class OrderedParallelIterator<T> implements Iterator<T>, AutoCloseable {
+
+    /**
+     * Producer of an item
+     *
+     * @param <T> Item type
+     */
+    public interface Producer<T> {
+
+        public T produce(int index) throws Exception;
+    }
+
+    private final int count;
+
+    private final int lookAhead;
+
+    private final Producer<T> producer;
+
+    private final Object owner;
+
+    private final Deque<Future<T>> queue = new ArrayDeque<>();
+
+    private int submitted = 0;
+
+    private int consumed = 0;
+
+    private boolean closed = false;
+
+    /**
+     * Constructs iterator.
+     *
+     * @param count Number of items
+     * @param lookAhead Maximum number of items produced in advance
+     * @param owner Owner of the producing tasks in SharedExecutor, can be null
+     * @param producer Producer
+     */
+    public OrderedParallelIterator(int count, int lookAhead, Object owner, Producer<T> producer) {
+        this.count = count;
+        this.lookAhead = Math.max(1, lookAhead);
+        this.owner = owner;
+        this.producer = producer;
+    }
+
+    private void fill() {
+        while (!closed && submitted < count && queue.size() < lookAhead) {
+            final int index = submitted++;
+            queue.add(SharedExecutor.submit(owner, () -> producer.produce(index)));
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (Thread.currentThread().isInterrupted()) {
+            close();
+            return false;
+        }
+
+        return !closed && consumed < count;
+    }
+
+    /**
+     * Gets next item. Waits until it is produced.
+     *
+     * @return Item or null when there are no more items or the waiting thread
+     * was interrupted
+     */
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            return null;
+        }
+
+        fill();
+        Future<T> future = queue.poll();
+        consumed++;
+        fill();
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            close();
+            return null;
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        } finally {
+            if (consumed == count) {
+                close();
+            }
+        }
+    }
+
+    /**
+     * Cancels items which were not consumed yet.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+
+        closed = true;
+        for (Future<T> future : queue) {
+            future.cancel(true);
+        }
+        queue.clear();
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.helpers;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * ByteArrayOutputStream which can be presized to the expected length and
+ * which returns its buffer without copying when the expected length was
+ * reached exactly.
+ *
+ * @author JPEXS
+ */
+public class PresizedByteArrayOutputStream extends ByteArrayOutputStream {
+
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    public PresizedByteArrayOutputStream() {
+        super();
+    }
+
+    /**
+     * Grows the buffer to the expected total length. Lengths which cannot be
+     * stored in an array are ignored, the buffer then grows as usual.
+     *
+     * @param expectedLength Expected total number of bytes
+     */
+    public synchronized void expectLength(long expectedLength) {
+        if (expectedLength <= buf.length || expectedLength > MAX_ARRAY_SIZE) {
+            return;
+        }
+        buf = Arrays.copyOf(buf, (int) expectedLength);
+    }
+
+    /**
+     * Gets written bytes. The internal buffer is returned when it is full, so
+     * the stream must not be written after calling this method.
+     *
+     * @return Written bytes
+     */
+    public synchronized byte[] getBytes() {
+        if (count == buf.length) {
+            return buf;
+        }
+        return Arrays.copyOf(buf, count);
+    }
+}
@@ -102,6 +102,18 @@ public class SerializableImage implements Serializable {
         return img2;
     }
 
+    /**
+     * Disposes the shared graphics, so the next getGraphics call returns new
+     * graphics in the default state. Used when the image is reused for other
+     * drawing.
+     */
+    public void resetGraphics() {
+        if (graphics != null) {
+            graphics.dispose();
+            graphics = null;
+        }
+    }
+
     public void fillTransparent() {
         // Make all pixels transparent
         Graphics2D g = (Graphics2D) getGraphics();
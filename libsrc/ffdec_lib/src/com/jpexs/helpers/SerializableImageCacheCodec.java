@@ -0,0 +1,78 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.helpers;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Stores images with integer pixels as raw pixel data.
+ *
+ * @author JPEXS
+ */
+public class SerializableImageCacheCodec implements CacheCodec<SerializableImage> {
+
+    private static final int HEADER_SIZE = 12;
+
+    private static boolean isSupportedType(int type) {
+        return type == BufferedImage.TYPE_INT_ARGB_PRE
+                || type == BufferedImage.TYPE_INT_ARGB
+                || type == BufferedImage.TYPE_INT_RGB;
+    }
+
+    @Override
+    public boolean canEncode(Object value) {
+        if (!(value instanceof SerializableImage)) {
+            return false;
+        }
+        BufferedImage image = ((SerializableImage) value).getBufferedImage();
+        return image != null && isSupportedType(image.getType());
+    }
+
+    @Override
+    public ByteBuffer encode(SerializableImage value) throws IOException {
+        BufferedImage image = value.getBufferedImage();
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = (int[]) image.getRaster().getDataElements(0, 0, width, height, null);
+        ByteBuffer data = ByteBuffer.allocate(HEADER_SIZE + pixels.length * 4).order(ByteOrder.nativeOrder());
+        data.putInt(image.getType());
+        data.putInt(width);
+        data.putInt(height);
+        data.asIntBuffer().put(pixels);
+        data.rewind();
+        return data;
+    }
+
+    @Override
+    public SerializableImage decode(ByteBuffer data) throws IOException {
+        data.order(ByteOrder.nativeOrder());
+        int type = data.getInt();
+        int width = data.getInt();
+        int height = data.getInt();
+        if (!isSupportedType(type) || width < 0 || height < 0 || (long) width * height * 4 != data.remaining()) {
+            throw new IOException("Invalid image data");
+        }
+        int[] pixels = new int[width * height];
+        data.asIntBuffer().get(pixels);
+        BufferedImage image = new BufferedImage(width, height, type);
+        image.getRaster().setDataElements(0, 0, width, height, pixels);
+        return new SerializableImage(image);
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.helpers;
+
+import com.jpexs.decompiler.flash.configuration.Configuration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process wide work stealing pool for parallel reading, decompilation and
+ * export.
+ *
+ * Tasks can be grouped by an owner (usually an Openable) and cancelled
+ * together. Cancelled tasks are interrupted like tasks of a
+ * ThreadPoolExecutor. Waiting for a task from a pool thread lets the pool
+ * start a spare thread, so nested parallel tasks do not deadlock it.
+ *
+ * @author JPEXS
+ */
+public class SharedExecutor {
+
+    private static ForkJoinPool pool;
+
+    private static final AtomicInteger threadNumber = new AtomicInteger(1);
+
+    private static final Map<Object, Set<SharedTask<?>>> ownerTasks = new HashMap<>();
+
+    private SharedExecutor() {
+    }
+
+    /**
+     * Gets the pool. It is recreated when the configured thread count
+     * changed, tasks of the previous pool are finished.
+     *
+     * @return Pool
+     */
+    public static synchronized ForkJoinPool getPool() {
+        int threadCount = Configuration.getParallelThreadCount();
+        if (pool == null || pool.getParallelism() != threadCount) {
+            if (pool != null) {
+                pool.shutdown();
+            }
+            pool = new ForkJoinPool(threadCount, (ForkJoinPool p) -> {
+                ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+                t.setName("SharedExecutor-" + threadNumber.getAndIncrement());
+                t.setDaemon(true);
+                return t;
+            }, null, false);
+        }
+        return pool;
+    }
+
+    /**
+     * Submits task without owner.
+     *
+     * @param <T> Result type
+     * @param callable Task
+     * @return Future of the task
+     */
+    public static <T> Future<T> submit(Callable<T> callable) {
+        return submit(null, callable);
+    }
+
+    /**
+     * Submits task.
+     *
+     * @param <T> Result type
+     * @param owner Owner of the task, can be null
+     * @param callable Task
+     * @return Future of the task
+     */
+    public static <T> Future<T> submit(Object owner, Callable<T> callable) {
+        SharedTask<T> task = new SharedTask<>(owner, callable);
+        if (owner != null) {
+            synchronized (ownerTasks) {
+                Set<SharedTask<?>> tasks = ownerTasks.get(owner);
+                if (tasks == null) {
+                    tasks = new HashSet<>();
+                    ownerTasks.put(owner, tasks);
+                }
+                tasks.add(task);
+            }
+        }
+        getPool().execute(task);
+        return task;
+    }
+
+    /**
+     * Cancels all unfinished tasks of the owner.
+     *
+     * @param owner Owner
+     */
+    public static void cancel(Object owner) {
+        List<SharedTask<?>> tasks;
+        synchronized (ownerTasks) {
+            Set<SharedTask<?>> ownedTasks = ownerTasks.remove(owner);
+            if (ownedTasks == null) {
+                return;
+            }
+            tasks = new ArrayList<>(ownedTasks);
+        }
+        for (SharedTask<?> task : tasks) {
+            task.cancel(true);
+        }
+    }
+
+    /**
+     * Waits until all futures are done. When the timeout elapses or the
+     * waiting thread is interrupted, the unfinished futures are cancelled.
+     *
+     * @param futures Futures
+     * @param timeout Timeout
+     * @param unit Timeout unit
+     * @return True when all futures finished in time
+     * @throws InterruptedException On interrupt
+     */
+    public static boolean awaitAll(List<? extends Future<?>> futures, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        try {
+            for (Future<?> future : futures) {
+                try {
+                    future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (ExecutionException | CancellationException ex) {
+                    //handled by the caller when it gets the result
+                }
+            }
+            return true;
+        } catch (TimeoutException ex) {
+            cancelAll(futures);
+            return false;
+        } catch (InterruptedException ex) {
+            cancelAll(futures);
+            throw ex;
+        }
+    }
+
+    /**
+     * Waits until a future which does not come from this executor is done.
+     * When called from a pool thread, the pool can start a spare thread
+     * meanwhile, so waiting for work which needs the pool does not deadlock
+     * it.
+     *
+     * @param future Future
+     * @throws InterruptedException On interrupt
+     */
+    public static void awaitDone(Future<?> future) throws InterruptedException {
+        if (future.isDone() || future instanceof SharedTask || !(Thread.currentThread() instanceof ForkJoinWorkerThread)) {
+            return;
+        }
+        ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+            @Override
+            public boolean block() throws InterruptedException {
+                try {
+                    future.get();
+                } catch (ExecutionException | CancellationException ex) {
+                    //reported by the caller
+                }
+                return true;
+            }
+
+            @Override
+            public boolean isReleasable() {
+                return future.isDone();
+            }
+        });
+    }
+
+    /**
+     * Waits until a future which does not come from this executor is done or
+     * the timeout elapses. See {@link #awaitDone(Future)}.
+     *
+     * @param future Future
+     * @param timeout Timeout
+     * @param unit Timeout unit
+     * @throws InterruptedException On interrupt
+     */
+    public static void awaitDone(Future<?> future, long timeout, TimeUnit unit) throws InterruptedException {
+        if (future.isDone() || future instanceof SharedTask || !(Thread.currentThread() instanceof ForkJoinWorkerThread)) {
+            return;
+        }
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+            @Override
+            public boolean block() throws InterruptedException {
+                try {
+                    future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (ExecutionException | CancellationException | TimeoutException ex) {
+                    //reported by the caller
+                }
+                return true;
+            }
+
+            @Override
+            public boolean isReleasable() {
+                return future.isDone() || System.nanoTime() >= deadline;
+            }
+        });
+    }
+
+    private static void cancelAll(List<? extends Future<?>> futures) {
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    public static String getStat() {
+        ForkJoinPool p = getPool();
+        return "parallelism: " + p.getParallelism()
+                + " size: " + p.getPoolSize()
+                + " active: " + p.getActiveThreadCount()
+                + " running: " + p.getRunningThreadCount()
+                + " queued: " + p.getQueuedSubmissionCount()
+                + " steals: " + p.getStealCount();
+    }
+
+    private static class SharedTask<T> extends FutureTask<T> {
+
+        private final Object owner;
+
+        public SharedTask(Object owner, Callable<T> callable) {
+            super(callable);
+            this.owner = owner;
+        }
+
+        @Override
+        public void run() {
+            try {
+                super.run();
+            } finally {
+                //do not leak interrupt of cancelled task to next task of the thread
+                Thread.interrupted();
+            }
+        }
+
+        @Override
+        protected void done() {
+            if (owner == null) {
+                return;
+            }
+            synchronized (ownerTasks) {
+                Set<SharedTask<?>> tasks = ownerTasks.get(owner);
+                if (tasks != null) {
+                    tasks.remove(this);
+                    if (tasks.isEmpty()) {
+                        ownerTasks.remove(owner);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public T get() throws InterruptedException, ExecutionException {
+            if (!isDone() && Thread.currentThread() instanceof ForkJoinWorkerThread) {
+                ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+                    @Override
+                    public boolean block() throws InterruptedException {
+                        try {
+                            SharedTask.super.get();
+                        } catch (ExecutionException | CancellationException ex) {
+                            //reported by the final get
+                        }
+                        return true;
+                    }
+
+                    @Override
+                    public boolean isReleasable() {
+                        return isDone();
+                    }
+                });
+            }
+            return super.get();
+        }
+
+        @Override
+        public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+            if (!isDone() && Thread.currentThread() instanceof ForkJoinWorkerThread) {
+                long deadline = System.nanoTime() + unit.toNanos(timeout);
+                ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+                    @Override
+                    public boolean block() throws InterruptedException {
+                        try {
+                            SharedTask.super.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                        } catch (ExecutionException | CancellationException | TimeoutException ex) {
+                            //reported by the final get
+                        }
+                        return true;
+                    }
+
+                    @Override
+                    public boolean isReleasable() {
+                        return isDone() || System.nanoTime() >= deadline;
+                    }
+                });
+                return super.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+            return super.get(timeout, unit);
+        }
+    }
+}
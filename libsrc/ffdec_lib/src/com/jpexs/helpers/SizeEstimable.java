@@ -0,0 +1,32 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.helpers;
+
+/**
+ * Object which can estimate its memory use, caches limit their size by it.
+ *
+ * @author JPEXS
+ */
+public interface SizeEstimable {
+
+    /**
+     * Gets estimated memory used by the object.
+     *
+     * @return Size in bytes
+     */
+    public long getEstimatedSize();
+}
@@ -16,24 +16,59 @@
  */
 package com.jpexs.helpers;
 
+import com.jpexs.decompiler.flash.configuration.Configuration;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
+ * Searches byte sequences in a stream or file.
+ *
+ * All sequences are searched at once by an Aho-Corasick automaton. Input is
+ * split into chunks which are searched in parallel when parallel speedup is
+ * enabled. Files are memory mapped chunk by chunk instead of being read into
+ * memory, so they can be larger than 2GB.
  *
  * @author JPEXS
  */
 public class StreamSearch implements Searchable {
 
+    private static final int DEFAULT_CHUNK_SIZE = 16 * 1024 * 1024;
+
     private final MemoryInputStream is;
 
+    private final File file;
+
+    private final int chunkSize;
+
     public StreamSearch(InputStream is) throws IOException {
         this.is = new MemoryInputStream(Helper.readStream(is));
+        this.file = null;
+        this.chunkSize = DEFAULT_CHUNK_SIZE;
+    }
+
+    public StreamSearch(File file) {
+        this(file, DEFAULT_CHUNK_SIZE);
+    }
+
+    StreamSearch(File file, int chunkSize) {
+        this.is = null;
+        this.file = file;
+        this.chunkSize = chunkSize;
     }
 
     @Override
@@ -44,59 +79,80 @@ public class StreamSearch implements Searchable {
     @Override
     public Map<Long, InputStream> search(ProgressListener progListener, byte[]... data) {
         Map<Long, InputStream> ret = new LinkedHashMap<>();
-        int maxFindLen = 0;
-        for (int i = 0; i < data.length; i++) {
-            if (data[i].length > maxFindLen) {
-                maxFindLen = data[i].length;
-            }
+        AhoCorasickMatcher matcher = new AhoCorasickMatcher(data);
+        if (matcher.getMaxPatternLength() == 0) {
+            return ret;
         }
-        try {
-            is.seek(0);
 
-            byte[] buf = new byte[4096];
-            byte[] last = null;
-            int cnt = 0;
-            long pos = 0;
-            while ((cnt = is.read(buf)) > 0) {
+        List<Future<List<Long>>> futures = new ArrayList<>();
+        try ( RandomAccessFile raf = file == null ? null : new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf == null ? null : raf.getChannel();
+            long length = file == null ? is.getAllRead().length : channel.size();
+            boolean parallel = Configuration.parallelSpeedUp.get();
+            for (long start = 0; start < length; start += chunkSize) {
+                long chunkStart = start;
+                long chunkEnd = Math.min(length, start + chunkSize);
+                // the region overlaps the next chunk, so matches crossing the chunk end are found
+                long regionEnd = Math.min(length, chunkEnd + matcher.getMaxPatternLength() - 1);
+                Callable<List<Long>> task = () -> searchChunk(matcher, getRegion(channel, chunkStart, regionEnd), chunkStart, chunkEnd);
+                futures.add(parallel ? SharedExecutor.submit(this, task) : new ImmediateFuture<>(task.call()));
+            }
 
-                for (int i = -maxFindLen + 1; i < cnt; i++) {
+            for (int i = 0; i < futures.size(); i++) {
+                for (long pos : futures.get(i).get()) {
+                    ret.put(pos, file == null ? new MemoryInputStream(is.getAllRead(), (int) pos) : new MappedFileInputStream(file, pos));
+                }
+                if (progListener != null) {
+                    progListener.progress((i + 1) * 100 / futures.size());
+                }
+            }
+        } catch (InterruptedException ex) {
+            for (Future<List<Long>> future : futures) {
+                future.cancel(true);
+            }
+            Thread.currentThread().interrupt();
+        } catch (Exception ex) {
+            for (Future<List<Long>> future : futures) {
+                future.cancel(true);
+            }
+            Throwable cause = ex instanceof ExecutionException ? ex.getCause() : ex;
+            Logger.getLogger(StreamSearch.class.getName()).log(Level.SEVERE, null, cause);
+        }
+        return ret;
+    }
 
-                    loopdata:
-                    for (byte[] onedata : data) {
-                        boolean match = true;
-                        for (int d = 0; d < onedata.length; d++) {
-                            byte b;
-                            if (i + d < 0) {
-                                if (last != null) {
-                                    b = last[last.length + i + d];
-                                } else {
-                                    continue;
-                                }
-                            } else if (i + d >= buf.length) {
-                                continue;
-                            } else {
-                                b = buf[i + d];
-                            }
+    private ByteBuffer getRegion(FileChannel channel, long start, long end) throws IOException {
+        if (channel == null) {
+            return ByteBuffer.wrap(is.getAllRead(), (int) start, (int) (end - start)).slice();
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+    }
 
-                            if (b != onedata[d]) {
-                                match = false;
-                                break;
-                            }
-                        }
-                        if (match) {
-                            // todo: support > 2GB files
-                            InputStream fis = new MemoryInputStream(is.getAllRead(), (int) pos + i);                            
-                            ret.put(pos + i, fis);
-                            continue loopdata;
-                        }
-                    }
+    /**
+     * Searches one chunk.
+     *
+     * @param matcher Matcher
+     * @param region Chunk data followed by the overlap with the next chunk
+     * @param chunkStart Position of the chunk in the input
+     * @param chunkEnd End of the chunk in the input
+     * @return Sorted positions of matches which start inside the chunk
+     */
+    private static List<Long> searchChunk(AhoCorasickMatcher matcher, ByteBuffer region, long chunkStart, long chunkEnd) {
+        Set<Long> ret = new TreeSet<>();
+        int state = matcher.getInitialState();
+        int limit = region.limit();
+        for (int i = 0; i < limit; i++) {
+            if ((i & 0xfffff) == 0 && Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            state = matcher.next(state, region.get(i));
+            for (int m : matcher.getMatches(state)) {
+                long pos = chunkStart + i - matcher.getPatternLength(m) + 1;
+                if (pos < chunkEnd) {
+                    ret.add(pos);
                 }
-                pos = pos + cnt;
             }
-
-        } catch (IOException ex) {
-            Logger.getLogger(StreamSearch.class.getName()).log(Level.SEVERE, null, ex);
         }
-        return ret;
+        return new ArrayList<>(ret);
     }
 }
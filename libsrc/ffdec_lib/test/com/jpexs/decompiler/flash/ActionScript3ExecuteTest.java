@@ -87,7 +87,7 @@ public class ActionScript3ExecuteTest {
     public void testAddMethod() throws IOException, InterruptedException {
         int classId = abc.findClassByName("Run");
         MethodBody runBody = abc.findBodyByClassAndName("Run", "runInstance");
-        runBody.max_stack = 10;
+        runBody.setMaxStack(10);
 
         AVM2Code ccode = new AVM2Code();
         List<AVM2Instruction> code = ccode.code;
@@ -126,10 +126,10 @@ public class ActionScript3ExecuteTest {
         TraitMethodGetterSetter methodTrait = abc.addMethod(classId, name, isStatic);
         MethodInfo methodInfo = abc.method_info.get(methodTrait.method_info);
         MethodBody methodBody = abc.findBody(methodInfo);
-        methodBody.max_stack = 10;
-        methodBody.max_regs = 10;
-        methodBody.init_scope_depth = 3;
-        methodBody.max_scope_depth = 10;
+        methodBody.setMaxStack(10);
+        methodBody.setMaxRegs(10);
+        methodBody.setInitScopeDepth(3);
+        methodBody.setMaxScopeDepth(10);
 
         methodBody.setCode(code);
         methodBody.markOffsets();
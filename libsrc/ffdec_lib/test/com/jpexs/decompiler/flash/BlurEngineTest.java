@@ -0,0 +1,76 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.decompiler.flash.types.filters.BlurEngine;
+import java.util.Random;
+import static org.testng.Assert.assertEquals;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class BlurEngineTest {
+
+    @Test
+    public void testBoxBlur() {
+        int[] pixels = new int[5 * 3];
+        pixels[7] = 0xff0000ff;
+        BlurEngine.blur(pixels, 5, 3, 2, 0, 1, null, false);
+        assertEquals(pixels[5], 0);
+        assertEquals(pixels[6], 0x550000ff);
+        assertEquals(pixels[7], 0x550000ff);
+        assertEquals(pixels[8], 0x550000ff);
+        assertEquals(pixels[9], 0);
+        assertEquals(pixels[2], 0);
+
+        int[] mask = new int[5 * 3];
+        mask[6] = 0xff000000;
+        mask[7] = 0xff000000;
+        pixels = new int[5 * 3];
+        pixels[7] = 0xff0000ff;
+        BlurEngine.blur(pixels, 5, 3, 2, 0, 1, mask, false);
+        assertEquals(pixels[6], 0x7f0000ff);
+        assertEquals(pixels[7], 0x7f0000ff);
+        assertEquals(pixels[8], 0);
+    }
+
+    @Test
+    public void testParallelBlurIsSameAsSequential() {
+        Random random = new Random(1);
+        for (int i = 0; i < 10; i++) {
+            int width = 50 + random.nextInt(400);
+            int height = 50 + random.nextInt(400);
+            int[] pixels = new int[width * height];
+            int[] mask = random.nextBoolean() ? new int[width * height] : null;
+            for (int p = 0; p < pixels.length; p++) {
+                pixels[p] = random.nextInt();
+                if (mask != null) {
+                    mask[p] = random.nextInt(2) << 24;
+                }
+            }
+            int hRadius = random.nextInt(30);
+            int vRadius = random.nextInt(30);
+            int iterations = 1 + random.nextInt(3);
+            int[] sequential = pixels.clone();
+            BlurEngine.blur(sequential, width, height, hRadius, vRadius, iterations, mask, false);
+            BlurEngine.blur(pixels, width, height, hRadius, vRadius, iterations, mask, true);
+            assertEquals(pixels, sequential);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.decompiler.flash.configuration.Configuration;
+import com.jpexs.helpers.Cache;
+import com.jpexs.helpers.CacheStatistics;
+import java.util.Arrays;
+import java.util.Collections;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class CacheTest {
+
+    @Test
+    public void testSizeLimit() throws Exception {
+        int oldMaxSize = Configuration.maxSoundCacheSize.get();
+        Configuration.maxSoundCacheSize.set(1);
+        try {
+            Cache<Integer, byte[]> cache = Cache.getInstance(false, true, "cacheTestSize", false, Configuration.maxSoundCacheSize);
+            CacheStatistics statistics = cache.getStatistics();
+            int itemSize = 300 * 1024;
+            for (int i = 0; i < 3; i++) {
+                cache.put(i, new byte[itemSize]);
+                Thread.sleep(2);
+            }
+            assertEquals(cache.getSize(), 3L * itemSize);
+            assertTrue(cache.contains(0));
+            cache.get(0);
+            Thread.sleep(2);
+            cache.put(3, new byte[itemSize]);
+            assertTrue(cache.getSize() <= 1024 * 1024);
+            assertTrue(cache.contains(0));
+            assertFalse(cache.contains(1));
+            assertTrue(cache.contains(3));
+            assertEquals(statistics.getEvictionCount(), 1);
+            assertEquals(statistics.getHitCount(), 1);
+            assertEquals(statistics.getMissCount(), 1);
+            cache.remove(0);
+            assertEquals(cache.getSize(), 2L * itemSize);
+            cache.clear();
+            assertEquals(cache.getSize(), 0);
+        } finally {
+            Configuration.maxSoundCacheSize.set(oldMaxSize);
+        }
+    }
+
+    @Test
+    public void testOwners() throws Exception {
+        int oldMaxSize = Configuration.maxSoundCacheSize.get();
+        Configuration.maxSoundCacheSize.set(1);
+        try {
+            Cache<String, byte[]> cache = Cache.getInstance(false, true, "cacheTestOwners", false, Configuration.maxSoundCacheSize);
+            int itemSize = 300 * 1024;
+            cache.put("a", new byte[itemSize], Arrays.asList(1, 2));
+            cache.put("b", new byte[itemSize], Collections.singleton(2));
+            cache.put("c", new byte[itemSize], Collections.singleton(3));
+            assertEquals(cache.removeOwner(1), 1);
+            assertFalse(cache.contains("a"));
+            assertTrue(cache.contains("b"));
+            assertEquals(cache.removeOwner(1), 0);
+
+            // Reput replaces the owners
+            cache.put("b", new byte[itemSize], Collections.singleton(4));
+            assertEquals(cache.removeOwner(2), 0);
+            assertTrue(cache.contains("b"));
+
+            // Evicted items are removed from the owner index
+            Thread.sleep(2);
+            cache.get("b");
+            Thread.sleep(2);
+            cache.put("d", new byte[itemSize], Collections.singleton(4));
+            cache.put("e", new byte[itemSize], Collections.singleton(3));
+            assertFalse(cache.contains("c"));
+            assertEquals(cache.removeOwner(3), 1);
+            assertEquals(cache.removeOwner(4), 2);
+            assertEquals(cache.getSize(), 0);
+        } finally {
+            Configuration.maxSoundCacheSize.set(oldMaxSize);
+        }
+    }
+}
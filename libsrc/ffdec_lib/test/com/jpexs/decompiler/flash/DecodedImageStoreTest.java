@@ -0,0 +1,176 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.decompiler.flash.configuration.Configuration;
+import com.jpexs.decompiler.flash.helpers.ImageHelper;
+import com.jpexs.decompiler.flash.tags.DefineBitsLossless2Tag;
+import com.jpexs.decompiler.flash.tags.enums.ImageFormat;
+import com.jpexs.helpers.DecodedImageStore;
+import com.jpexs.helpers.SerializableImage;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.lang.ref.Reference;
+import java.lang.reflect.Field;
+import java.util.Random;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class DecodedImageStoreTest {
+
+    private static BufferedImage createImage(int width, int height, int type, long seed) {
+        BufferedImage image = new BufferedImage(width, height, type);
+        Random random = new Random(seed);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return image;
+    }
+
+    private static void assertSamePixels(BufferedImage actual, BufferedImage expected) {
+        assertEquals(actual.getWidth(), expected.getWidth());
+        assertEquals(actual.getHeight(), expected.getHeight());
+        int[] actualPixels = actual.getRGB(0, 0, actual.getWidth(), actual.getHeight(), null, 0, actual.getWidth());
+        int[] expectedPixels = expected.getRGB(0, 0, expected.getWidth(), expected.getHeight(), null, 0, expected.getWidth());
+        for (int i = 0; i < expectedPixels.length; i++) {
+            if (actualPixels[i] != expectedPixels[i]) {
+                throw new AssertionError("Pixel " + i + " differs: expected " + Integer.toHexString(expectedPixels[i]) + " but found " + Integer.toHexString(actualPixels[i]));
+            }
+        }
+    }
+
+    /**
+     * Simulates clearing of the soft reference when the heap runs low.
+     */
+    private static void clearRecent(DecodedImageStore.Handle handle) throws Exception {
+        Field field = DecodedImageStore.Handle.class.getDeclaredField("recent");
+        field.setAccessible(true);
+        ((Reference<?>) field.get(handle)).clear();
+    }
+
+    @Test
+    public void testRestoresPixels() throws Exception {
+        DecodedImageStore store = DecodedImageStore.getInstance();
+        int[] types = new int[]{BufferedImage.TYPE_INT_ARGB_PRE, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_4BYTE_ABGR};
+        int[] storedTypes = new int[]{BufferedImage.TYPE_INT_ARGB_PRE, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB};
+        for (int i = 0; i < types.length; i++) {
+            BufferedImage expected = createImage(37, 23, types[i], i);
+            DecodedImageStore.Handle handle = store.put(new SerializableImage(expected));
+            long size = store.getSize();
+            assertEquals(handle.getWidth(), 37);
+            assertEquals(handle.getHeight(), 23);
+
+            store.remove(handle);
+            assertNull(store.get(handle));
+            assertEquals(store.getSize(), size - 37 * 23 * 4);
+
+            SerializableImage image = new SerializableImage(createImage(37, 23, types[i], i));
+            handle = store.put(image);
+            assertTrue(store.get(handle) == image);
+
+            // Image is copied from the direct buffer when the heap image is gone
+            image = null;
+            clearRecent(handle);
+            SerializableImage restored = store.get(handle);
+            assertNotNull(restored);
+            assertSamePixels(restored.getBufferedImage(), expected);
+            assertEquals(restored.getType(), storedTypes[i]);
+            store.remove(handle);
+        }
+    }
+
+    @Test
+    public void testSizeLimit() {
+        int oldMaxSize = Configuration.maxDecodedImageStoreSize.get();
+        DecodedImageStore store = DecodedImageStore.getInstance();
+        store.clear();
+        Configuration.maxDecodedImageStoreSize.set(1);
+        try {
+            long evictions = store.getStatistics().getEvictionCount();
+            // 300 kB each
+            DecodedImageStore.Handle[] handles = new DecodedImageStore.Handle[4];
+            for (int i = 0; i < 3; i++) {
+                handles[i] = store.put(new SerializableImage(new BufferedImage(300, 256, BufferedImage.TYPE_INT_ARGB_PRE)));
+            }
+            assertEquals(store.getCount(), 3);
+            store.get(handles[0]);
+            handles[3] = store.put(new SerializableImage(new BufferedImage(300, 256, BufferedImage.TYPE_INT_ARGB_PRE)));
+            assertTrue(store.getSize() <= 1024 * 1024);
+            assertEquals(store.getCount(), 3);
+            assertEquals(store.getStatistics().getEvictionCount(), evictions + 1);
+
+            // Least recently used image was removed
+            store.remove(handles[1]);
+            assertEquals(store.getCount(), 3);
+            store.remove(handles[0]);
+            assertEquals(store.getCount(), 2);
+
+            // Image larger than the limit is kept on the heap
+            SerializableImage large = new SerializableImage(new BufferedImage(1024, 512, BufferedImage.TYPE_INT_RGB));
+            DecodedImageStore.Handle largeHandle = store.put(large);
+            assertEquals(store.getCount(), 2);
+            store.clear();
+            assertTrue(store.get(largeHandle) == large);
+        } finally {
+            Configuration.maxDecodedImageStoreSize.set(oldMaxSize);
+            store.clear();
+        }
+        assertEquals(store.getSize(), 0);
+    }
+
+    @Test
+    public void testImageTagDecodesAgainAfterEviction() throws Exception {
+        boolean oldCacheImages = Configuration.cacheImages.get();
+        Configuration.cacheImages.set(true);
+        DecodedImageStore store = DecodedImageStore.getInstance();
+        try {
+            BufferedImage expected = createImage(64, 48, BufferedImage.TYPE_INT_ARGB, 7);
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            ImageHelper.write(expected, ImageFormat.PNG, baos);
+
+            SWF swf = new SWF();
+            DefineBitsLossless2Tag tag = new DefineBitsLossless2Tag(swf);
+            tag.setImage(baos.toByteArray());
+            SerializableImage first = tag.getImageCached();
+            assertTrue(first == tag.getImageCached());
+            BufferedImage firstCopy = new BufferedImage(64, 48, BufferedImage.TYPE_INT_ARGB);
+            firstCopy.setRGB(0, 0, 64, 48, first.getBufferedImage().getRGB(0, 0, 64, 48, null, 0, 64), 0, 64);
+
+            // Removed pixels are decoded from the tag data again
+            store.clear();
+            first = null;
+            System.gc();
+            SerializableImage decoded = tag.getImageCached();
+            assertSamePixels(decoded.getBufferedImage(), firstCopy);
+            assertEquals(tag.getImageDimension().width, 64);
+
+            tag.clearCache();
+            assertEquals(tag.getImageDimension().height, 48);
+        } finally {
+            Configuration.cacheImages.set(oldCacheImages);
+        }
+    }
+}
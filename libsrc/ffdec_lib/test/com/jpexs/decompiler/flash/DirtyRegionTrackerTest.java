@@ -0,0 +1,94 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.decompiler.flash.exporters.commonshape.ExportRectangle;
+import com.jpexs.decompiler.flash.exporters.commonshape.Matrix;
+import com.jpexs.decompiler.flash.timeline.DirtyRegionTracker;
+import com.jpexs.decompiler.flash.timeline.Timeline;
+import com.jpexs.helpers.SerializableImage;
+import java.awt.Color;
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class DirtyRegionTrackerTest {
+
+    private static Timeline getTimeline() throws Exception {
+        SWF swf = new SWF(new BufferedInputStream(new FileInputStream("testdata/as2/as2.swf")), false);
+        return swf.getTimeline();
+    }
+
+    private static SerializableImage render(Timeline timeline, int frame) {
+        return SWF.frameToImageGet(timeline, frame, frame, null, 0, timeline.displayRect, new Matrix(), null, Color.white, 1.0);
+    }
+
+    @Test
+    public void testUnchangedFrame() throws Exception {
+        Timeline timeline = getTimeline();
+        DirtyRegionTracker tracker = new DirtyRegionTracker();
+        assertFalse(tracker.update(timeline, 0, 0));
+        assertTrue(tracker.update(timeline, 0, 0));
+        assertNull(tracker.getDirtyRect());
+
+        tracker.reset();
+        assertFalse(tracker.update(timeline, 0, 0));
+    }
+
+    @Test
+    public void testChangesAreInsideDirtyRect() throws Exception {
+        Timeline timeline = getTimeline();
+        DirtyRegionTracker tracker = new DirtyRegionTracker();
+        tracker.update(timeline, 0, 0);
+        SerializableImage prev = render(timeline, 0);
+        boolean changed = false;
+        for (int f = 1; f < Math.min(timeline.getFrameCount(), 10); f++) {
+            SerializableImage cur = render(timeline, f);
+            assertTrue(tracker.update(timeline, f, f));
+            ExportRectangle dirty = tracker.getDirtyRect();
+            int x0 = Integer.MAX_VALUE;
+            int y0 = Integer.MAX_VALUE;
+            int x1 = Integer.MIN_VALUE;
+            int y1 = Integer.MIN_VALUE;
+            if (dirty != null) {
+                changed = true;
+                x0 = (int) Math.floor((dirty.xMin - timeline.displayRect.Xmin) / SWF.unitDivisor) - 1;
+                y0 = (int) Math.floor((dirty.yMin - timeline.displayRect.Ymin) / SWF.unitDivisor) - 1;
+                x1 = (int) Math.ceil((dirty.xMax - timeline.displayRect.Xmin) / SWF.unitDivisor) + 1;
+                y1 = (int) Math.ceil((dirty.yMax - timeline.displayRect.Ymin) / SWF.unitDivisor) + 1;
+            }
+            for (int y = 0; y < cur.getHeight(); y++) {
+                for (int x = 0; x < cur.getWidth(); x++) {
+                    if (x >= x0 && x < x1 && y >= y0 && y < y1) {
+                        continue;
+                    }
+                    assertEquals(cur.getRGB(x, y), prev.getRGB(x, y), "Pixel " + x + "," + y + " of frame " + f);
+                }
+            }
+            prev = cur;
+        }
+        assertTrue(changed);
+    }
+}
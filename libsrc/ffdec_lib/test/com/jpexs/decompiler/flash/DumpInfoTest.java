@@ -0,0 +1,62 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.decompiler.flash.dumpview.DumpInfo;
+import com.jpexs.decompiler.flash.dumpview.DumpInfoSwfNode;
+import com.jpexs.decompiler.flash.tags.Tag;
+import com.jpexs.helpers.ByteArrayRange;
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class DumpInfoTest {
+
+    @Test
+    public void testDumpInfoPointsToOriginalDataAfterSave() throws IOException, InterruptedException {
+        SWF swf = new SWF(new BufferedInputStream(new FileInputStream("testdata/as2/as2.swf")), false);
+        byte[] original = swf.originalUncompressedData.clone();
+
+        Tag removed = swf.getTags().get(1);
+        swf.removeTag(removed);
+        swf.clearModified();
+        assertTrue(swf.uncompressedData != swf.originalUncompressedData);
+
+        DumpInfoSwfNode di = swf.getDumpInfo();
+        int tagCount = 0;
+        for (DumpInfo tagInfo : di.getChildInfos()) {
+            if (tagInfo.tagToResolve == null) {
+                continue;
+            }
+            tagCount++;
+            ByteArrayRange range = tagInfo.tagToResolve.getOriginalRange();
+            assertSame(range.getArray(), swf.originalUncompressedData);
+            assertEquals(range.getPos(), tagInfo.startByte);
+            assertEquals(range.getRangeData(), Arrays.copyOfRange(original, range.getPos(), range.getPos() + range.getLength()));
+        }
+        assertTrue(tagCount > 1);
+    }
+}
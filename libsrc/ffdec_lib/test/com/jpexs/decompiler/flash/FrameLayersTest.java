@@ -0,0 +1,127 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.decompiler.flash.timeline.DepthState;
+import com.jpexs.decompiler.flash.timeline.Frame;
+import com.jpexs.decompiler.flash.timeline.FrameLayers;
+import com.jpexs.decompiler.flash.timeline.Timeline;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.TreeMap;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class FrameLayersTest {
+
+    private static DepthState createState(Frame frame, int depth, int characterId) {
+        DepthState ds = new DepthState(null, frame);
+        ds.depth = depth;
+        ds.characterId = characterId;
+        return ds;
+    }
+
+    @Test
+    public void testNextFramesCopyStates() {
+        Frame frame0 = new Frame((Timeline) null, 0);
+        DepthState ds1 = createState(frame0, 1, 5);
+        frame0.layers.put(1, ds1);
+        frame0.layers.put(2, createState(frame0, 2, 6));
+
+        Frame frame1 = new Frame(frame0, 1);
+        Frame frame2 = new Frame(frame1, 2);
+        frame1.layers.remove(2);
+        Frame frame3 = new Frame(frame1, 3);
+
+        DepthState ds3 = frame3.layers.get(1);
+        assertSame(ds3.frame, frame3);
+        assertEquals(ds3.time, 3);
+        assertEquals(ds3.instanceId, ds1.instanceId);
+        assertEquals(ds3.characterId, 5);
+        assertSame(frame3.layers.get(1), ds3);
+
+        DepthState ds2 = frame2.layers.get(1);
+        assertNotSame(ds2, ds3);
+        assertEquals(ds2.time, 2);
+        ds2.characterId = 10;
+        assertEquals(frame1.layers.get(1).characterId, 5);
+        assertEquals(frame3.layers.get(1).characterId, 5);
+
+        assertTrue(frame2.layers.containsKey(2));
+        assertFalse(frame1.layers.containsKey(2));
+        assertFalse(frame3.layers.containsKey(2));
+        assertNull(frame3.layers.get(2));
+        assertSame(frame0.layers.get(1), ds1);
+        assertEquals(frame0.layers.size(), 2);
+        assertEquals(frame3.layers.size(), 1);
+    }
+
+    @Test
+    public void testPutStateKeepsModification() throws Exception {
+        Frame frame0 = new Frame((Timeline) null, 0);
+        frame0.layers.put(1, createState(frame0, 1, 5));
+        Frame frame1 = new Frame(frame0, 1);
+
+        DepthState ds = frame1.layers.get(1);
+        frame1.layers.put(1, ds);
+        ds.characterId = 7;
+
+        // Copies are softly referenced, simulate they were collected
+        Field copies = FrameLayers.class.getDeclaredField("copies");
+        copies.setAccessible(true);
+        copies.set(frame1.layers, null);
+
+        assertSame(frame1.layers.get(1), ds);
+        assertEquals(frame1.layers.get(1).characterId, 7);
+        assertEquals(frame0.layers.get(1).characterId, 5);
+    }
+
+    @Test
+    public void testKeysAreSorted() {
+        Random random = new Random(1);
+        Frame frame = new Frame((Timeline) null, 0);
+        TreeMap<Integer, DepthState> expected = new TreeMap<>();
+        for (int i = 0; i < 5000; i++) {
+            int depth = random.nextInt(500);
+            if (random.nextInt(3) == 0) {
+                assertEquals(frame.layers.remove(depth) != null, expected.remove(depth) != null);
+            } else {
+                DepthState ds = createState(frame, depth, i);
+                frame.layers.put(depth, ds);
+                expected.put(depth, ds);
+            }
+            if (i % 500 == 0) {
+                frame = new Frame(frame, frame.frame + 1);
+            }
+        }
+        assertEquals(new ArrayList<>(frame.layers.keySet()), new ArrayList<>(expected.keySet()));
+        assertEquals(frame.layers.size(), expected.size());
+        for (int depth : expected.keySet()) {
+            assertEquals(frame.layers.get(depth).characterId, expected.get(depth).characterId);
+        }
+    }
+}
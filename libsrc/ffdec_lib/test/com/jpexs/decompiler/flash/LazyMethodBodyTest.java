@@ -0,0 +1,104 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.decompiler.flash.abc.ABC;
+import com.jpexs.decompiler.flash.abc.ABCInputStream;
+import com.jpexs.decompiler.flash.abc.types.MethodBody;
+import com.jpexs.decompiler.flash.configuration.Configuration;
+import com.jpexs.decompiler.flash.tags.ABCContainerTag;
+import com.jpexs.helpers.MemoryInputStream;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.List;
+import static org.testng.Assert.assertEquals;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class LazyMethodBodyTest {
+
+    private static final String TEST_FILE = "testdata/as3_new/bin/as3_new.air.swf";
+
+    @BeforeClass
+    public void init() {
+        Configuration.autoDeobfuscate.set(false);
+    }
+
+    private static SWF open(boolean lazy) throws IOException, InterruptedException {
+        return new SWF(new BufferedInputStream(new FileInputStream(TEST_FILE)), false, lazy);
+    }
+
+    private static byte[] save(ABC abc) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        abc.saveToStream(baos);
+        return baos.toByteArray();
+    }
+
+    @Test
+    public void testSaveUndecodedBodies() throws IOException, InterruptedException {
+        List<ABCContainerTag> eagerList = open(false).getAbcList();
+        List<ABCContainerTag> lazyList = open(true).getAbcList();
+        assertEquals(lazyList.size(), eagerList.size());
+        for (int i = 0; i < eagerList.size(); i++) {
+            assertEquals(save(lazyList.get(i).getABC()), save(eagerList.get(i).getABC()));
+        }
+    }
+
+    @Test
+    public void testBodiesDecodedOnAccess() throws IOException, InterruptedException {
+        List<ABCContainerTag> eagerList = open(false).getAbcList();
+        List<ABCContainerTag> lazyList = open(true).getAbcList();
+        for (int i = 0; i < eagerList.size(); i++) {
+            List<MethodBody> eagerBodies = eagerList.get(i).getABC().bodies;
+            List<MethodBody> lazyBodies = lazyList.get(i).getABC().bodies;
+            assertEquals(lazyBodies.size(), eagerBodies.size());
+            for (int j = 0; j < eagerBodies.size(); j++) {
+                MethodBody eager = eagerBodies.get(j);
+                MethodBody lazy = lazyBodies.get(j);
+                assertEquals(lazy.method_info, eager.method_info);
+                assertEquals(lazy.getMaxStack(), eager.getMaxStack());
+                assertEquals(lazy.getMaxRegs(), eager.getMaxRegs());
+                assertEquals(lazy.getInitScopeDepth(), eager.getInitScopeDepth());
+                assertEquals(lazy.getMaxScopeDepth(), eager.getMaxScopeDepth());
+                assertEquals(lazy.getCodeBytes(), eager.getCodeBytes());
+                assertEquals(lazy.getExceptions().length, eager.getExceptions().length);
+                for (int e = 0; e < eager.getExceptions().length; e++) {
+                    assertEquals(lazy.getExceptions()[e].start, eager.getExceptions()[e].start);
+                    assertEquals(lazy.getExceptions()[e].end, eager.getExceptions()[e].end);
+                    assertEquals(lazy.getExceptions()[e].target, eager.getExceptions()[e].target);
+                }
+                assertEquals(lazy.getTraits().traits.size(), eager.getTraits().traits.size());
+            }
+        }
+    }
+
+    @Test
+    public void testModifiedBodySaved() throws IOException, InterruptedException {
+        ABC abc = open(true).getAbcList().get(0).getABC();
+        MethodBody body = abc.bodies.get(0);
+        body.setMaxStack(body.getMaxStack() + 1);
+        ABC reread = new ABC(new ABCInputStream(new MemoryInputStream(save(abc))), abc.getSwf(), null);
+        assertEquals(reread.bodies.get(0).getMaxStack(), body.getMaxStack());
+        assertEquals(reread.bodies.size(), abc.bodies.size());
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.decompiler.flash.helpers.CodeFormatting;
+import com.jpexs.decompiler.flash.helpers.HighlightedText;
+import com.jpexs.decompiler.flash.helpers.HighlightedTextWriter;
+import com.jpexs.decompiler.flash.helpers.hilight.HighlightData;
+import com.jpexs.decompiler.flash.helpers.hilight.HighlightSpecialType;
+import com.jpexs.decompiler.flash.helpers.hilight.Highlighting;
+import com.jpexs.decompiler.graph.DottedChain;
+import com.jpexs.helpers.MappedFileMap;
+import com.jpexs.helpers.SerializableImage;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.Arrays;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class MappedFileMapTest {
+
+    @Test
+    public void testMappedFileMap() throws Exception {
+        File tfile = File.createTempFile("mfmtest", ".bin");
+        MappedFileMap<String, String> map = new MappedFileMap<>(tfile);
+        assertTrue(map.isEmpty());
+        assertEquals(map.size(), 0);
+        map.put("A", "cat");
+        assertEquals(map.get("A"), "cat");
+        assertNull(map.get("B"));
+        map.put("B", "dog");
+        assertEquals(map.get("B"), "dog");
+        assertEquals(map.get("A"), "cat");
+        map.put("C", "parrot");
+        assertTrue(map.containsKey("A"));
+        assertTrue(map.containsKey("B"));
+        assertTrue(map.containsKey("C"));
+        assertFalse(map.containsKey("D"));
+        assertEquals(map.size(), 3);
+        assertEquals(map.remove("A"), "cat");
+        assertFalse(map.containsKey("A"));
+        assertTrue(map.keySet().remove("B"));
+        assertFalse(map.containsKey("B"));
+        map.put("X", "tac");
+        map.put("C", "much longer value than before");
+        assertEquals(map.get("C"), "much longer value than before");
+        assertEquals(map.get("X"), "tac");
+        map.delete();
+        try {
+            map.get("C");
+            fail();
+        } catch (NullPointerException nfe) {
+            //okay
+        }
+    }
+
+    @Test
+    public void testFreeSpaceReuse() throws Exception {
+        File tfile = File.createTempFile("mfmtest", ".bin");
+        MappedFileMap<Integer, byte[]> map = new MappedFileMap<>(tfile);
+        for (int i = 0; i < 10; i++) {
+            map.put(i, new byte[1000]);
+        }
+        long size = map.getDataSize();
+        for (int i = 0; i < 10; i += 2) {
+            map.remove(i);
+        }
+        map.remove(1);
+        map.put(100, new byte[2500]);
+        map.put(101, new byte[900]);
+        assertEquals(map.getDataSize(), size);
+        map.remove(9);
+        assertTrue(map.getDataSize() < size);
+        map.clear();
+        assertEquals(map.getDataSize(), 0);
+        map.delete();
+    }
+
+    @Test
+    public void testValueAcrossSegments() throws Exception {
+        File tfile = File.createTempFile("mfmtest", ".bin");
+        MappedFileMap<Integer, byte[]> map = new MappedFileMap<>(tfile);
+        map.put(0, new byte[(1 << 25) - 16]);
+        byte[] data = new byte[100];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        map.put(1, data);
+        assertTrue(Arrays.equals(map.get(1), data));
+        map.delete();
+    }
+
+    @Test
+    public void testImage() throws Exception {
+        File tfile = File.createTempFile("mfmtest", ".bin");
+        MappedFileMap<String, SerializableImage> map = new MappedFileMap<>(tfile);
+        int[] types = new int[]{BufferedImage.TYPE_INT_ARGB_PRE, BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_4BYTE_ABGR};
+        for (int type : types) {
+            SerializableImage image = new SerializableImage(7, 5, type);
+            for (int x = 0; x < 7; x++) {
+                for (int y = 0; y < 5; y++) {
+                    image.getBufferedImage().setRGB(x, y, 0xff000000 | (x * 30 << 16) | (y * 40 << 8) | (x + y));
+                }
+            }
+            map.put("img" + type, image);
+            SerializableImage image2 = map.get("img" + type);
+            if (type != BufferedImage.TYPE_4BYTE_ABGR) {
+                assertEquals(image2.getBufferedImage().getType(), type);
+            }
+            assertEquals(image2.getWidth(), 7);
+            assertEquals(image2.getHeight(), 5);
+            for (int x = 0; x < 7; x++) {
+                for (int y = 0; y < 5; y++) {
+                    assertEquals(image2.getBufferedImage().getRGB(x, y), image.getBufferedImage().getRGB(x, y));
+                }
+            }
+        }
+        map.delete();
+    }
+
+    @Test
+    public void testHighlightedText() throws Exception {
+        File tfile = File.createTempFile("mfmtest", ".bin");
+        MappedFileMap<String, HighlightedText> map = new MappedFileMap<>(tfile);
+        HighlightedTextWriter writer = new HighlightedTextWriter(new CodeFormatting(), true);
+        HighlightData data = new HighlightData();
+        data.declaration = true;
+        data.declaredType = new DottedChain(new String[]{"flash", "display", "Sprite"});
+        data.localName = "sprite";
+        data.subtype = HighlightSpecialType.TYPE_NAME;
+        data.index = 5;
+        data.offset = 1234;
+        data.regIndex = 3;
+        writer.append("var ");
+        writer.hilightSpecial("sprite", HighlightSpecialType.TYPE_NAME, 7, data);
+        writer.append(" = 5;");
+        HighlightedText text = new HighlightedText(writer);
+        map.put("text", text);
+        HighlightedText text2 = map.get("text");
+        assertEquals(text2.text, text.text);
+        assertEquals(text2.getSpecialHighlights().size(), text.getSpecialHighlights().size());
+        Highlighting h = text.getSpecialHighlights().get(0);
+        Highlighting h2 = text2.getSpecialHighlights().get(0);
+        assertEquals(h2.startPos, h.startPos);
+        assertEquals(h2.len, h.len);
+        assertEquals(h2.type, h.type);
+        assertEquals(h2.getProperties().declaredType, h.getProperties().declaredType);
+        assertEquals(h2.getProperties().localName, h.getProperties().localName);
+        assertEquals(h2.getProperties().subtype, h.getProperties().subtype);
+        assertEquals(h2.getProperties().specialValue, h.getProperties().specialValue);
+        assertEquals(h2.getProperties().offset, h.getProperties().offset);
+        assertEquals(h2.getProperties().regIndex, h.getProperties().regIndex);
+        map.delete();
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.decompiler.flash.tags.Tag;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class MappedSwfOpenTest {
+
+    @DataProvider(name = "files")
+    public Object[][] provideFiles() {
+        return new Object[][]{
+            {"testdata/as2/as2.swf"},
+            {"testdata/as3_new/bin/as3_new.air.swf"}
+        };
+    }
+
+    private static void assertSameSwf(SWF actual, SWF expected) throws IOException {
+        assertNull(actual.uncompressedData);
+        assertEquals(actual.version, expected.version);
+        assertEquals(actual.frameCount, expected.frameCount);
+        assertEquals(actual.compression, expected.compression);
+        List<Tag> actualTags = actual.getTags().toArrayList();
+        List<Tag> expectedTags = expected.getTags().toArrayList();
+        assertEquals(actualTags.size(), expectedTags.size());
+        for (int i = 0; i < actualTags.size(); i++) {
+            assertEquals(actualTags.get(i).getClass(), expectedTags.get(i).getClass());
+            assertEquals(actualTags.get(i).getOriginalData(), expectedTags.get(i).getOriginalData());
+        }
+        assertEquals(save(actual), save(expected));
+    }
+
+    private static byte[] save(SWF swf) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        swf.saveTo(baos);
+        return baos.toByteArray();
+    }
+
+    @Test(dataProvider = "files")
+    public void testCompressedFile(String fileName) throws IOException, InterruptedException {
+        SWF expected = new SWF(new BufferedInputStream(new FileInputStream(fileName)), false);
+        assertTrue(expected.compression != SWFCompression.NONE);
+        // small chunks, so tags are split to many of them
+        SWF actual = new SWF(new File(fileName), null, null, false, true, null, expected.getCharset(), 4096);
+        assertSameSwf(actual, expected);
+    }
+
+    @Test(dataProvider = "files")
+    public void testUncompressedFile(String fileName) throws IOException, InterruptedException {
+        SWF swf = new SWF(new BufferedInputStream(new FileInputStream(fileName)), false);
+        swf.compression = SWFCompression.NONE;
+        File tempFile = File.createTempFile("ffdec_test_", ".swf");
+        try {
+            try ( OutputStream os = new FileOutputStream(tempFile)) {
+                swf.saveTo(os);
+            }
+            SWF expected = new SWF(new BufferedInputStream(new FileInputStream(tempFile)), false);
+            SWF actual = new SWF(tempFile, null, null, true, true, null, expected.getCharset());
+            assertSameSwf(actual, expected);
+        } finally {
+            tempFile.delete();
+        }
+    }
+}
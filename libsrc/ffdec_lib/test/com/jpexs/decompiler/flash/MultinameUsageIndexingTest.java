@@ -0,0 +1,312 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.decompiler.flash.abc.ABC;
+import com.jpexs.decompiler.flash.abc.ABCMultinameUsageIndexing;
+import com.jpexs.decompiler.flash.abc.avm2.AVM2Code;
+import com.jpexs.decompiler.flash.abc.avm2.instructions.AVM2Instruction;
+import com.jpexs.decompiler.flash.abc.types.ABCException;
+import com.jpexs.decompiler.flash.abc.types.MethodBody;
+import com.jpexs.decompiler.flash.abc.types.MethodInfo;
+import com.jpexs.decompiler.flash.abc.types.Multiname;
+import com.jpexs.decompiler.flash.abc.types.traits.Trait;
+import com.jpexs.decompiler.flash.abc.types.traits.TraitClass;
+import com.jpexs.decompiler.flash.abc.types.traits.TraitMethodGetterSetter;
+import com.jpexs.decompiler.flash.abc.types.traits.TraitSlotConst;
+import com.jpexs.decompiler.flash.abc.types.traits.Traits;
+import com.jpexs.decompiler.flash.abc.usages.ClassNameMultinameUsage;
+import com.jpexs.decompiler.flash.abc.usages.ConstVarNameMultinameUsage;
+import com.jpexs.decompiler.flash.abc.usages.ConstVarTypeMultinameUsage;
+import com.jpexs.decompiler.flash.abc.usages.ExtendsMultinameUsage;
+import com.jpexs.decompiler.flash.abc.usages.ImplementsMultinameUsage;
+import com.jpexs.decompiler.flash.abc.usages.MethodBodyMultinameUsage;
+import com.jpexs.decompiler.flash.abc.usages.MethodNameMultinameUsage;
+import com.jpexs.decompiler.flash.abc.usages.MethodParamsMultinameUsage;
+import com.jpexs.decompiler.flash.abc.usages.MethodReturnTypeMultinameUsage;
+import com.jpexs.decompiler.flash.abc.usages.MultinameUsage;
+import com.jpexs.decompiler.flash.abc.usages.TraitMultinameUsage;
+import com.jpexs.decompiler.flash.abc.usages.TypeNameMultinameUsage;
+import com.jpexs.decompiler.flash.configuration.Configuration;
+import com.jpexs.decompiler.flash.tags.Tag;
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class MultinameUsageIndexingTest {
+
+    private static ABC getAbc() throws IOException, InterruptedException {
+        Configuration.autoDeobfuscate.set(false);
+        SWF swf = new SWF(new BufferedInputStream(new FileInputStream("testdata/as3_new/bin/as3_new.air.swf")), false);
+        return swf.getAbcList().get(0).getABC();
+    }
+
+    private static void assertSameUsages(ABC abc, ABCMultinameUsageIndexing expected) {
+        assertSameUsages(abc, abc.getMultinameUsageIndexing(), expected);
+    }
+
+    private static void assertSameUsages(ABC abc, ABCMultinameUsageIndexing actualIndexing, ABCMultinameUsageIndexing expected) {
+        for (int m = 0; m < abc.constants.getMultinameCount(); m++) {
+            List<MultinameUsage> actual = actualIndexing.findMultinameUsage(m);
+            List<MultinameUsage> exp = expected.findMultinameUsage(m);
+            assertEquals(actual.size(), exp.size(), "multiname " + m);
+            for (int i = 0; i < actual.size(); i++) {
+                assertEquals(actual.get(i).getClass(), exp.get(i).getClass(), "multiname " + m);
+                assertEquals(actual.get(i), exp.get(i), "multiname " + m);
+            }
+        }
+    }
+
+    @Test
+    public void testParallelBuildMatchesSequential() throws IOException, InterruptedException {
+        ABC abc = getAbc();
+        boolean parallel = Configuration.parallelSpeedUp.get();
+        try {
+            Configuration.parallelSpeedUp.set(false);
+            ABCMultinameUsageIndexing sequential = new ABCMultinameUsageIndexing(abc);
+            //the index is built on first lookup, build it while sequential mode is on
+            sequential.findMultinameUsage(1);
+            Configuration.parallelSpeedUp.set(true);
+            ABCMultinameUsageIndexing parallelIndexing = new ABCMultinameUsageIndexing(abc);
+            parallelIndexing.findMultinameUsage(1);
+            assertSameUsages(abc, parallelIndexing, sequential);
+        } finally {
+            Configuration.parallelSpeedUp.set(parallel);
+        }
+        assertTrue(abc.findMultinameUsage(0).isEmpty());
+    }
+
+    @Test
+    public void testIndexIsUpdatedAfterBodyEdit() throws IOException, InterruptedException {
+        ABC abc = getAbc();
+        abc.findMultinameUsage(1);
+
+        MethodBody editedBody = null;
+        AVM2Instruction editedIns = null;
+        loop:
+        for (MethodBody body : abc.bodies) {
+            AVM2Code code = body.getCode();
+            for (AVM2Instruction ins : code.code) {
+                if (ins.definition.operands.length > 0 && ins.definition.operands[0] == AVM2Code.DAT_MULTINAME_INDEX) {
+                    editedBody = body;
+                    editedIns = ins;
+                    break loop;
+                }
+            }
+        }
+        assertNotNull(editedIns);
+
+        int newMultiname = abc.constants.getMultinameCount() - 1;
+        editedIns.setOperand(0, newMultiname, editedBody.getCode(), editedBody);
+        boolean found = false;
+        for (MultinameUsage u : abc.findMultinameUsage(newMultiname)) {
+            if (u instanceof MethodBodyMultinameUsage) {
+                found = true;
+            }
+        }
+        assertTrue(found);
+        assertSameUsages(abc, new ABCMultinameUsageIndexing(abc));
+    }
+
+    @Test
+    public void testIndexIsUpdatedAfterInstructionRemoval() throws IOException, InterruptedException {
+        ABC abc = getAbc();
+        abc.findMultinameUsage(1);
+
+        MethodBody editedBody = null;
+        int editedPos = -1;
+        loop:
+        for (MethodBody body : abc.bodies) {
+            AVM2Code code = body.getCode();
+            for (int i = 0; i < code.code.size(); i++) {
+                AVM2Instruction ins = code.code.get(i);
+                if (ins.definition.operands.length > 0 && ins.definition.operands[0] == AVM2Code.DAT_MULTINAME_INDEX) {
+                    editedBody = body;
+                    editedPos = i;
+                    break loop;
+                }
+            }
+        }
+        assertNotNull(editedBody);
+
+        // Copies of bodies deobfuscated during decompilation do not affect the index
+        MethodBody copy = editedBody.clone();
+        copy.getCode().removeInstruction(editedPos, copy);
+        assertFalse(abc.getMultinameUsageIndexing().isDirty());
+
+        editedBody.getCode().removeInstruction(editedPos, editedBody);
+        assertTrue(abc.getMultinameUsageIndexing().isDirty());
+        assertSameUsages(abc, new ABCMultinameUsageIndexing(abc));
+    }
+
+    @Test
+    public void testIndexIsUpdatedAfterTraitEdit() throws IOException, InterruptedException {
+        ABC abc = getAbc();
+        abc.findMultinameUsage(1);
+
+        TraitSlotConst slot = null;
+        loop:
+        for (int c = 0; c < abc.class_info.size() * 2; c++) {
+            Traits traits = c % 2 == 0 ? abc.instance_info.get(c / 2).instance_traits : abc.class_info.get(c / 2).static_traits;
+            for (int t = 0; t < traits.traits.size(); t++) {
+                if (traits.traits.get(t) instanceof TraitSlotConst) {
+                    slot = (TraitSlotConst) traits.traits.get(t);
+                    break loop;
+                }
+            }
+        }
+        assertNotNull(slot);
+
+        int oldType = slot.type_index;
+        int oldCount = abc.findMultinameUsage(oldType).size();
+        int newType = abc.constants.getMultinameCount() - 1;
+        assertFalse(oldType == newType);
+        slot.type_index = newType;
+        ((Tag) abc.parentTag).setModified(true);
+        assertEquals(abc.findMultinameUsage(oldType).size(), oldCount - 1);
+        assertSameUsages(abc, new ABCMultinameUsageIndexing(abc));
+    }
+
+    @Test
+    public void testIndexMatchesFullWalk() throws IOException, InterruptedException {
+        ABC abc = getAbc();
+        for (int m = 0; m < abc.constants.getMultinameCount(); m++) {
+            List<MultinameUsage> actual = abc.findMultinameUsage(m);
+            List<MultinameUsage> exp = findMultinameUsageByWalk(abc, m);
+            assertEquals(actual.size(), exp.size(), "multiname " + m);
+            for (int i = 0; i < actual.size(); i++) {
+                assertEquals(actual.get(i).getClass(), exp.get(i).getClass(), "multiname " + m);
+                assertEquals(actual.get(i), exp.get(i), "multiname " + m);
+            }
+        }
+    }
+
+    /**
+     * Reference implementation - walks all traits and method bodies for a
+     * single multiname, the way usages were searched before indexing.
+     */
+    private static List<MultinameUsage> findMultinameUsageByWalk(ABC abc, int multinameIndex) {
+        List<MultinameUsage> ret = new ArrayList<>();
+        if (multinameIndex == 0) {
+            return ret;
+        }
+        for (int s = 0; s < abc.script_info.size(); s++) {
+            walkTraits(abc, abc.script_info.get(s).traits, multinameIndex, TraitMultinameUsage.TRAITS_TYPE_SCRIPT, s, -1, ret, -1);
+        }
+        loopm:
+        for (int t = 1; t < abc.constants.getMultinameCount(); t++) {
+            Multiname multiname = abc.constants.getMultiname(t);
+            if (multiname.kind == Multiname.TYPENAME) {
+                if (multiname.qname_index == multinameIndex) {
+                    ret.add(new TypeNameMultinameUsage(abc, multinameIndex, t, -1));
+                    continue;
+                }
+                for (int mp : multiname.params) {
+                    if (mp == multinameIndex) {
+                        ret.add(new TypeNameMultinameUsage(abc, multinameIndex, t, -1));
+                        continue loopm;
+                    }
+                }
+            }
+        }
+        return ret;
+    }
+
+    private static void walkTraits(ABC abc, Traits traits, int multinameIndex, int traitsType, int scriptIndex, int classIndex, List<MultinameUsage> ret, int parentTraitIndex) {
+        for (int t = 0; t < traits.traits.size(); t++) {
+            Trait trait = traits.traits.get(t);
+            if (trait instanceof TraitClass) {
+                TraitClass tc = (TraitClass) trait;
+                if (tc.name_index == multinameIndex) {
+                    ret.add(new ClassNameMultinameUsage(abc, multinameIndex, tc.class_info, scriptIndex));
+                }
+                int c = tc.class_info;
+                if (abc.instance_info.get(c).super_index == multinameIndex) {
+                    ret.add(new ExtendsMultinameUsage(abc, multinameIndex, c, scriptIndex));
+                }
+                for (int i = 0; i < abc.instance_info.get(c).interfaces.length; i++) {
+                    if (abc.instance_info.get(c).interfaces[i] == multinameIndex) {
+                        ret.add(new ImplementsMultinameUsage(abc, multinameIndex, c, scriptIndex));
+                    }
+                }
+                walkMethod(abc, multinameIndex, abc.instance_info.get(c).iinit_index, ret, -1, c, 0, TraitMultinameUsage.TRAITS_TYPE_INSTANCE, true, null, -1);
+                walkMethod(abc, multinameIndex, abc.class_info.get(c).cinit_index, ret, -1, c, 0, TraitMultinameUsage.TRAITS_TYPE_CLASS, true, null, -1);
+                walkTraits(abc, abc.instance_info.get(c).instance_traits, multinameIndex, TraitMultinameUsage.TRAITS_TYPE_INSTANCE, -1, c, ret, -1);
+                walkTraits(abc, abc.class_info.get(c).static_traits, multinameIndex, TraitMultinameUsage.TRAITS_TYPE_CLASS, -1, c, ret, -1);
+            }
+            if (trait instanceof TraitSlotConst) {
+                TraitSlotConst tsc = (TraitSlotConst) trait;
+                if (tsc.name_index == multinameIndex) {
+                    ret.add(new ConstVarNameMultinameUsage(abc, multinameIndex, scriptIndex, classIndex, t, traitsType, traits, parentTraitIndex));
+                }
+                if (tsc.type_index == multinameIndex) {
+                    ret.add(new ConstVarTypeMultinameUsage(abc, multinameIndex, scriptIndex, classIndex, t, traitsType, traits, parentTraitIndex));
+                }
+            }
+            if (trait instanceof TraitMethodGetterSetter) {
+                TraitMethodGetterSetter tmgs = (TraitMethodGetterSetter) trait;
+                if (tmgs.name_index == multinameIndex) {
+                    ret.add(new MethodNameMultinameUsage(abc, multinameIndex, scriptIndex, classIndex, t, traitsType, false, traits, parentTraitIndex));
+                }
+                walkMethod(abc, multinameIndex, tmgs.method_info, ret, scriptIndex, classIndex, t, traitsType, false, traits, parentTraitIndex);
+            }
+        }
+    }
+
+    private static void walkMethod(ABC abc, int multinameIndex, int methodInfo, List<MultinameUsage> ret, int scriptIndex, int classIndex, int traitIndex, int traitsType, boolean isInitializer, Traits traits, int parentTraitIndex) {
+        MethodInfo mi = abc.method_info.get(methodInfo);
+        for (int p = 0; p < mi.param_types.length; p++) {
+            if (mi.param_types[p] == multinameIndex) {
+                ret.add(new MethodParamsMultinameUsage(abc, multinameIndex, scriptIndex, classIndex, traitIndex, traitsType, isInitializer, traits, parentTraitIndex));
+                break;
+            }
+        }
+        if (mi.ret_type == multinameIndex) {
+            ret.add(new MethodReturnTypeMultinameUsage(abc, multinameIndex, scriptIndex, classIndex, traitIndex, traitsType, isInitializer, traits, parentTraitIndex));
+        }
+        MethodBody body = abc.findBody(methodInfo);
+        if (body == null) {
+            return;
+        }
+        walkTraits(abc, body.getTraits(), multinameIndex, traitsType, scriptIndex, classIndex, ret, traitIndex);
+        for (ABCException e : body.getExceptions()) {
+            if (e.name_index == multinameIndex || e.type_index == multinameIndex) {
+                ret.add(new MethodBodyMultinameUsage(abc, multinameIndex, scriptIndex, classIndex, traitIndex, traitsType, isInitializer, traits, parentTraitIndex));
+                return;
+            }
+        }
+        for (AVM2Instruction ins : body.getCode().code) {
+            for (int o = 0; o < ins.definition.operands.length; o++) {
+                if (ins.definition.operands[o] == AVM2Code.DAT_MULTINAME_INDEX && ins.operands[o] == multinameIndex) {
+                    ret.add(new MethodBodyMultinameUsage(abc, multinameIndex, scriptIndex, classIndex, traitIndex, traitsType, isInitializer, traits, parentTraitIndex));
+                    return;
+                }
+            }
+        }
+    }
+}
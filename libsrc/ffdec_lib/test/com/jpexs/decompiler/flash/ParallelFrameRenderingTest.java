@@ -0,0 +1,158 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.decompiler.flash.configuration.Configuration;
+import com.jpexs.decompiler.flash.exporters.FrameExporter;
+import com.jpexs.decompiler.flash.exporters.ShapeExporter;
+import com.jpexs.decompiler.flash.exporters.commonshape.Matrix;
+import com.jpexs.decompiler.flash.exporters.modes.FrameExportMode;
+import com.jpexs.decompiler.flash.exporters.modes.ShapeExportMode;
+import com.jpexs.decompiler.flash.exporters.settings.FrameExportSettings;
+import com.jpexs.decompiler.flash.exporters.settings.ShapeExportSettings;
+import com.jpexs.decompiler.flash.tags.base.RenderSession;
+import com.jpexs.decompiler.flash.timeline.Timeline;
+import com.jpexs.helpers.Helper;
+import com.jpexs.helpers.SerializableImage;
+import java.awt.Color;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ * Frames and shapes rendered on multiple threads from a shared timeline must
+ * be the same as rendered sequentially.
+ *
+ * @author JPEXS
+ */
+public class ParallelFrameRenderingTest {
+
+    private static final int THREAD_COUNT = 8;
+
+    private static final int REPEAT_COUNT = 4;
+
+    @DataProvider(name = "swfFiles")
+    public Object[][] provideSwfFiles() {
+        return new Object[][]{
+            {"testdata/as2/as2.swf"},
+            {"testdata/morphshape/morphshape.swf"}
+        };
+    }
+
+    private static SWF open(String file) throws IOException, InterruptedException {
+        return new SWF(new BufferedInputStream(new FileInputStream(file)), false);
+    }
+
+    private static int[] render(RenderSession session, Timeline timeline, int frame) {
+        SerializableImage image = SWF.frameToImageGet(session, timeline, frame, 0, null, 0, timeline.displayRect, new Matrix(), null, Color.white, 1.0);
+        int[] ret = image.getBufferedImage().getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+        if (session != null) {
+            session.release(image);
+        }
+        return ret;
+    }
+
+    private static void deleteDir(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                if (f.isDirectory()) {
+                    deleteDir(f);
+                } else {
+                    f.delete();
+                }
+            }
+        }
+        dir.delete();
+    }
+
+    private static List<byte[]> readFiles(List<File> files) {
+        List<byte[]> ret = new ArrayList<>();
+        for (File f : files) {
+            ret.add(Helper.readFile(f.getPath()));
+        }
+        return ret;
+    }
+
+    private static List<byte[]> exportFrames(String file, boolean parallel) throws IOException, InterruptedException {
+        boolean oldParallel = Configuration.parallelSpeedUp.get();
+        File dir = Files.createTempDirectory("ffdec_parallel_frames").toFile();
+        try {
+            Configuration.parallelSpeedUp.set(parallel);
+            SWF swf = open(file);
+            List<File> files = new ArrayList<>();
+            files.addAll(new FrameExporter().exportFrames(null, new File(dir, "frames").getPath(), swf, 0, null, new FrameExportSettings(FrameExportMode.PNG, 1), null));
+            files.addAll(new ShapeExporter().exportShapes(null, new File(dir, "shapes").getPath(), swf, swf.getTags(), new ShapeExportSettings(ShapeExportMode.PNG, 1), null, 1));
+            return readFiles(files);
+        } finally {
+            Configuration.parallelSpeedUp.set(oldParallel);
+            deleteDir(dir);
+        }
+    }
+
+    @Test(dataProvider = "swfFiles")
+    public void testParallelRenderingMatchesSequential(String file) throws Exception {
+        SWF sequentialSwf = open(file);
+        Timeline sequentialTimeline = sequentialSwf.getTimeline();
+        int frameCount = sequentialTimeline.getFrameCount();
+        assertTrue(frameCount > 1);
+        List<int[]> expected = new ArrayList<>();
+        for (int frame = 0; frame < frameCount; frame++) {
+            expected.add(render(null, sequentialTimeline, frame));
+        }
+
+        // Nothing is loaded before, so the threads race on lazily parsed characters
+        SWF swf = open(file);
+        Timeline timeline = swf.getTimeline();
+        RenderSession session = new RenderSession();
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        try {
+            List<Future<int[]>> futures = new ArrayList<>();
+            for (int i = 0; i < frameCount * REPEAT_COUNT; i++) {
+                final int frame = i % frameCount;
+                futures.add(executor.submit(() -> render(session, timeline, frame)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                assertEquals(futures.get(i).get(), expected.get(i % frameCount), "frame " + (i % frameCount));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test(dataProvider = "swfFiles")
+    public void testParallelExportMatchesSequential(String file) throws Exception {
+        List<byte[]> sequential = exportFrames(file, false);
+        List<byte[]> parallel = exportFrames(file, true);
+        assertTrue(sequential.size() > 1);
+        assertEquals(parallel.size(), sequential.size());
+        for (int i = 0; i < sequential.size(); i++) {
+            assertEquals(parallel.get(i), sequential.get(i), "file " + i);
+        }
+    }
+}
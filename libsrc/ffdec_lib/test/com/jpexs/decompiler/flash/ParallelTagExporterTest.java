@@ -0,0 +1,169 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.decompiler.flash.configuration.Configuration;
+import com.jpexs.decompiler.flash.exporters.ImageExporter;
+import com.jpexs.decompiler.flash.exporters.ParallelTagExporter;
+import com.jpexs.decompiler.flash.exporters.ShapeExporter;
+import com.jpexs.decompiler.flash.exporters.modes.ImageExportMode;
+import com.jpexs.decompiler.flash.exporters.modes.ShapeExportMode;
+import com.jpexs.decompiler.flash.exporters.settings.ImageExportSettings;
+import com.jpexs.decompiler.flash.exporters.settings.ShapeExportSettings;
+import com.jpexs.decompiler.flash.tags.Tag;
+import com.jpexs.decompiler.flash.tags.base.ShapeTag;
+import com.jpexs.helpers.Helper;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class ParallelTagExporterTest {
+
+    private static class RecordingListener implements EventListener {
+
+        private final List<String> events = new ArrayList<>();
+
+        @Override
+        public synchronized void handleExportingEvent(String type, int index, int count, Object data) {
+            events.add("exporting " + type + " " + index + "/" + count);
+        }
+
+        @Override
+        public synchronized void handleExportedEvent(String type, int index, int count, Object data) {
+            events.add("exported " + type + " " + index + "/" + count);
+        }
+
+        @Override
+        public void handleEvent(String event, Object data) {
+        }
+    }
+
+    private static class RetryHandler implements AbortRetryIgnoreHandler {
+
+        private int handled;
+
+        @Override
+        public int handle(Throwable thrown) {
+            handled++;
+            return RETRY;
+        }
+
+        @Override
+        public AbortRetryIgnoreHandler getNewInstance() {
+            return this;
+        }
+    }
+
+    private static SWF getSwf() throws IOException, InterruptedException {
+        return new SWF(new BufferedInputStream(new FileInputStream("testdata/as2/as2.swf")), false);
+    }
+
+    private static void deleteDir(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                f.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private static List<String> export(SWF swf, boolean parallel, RecordingListener evl) throws IOException, InterruptedException {
+        boolean oldParallel = Configuration.parallelSpeedUp.get();
+        File dir = Files.createTempDirectory("ffdec_parallel_export").toFile();
+        try {
+            Configuration.parallelSpeedUp.set(parallel);
+            List<File> files = new ArrayList<>();
+            files.addAll(new ShapeExporter().exportShapes(null, dir.getPath() + File.separator + "shapes", swf, swf.getTags(), new ShapeExportSettings(ShapeExportMode.SVG, 1), evl, 1));
+            files.addAll(new ImageExporter().exportImages(null, dir.getPath() + File.separator + "images", swf.getTags(), new ImageExportSettings(ImageExportMode.PNG), evl));
+            List<String> ret = new ArrayList<>();
+            for (File f : files) {
+                ret.add(f.getParentFile().getName() + "/" + f.getName() + " " + Arrays.hashCode(Helper.readFile(f.getPath())));
+            }
+            return ret;
+        } finally {
+            Configuration.parallelSpeedUp.set(oldParallel);
+            deleteDir(new File(dir, "shapes"));
+            deleteDir(new File(dir, "images"));
+            deleteDir(dir);
+        }
+    }
+
+    @Test
+    public void testParallelExportMatchesSequential() throws IOException, InterruptedException {
+        SWF swf = getSwf();
+        RecordingListener sequentialEvents = new RecordingListener();
+        List<String> sequential = export(swf, false, sequentialEvents);
+        RecordingListener parallelEvents = new RecordingListener();
+        List<String> parallel = export(swf, true, parallelEvents);
+
+        assertTrue(sequential.size() > 1);
+        assertEquals(parallel, sequential);
+        assertEquals(parallelEvents.events, sequentialEvents.events);
+    }
+
+    @Test
+    public void testFailedItemIsRetried() throws IOException, InterruptedException {
+        SWF swf = getSwf();
+        List<ShapeTag> shapes = new ArrayList<>();
+        for (Tag t : swf.getTags()) {
+            if (t instanceof ShapeTag) {
+                shapes.add((ShapeTag) t);
+            }
+        }
+        assertTrue(shapes.size() > 1);
+
+        final ShapeTag failing = shapes.get(1);
+        final int[] failures = new int[1];
+        File dir = Files.createTempDirectory("ffdec_parallel_export").toFile();
+        try {
+            RetryHandler handler = new RetryHandler();
+            RecordingListener evl = new RecordingListener();
+            List<File> files = ParallelTagExporter.export(handler, "shape", shapes, (ShapeTag st) -> {
+                return new File(dir, st.getCharacterId() + ".txt");
+            }, (ShapeTag st, OutputStream os) -> {
+                if (st == failing && failures[0]++ == 0) {
+                    throw new IOException("Failed");
+                }
+                os.write(("" + st.getCharacterId()).getBytes());
+            }, evl, 4);
+
+            assertEquals(handler.handled, 1);
+            assertEquals(files.size(), shapes.size());
+            for (int i = 0; i < shapes.size(); i++) {
+                assertEquals(new String(Helper.readFile(files.get(i).getPath())), "" + shapes.get(i).getCharacterId());
+                assertEquals(evl.events.get(2 * i), "exporting shape " + (i + 1) + "/" + shapes.size());
+                assertEquals(evl.events.get(2 * i + 1), "exported shape " + (i + 1) + "/" + shapes.size());
+            }
+        } finally {
+            deleteDir(dir);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.decompiler.flash.configuration.Configuration;
+import com.jpexs.decompiler.flash.exporters.commonshape.Matrix;
+import com.jpexs.decompiler.flash.tags.base.CharacterTag;
+import com.jpexs.decompiler.flash.tags.base.RasterCacheKey;
+import com.jpexs.decompiler.flash.timeline.Timeline;
+import com.jpexs.helpers.Cache;
+import com.jpexs.helpers.SerializableImage;
+import java.awt.Color;
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.util.HashSet;
+import java.util.Set;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class RasterCacheTest {
+
+    /**
+     * Channel difference of cached and direct rendering which is considered
+     * large.
+     */
+    private static final int LARGE_CHANNEL_DIFFERENCE = 16;
+
+    /**
+     * Maximum fraction of pixels which differ between cached and direct
+     * rendering, only antialiased edges of the objects may differ.
+     */
+    private static final double MAX_DIFFERENT_PIXELS = 0.04;
+
+    /**
+     * Maximum fraction of pixels which differ by more than
+     * LARGE_CHANNEL_DIFFERENCE between cached and direct rendering.
+     */
+    private static final double MAX_LARGE_DIFFERENT_PIXELS = 0.002;
+
+    private boolean rasterCacheEnabled;
+
+    @BeforeClass
+    public void enableRasterCache() {
+        rasterCacheEnabled = Configuration.rasterCache.get();
+        Configuration.rasterCache.set(true);
+    }
+
+    @AfterClass
+    public void restoreRasterCache() {
+        Configuration.rasterCache.set(rasterCacheEnabled);
+    }
+
+    private static SerializableImage render(Timeline timeline, Matrix transformation) {
+        return SWF.frameToImageGet(timeline, 0, 0, null, 0, timeline.displayRect, transformation, null, Color.white, 1.0);
+    }
+
+    private static Set<Integer> getCachedCharacterIds(Cache<RasterCacheKey, SerializableImage> cache) {
+        Set<Integer> ret = new HashSet<>();
+        for (RasterCacheKey key : cache.keys()) {
+            ret.add(key.getCharacterId());
+        }
+        return ret;
+    }
+
+    @Test
+    public void testRastersAreReused() throws Exception {
+        SWF swf = new SWF(new BufferedInputStream(new FileInputStream("testdata/as2/as2.swf")), false);
+        Timeline timeline = swf.getTimeline();
+        Cache<RasterCacheKey, SerializableImage> cache = swf.getRasterCache();
+        cache.clear();
+
+        SerializableImage first = render(timeline, new Matrix());
+        int count = cache.keys().size();
+        assertTrue(count > 0);
+
+        long hits = cache.getStatistics().getHitCount();
+        SerializableImage second = render(timeline, new Matrix());
+        assertTrue(cache.getStatistics().getHitCount() > hits);
+        assertEquals(cache.keys().size(), count);
+        for (int y = 0; y < first.getHeight(); y++) {
+            for (int x = 0; x < first.getWidth(); x++) {
+                assertEquals(second.getRGB(x, y), first.getRGB(x, y));
+            }
+        }
+
+        // Moving by whole pixels uses the same rasters
+        render(timeline, Matrix.getTranslateInstance(3 * SWF.unitDivisor, 2 * SWF.unitDivisor));
+        assertEquals(cache.keys().size(), count);
+    }
+
+    @Test
+    public void testModifiedCharacterIsRemoved() throws Exception {
+        SWF swf = new SWF(new BufferedInputStream(new FileInputStream("testdata/as2/as2.swf")), false);
+        Timeline timeline = swf.getTimeline();
+        Cache<RasterCacheKey, SerializableImage> cache = swf.getRasterCache();
+        cache.clear();
+
+        render(timeline, new Matrix());
+        Set<Integer> characterIds = getCachedCharacterIds(cache);
+        assertFalse(characterIds.isEmpty());
+        int characterId = characterIds.iterator().next();
+        CharacterTag character = swf.getCharacter(characterId);
+        character.setModified(true);
+        assertFalse(getCachedCharacterIds(cache).contains(characterId));
+
+        swf.clearImageCache();
+        assertEquals(cache.keys().size(), 0);
+        assertEquals(cache.getSize(), 0);
+    }
+
+    @Test
+    public void testCachedRenderingMatchesDirectRendering() throws Exception {
+        SWF swf = new SWF(new BufferedInputStream(new FileInputStream("testdata/as2/as2.swf")), false);
+        Timeline timeline = swf.getTimeline();
+        Cache<RasterCacheKey, SerializableImage> cache = swf.getRasterCache();
+        Matrix transformation = Matrix.getTranslateInstance(7, 3);
+
+        Configuration.rasterCache.set(false);
+        SerializableImage direct;
+        try {
+            direct = render(timeline, transformation);
+        } finally {
+            Configuration.rasterCache.set(true);
+        }
+        assertEquals(cache.keys().size(), 0);
+
+        render(timeline, transformation);
+        assertTrue(cache.keys().size() > 0);
+        long hits = cache.getStatistics().getHitCount();
+        SerializableImage cached = render(timeline, transformation);
+        assertTrue(cache.getStatistics().getHitCount() > hits);
+
+        assertEquals(cached.getWidth(), direct.getWidth());
+        assertEquals(cached.getHeight(), direct.getHeight());
+        int differentPixels = 0;
+        int largeDifferentPixels = 0;
+        for (int y = 0; y < direct.getHeight(); y++) {
+            for (int x = 0; x < direct.getWidth(); x++) {
+                int directRgb = direct.getRGB(x, y);
+                int cachedRgb = cached.getRGB(x, y);
+                if (directRgb == cachedRgb) {
+                    continue;
+                }
+                differentPixels++;
+                for (int shift = 0; shift < 32; shift += 8) {
+                    int difference = Math.abs(((directRgb >>> shift) & 0xff) - ((cachedRgb >>> shift) & 0xff));
+                    if (difference > LARGE_CHANNEL_DIFFERENCE) {
+                        largeDifferentPixels++;
+                        break;
+                    }
+                }
+            }
+        }
+        int pixelCount = direct.getWidth() * direct.getHeight();
+        assertTrue(differentPixels <= pixelCount * MAX_DIFFERENT_PIXELS, "Different pixels: " + differentPixels + " of " + pixelCount);
+        assertTrue(largeDifferentPixels <= pixelCount * MAX_LARGE_DIFFERENT_PIXELS, "Pixels with large difference: " + largeDifferentPixels + " of " + pixelCount);
+    }
+}
@@ -25,9 +25,11 @@ import com.jpexs.decompiler.flash.tags.ABCContainerTag;
 import com.jpexs.decompiler.flash.tags.Tag;
 import com.jpexs.decompiler.flash.tags.TagStub;
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.fail;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
@@ -99,6 +101,32 @@ public class RecompileTest extends FileTestBase {
         }
     }
 
+    @Test(dataProvider = "provideFiles")
+    public void testSaveCompressions(String filePath) throws IOException, InterruptedException {
+        Configuration._debugCopy.set(false);
+        SWF swf = new SWF(new BufferedInputStream(new FileInputStream(filePath)), false, false);
+        for (Tag tag : swf.getTags()) {
+            if (!(tag instanceof TagStub)) {
+                tag.setModified(true);
+            }
+        }
+        byte[] expected = null;
+        for (SWFCompression compression : new SWFCompression[]{SWFCompression.NONE, SWFCompression.ZLIB, SWFCompression.LZMA, SWFCompression.LZMA_ABC}) {
+            swf.compression = compression;
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            swf.saveTo(baos);
+            if (expected == null) {
+                expected = baos.toByteArray();
+                continue;
+            }
+            ByteArrayOutputStream uncompressed = new ByteArrayOutputStream();
+            if (!SWF.decompress(new ByteArrayInputStream(baos.toByteArray()), uncompressed)) {
+                fail("Cannot decompress " + compression + " output: " + filePath);
+            }
+            assertEquals(uncompressed.toByteArray(), expected, compression + " output differs: " + filePath);
+        }
+    }
+
     @Override
     public String[] getTestDataDirs() {
         return new String[]{TESTDATADIR, FREE_ACTIONSCRIPT_AS2, FREE_ACTIONSCRIPT_AS3};
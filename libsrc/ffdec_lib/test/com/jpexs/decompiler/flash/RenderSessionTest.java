@@ -0,0 +1,86 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.decompiler.flash.exporters.commonshape.Matrix;
+import com.jpexs.decompiler.flash.tags.base.RenderSession;
+import com.jpexs.decompiler.flash.timeline.Timeline;
+import com.jpexs.helpers.SerializableImage;
+import java.awt.Color;
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class RenderSessionTest {
+
+    @Test
+    public void testImagesAreReused() {
+        RenderSession session = new RenderSession();
+        SerializableImage frame = session.acquireFrame(10, 20);
+        SerializableImage scratch = session.acquire(10, 20);
+        assertNotSame(frame, scratch);
+        session.release(frame);
+        session.release(frame);
+        session.release(scratch);
+
+        assertSame(session.acquire(10, 20), scratch);
+        assertSame(session.acquireFrame(10, 20), frame);
+        assertNotSame(session.acquireFrame(10, 20), frame);
+        assertEquals(session.getAllocatedCount(), 3);
+        assertEquals(session.getReusedCount(), 2);
+    }
+
+    @Test
+    public void testScratchSizeIsLimited() {
+        RenderSession session = new RenderSession(10 * 10 * 4);
+        SerializableImage first = session.acquire(10, 10);
+        SerializableImage second = session.acquire(10, 10);
+        session.release(first);
+        session.release(second);
+        assertSame(session.acquire(10, 10), first);
+        assertNotSame(session.acquire(10, 10), second);
+    }
+
+    @Test
+    public void testFramesAreSameAsWithoutSession() throws Exception {
+        SWF swf = new SWF(new BufferedInputStream(new FileInputStream("testdata/as2/as2.swf")), false);
+        Timeline timeline = swf.getTimeline();
+        RenderSession session = new RenderSession();
+        int frameCount = Math.min(timeline.getFrameCount(), 10);
+        for (int frame = 0; frame < frameCount; frame++) {
+            SerializableImage expected = SWF.frameToImageGet(timeline, frame, 0, null, 0, timeline.displayRect, new Matrix(), null, Color.white, 1.0);
+            SerializableImage actual = SWF.frameToImageGet(session, timeline, frame, 0, null, 0, timeline.displayRect, new Matrix(), null, Color.white, 1.0);
+            assertEquals(actual.getWidth(), expected.getWidth());
+            assertEquals(actual.getHeight(), expected.getHeight());
+            for (int y = 0; y < expected.getHeight(); y++) {
+                for (int x = 0; x < expected.getWidth(); x++) {
+                    assertEquals(actual.getRGB(x, y), expected.getRGB(x, y), "frame " + frame + " at " + x + "," + y);
+                }
+            }
+            session.release(actual);
+        }
+        assertTrue(session.getReusedCount() >= frameCount - 1);
+    }
+}
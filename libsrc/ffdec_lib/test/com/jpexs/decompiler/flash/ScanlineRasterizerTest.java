@@ -0,0 +1,137 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.decompiler.flash.configuration.Configuration;
+import com.jpexs.decompiler.flash.exporters.commonshape.Matrix;
+import com.jpexs.decompiler.flash.exporters.shape.ScanlineRasterizer;
+import com.jpexs.decompiler.flash.timeline.Timeline;
+import com.jpexs.helpers.SerializableImage;
+import java.awt.Color;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.util.Arrays;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class ScanlineRasterizerTest {
+
+    private static final ScanlineRasterizer.SpanPaint BLACK = (int x, int y, int length, int[] colors) -> Arrays.fill(colors, 0, length, 0xff000000);
+
+    private static int alpha(int[] pixels, int width, int x, int y) {
+        return pixels[y * width + x] >>> 24;
+    }
+
+    @Test
+    public void testCoverage() {
+        int[] pixels = new int[10 * 10];
+        ScanlineRasterizer rasterizer = new ScanlineRasterizer(pixels, 0, 10, 10, 10, true, false);
+        rasterizer.fill(new Rectangle2D.Double(1.5, 2, 5, 3.25).getPathIterator(null), BLACK);
+        assertEquals(alpha(pixels, 10, 0, 3), 0);
+        assertEquals(alpha(pixels, 10, 1, 3), 128);
+        assertEquals(alpha(pixels, 10, 2, 3), 255);
+        assertEquals(alpha(pixels, 10, 6, 3), 128);
+        assertEquals(alpha(pixels, 10, 7, 3), 0);
+        assertEquals(alpha(pixels, 10, 3, 1), 0);
+        assertEquals(alpha(pixels, 10, 3, 2), 255);
+        assertEquals(alpha(pixels, 10, 3, 5), 64);
+        assertEquals(alpha(pixels, 10, 1, 5), 32);
+        assertEquals(alpha(pixels, 10, 3, 6), 0);
+    }
+
+    @Test
+    public void testFillRules() {
+        GeneralPath path = new GeneralPath(PathIterator.WIND_EVEN_ODD);
+        path.append(new Rectangle2D.Double(0, 0, 8, 8), false);
+        path.append(new Rectangle2D.Double(2, 2, 4, 4), false);
+
+        int[] pixels = new int[8 * 8];
+        ScanlineRasterizer rasterizer = new ScanlineRasterizer(pixels, 0, 8, 8, 8, true, false);
+        rasterizer.fill(path.getPathIterator(null), BLACK);
+        assertEquals(alpha(pixels, 8, 1, 1), 255);
+        assertEquals(alpha(pixels, 8, 4, 4), 0);
+
+        path.setWindingRule(PathIterator.WIND_NON_ZERO);
+        pixels = new int[8 * 8];
+        rasterizer = new ScanlineRasterizer(pixels, 0, 8, 8, 8, true, false);
+        rasterizer.fill(path.getPathIterator(null), BLACK);
+        assertEquals(alpha(pixels, 8, 1, 1), 255);
+        assertEquals(alpha(pixels, 8, 4, 4), 255);
+    }
+
+    @Test
+    public void testClipAndUnclosedPath() {
+        GeneralPath path = new GeneralPath();
+        path.moveTo(-5, -5);
+        path.lineTo(20, -5);
+        path.lineTo(20, 20);
+        path.lineTo(-5, 20);
+
+        int[] pixels = new int[10 * 10];
+        ScanlineRasterizer rasterizer = new ScanlineRasterizer(pixels, 0, 10, 10, 10, true, false);
+        rasterizer.clip(2, 3, 4, 5);
+        rasterizer.fill(path.getPathIterator(null), BLACK);
+        for (int y = 0; y < 10; y++) {
+            for (int x = 0; x < 10; x++) {
+                boolean inside = x >= 2 && x < 4 && y >= 3 && y < 5;
+                assertEquals(alpha(pixels, 10, x, y), inside ? 255 : 0);
+            }
+        }
+    }
+
+    @Test
+    public void testFrameIsSimilarToJava2D() throws Exception {
+        SWF swf = new SWF(new BufferedInputStream(new FileInputStream("testdata/as2/as2.swf")), false);
+        Timeline timeline = swf.getTimeline();
+        boolean oldValue = Configuration.scanlineShapeRasterizer.get();
+        try {
+            Configuration.scanlineShapeRasterizer.set(false);
+            swf.clearImageCache();
+            SerializableImage expected = SWF.frameToImageGet(timeline, 0, 0, null, 0, timeline.displayRect, new Matrix(), null, Color.white, 1.0);
+            Configuration.scanlineShapeRasterizer.set(true);
+            swf.clearImageCache();
+            SerializableImage actual = SWF.frameToImageGet(timeline, 0, 0, null, 0, timeline.displayRect, new Matrix(), null, Color.white, 1.0);
+
+            int different = 0;
+            for (int y = 0; y < expected.getHeight(); y++) {
+                for (int x = 0; x < expected.getWidth(); x++) {
+                    int p = expected.getRGB(x, y);
+                    int q = actual.getRGB(x, y);
+                    for (int shift = 0; shift < 32; shift += 8) {
+                        if (Math.abs(((p >> shift) & 0xff) - ((q >> shift) & 0xff)) > 64) {
+                            different++;
+                            break;
+                        }
+                    }
+                }
+            }
+            // only antialiasing of the edges differs
+            assertTrue(different < expected.getWidth() * expected.getHeight() / 100, "Different pixels: " + different);
+        } finally {
+            Configuration.scanlineShapeRasterizer.set(oldValue);
+            swf.clearImageCache();
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.decompiler.flash.configuration.Configuration;
+import com.jpexs.decompiler.flash.search.ABCSearchResult;
+import com.jpexs.decompiler.flash.search.ActionScriptSearch;
+import com.jpexs.decompiler.flash.search.ScriptSearchIndex;
+import com.jpexs.decompiler.flash.search.ScriptSearchListener;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class ScriptSearchIndexTest {
+
+    private File indexDir;
+
+    @BeforeClass
+    public void setUpIndexDir() throws IOException {
+        indexDir = Files.createTempDirectory("ffdec-searchindex").toFile();
+        ScriptSearchIndex.setDirectory(indexDir);
+    }
+
+    @AfterClass
+    public void removeIndexDir() {
+        ScriptSearchIndex.clearAll();
+        ScriptSearchIndex.setDirectory(null);
+        indexDir.delete();
+    }
+
+    private static Set<String> search(SWF swf, String txt, boolean regexp, AtomicInteger decompiled) {
+        List<ABCSearchResult> results = new ActionScriptSearch().searchAs3(swf, txt, true, regexp, false, new ScriptSearchListener() {
+            @Override
+            public void onDecompile(int pos, int total, String name) {
+                decompiled.incrementAndGet();
+            }
+
+            @Override
+            public void onSearch(int pos, int total, String name) {
+            }
+        }, null);
+        Set<String> ret = new TreeSet<>();
+        for (ABCSearchResult result : results) {
+            ret.add(result.getScriptPack().getClassPath().toRawString());
+        }
+        return ret;
+    }
+
+    @Test
+    public void testRepeatedSearchUsesIndex() throws IOException, InterruptedException {
+        Configuration.autoDeobfuscate.set(false);
+        Configuration.useScriptSearchIndex.set(false);
+        SWF swf = new SWF(new BufferedInputStream(new FileInputStream("testdata/as3_new/bin/as3_new.flex.swf")), false);
+        AtomicInteger decompiled = new AtomicInteger();
+        Set<String> expectedLiteral = search(swf, "TRACE(", false, decompiled);
+        Set<String> expectedRegexp = search(swf, "var [a-z]+:int", true, decompiled);
+        assertFalse(expectedLiteral.isEmpty());
+        assertFalse(expectedRegexp.isEmpty());
+
+        try {
+            Configuration.useScriptSearchIndex.set(true);
+            swf.clearScriptCache();
+            assertNotNull(swf.getScriptSearchIndex());
+            search(swf, "TRACE(", false, decompiled);
+
+            swf.clearScriptCache();
+            decompiled.set(0);
+            assertEquals(search(swf, "TRACE(", false, decompiled), expectedLiteral);
+            assertEquals(search(swf, "var [a-z]+:int", true, decompiled), expectedRegexp);
+            assertEquals(decompiled.get(), 0);
+        } finally {
+            Configuration.useScriptSearchIndex.set(false);
+        }
+        assertNull(swf.getScriptSearchIndex());
+    }
+
+    private static ScriptSearchIndex createIndex(int num, int textSize) {
+        ScriptSearchIndex index = ScriptSearchIndex.load(ScriptSearchIndex.getName(ScriptSearchIndex.getContentHash(new byte[]{(byte) num})));
+        StringBuilder sb = new StringBuilder();
+        Random random = new Random(num);
+        for (int i = 0; i < textSize; i++) {
+            sb.append((char) ('a' + random.nextInt(26)));
+        }
+        index.add("text", sb.toString());
+        index.save();
+        return index;
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIndicesAreRemoved() {
+        int maxSize = Configuration.maxScriptSearchIndexSize.get();
+        ScriptSearchIndex.clearAll();
+        try {
+            Configuration.maxScriptSearchIndexSize.set(1);
+            String lastName = null;
+            for (int i = 0; i < 4; i++) {
+                lastName = createIndex(i, 800 * 1024).getName();
+            }
+            long size = ScriptSearchIndex.getStoredSize();
+            assertTrue(size > 0);
+            assertTrue(size <= 1024 * 1024, "Stored size " + size);
+            assertNotNull(ScriptSearchIndex.load(lastName).getText("text"));
+        } finally {
+            Configuration.maxScriptSearchIndexSize.set(maxSize);
+        }
+    }
+
+    @Test
+    public void testClearAll() {
+        ScriptSearchIndex index = createIndex(10, 100);
+        assertTrue(ScriptSearchIndex.getStoredSize() > 0);
+        ScriptSearchIndex.clearAll();
+        assertEquals(ScriptSearchIndex.getStoredSize(), 0);
+        assertTrue(index.isCleared());
+        index.add("text2", "some text");
+        index.save();
+        assertEquals(ScriptSearchIndex.getStoredSize(), 0);
+        assertNull(ScriptSearchIndex.load(index.getName()).getText("text"));
+    }
+
+    @Test
+    public void testTrigrams() {
+        assertEquals(ScriptSearchIndex.getTrigrams("ab").length, 0);
+        assertEquals(ScriptSearchIndex.getTrigrams("abcabc").length, 3);
+        assertEquals(ScriptSearchIndex.getTrigrams("ABC"), ScriptSearchIndex.getTrigrams("abc"));
+        assertTrue(ScriptSearchIndex.getTrigrams("abcd").length == 2);
+    }
+}
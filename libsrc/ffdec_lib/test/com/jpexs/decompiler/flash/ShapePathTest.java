@@ -0,0 +1,184 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.decompiler.flash.exporters.commonshape.Matrix;
+import com.jpexs.decompiler.flash.exporters.shape.ShapeExportData;
+import com.jpexs.decompiler.flash.exporters.shape.ShapeExporterBase;
+import com.jpexs.decompiler.flash.exporters.shape.ShapePath;
+import com.jpexs.decompiler.flash.tags.Tag;
+import com.jpexs.decompiler.flash.tags.base.ShapeTag;
+import com.jpexs.decompiler.flash.types.ColorTransform;
+import com.jpexs.decompiler.flash.types.GRADRECORD;
+import com.jpexs.decompiler.flash.types.RECT;
+import com.jpexs.decompiler.flash.types.RGB;
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class ShapePathTest {
+
+    private static class RecordingExporter extends ShapeExporterBase {
+
+        private final StringBuilder sb = new StringBuilder();
+
+        private final RECT bounds;
+
+        private int openFills;
+
+        public RecordingExporter(ShapeTag shape) {
+            super(shape.getShapeNum(), shape.getSwf(), shape.getShapes(), null);
+            bounds = shape.getRect();
+        }
+
+        private void point(String command, double x, double y) {
+            assertTrue(x >= bounds.Xmin && x <= bounds.Xmax && y >= bounds.Ymin && y <= bounds.Ymax, command + " " + x + "," + y + " is outside of " + bounds);
+            sb.append(command).append(x).append(',').append(y).append('\n');
+        }
+
+        @Override
+        public void beginShape() {
+            sb.append("beginShape\n");
+        }
+
+        @Override
+        public void endShape() {
+            sb.append("endShape\n");
+        }
+
+        @Override
+        public void beginFills() {
+            sb.append("beginFills\n");
+        }
+
+        @Override
+        public void endFills() {
+            assertEquals(openFills, 0);
+            sb.append("endFills\n");
+        }
+
+        @Override
+        public void beginLines() {
+            sb.append("beginLines\n");
+        }
+
+        @Override
+        public void endLines(boolean close) {
+            sb.append("endLines").append(close).append('\n');
+        }
+
+        @Override
+        public void beginFill(RGB color) {
+            openFills++;
+            sb.append("beginFill").append(color == null ? null : color.toHexRGB()).append('\n');
+        }
+
+        @Override
+        public void beginGradientFill(int type, GRADRECORD[] gradientRecords, Matrix matrix, int spreadMethod, int interpolationMethod, float focalPointRatio) {
+            openFills++;
+            sb.append("beginGradientFill").append(type).append('\n');
+        }
+
+        @Override
+        public void beginBitmapFill(int bitmapId, Matrix matrix, boolean repeat, boolean smooth, ColorTransform colorTransform) {
+            openFills++;
+            sb.append("beginBitmapFill").append(bitmapId).append('\n');
+        }
+
+        @Override
+        public void endFill() {
+            openFills--;
+            sb.append("endFill\n");
+        }
+
+        @Override
+        public void lineStyle(double thickness, RGB color, boolean pixelHinting, String scaleMode, int startCaps, int endCaps, int joints, float miterLimit) {
+            sb.append("lineStyle").append(thickness).append('\n');
+        }
+
+        @Override
+        public void lineGradientStyle(int type, GRADRECORD[] gradientRecords, Matrix matrix, int spreadMethod, int interpolationMethod, float focalPointRatio) {
+            sb.append("lineGradientStyle\n");
+        }
+
+        @Override
+        public void lineBitmapStyle(int bitmapId, Matrix matrix, boolean repeat, boolean smooth, ColorTransform colorTransform) {
+            sb.append("lineBitmapStyle\n");
+        }
+
+        @Override
+        public void moveTo(double x, double y) {
+            point("moveTo", x, y);
+        }
+
+        @Override
+        public void lineTo(double x, double y) {
+            point("lineTo", x, y);
+        }
+
+        @Override
+        public void curveTo(double controlX, double controlY, double anchorX, double anchorY) {
+            point("curveTo", anchorX, anchorY);
+        }
+    }
+
+    @Test
+    public void testCachedPathsAreReplayed() throws Exception {
+        SWF swf = new SWF(new BufferedInputStream(new FileInputStream("testdata/as2/as2.swf")), false);
+        int shapeCount = 0;
+        for (Tag t : swf.getTags()) {
+            if (!(t instanceof ShapeTag)) {
+                continue;
+            }
+            ShapeTag shape = (ShapeTag) t;
+            shapeCount++;
+
+            RecordingExporter first = new RecordingExporter(shape);
+            first.export();
+            ShapeExportData data = swf.getShapeExportDataCache().get(shape.getShapes());
+            assertNotNull(data);
+            boolean hasCommands = false;
+            for (ShapePath path : data.fillPaths) {
+                hasCommands |= !path.isEmpty();
+            }
+            for (ShapePath path : data.linePaths) {
+                hasCommands |= !path.isEmpty();
+                assertTrue(path.getEstimatedSize() > 0);
+            }
+            assertTrue(hasCommands);
+
+            RecordingExporter second = new RecordingExporter(shape);
+            second.export();
+            assertEquals(second.sb.toString(), first.sb.toString());
+        }
+        assertTrue(shapeCount > 0);
+    }
+
+    @Test
+    public void testEmptyPath() {
+        assertTrue(ShapePath.EMPTY.isEmpty());
+        assertFalse(ShapePath.EMPTY.isEndClosed());
+    }
+}
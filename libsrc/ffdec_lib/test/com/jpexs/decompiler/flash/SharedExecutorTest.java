@@ -0,0 +1,101 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.decompiler.flash.configuration.Configuration;
+import com.jpexs.helpers.SharedExecutor;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class SharedExecutorTest {
+
+    @Test(timeOut = 60000)
+    public void testNestedTasks() throws Exception {
+        int threadCount = Configuration.getParallelThreadCount();
+        List<Future<Integer>> outer = new ArrayList<>();
+        //more waiting tasks than threads, each waits for its own subtasks
+        for (int i = 0; i < threadCount * 2; i++) {
+            final int base = i;
+            outer.add(SharedExecutor.submit(() -> {
+                List<Future<Integer>> inner = new ArrayList<>();
+                for (int j = 0; j < 3; j++) {
+                    final int value = j;
+                    inner.add(SharedExecutor.submit(() -> value));
+                }
+                int sum = base;
+                for (Future<Integer> f : inner) {
+                    sum += f.get();
+                }
+                return sum;
+            }));
+        }
+        for (int i = 0; i < outer.size(); i++) {
+            assertEquals((int) outer.get(i).get(), i + 3);
+        }
+    }
+
+    @Test(timeOut = 60000)
+    public void testCancelOwner() throws Exception {
+        Object owner = new Object();
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean(false);
+        Future<Void> running = SharedExecutor.submit(owner, () -> {
+            started.countDown();
+            try {
+                Thread.sleep(60000);
+            } catch (InterruptedException ex) {
+                interrupted.set(true);
+            }
+            return null;
+        });
+        Future<Void> other = SharedExecutor.submit(() -> null);
+        started.await();
+        SharedExecutor.cancel(owner);
+        assertTrue(running.isCancelled());
+        other.get();
+        assertFalse(other.isCancelled());
+        for (int i = 0; i < 100 && !interrupted.get(); i++) {
+            Thread.sleep(10);
+        }
+        assertTrue(interrupted.get());
+    }
+
+    @Test(timeOut = 60000)
+    public void testAwaitAllTimeout() throws Exception {
+        List<Future<Void>> futures = new ArrayList<>();
+        futures.add(SharedExecutor.submit(() -> null));
+        futures.add(SharedExecutor.submit(() -> {
+            Thread.sleep(60000);
+            return null;
+        }));
+        assertFalse(SharedExecutor.awaitAll(futures, 200, TimeUnit.MILLISECONDS));
+        assertFalse(futures.get(0).isCancelled());
+        assertTrue(futures.get(1).isCancelled());
+    }
+}
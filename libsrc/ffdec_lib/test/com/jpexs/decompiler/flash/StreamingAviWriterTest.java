@@ -0,0 +1,121 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.decompiler.flash.exporters.modes.AviCompressionMode;
+import com.jpexs.decompiler.flash.helpers.StreamingAviWriter;
+import com.jpexs.helpers.Helper;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.monte.media.VideoFormatKeys;
+import org.monte.media.avi.AVIWriter;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class StreamingAviWriterTest {
+
+    private static List<BufferedImage> createFrames() {
+        List<BufferedImage> frames = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            BufferedImage img = new BufferedImage(64, 48, BufferedImage.TYPE_INT_ARGB_PRE);
+            Graphics2D g = img.createGraphics();
+            g.setColor(Color.white);
+            g.fillRect(0, 0, 64, 48);
+            g.setColor(new Color(i * 20, 100, 255 - i * 20));
+            g.fillOval(i * 4, 10, 20, 20);
+            g.dispose();
+            frames.add(img);
+        }
+        return frames;
+    }
+
+    private static byte[] write(List<BufferedImage> frames, AviCompressionMode mode, int threadCount) throws IOException, InterruptedException {
+        File file = File.createTempFile("ffdec_avi_test", ".avi");
+        try {
+            StreamingAviWriter writer = new StreamingAviWriter(file, 24, mode, threadCount, null);
+            try {
+                for (BufferedImage frame : frames) {
+                    writer.addFrame(frame);
+                }
+                writer.finish();
+            } finally {
+                writer.close();
+            }
+            return Helper.readFile(file.getPath());
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static int countChunks(byte[] data, String fourCC) {
+        byte[] id = fourCC.getBytes();
+        int count = 0;
+        for (int i = 0; i + id.length <= data.length; i++) {
+            if (Arrays.equals(Arrays.copyOfRange(data, i, i + id.length), id)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void testPngMatchesAviWriter() throws IOException, InterruptedException {
+        List<BufferedImage> frames = createFrames();
+        File file = File.createTempFile("ffdec_avi_test", ".avi");
+        byte[] expected;
+        try {
+            AVIWriter out = new AVIWriter(file);
+            out.addVideoTrack(VideoFormatKeys.ENCODING_AVI_PNG, 1, 24, 64, 48, 0, 0);
+            try {
+                for (BufferedImage frame : frames) {
+                    out.write(0, frame, 1);
+                }
+            } finally {
+                out.close();
+            }
+            expected = Helper.readFile(file.getPath());
+        } finally {
+            file.delete();
+        }
+
+        assertTrue(Arrays.equals(write(frames, AviCompressionMode.PNG, 4), expected));
+        assertTrue(Arrays.equals(write(frames, AviCompressionMode.PNG, 1), expected));
+    }
+
+    @Test
+    public void testParallelMatchesSequential() throws IOException, InterruptedException {
+        List<BufferedImage> frames = createFrames();
+        for (AviCompressionMode mode : new AviCompressionMode[]{AviCompressionMode.MJPEG, AviCompressionMode.UNCOMPRESSED}) {
+            byte[] sequential = write(frames, mode, 1);
+            byte[] parallel = write(frames, mode, 4);
+            assertTrue(Arrays.equals(parallel, sequential), mode.toString());
+            // Data chunk and index entry of every frame
+            assertEquals(countChunks(parallel, "00dc") + countChunks(parallel, "00db"), 2 * frames.size(), mode.toString());
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash;
+
+import com.jpexs.decompiler.flash.helpers.StreamingGifEncoder;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.metadata.IIOMetadataNode;
+import static org.testng.Assert.assertEquals;
+import org.testng.annotations.Test;
+import org.w3c.dom.Node;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class StreamingGifEncoderTest {
+
+    private static BufferedImage createFrame(int squareX, Color color) {
+        BufferedImage img = new BufferedImage(40, 30, BufferedImage.TYPE_INT_ARGB);
+        if (squareX >= 0) {
+            Graphics2D g = img.createGraphics();
+            g.setColor(Color.blue);
+            g.fillRect(0, 20, 40, 10);
+            g.setColor(color);
+            g.fillRect(squareX, 5, 10, 10);
+            g.dispose();
+        }
+        return img;
+    }
+
+    private static IIOMetadataNode getChild(Node node, String name) {
+        for (Node c = node.getFirstChild(); c != null; c = c.getNextSibling()) {
+            if (c.getNodeName().equals(name)) {
+                return (IIOMetadataNode) c;
+            }
+        }
+        return null;
+    }
+
+    private static List<BufferedImage> decode(byte[] data, List<Integer> delays) throws IOException {
+        ImageReader reader = ImageIO.getImageReadersByFormatName("gif").next();
+        reader.setInput(ImageIO.createImageInputStream(new ByteArrayInputStream(data)));
+        int count = reader.getNumImages(true);
+        BufferedImage canvas = null;
+        List<BufferedImage> ret = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            BufferedImage img = reader.read(i);
+            Node root = reader.getImageMetadata(i).getAsTree("javax_imageio_gif_image_1.0");
+            IIOMetadataNode desc = getChild(root, "ImageDescriptor");
+            IIOMetadataNode control = getChild(root, "GraphicControlExtension");
+            int x = Integer.parseInt(desc.getAttribute("imageLeftPosition"));
+            int y = Integer.parseInt(desc.getAttribute("imageTopPosition"));
+            if (canvas == null) {
+                canvas = new BufferedImage(img.getWidth(), img.getHeight(), BufferedImage.TYPE_INT_ARGB);
+            }
+            Graphics2D g = canvas.createGraphics();
+            g.drawImage(img, x, y, null);
+            g.dispose();
+
+            BufferedImage frame = new BufferedImage(canvas.getWidth(), canvas.getHeight(), BufferedImage.TYPE_INT_ARGB);
+            frame.getGraphics().drawImage(canvas, 0, 0, null);
+            ret.add(frame);
+            delays.add(Integer.parseInt(control.getAttribute("delayTime")));
+
+            if (control.getAttribute("disposalMethod").equals("restoreToBackgroundColor")) {
+                for (int yy = y; yy < y + img.getHeight(); yy++) {
+                    for (int xx = x; xx < x + img.getWidth(); xx++) {
+                        canvas.setRGB(xx, yy, 0);
+                    }
+                }
+            }
+        }
+        return ret;
+    }
+
+    private static void assertSameImage(BufferedImage actual, BufferedImage expected, String message) {
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                int e = expected.getRGB(x, y);
+                int a = actual.getRGB(x, y);
+                if ((e >>> 24) == 0) {
+                    assertEquals(a >>> 24, 0, message + " at " + x + "," + y);
+                } else {
+                    assertEquals(Integer.toHexString(a), Integer.toHexString(e), message + " at " + x + "," + y);
+                }
+            }
+        }
+    }
+
+    private void testFrames(int threadCount) throws IOException, InterruptedException {
+        List<BufferedImage> frames = new ArrayList<>();
+        frames.add(createFrame(5, Color.red));
+        frames.add(createFrame(5, Color.red));
+        frames.add(createFrame(15, Color.red));
+        frames.add(createFrame(15, Color.green));
+        frames.add(createFrame(-1, null));
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        StreamingGifEncoder encoder = new StreamingGifEncoder(baos, 100, 0, threadCount, null);
+        for (BufferedImage frame : frames) {
+            encoder.addFrame(frame);
+        }
+        encoder.finish();
+
+        List<Integer> delays = new ArrayList<>();
+        List<BufferedImage> decoded = decode(baos.toByteArray(), delays);
+        assertEquals(decoded.size(), 4);
+        assertEquals(delays.get(0), (Integer) 20);
+        assertSameImage(decoded.get(0), frames.get(0), "frame 0");
+        assertSameImage(decoded.get(1), frames.get(2), "frame 2");
+        assertSameImage(decoded.get(2), frames.get(3), "frame 3");
+        assertSameImage(decoded.get(3), frames.get(4), "frame 4");
+    }
+
+    @Test
+    public void testSequentialEncoding() throws IOException, InterruptedException {
+        testFrames(1);
+    }
+
+    @Test
+    public void testParallelEncoding() throws IOException, InterruptedException {
+        testFrames(4);
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.flash.abc.avm2.parser.script;
+
+import com.jpexs.decompiler.flash.SWC;
+import com.jpexs.decompiler.flash.SWF;
+import com.jpexs.decompiler.flash.abc.ABC;
+import com.jpexs.decompiler.flash.abc.types.InstanceInfo;
+import com.jpexs.decompiler.flash.abc.types.traits.Trait;
+import com.jpexs.decompiler.flash.configuration.Configuration;
+import com.jpexs.decompiler.graph.DottedChain;
+import com.jpexs.decompiler.graph.GraphTargetItem;
+import com.jpexs.decompiler.graph.TypeItem;
+import com.jpexs.helpers.Reference;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class AbcIndexingSnapshotTest {
+
+    private SWF librarySwf;
+
+    private AbcIndexing libraryIndex;
+
+    private byte[] snapshot;
+
+    private ABC abc;
+
+    @BeforeClass
+    public void init() throws IOException, InterruptedException {
+        Configuration.autoDeobfuscate.set(false);
+        File playerSWC = Configuration.getPlayerSWC();
+        if (playerSWC == null) {
+            throw new IOException("Player SWC library not found, please place it to " + Configuration.getFlashLibPath());
+        }
+        try (InputStream is = new FileInputStream(playerSWC)) {
+            SWC swc = new SWC(is);
+            librarySwf = new SWF(swc.getOpenable("library.swf"), true);
+        }
+        libraryIndex = new AbcIndexing(librarySwf);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        libraryIndex.writeSnapshot(new DataOutputStream(baos));
+        snapshot = baos.toByteArray();
+
+        SWF swf = new SWF(new BufferedInputStream(new FileInputStream("testdata/as3_new/bin/as3_new.air.swf")), false);
+        abc = swf.getAbcList().get(0).getABC();
+    }
+
+    private AbcIndexing readSnapshot(AtomicInteger loadCount) throws IOException {
+        return new AbcIndexing(ByteBuffer.wrap(snapshot), () -> {
+            loadCount.incrementAndGet();
+            return librarySwf;
+        });
+    }
+
+    private static GraphTargetItem classType(ABC abc, int classIndex) {
+        return AbcIndexing.multinameToType(abc.instance_info.get(classIndex).name_index, abc.constants);
+    }
+
+    private static List<String> getPropertyNames(ABC abc, int classIndex) {
+        List<String> names = new ArrayList<>(Arrays.asList("x", "name", "toString", "addChild", "length", "prototype", "nonExistingProperty"));
+        for (Trait t : abc.instance_info.get(classIndex).instance_traits.traits) {
+            names.add(t.getName(abc).getName(abc.constants, new ArrayList<>(), true, false));
+        }
+        for (Trait t : abc.class_info.get(classIndex).static_traits.traits) {
+            names.add(t.getName(abc).getName(abc.constants, new ArrayList<>(), true, false));
+        }
+        return names;
+    }
+
+    private static void assertSameTypes(AbcIndexing expected, AbcIndexing actual, ABC abc) {
+        for (int i = 0; i < abc.instance_info.size(); i++) {
+            InstanceInfo ii = abc.instance_info.get(i);
+            GraphTargetItem cls = classType(abc, i);
+            assertEquals(actual.hasClass(cls, abc, null), expected.findClass(cls, abc, null) != null, cls.toString());
+            if (ii.super_index > 0) {
+                GraphTargetItem superCls = AbcIndexing.multinameToType(ii.super_index, abc.constants);
+                assertEquals(actual.hasClass(superCls, abc, null), expected.findClass(superCls, abc, null) != null, superCls.toString());
+            }
+            for (String name : getPropertyNames(abc, i)) {
+                for (boolean isStatic : new boolean[]{false, true}) {
+                    Reference<GraphTargetItem> expectedType = new Reference<>(null);
+                    Reference<GraphTargetItem> expectedCallType = new Reference<>(null);
+                    expected.findPropertyTypeOrCallType(abc, cls, name, 0, isStatic, !isStatic, false, expectedType, expectedCallType);
+                    Reference<GraphTargetItem> actualType = new Reference<>(null);
+                    Reference<GraphTargetItem> actualCallType = new Reference<>(null);
+                    actual.findPropertyTypeOrCallType(abc, cls, name, 0, isStatic, !isStatic, false, actualType, actualCallType);
+                    assertEquals(actualType.getVal(), expectedType.getVal(), cls + "." + name);
+                    assertEquals(actualCallType.getVal(), expectedCallType.getVal(), cls + "." + name);
+                    assertEquals(actual.hasProperty(new AbcIndexing.PropertyDef(name, cls, abc, 0), isStatic, !isStatic, false),
+                            expected.findProperty(new AbcIndexing.PropertyDef(name, cls, abc, 0), isStatic, !isStatic, false) != null, cls + "." + name);
+                }
+            }
+        }
+        for (String name : Arrays.asList("trace", "getTimer", "Math", "flash.utils.getQualifiedClassName", "flash.display.Sprite", "nonExistingFunction")) {
+            DottedChain chain = DottedChain.parseWithSuffix(name);
+            Reference<GraphTargetItem> actualType = new Reference<>(null);
+            Reference<GraphTargetItem> actualCallType = new Reference<>(null);
+            boolean found = actual.findScriptPropertyTypeOrCallType(chain.getLast(), chain.getWithoutLast(), actualType, actualCallType);
+            AbcIndexing.TraitIndex expectedIndex = expected.findScriptProperty(chain.getLast(), chain.getWithoutLast());
+            assertEquals(found, expectedIndex != null, name);
+            if (found) {
+                assertEquals(actualType.getVal(), expectedIndex.returnType, name);
+                assertEquals(actualCallType.getVal(), expectedIndex.callReturnType, name);
+            }
+        }
+    }
+
+    @Test
+    public void testNameQueriesDoNotLoadLibrary() throws IOException {
+        AtomicInteger loadCount = new AtomicInteger();
+        AbcIndexing snapshotIndex = readSnapshot(loadCount);
+
+        AbcIndexing expected = new AbcIndexing(libraryIndex);
+        expected.addAbc(abc);
+        AbcIndexing actual = new AbcIndexing(snapshotIndex);
+        actual.addAbc(abc);
+
+        assertSameTypes(expected, actual, abc);
+        assertEquals(loadCount.get(), 0);
+        assertFalse(snapshotIndex.isLoaded());
+    }
+
+    @Test
+    public void testDereferenceLoadsLibraryOnce() throws IOException {
+        AtomicInteger loadCount = new AtomicInteger();
+        AbcIndexing snapshotIndex = readSnapshot(loadCount);
+
+        AbcIndexing expected = new AbcIndexing(libraryIndex);
+        expected.addAbc(abc);
+        AbcIndexing actual = new AbcIndexing(snapshotIndex);
+        actual.addAbc(abc);
+
+        int checkedParents = 0;
+        for (int i = 0; i < abc.instance_info.size(); i++) {
+            GraphTargetItem cls = classType(abc, i);
+            AbcIndexing.ClassIndex expectedClass = expected.findClass(cls, abc, null);
+            if (expectedClass == null || expectedClass.getParent() == null || expectedClass.getParent().abc == abc) {
+                continue;
+            }
+            //parent class is in the library
+            AbcIndexing.ClassIndex actualClass = actual.findClass(cls, abc, null);
+            assertNotNull(actualClass);
+            AbcIndexing.ClassIndex actualParent = actualClass.getParent();
+            assertNotNull(actualParent);
+            assertNotNull(actualParent.abc);
+            assertEquals(actualParent.toString(), expectedClass.getParent().toString());
+            checkedParents++;
+        }
+        assertTrue(checkedParents > 0);
+        assertEquals(loadCount.get(), 1);
+        assertTrue(snapshotIndex.isLoaded());
+
+        AbcIndexing.TraitIndex traitIndex = actual.findProperty(new AbcIndexing.PropertyDef("addChild", new TypeItem("flash.display.Sprite"), (ABC) null, 0), false, true, false);
+        assertNotNull(traitIndex);
+        assertNotNull(traitIndex.trait);
+        assertSameTypes(expected, actual, abc);
+        assertEquals(loadCount.get(), 1);
+    }
+}
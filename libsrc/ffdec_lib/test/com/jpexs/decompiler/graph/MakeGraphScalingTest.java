@@ -0,0 +1,156 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.decompiler.graph;
+
+import com.jpexs.decompiler.flash.SWF;
+import com.jpexs.decompiler.flash.action.Action;
+import com.jpexs.decompiler.flash.action.ActionGraph;
+import com.jpexs.decompiler.flash.action.parser.pcode.ASMParser;
+import com.jpexs.helpers.Reference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+/**
+ * Regression test of control flow graph construction on large code.
+ *
+ * @author JPEXS
+ */
+public class MakeGraphScalingTest {
+
+    private static final int SMALL_BLOCK_COUNT = 2000;
+
+    private static final int LARGE_BLOCK_COUNT = 16000;
+
+    /**
+     * Generates flattened code like obfuscators do: neighbouring blocks are
+     * swapped and chained by jumps.
+     */
+    private static List<Action> generateCode(int blockCount) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Jump loc0\n");
+        for (int j = 0; j < blockCount; j++) {
+            int i = (j % 2 == 0 && j + 1 < blockCount) ? j + 1 : (j % 2 == 1 ? j - 1 : j);
+            sb.append("loc").append(i).append(":Push \"a\"\n");
+            sb.append("GetVariable\n");
+            sb.append("Push \"b\" ").append(i).append("\n");
+            sb.append("SetVariable\n");
+            sb.append("Jump loc").append(i + 1).append("\n");
+        }
+        sb.append("loc").append(blockCount).append(":Push \"end\"\n");
+        sb.append("Pop\n");
+        return ASMParser.parse(0, true, sb.toString(), SWF.DEFAULT_VERSION, true, "UTF-8");
+    }
+
+    /**
+     * List of graph parts which counts parts visited by iterating it.
+     */
+    private static class CountingPartList extends ArrayList<GraphPart> {
+
+        private long visitedCount = 0;
+
+        @Override
+        public Iterator<GraphPart> iterator() {
+            Iterator<GraphPart> it = super.iterator();
+            return new Iterator<GraphPart>() {
+                @Override
+                public boolean hasNext() {
+                    return it.hasNext();
+                }
+
+                @Override
+                public GraphPart next() {
+                    visitedCount++;
+                    return it.next();
+                }
+            };
+        }
+    }
+
+    private static ActionGraph makeGraph(List<Action> code) throws InterruptedException {
+        ActionGraph graph = new ActionGraph("", false, false, code, new HashMap<>(), new HashMap<>(), new HashMap<>(), SWF.DEFAULT_VERSION, "UTF-8");
+        graph.init(null);
+        return graph;
+    }
+
+    /**
+     * Makes graph on a thread with a large stack as graph construction is
+     * recursive.
+     *
+     * @return Number of parts visited by iterating the list of all parts
+     */
+    private static long makeGraphLargeStack(List<Action> code) throws Exception {
+        ActionGraph graph = new ActionGraph("", false, false, code, new HashMap<>(), new HashMap<>(), new HashMap<>(), SWF.DEFAULT_VERSION, "UTF-8");
+        CountingPartList allBlocks = new CountingPartList();
+        Reference<Throwable> error = new Reference<>(null);
+        Thread t = new Thread(null, () -> {
+            try {
+                graph.makeGraph(graph.code, allBlocks, new ArrayList<>());
+            } catch (Throwable ex) {
+                error.setVal(ex);
+            }
+        }, "makeGraph", 512L * 1024 * 1024);
+        t.start();
+        t.join();
+        if (error.getVal() != null) {
+            throw new Exception(error.getVal());
+        }
+        assertTrue(allBlocks.size() > 0);
+        return allBlocks.visitedCount;
+    }
+
+    @Test
+    public void testSearchPartMatchesLinearScan() throws Exception {
+        List<Action> code = generateCode(50);
+        ActionGraph graph = makeGraph(code);
+        Set<GraphPart> allParts = new HashSet<>();
+        List<GraphPart> listParts = new ArrayList<>();
+        for (GraphPart head : graph.heads) {
+            Graph.populateParts(head, allParts);
+        }
+        listParts.addAll(allParts);
+        for (int ip = -1; ip <= code.size() + 1; ip++) {
+            GraphPart expected = null;
+            for (GraphPart p : listParts) {
+                if (ip >= 0 && ip >= p.start && ip <= p.end) {
+                    expected = p;
+                    break;
+                }
+            }
+            assertEquals(graph.searchPart(ip, allParts), expected);
+            assertEquals(graph.searchPart(ip, listParts), expected);
+        }
+        assertNull(graph.searchPart(code.size() + 100, allParts));
+    }
+
+    @Test
+    public void testMakeGraphDoesNotScanParts() throws Exception {
+        long smallVisited = makeGraphLargeStack(generateCode(SMALL_BLOCK_COUNT));
+        long largeVisited = makeGraphLargeStack(generateCode(LARGE_BLOCK_COUNT));
+
+        //parts are found by the index, linear scans would visit about blockCount^2 / 2 parts
+        assertTrue(smallVisited <= SMALL_BLOCK_COUNT, "Visited parts: " + smallVisited);
+        assertTrue(largeVisited <= LARGE_BLOCK_COUNT, "Visited parts: " + largeVisited);
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ *  Copyright (C) 2010-2022 JPEXS, All rights reserved.
+ * 
+ * This library is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3.0 of the License, or (at your option) any later version.
+ * 
+ * This library is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this library.
+ */
+package com.jpexs.helpers;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ *
+ * @author JPEXS
+ */
+public class StreamSearchTest {
+
+    private static final byte[][] PATTERNS = new byte[][]{
+        "FWS".getBytes(), "CWS".getBytes(), "ZWS".getBytes(), "WS".getBytes(), "GFX".getBytes()
+    };
+
+    private static byte[] createData() {
+        Random random = new Random(42);
+        byte[] data = new byte[100000];
+        byte[] alphabet = "FCZWSGX".getBytes();
+        for (int i = 0; i < data.length; i++) {
+            data[i] = alphabet[random.nextInt(alphabet.length)];
+        }
+        return data;
+    }
+
+    private static List<Long> bruteForce(byte[] data) {
+        List<Long> ret = new ArrayList<>();
+        for (int i = 0; i < data.length; i++) {
+            for (byte[] pattern : PATTERNS) {
+                boolean match = i + pattern.length <= data.length;
+                for (int d = 0; match && d < pattern.length; d++) {
+                    match = data[i + d] == pattern[d];
+                }
+                if (match) {
+                    ret.add((long) i);
+                    break;
+                }
+            }
+        }
+        return ret;
+    }
+
+    @Test
+    public void testMemorySearch() throws IOException {
+        byte[] data = createData();
+        Map<Long, InputStream> found = new StreamSearch(new ByteArrayInputStream(data)).search(PATTERNS);
+        Assert.assertEquals(new ArrayList<>(found.keySet()), bruteForce(data));
+        InputStream is = found.values().iterator().next();
+        Assert.assertEquals(is.read(), data[found.keySet().iterator().next().intValue()] & 0xff);
+    }
+
+    @Test
+    public void testMappedFileSearchAcrossChunks() throws IOException {
+        byte[] data = createData();
+        File file = File.createTempFile("streamsearch", ".bin");
+        try {
+            Files.write(file.toPath(), data);
+            // chunk size not aligned with matches, so some of them cross chunk boundaries
+            Map<Long, InputStream> found = new StreamSearch(file, 1001).search(PATTERNS);
+            Assert.assertEquals(new ArrayList<>(found.keySet()), bruteForce(data));
+            for (Map.Entry<Long, InputStream> entry : found.entrySet()) {
+                byte[] buf = new byte[2];
+                Assert.assertEquals(entry.getValue().read(buf), 2);
+                Assert.assertEquals(buf[0], data[entry.getKey().intValue()]);
+                Assert.assertEquals(buf[1], data[entry.getKey().intValue() + 1]);
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testMappedFileReadAcrossWindows() throws IOException {
+        byte[] data = createData();
+        File file = File.createTempFile("streamsearch", ".bin");
+        try {
+            Files.write(file.toPath(), data);
+            int startPos = 17;
+            int length = 50000;
+            MappedFileInputStream is = new MappedFileInputStream(file, startPos, length, 1000);
+            byte[] buf = new byte[length + 10];
+            Assert.assertEquals(is.read(buf, 0, 2500), 2500);
+            buf[2500] = (byte) is.read();
+            Assert.assertEquals(is.read(buf, 2501, length + 10 - 2501), length - 2501);
+            for (int i = 0; i < length; i++) {
+                Assert.assertEquals(buf[i], data[startPos + i]);
+            }
+            Assert.assertEquals(is.read(), -1);
+            is.seek(999);
+            Assert.assertEquals(is.read(), data[startPos + 999] & 0xff);
+            Assert.assertEquals(is.read(), data[startPos + 1000] & 0xff);
+            Assert.assertEquals(is.skip(length), length - 1001);
+            Assert.assertEquals(is.available(), 0);
+        } finally {
+            file.delete();
+        }
+    }
+}
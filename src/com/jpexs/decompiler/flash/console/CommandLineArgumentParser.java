@@ -154,6 +154,8 @@ import com.jpexs.decompiler.flash.xfl.FLAVersion;
 import com.jpexs.decompiler.flash.xfl.XFLExportSettings;
 import com.jpexs.decompiler.graph.CompilationException;
 import com.jpexs.decompiler.graph.DottedChain;
+import com.jpexs.helpers.Cache;
+import com.jpexs.helpers.CacheStatistics;
 import com.jpexs.helpers.CancellableWorker;
 import com.jpexs.helpers.Helper;
 import com.jpexs.helpers.MemoryInputStream;
@@ -212,6 +214,10 @@ import java.util.Set;
 import java.util.Stack;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -234,6 +240,19 @@ public class CommandLineArgumentParser {
 
     private static String stdErr = null;
 
+    private static int batchThreads = 1;
+
+    private static int batchMemory = 0;
+
+    private static final int BATCH_DEFAULT_MEMORY_MB = 64;
+
+    /**
+     * Estimated heap usage of opened SWF relative to its file size
+     */
+    private static final int BATCH_MEMORY_PER_FILE_SIZE_RATIO = 10;
+
+    private static final String BATCH_RESULTS_FILE_NAME = "batch_results.csv";
+
     private static final String METADATA_FORMAT_JSLIKE = "jslike";
 
     private static final String METADATA_FORMAT_RAW = "raw";
@@ -513,7 +532,17 @@ public class CommandLineArgumentParser {
 
         if (filter == null || filter.equals("stat")) {
             out.println(" " + (cnt++) + ") -stat");
-            out.println("  ...show export performance statistics");
+            out.println("  ...show export performance and cache statistics");
+        }
+
+        if (filter == null || filter.equals("batch")) {
+            out.println(" " + (cnt++) + ") -batch <N>");
+            out.println("  ...export up to N SWF files at once when -export <infile> is a folder. Results and export times of each file are written to " + BATCH_RESULTS_FILE_NAME + " in <outdirectory>");
+        }
+
+        if (filter == null || filter.equals("batchmemory")) {
+            out.println(" " + (cnt++) + ") -batchMemory <N>");
+            out.println("  ...memory budget of a single file for -batch export in megabytes (default " + BATCH_DEFAULT_MEMORY_MB + "). Next file is not opened until the budget of the running exports fits into the maximum heap size");
         }
 
         if (filter == null || filter.equals("flashpaper2pdf")) {
@@ -869,6 +898,12 @@ public class CommandLineArgumentParser {
                 case "-stat":
                     parseStat(args);
                     break;
+                case "-batch":
+                    parseBatch(args);
+                    break;
+                case "-batchmemory":
+                    parseBatchMemory(args);
+                    break;
                 case "-info":
                     parseInfo(args, charset);
                     break;
@@ -1913,6 +1948,34 @@ public class CommandLineArgumentParser {
         Configuration.showStat = showStat;
     }
 
+    private static void parseBatch(Stack<String> args) {
+        if (args.isEmpty()) {
+            System.err.println("thread count parameter expected");
+            badArguments("batch");
+        }
+        try {
+            batchThreads = Integer.parseInt(args.pop());
+            if (batchThreads < 1) {
+                System.err.println("Bad thread count value");
+                batchThreads = 1;
+            }
+        } catch (NumberFormatException nex) {
+            System.err.println("Bad thread count value");
+        }
+    }
+
+    private static void parseBatchMemory(Stack<String> args) {
+        if (args.isEmpty()) {
+            System.err.println("memory parameter expected");
+            badArguments("batchmemory");
+        }
+        try {
+            batchMemory = Integer.parseInt(args.pop());
+        } catch (NumberFormatException nex) {
+            System.err.println("Bad memory value");
+        }
+    }
+
     private static void parseStdOut(Stack<String> args) {
         if (args.isEmpty()) {
             System.err.println("stdOut parameter expected");
@@ -2201,6 +2264,20 @@ public class CommandLineArgumentParser {
             as3classes.addAll(selectionClasses);
         }
 
+        // First check all the specified export formats
+        for (String exportFormat : exportFormats) {
+            if (Arrays.asList(removedExportFormats).contains(exportFormat)) {
+                System.err.println("Error: Export format : " + exportFormat + " was REMOVED. Run application with --help parameter to see available formats.");
+                System.exit(1);
+            } else if (!Arrays.asList(validExportItems).contains(exportFormat)) {
+                System.err.println("Invalid export item:" + exportFormat);
+                badArguments("export");
+            }
+        }
+
+        // Here the exportFormats array should contain only validitems
+        commandLineMode = true;
+
         Map<String, StatisticData> stat = new HashMap<>();
 
         try {
@@ -2213,251 +2290,346 @@ public class CommandLineArgumentParser {
                 inFiles = new File[]{inFileOrFolder};
             }
 
-            for (File inFile : inFiles) {
-                String inFileName = Path.getFileNameWithoutExtension(inFile);
-                if (stdOut != null) {
-                    String outFilePath = stdOut.replace("{swfFile}", inFileName);
-                    Path.createDirectorySafe(new File(outFilePath).getParentFile());
-                    System.setOut(new PrintStream(new FileOutputStream(outFilePath, true)));
+            if (batchThreads > 1 && !singleFile) {
+                exportOK = exportBatch(inFiles, outDirBase, exportFormats, selection, selectionIds, as3classes, handler, traceLevel, formats, zoom, charset);
+            } else {
+                for (File inFile : inFiles) {
+                    Boolean fileExportOK = exportFile(inFile, singleFile, outDirBase, exportFormats, selection, selectionIds, as3classes, handler, traceLevel, formats, zoom, charset, showStat ? stat : null);
+                    if (fileExportOK != null) {
+                        exportOK = fileExportOK && exportOK;
+                    }
+                    CancellableWorker.cancelBackgroundThreads();
                 }
+            }
+        } catch (OutOfMemoryError | Exception ex) {
+            System.err.print("FAIL: Exporting Failed on Exception - ");
+            logger.log(Level.SEVERE, null, ex);
+            System.exit(1);
+        }
 
-                if (stdErr != null) {
-                    String errFilePath = stdErr.replace("{swfFile}", inFileName);
-                    Path.createDirectorySafe(new File(errFilePath).getParentFile());
-                    System.setErr(new PrintStream(new FileOutputStream(errFilePath, true)));
-                    Main.initLogging(Configuration._debugMode.get());
-                }
+        if (showStat) {
+            Statistics.print(stat);
+            for (CacheStatistics cacheStatistics : Cache.getAllStatistics()) {
+                System.out.println(cacheStatistics);
+            }
+        }
 
-                long startTimeSwf = 0;
-                if (!singleFile) {
-                    startTimeSwf = System.currentTimeMillis();
-                    System.out.println("Start exporting " + inFile.getName());
-                }
+        long stopTime = System.currentTimeMillis();
+        long time = stopTime - startTime;
+        System.out.println("Export finished. Total export time: " + Helper.formatTimeSec(time));
+        System.out.println(exportOK ? "OK" : "FAIL");
+        System.exit(exportOK ? 0 : 1);
+    }
 
-                OpenableSourceInfo sourceInfo = new OpenableSourceInfo(null, inFile.getAbsolutePath(), inFile.getName());
-                SWF swf;
+    /**
+     * Exports SWF files of a folder in parallel. Each file is exported by its
+     * own worker, files which would not fit into the heap wait for the running
+     * exports to finish.
+     *
+     * @return True when all the files were exported successfully
+     */
+    private static boolean exportBatch(File[] inFiles, File outDirBase, List<String> exportFormats, Selection selection, Selection selectionIds, List<String> as3classes, AbortRetryIgnoreHandler handler, Level traceLevel, Map<String, String> formats, double zoom, String charset) throws Exception {
+        if (stdOut != null || stdErr != null) {
+            System.err.println("Warning: -stdout and -stderr parameters are ignored in batch export.");
+            stdOut = null;
+            stdErr = null;
+        }
+        if (showStat) {
+            System.err.println("Warning: -stat parameter is ignored in batch export.");
+        }
+
+        long maxMemoryMb = Runtime.getRuntime().maxMemory() / 1024 / 1024;
+        final int totalPermits = (int) Math.max(1, Math.min(Integer.MAX_VALUE, maxMemoryMb));
+        final int fileBudget = batchMemory > 0 ? batchMemory : BATCH_DEFAULT_MEMORY_MB;
+        final Semaphore memory = new Semaphore(totalPermits, true);
+
+        System.out.println("Batch export of " + inFiles.length + " files using " + batchThreads + " threads");
+
+        ExecutorService executor = Executors.newFixedThreadPool(batchThreads);
+        List<Future<String[]>> results = new ArrayList<>();
+        for (final File inFile : inFiles) {
+            long fileSizeMb = inFile.length() / 1024 / 1024;
+            final int permits = (int) Math.min(totalPermits, Math.max(fileBudget, fileSizeMb * BATCH_MEMORY_PER_FILE_SIZE_RATIO));
+            final AbortRetryIgnoreHandler fileHandler = handler.getNewInstance();
+            results.add(executor.submit(() -> {
+                String result;
+                String message = "";
+                memory.acquire(permits);
+                long startTime = System.currentTimeMillis();
                 try {
-                    swf = new SWF(new StdInAwareFileInputStream(inFile), sourceInfo.getFile(), sourceInfo.getFileTitle(), Configuration.parallelSpeedUp.get(), charset);
-                } catch (FileNotFoundException | SwfOpenException ex) {
-                    // FileNotFoundException when anti virus software blocks to open the file
-                    logger.log(Level.SEVERE, "Failed to open swf: " + inFile.getName(), ex);
-                    continue;
+                    Boolean fileExportOK = exportFile(inFile, false, outDirBase, exportFormats, selection, selectionIds, as3classes, fileHandler, traceLevel, formats, zoom, charset, null);
+                    if (fileExportOK == null) {
+                        result = "SKIPPED";
+                    } else {
+                        result = fileExportOK ? "OK" : "FAIL";
+                    }
+                } catch (OutOfMemoryError | Exception ex) {
+                    logger.log(Level.SEVERE, "Exporting failed: " + inFile.getName(), ex);
+                    result = "ERROR";
+                    message = ex.toString();
+                } finally {
+                    memory.release(permits);
                 }
+                long time = System.currentTimeMillis() - startTime;
+                return new String[]{inFile.getName(), result, Long.toString(time), message};
+            }));
+        }
+        executor.shutdown();
 
-                swf.openableList = new OpenableList();
-                swf.openableList.sourceInfo = sourceInfo;
-                String outDir = outDirBase.getAbsolutePath();
-                if (!singleFile) {
-                    outDir = Path.combine(outDir, inFile.getName());
-                }
+        boolean exportOK = true;
+        int okCount = 0;
+        List<String[]> rows = new ArrayList<>();
+        for (Future<String[]> future : results) {
+            String[] row;
+            try {
+                row = future.get();
+            } catch (ExecutionException ex) {
+                throw new IOException(ex.getCause());
+            }
+            rows.add(row);
+            if (row[1].equals("OK")) {
+                okCount++;
+            } else if (!row[1].equals("SKIPPED")) {
+                exportOK = false;
+            }
+        }
+        CancellableWorker.cancelBackgroundThreads();
 
-                List<Tag> extags = new ArrayList<>();
-                for (Tag t : swf.getTags()) {
-                    if (t instanceof CharacterIdTag) {
-                        CharacterIdTag c = (CharacterIdTag) t;
-                        if (selectionIds.contains(c.getCharacterId())) {
-                            extags.add(t);
-                        }
-                    } else if (selectionIds.contains(0)) {
-                        extags.add(t);
-                    }
-                }
+        Path.createDirectorySafe(outDirBase);
+        File resultsFile = new File(outDirBase, BATCH_RESULTS_FILE_NAME);
+        try (PrintWriter pw = new PrintWriter(resultsFile, "UTF-8")) {
+            pw.println("file;result;time_ms;message");
+            for (String[] row : rows) {
+                pw.println(row[0] + ";" + row[1] + ";" + row[2] + ";" + row[3].replace(";", ",").replace("\r", " ").replace("\n", " "));
+            }
+        }
 
-                final Level level = traceLevel;
-                swf.addEventListener(new EventListener() {
-                    @Override
-                    public void handleExportingEvent(String type, int index, int count, Object data) {
-                        if (level.intValue() <= Level.FINE.intValue()) {
-                            String text = "Exporting ";
-                            if (type != null && type.length() > 0) {
-                                text += type + " ";
-                            }
-                            System.out.println(text + index + "/" + count + " " + data);
-                        }
-                    }
+        System.out.println("Batch export finished: " + okCount + "/" + rows.size() + " files OK. Results: " + resultsFile.getAbsolutePath());
+        return exportOK;
+    }
 
-                    @Override
-                    public void handleExportedEvent(String type, int index, int count, Object data) {
-                        String text = "Exported ";
-                        if (type != null && type.length() > 0) {
-                            text += type + " ";
-                        }
-                        System.out.println(text + index + "/" + count + " " + data);
-                    }
+    /**
+     * Exports single SWF file.
+     *
+     * @return Export result or null when the file cannot be opened
+     */
+    private static Boolean exportFile(File inFile, boolean singleFile, File outDirBase, List<String> exportFormats, Selection selection, Selection selectionIds, List<String> as3classes, AbortRetryIgnoreHandler handler, Level traceLevel, Map<String, String> formats, double zoom, String charset, Map<String, StatisticData> stat) throws Exception {
+        boolean exportOK = true;
+        String inFileName = Path.getFileNameWithoutExtension(inFile);
+        if (stdOut != null) {
+            String outFilePath = stdOut.replace("{swfFile}", inFileName);
+            Path.createDirectorySafe(new File(outFilePath).getParentFile());
+            System.setOut(new PrintStream(new FileOutputStream(outFilePath, true)));
+        }
 
-                    @Override
-                    public void handleEvent(String event, Object data) {
-                    }
-                });
+        if (stdErr != null) {
+            String errFilePath = stdErr.replace("{swfFile}", inFileName);
+            Path.createDirectorySafe(new File(errFilePath).getParentFile());
+            System.setErr(new PrintStream(new FileOutputStream(errFilePath, true)));
+            Main.initLogging(Configuration._debugMode.get());
+        }
 
-                // First check all the specified export formats
-                for (String exportFormat : exportFormats) {
-                    if (Arrays.asList(removedExportFormats).contains(exportFormat)) {
-                        System.err.println("Error: Export format : " + exportFormat + " was REMOVED. Run application with --help parameter to see available formats.");
-                        System.exit(1);
-                    } else if (!Arrays.asList(validExportItems).contains(exportFormat)) {
-                        System.err.println("Invalid export item:" + exportFormat);
-                        badArguments("export");
-                    }
-                }
+        long startTimeSwf = 0;
+        if (!singleFile) {
+            startTimeSwf = System.currentTimeMillis();
+            System.out.println("Start exporting " + inFile.getName());
+        }
 
-                // Here the exportFormats array should contain only validitems
-                commandLineMode = true;
-                boolean exportAll = exportFormats.contains("all");
-                boolean multipleExportTypes = exportAll || exportFormats.size() > 1;
-                EventListener evl = swf.getExportEventListener();
+        OpenableSourceInfo sourceInfo = new OpenableSourceInfo(null, inFile.getAbsolutePath(), inFile.getName());
+        SWF swf;
+        try {
+            swf = new SWF(new StdInAwareFileInputStream(inFile), sourceInfo.getFile(), sourceInfo.getFileTitle(), Configuration.parallelSpeedUp.get(), charset);
+        } catch (FileNotFoundException | SwfOpenException ex) {
+            // FileNotFoundException when anti virus software blocks to open the file
+            logger.log(Level.SEVERE, "Failed to open swf: " + inFile.getName(), ex);
+            return null;
+        }
 
-                if (exportAll || exportFormats.contains("image")) {
-                    System.out.println("Exporting images...");
-                    new ImageExporter().exportImages(handler, outDir + (multipleExportTypes ? File.separator + ImageExportSettings.EXPORT_FOLDER_NAME : ""), new ReadOnlyTagList(extags), new ImageExportSettings(enumFromStr(formats.get("image"), ImageExportMode.class)), evl);
-                }
+        swf.openableList = new OpenableList();
+        swf.openableList.sourceInfo = sourceInfo;
+        String outDir = outDirBase.getAbsolutePath();
+        if (!singleFile) {
+            outDir = Path.combine(outDir, inFile.getName());
+        }
 
-                if (exportAll || exportFormats.contains("shape")) {
-                    System.out.println("Exporting shapes...");
-                    new ShapeExporter().exportShapes(handler, outDir + (multipleExportTypes ? File.separator + ShapeExportSettings.EXPORT_FOLDER_NAME : ""), swf, new ReadOnlyTagList(extags), new ShapeExportSettings(enumFromStr(formats.get("shape"), ShapeExportMode.class), zoom), evl, zoom);
+        List<Tag> extags = new ArrayList<>();
+        for (Tag t : swf.getTags()) {
+            if (t instanceof CharacterIdTag) {
+                CharacterIdTag c = (CharacterIdTag) t;
+                if (selectionIds.contains(c.getCharacterId())) {
+                    extags.add(t);
                 }
+            } else if (selectionIds.contains(0)) {
+                extags.add(t);
+            }
+        }
 
-                if (exportAll || exportFormats.contains("morphshape")) {
-                    System.out.println("Exporting morphshapes...");
-                    new MorphShapeExporter().exportMorphShapes(handler, outDir + (multipleExportTypes ? File.separator + MorphShapeExportSettings.EXPORT_FOLDER_NAME : ""), new ReadOnlyTagList(extags), new MorphShapeExportSettings(enumFromStr(formats.get("morphshape"), MorphShapeExportMode.class), zoom), evl);
+        final Level level = traceLevel;
+        swf.addEventListener(new EventListener() {
+            @Override
+            public void handleExportingEvent(String type, int index, int count, Object data) {
+                if (level.intValue() <= Level.FINE.intValue()) {
+                    String text = "Exporting ";
+                    if (type != null && type.length() > 0) {
+                        text += type + " ";
+                    }
+                    System.out.println(text + index + "/" + count + " " + data);
                 }
+            }
 
-                if (exportAll || exportFormats.contains("movie")) {
-                    System.out.println("Exporting movies...");
-                    new MovieExporter().exportMovies(handler, outDir + (multipleExportTypes ? File.separator + MovieExportSettings.EXPORT_FOLDER_NAME : ""), new ReadOnlyTagList(extags), new MovieExportSettings(enumFromStr(formats.get("movie"), MovieExportMode.class)), evl);
+            @Override
+            public void handleExportedEvent(String type, int index, int count, Object data) {
+                String text = "Exported ";
+                if (type != null && type.length() > 0) {
+                    text += type + " ";
                 }
+                System.out.println(text + index + "/" + count + " " + data);
+            }
 
-                if (exportAll || exportFormats.contains("font")) {
-                    System.out.println("Exporting fonts...");
-                    new FontExporter().exportFonts(handler, outDir + (multipleExportTypes ? File.separator + FontExportSettings.EXPORT_FOLDER_NAME : ""), new ReadOnlyTagList(extags), new FontExportSettings(enumFromStr(formats.get("font"), FontExportMode.class)), evl);
-                }
+            @Override
+            public void handleEvent(String event, Object data) {
+            }
+        });
 
-                if (exportAll || exportFormats.contains("sound")) {
-                    System.out.println("Exporting sounds...");
-                    new SoundExporter().exportSounds(handler, outDir + (multipleExportTypes ? File.separator + SoundExportSettings.EXPORT_FOLDER_NAME : ""), new ReadOnlyTagList(extags), new SoundExportSettings(enumFromStr(formats.get("sound"), SoundExportMode.class)), evl);
-                }
+        boolean exportAll = exportFormats.contains("all");
+        boolean multipleExportTypes = exportAll || exportFormats.size() > 1;
+        EventListener evl = swf.getExportEventListener();
 
-                if (exportAll || exportFormats.contains("binarydata")) {
-                    System.out.println("Exporting binaryData...");
-                    new BinaryDataExporter().exportBinaryData(handler, outDir + (multipleExportTypes ? File.separator + BinaryDataExportSettings.EXPORT_FOLDER_NAME : ""), new ReadOnlyTagList(extags), new BinaryDataExportSettings(enumFromStr(formats.get("binarydata"), BinaryDataExportMode.class)), evl);
-                }
+        if (exportAll || exportFormats.contains("image")) {
+            System.out.println("Exporting images...");
+            new ImageExporter().exportImages(handler, outDir + (multipleExportTypes ? File.separator + ImageExportSettings.EXPORT_FOLDER_NAME : ""), new ReadOnlyTagList(extags), new ImageExportSettings(enumFromStr(formats.get("image"), ImageExportMode.class)), evl);
+        }
 
-                if (exportAll || exportFormats.contains("symbolclass")) {
-                    System.out.println("Exporting symbolClass...");
-                    new SymbolClassExporter().exportNames(handler, outDir + (multipleExportTypes ? File.separator + SymbolClassExportSettings.EXPORT_FOLDER_NAME : ""), new ReadOnlyTagList(extags), new SymbolClassExportSettings(enumFromStr(formats.get("symbolclass"), SymbolClassExportMode.class)), evl);
-                }
+        if (exportAll || exportFormats.contains("shape")) {
+            System.out.println("Exporting shapes...");
+            new ShapeExporter().exportShapes(handler, outDir + (multipleExportTypes ? File.separator + ShapeExportSettings.EXPORT_FOLDER_NAME : ""), swf, new ReadOnlyTagList(extags), new ShapeExportSettings(enumFromStr(formats.get("shape"), ShapeExportMode.class), zoom), evl, zoom);
+        }
 
-                if (exportAll || exportFormats.contains("text")) {
-                    System.out.println("Exporting texts...");
-                    Boolean singleTextFile = parseBooleanConfigValue(formats.get("singletext"));
-                    if (singleTextFile == null) {
-                        singleTextFile = Configuration.textExportSingleFile.get();
-                    }
-                    new TextExporter().exportTexts(handler, outDir + (multipleExportTypes ? File.separator + TextExportSettings.EXPORT_FOLDER_NAME : ""), new ReadOnlyTagList(extags), new TextExportSettings(enumFromStr(formats.get("text"), TextExportMode.class), singleTextFile, zoom), evl);
-                }
+        if (exportAll || exportFormats.contains("morphshape")) {
+            System.out.println("Exporting morphshapes...");
+            new MorphShapeExporter().exportMorphShapes(handler, outDir + (multipleExportTypes ? File.separator + MorphShapeExportSettings.EXPORT_FOLDER_NAME : ""), new ReadOnlyTagList(extags), new MorphShapeExportSettings(enumFromStr(formats.get("morphshape"), MorphShapeExportMode.class), zoom), evl);
+        }
 
-                FrameExporter frameExporter = new FrameExporter();
+        if (exportAll || exportFormats.contains("movie")) {
+            System.out.println("Exporting movies...");
+            new MovieExporter().exportMovies(handler, outDir + (multipleExportTypes ? File.separator + MovieExportSettings.EXPORT_FOLDER_NAME : ""), new ReadOnlyTagList(extags), new MovieExportSettings(enumFromStr(formats.get("movie"), MovieExportMode.class)), evl);
+        }
 
-                if (exportAll || exportFormats.contains("frame")) {
-                    System.out.println("Exporting frames...");
-                    List<Integer> frames = new ArrayList<>();
-                    for (int i = 0; i < swf.frameCount; i++) {
-                        if (selection.contains(i + 1)) {
-                            frames.add(i);
-                        }
-                    }
-                    FrameExportSettings fes = new FrameExportSettings(enumFromStr(formats.get("frame"), FrameExportMode.class), zoom);
-                    frameExporter.exportFrames(handler, outDir + (multipleExportTypes ? File.separator + FrameExportSettings.EXPORT_FOLDER_NAME : ""), swf, 0, frames, fes, evl);
-                }
+        if (exportAll || exportFormats.contains("font")) {
+            System.out.println("Exporting fonts...");
+            new FontExporter().exportFonts(handler, outDir + (multipleExportTypes ? File.separator + FontExportSettings.EXPORT_FOLDER_NAME : ""), new ReadOnlyTagList(extags), new FontExportSettings(enumFromStr(formats.get("font"), FontExportMode.class)), evl);
+        }
 
-                if (exportAll || exportFormats.contains("sprite")) {
-                    System.out.println("Exporting sprite...");
-                    SpriteExportSettings ses = new SpriteExportSettings(enumFromStr(formats.get("sprite"), SpriteExportMode.class), zoom);
-                    for (Tag t : extags) {
-                        if (t instanceof DefineSpriteTag) {
-                            frameExporter.exportSpriteFrames(handler, outDir + (multipleExportTypes ? File.separator + SpriteExportSettings.EXPORT_FOLDER_NAME : ""), swf, ((DefineSpriteTag) t).getCharacterId(), null, ses, evl);
-                        }
-                    }
-                }
+        if (exportAll || exportFormats.contains("sound")) {
+            System.out.println("Exporting sounds...");
+            new SoundExporter().exportSounds(handler, outDir + (multipleExportTypes ? File.separator + SoundExportSettings.EXPORT_FOLDER_NAME : ""), new ReadOnlyTagList(extags), new SoundExportSettings(enumFromStr(formats.get("sound"), SoundExportMode.class)), evl);
+        }
 
-                if (exportAll || exportFormats.contains("button")) {
-                    System.out.println("Exporting buttons...");
-                    ButtonExportSettings bes = new ButtonExportSettings(enumFromStr(formats.get("button"), ButtonExportMode.class), zoom);
-                    for (Tag t : extags) {
-                        if (t instanceof ButtonTag) {
-                            frameExporter.exportButtonFrames(handler, outDir + (multipleExportTypes ? File.separator + ButtonExportSettings.EXPORT_FOLDER_NAME : ""), swf, ((ButtonTag) t).getCharacterId(), null, bes, evl);
-                        }
-                    }
-                }
+        if (exportAll || exportFormats.contains("binarydata")) {
+            System.out.println("Exporting binaryData...");
+            new BinaryDataExporter().exportBinaryData(handler, outDir + (multipleExportTypes ? File.separator + BinaryDataExportSettings.EXPORT_FOLDER_NAME : ""), new ReadOnlyTagList(extags), new BinaryDataExportSettings(enumFromStr(formats.get("binarydata"), BinaryDataExportMode.class)), evl);
+        }
 
-                boolean parallel = Configuration.parallelSpeedUp.get();
-                Boolean singleScriptFile = parseBooleanConfigValue(formats.get("singlescript"));
-                if (singleScriptFile == null) {
-                    singleScriptFile = Configuration.scriptExportSingleFile.get();
-                }
+        if (exportAll || exportFormats.contains("symbolclass")) {
+            System.out.println("Exporting symbolClass...");
+            new SymbolClassExporter().exportNames(handler, outDir + (multipleExportTypes ? File.separator + SymbolClassExportSettings.EXPORT_FOLDER_NAME : ""), new ReadOnlyTagList(extags), new SymbolClassExportSettings(enumFromStr(formats.get("symbolclass"), SymbolClassExportMode.class)), evl);
+        }
 
-                if (parallel && singleScriptFile) {
-                    logger.log(Level.WARNING, AppStrings.translate("export.script.singleFilePallelModeWarning"));
-                    singleScriptFile = false;
-                }
+        if (exportAll || exportFormats.contains("text")) {
+            System.out.println("Exporting texts...");
+            Boolean singleTextFile = parseBooleanConfigValue(formats.get("singletext"));
+            if (singleTextFile == null) {
+                singleTextFile = Configuration.textExportSingleFile.get();
+            }
+            new TextExporter().exportTexts(handler, outDir + (multipleExportTypes ? File.separator + TextExportSettings.EXPORT_FOLDER_NAME : ""), new ReadOnlyTagList(extags), new TextExportSettings(enumFromStr(formats.get("text"), TextExportMode.class), singleTextFile, zoom), evl);
+        }
 
-                ScriptExportSettings scriptExportSettings = new ScriptExportSettings(enumFromStr(formats.get("script"), ScriptExportMode.class), singleScriptFile, false);
-                boolean exportAllScript = exportAll || exportFormats.contains("script");
-                boolean exportAs2Script = exportAllScript || exportFormats.contains("script_as2");
-                boolean exportAs3Script = exportAllScript || exportFormats.contains("script_as3");
-                if (exportAs2Script || exportAs3Script) {
-                    System.out.println("Exporting scripts...");
-
-                    String scriptsFolder = Path.combine(outDir, ScriptExportSettings.EXPORT_FOLDER_NAME);
-                    Path.createDirectorySafe(new File(scriptsFolder));
-                    String singleFileName = Path.combine(scriptsFolder, swf.getShortFileName() + scriptExportSettings.getFileExtension());
-                    try ( FileTextWriter writer = scriptExportSettings.singleFile ? new FileTextWriter(Configuration.getCodeFormatting(), new FileOutputStream(singleFileName)) : null) {
-                        scriptExportSettings.singleFileWriter = writer;
-                        List<ScriptPack> as3packs = as3classes.isEmpty() ? null : swf.getScriptPacksByClassNames(as3classes);
-                        exportOK = swf.exportActionScript(handler, scriptsFolder, as3classes.isEmpty() ? null : as3packs, scriptExportSettings, parallel, evl, exportAs2Script, exportAs3Script) != null && exportOK;
-                    }
+        FrameExporter frameExporter = new FrameExporter();
 
-                    if (showStat) {
-                        Statistics.print();
-                        Statistics.addToMap(stat);
-                        Statistics.clear();
-                    }
+        if (exportAll || exportFormats.contains("frame")) {
+            System.out.println("Exporting frames...");
+            List<Integer> frames = new ArrayList<>();
+            for (int i = 0; i < swf.frameCount; i++) {
+                if (selection.contains(i + 1)) {
+                    frames.add(i);
                 }
+            }
+            FrameExportSettings fes = new FrameExportSettings(enumFromStr(formats.get("frame"), FrameExportMode.class), zoom);
+            frameExporter.exportFrames(handler, outDir + (multipleExportTypes ? File.separator + FrameExportSettings.EXPORT_FOLDER_NAME : ""), swf, 0, frames, fes, evl);
+        }
 
-                if (exportFormats.contains("fla")) {
-                    System.out.println("Exporting FLA...");
-                    exportFla(true, outDir, inFile, swf, multipleExportTypes, formats, handler);
+        if (exportAll || exportFormats.contains("sprite")) {
+            System.out.println("Exporting sprite...");
+            SpriteExportSettings ses = new SpriteExportSettings(enumFromStr(formats.get("sprite"), SpriteExportMode.class), zoom);
+            for (Tag t : extags) {
+                if (t instanceof DefineSpriteTag) {
+                    frameExporter.exportSpriteFrames(handler, outDir + (multipleExportTypes ? File.separator + SpriteExportSettings.EXPORT_FOLDER_NAME : ""), swf, ((DefineSpriteTag) t).getCharacterId(), null, ses, evl);
                 }
+            }
+        }
 
-                if (exportFormats.contains("xfl")) {
-                    System.out.println("Exporting XFL...");
-                    exportFla(false, outDir, inFile, swf, multipleExportTypes, formats, handler);
+        if (exportAll || exportFormats.contains("button")) {
+            System.out.println("Exporting buttons...");
+            ButtonExportSettings bes = new ButtonExportSettings(enumFromStr(formats.get("button"), ButtonExportMode.class), zoom);
+            for (Tag t : extags) {
+                if (t instanceof ButtonTag) {
+                    frameExporter.exportButtonFrames(handler, outDir + (multipleExportTypes ? File.separator + ButtonExportSettings.EXPORT_FOLDER_NAME : ""), swf, ((ButtonTag) t).getCharacterId(), null, bes, evl);
                 }
+            }
+        }
 
-                if (!singleFile) {
-                    long stopTimeSwf = System.currentTimeMillis();
-                    long time = stopTimeSwf - startTimeSwf;
-                    System.out.println("Export finished: " + inFile.getName() + " Export time: " + Helper.formatTimeSec(time));
-                }
+        boolean parallel = Configuration.parallelSpeedUp.get();
+        Boolean singleScriptFile = parseBooleanConfigValue(formats.get("singlescript"));
+        if (singleScriptFile == null) {
+            singleScriptFile = Configuration.scriptExportSingleFile.get();
+        }
 
-                swf.clearAllCache();
-                CancellableWorker.cancelBackgroundThreads();
+        if (parallel && singleScriptFile) {
+            logger.log(Level.WARNING, AppStrings.translate("export.script.singleFilePallelModeWarning"));
+            singleScriptFile = false;
+        }
+
+        ScriptExportSettings scriptExportSettings = new ScriptExportSettings(enumFromStr(formats.get("script"), ScriptExportMode.class), singleScriptFile, false);
+        boolean exportAllScript = exportAll || exportFormats.contains("script");
+        boolean exportAs2Script = exportAllScript || exportFormats.contains("script_as2");
+        boolean exportAs3Script = exportAllScript || exportFormats.contains("script_as3");
+        if (exportAs2Script || exportAs3Script) {
+            System.out.println("Exporting scripts...");
+
+            String scriptsFolder = Path.combine(outDir, ScriptExportSettings.EXPORT_FOLDER_NAME);
+            Path.createDirectorySafe(new File(scriptsFolder));
+            String singleFileName = Path.combine(scriptsFolder, swf.getShortFileName() + scriptExportSettings.getFileExtension());
+            try ( FileTextWriter writer = scriptExportSettings.singleFile ? new FileTextWriter(Configuration.getCodeFormatting(), new FileOutputStream(singleFileName)) : null) {
+                scriptExportSettings.singleFileWriter = writer;
+                List<ScriptPack> as3packs = as3classes.isEmpty() ? null : swf.getScriptPacksByClassNames(as3classes);
+                exportOK = swf.exportActionScript(handler, scriptsFolder, as3classes.isEmpty() ? null : as3packs, scriptExportSettings, parallel, evl, exportAs2Script, exportAs3Script) != null && exportOK;
+            }
+
+            if (stat != null) {
+                Statistics.print();
+                Statistics.addToMap(stat);
+                Statistics.clear();
             }
-        } catch (OutOfMemoryError | Exception ex) {
-            System.err.print("FAIL: Exporting Failed on Exception - ");
-            logger.log(Level.SEVERE, null, ex);
-            System.exit(1);
         }
 
-        if (showStat) {
-            Statistics.print(stat);
+        if (exportFormats.contains("fla")) {
+            System.out.println("Exporting FLA...");
+            exportFla(true, outDir, inFile, swf, multipleExportTypes, formats, handler);
         }
 
-        long stopTime = System.currentTimeMillis();
-        long time = stopTime - startTime;
-        System.out.println("Export finished. Total export time: " + Helper.formatTimeSec(time));
-        System.out.println(exportOK ? "OK" : "FAIL");
-        System.exit(exportOK ? 0 : 1);
+        if (exportFormats.contains("xfl")) {
+            System.out.println("Exporting XFL...");
+            exportFla(false, outDir, inFile, swf, multipleExportTypes, formats, handler);
+        }
+
+        if (!singleFile) {
+            long stopTimeSwf = System.currentTimeMillis();
+            long time = stopTimeSwf - startTimeSwf;
+            System.out.println("Export finished: " + inFile.getName() + " Export time: " + Helper.formatTimeSec(time));
+        }
+
+        swf.clearAllCache();
+        return exportOK;
     }
 
     private static void exportFla(boolean compressed, String outDir, File inFile, SWF swf, boolean multipleExportTypes, Map<String, String> formats, AbortRetryIgnoreHandler handler) throws IOException, InterruptedException {
@@ -32,6 +32,7 @@ import com.jpexs.decompiler.flash.treeitems.TreeItem;
 import com.jpexs.decompiler.flash.types.RECT;
 import com.jpexs.helpers.Cache;
 import com.jpexs.helpers.SerializableImage;
+import com.jpexs.helpers.SharedExecutor;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Font;
@@ -47,8 +48,6 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.UIManager;
@@ -64,8 +63,6 @@ import org.pushingpixels.substance.api.SubstanceSkin;
  */
 public class FolderPreviewPanel extends JPanel {
 
-    private static ExecutorService executor;
-
     private List<TreeItem> items;
 
     private int selectedIndex = -1;
@@ -94,7 +91,6 @@ public class FolderPreviewPanel extends JPanel {
 
     static {
         noImage.fillTransparent();
-        executor = Executors.newFixedThreadPool(Configuration.parallelSpeedUp.get() ? Configuration.getParallelThreadCount() : 1);
     }
 
     public FolderPreviewPanel(final MainPanel mainPanel, List<TreeItem> items) {
@@ -160,8 +156,7 @@ public class FolderPreviewPanel extends JPanel {
 
     public synchronized void setItems(List<TreeItem> items) {
         this.items = items;
-        executor.shutdownNow();
-        executor = Executors.newFixedThreadPool(Configuration.parallelSpeedUp.get() ? Configuration.getParallelThreadCount() : 1);
+        SharedExecutor.cancel(this);
         cachedPreviews.clear();
         revalidate();
         repaint();
@@ -171,7 +166,7 @@ public class FolderPreviewPanel extends JPanel {
 
     public void clear() {
         items = new ArrayList<>();
-        executor.shutdownNow();
+        SharedExecutor.cancel(this);
         cachedPreviews.clear();
         selectedItems.clear();
         selectedIndex = -1;
@@ -265,7 +260,7 @@ public class FolderPreviewPanel extends JPanel {
     }
 
     private synchronized void renderImageTask(final int index, final TreeItem treeItem) {
-        executor.submit(() -> {
+        SharedExecutor.submit(this, () -> {
             cachedPreviews.put(index, renderImage((SWF)treeItem.getOpenable(), treeItem));
             if (!repaintQueued) {
                 repaintQueued = true;
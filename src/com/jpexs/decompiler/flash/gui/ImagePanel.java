@@ -38,10 +38,13 @@ import com.jpexs.decompiler.flash.tags.base.CharacterTag;
 import com.jpexs.decompiler.flash.tags.base.DisplayObjectCacheKey;
 import com.jpexs.decompiler.flash.tags.base.DrawableTag;
 import com.jpexs.decompiler.flash.tags.base.RenderContext;
+import com.jpexs.decompiler.flash.tags.base.RenderSession;
 import com.jpexs.decompiler.flash.tags.base.SoundTag;
 import com.jpexs.decompiler.flash.tags.base.TextTag;
 import com.jpexs.decompiler.flash.timeline.DepthState;
+import com.jpexs.decompiler.flash.timeline.DirtyRegionTracker;
 import com.jpexs.decompiler.flash.timeline.Frame;
+import com.jpexs.decompiler.flash.timeline.FrameLayers;
 import com.jpexs.decompiler.flash.timeline.Timeline;
 import com.jpexs.decompiler.flash.timeline.Timelined;
 import com.jpexs.decompiler.flash.types.BUTTONCONDACTION;
@@ -93,6 +96,7 @@ import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.logging.Level;
@@ -164,6 +168,20 @@ public final class ImagePanel extends JPanel implements MediaDisplay {
 
     private final Object delayObject = new Object();
 
+    private final RenderSession renderSession = new RenderSession();
+
+    private final DirtyRegionTracker dirtyRegionTracker = new DirtyRegionTracker();
+
+    private SerializableImage retainedImage;
+
+    private ExportRectangle retainedViewRect;
+
+    private double retainedZoom;
+
+    private Point retainedCursorPosition;
+
+    private int retainedMouseButton;
+
     private boolean drawReady;
 
     private final int drawWaitLimit = 50; // ms
@@ -1536,6 +1554,7 @@ public final class ImagePanel extends JPanel implements MediaDisplay {
             Rectangle oldRect = new Rectangle(_rect);
             this.zoom = zoom;
             displayObjectCache.clear();
+            clearRetainedImage();
             double zoomDouble = zoom.fit ? getZoomToFit() : zoom.value;
             offsetPoint.x = (int) (offsetPoint.x * zoomDouble / zoomDoubleBefore);
             offsetPoint.y = (int) (offsetPoint.y * zoomDouble / zoomDoubleBefore);
@@ -1631,6 +1650,10 @@ public final class ImagePanel extends JPanel implements MediaDisplay {
 
             @Override
             public Object callFunction(long functionAddress, long functionLength, List<Object> args, Map<Integer, String> regNames, Object thisObj) {
+                if (swf.uncompressedData == null) {
+                    //SWF read from mapped file, function addresses are not file positions
+                    return Undefined.INSTANCE;
+                }
                 try {
                     SWFInputStream sis = new SWFInputStream(swf, swf.uncompressedData, functionAddress, (int) (functionAddress + functionLength));
                     return execute(sis);
@@ -1686,6 +1709,7 @@ public final class ImagePanel extends JPanel implements MediaDisplay {
             }
 
             displayObjectCache.clear();
+            clearRetainedImage();
             this.timelined = drawable;
             this.swf = swf;
             zoomAvailable = true;
@@ -1845,6 +1869,12 @@ public final class ImagePanel extends JPanel implements MediaDisplay {
         textTag = null;
         newTextTag = null;
         displayObjectCache.clear();
+        clearRetainedImage();
+    }
+
+    private void clearRetainedImage() {
+        dirtyRegionTracker.reset();
+        retainedImage = null;
     }
 
     private void nextFrame(Timer thisTimer, final int cnt, final int timeShouldBe) {
@@ -1882,7 +1912,7 @@ public final class ImagePanel extends JPanel implements MediaDisplay {
         fireMediaDisplayStateChanged();
     }
 
-    private static SerializableImage getFrame(ExportRectangle viewRect, SWF swf, int frame, int time, Timelined drawable, RenderContext renderContext, int selectedDepth, int freeTransformDepth, double zoom, Reference<Point2D> registrationPointRef, Reference<Rectangle2D> boundsRef, Matrix transform, Matrix temporaryMatrix) {        
+    private SerializableImage getFrame(ExportRectangle viewRect, SWF swf, int frame, int time, Timelined drawable, RenderContext renderContext, int selectedDepth, int freeTransformDepth, double zoom, Reference<Point2D> registrationPointRef, Reference<Rectangle2D> boundsRef, Matrix transform, Matrix temporaryMatrix) {        
         Timeline timeline = drawable.getTimeline();
         SerializableImage img;
         RECT rect = drawable.getRect();
@@ -1895,9 +1925,8 @@ public final class ImagePanel extends JPanel implements MediaDisplay {
         if (height == 0) {
             height = 1;
         }
-        SerializableImage image = new SerializableImage((int) Math.ceil(width / SWF.unitDivisor),
-                (int) Math.ceil(height / SWF.unitDivisor), SerializableImage.TYPE_INT_ARGB);
-        image.fillTransparent();
+        width = (int) Math.ceil(width / SWF.unitDivisor);
+        height = (int) Math.ceil(height / SWF.unitDivisor);
 
         Matrix m = new Matrix();
         m.translate(-viewRect.xMin * zoom, -viewRect.yMin * zoom);
@@ -1911,12 +1940,24 @@ public final class ImagePanel extends JPanel implements MediaDisplay {
             Matrix eMatrix = Matrix.getScaleInstance(1 / SWF.unitDivisor).concatenate(m).inverse();
 
             MATRIX newMatrix = transform.preConcatenate(eMatrix).toMATRIX();
-            oldMatrix = timeline.getFrame(frame).layers.get(freeTransformDepth).matrix;
+            FrameLayers layers = timeline.getFrame(frame).layers;
+            DepthState ds = layers.get(freeTransformDepth);
+            oldMatrix = ds.matrix;
 
-            timeline.getFrame(frame).layers.get(freeTransformDepth).matrix = newMatrix;
+            //states returned by get are read only, put the state to the frame before modifying it
+            layers.put(freeTransformDepth, ds);
+            ds.matrix = newMatrix;
         }
 
-        timeline.toImage(frame, time, renderContext, image, image, false, m, new Matrix(), m, null, zoom, false, viewRect, fullM, true, Timeline.DRAW_MODE_ALL, 0);
+        SerializableImage image;
+        if (freeTransformDepth > -1 || !Configuration.dirtyRectanglePlayback.get()) {
+            clearRetainedImage();
+            image = new SerializableImage(width, height, SerializableImage.TYPE_INT_ARGB);
+            image.fillTransparent();
+            timeline.toImage(frame, time, renderContext, image, image, false, m, new Matrix(), m, null, zoom, false, viewRect, fullM, true, Timeline.DRAW_MODE_ALL, 0);
+        } else {
+            image = getRetainedFrame(viewRect, timeline, frame, time, renderContext, zoom, m, width, height);
+        }
 
         Graphics2D gg = (Graphics2D) image.getGraphics();
         gg.setStroke(new BasicStroke(3));
@@ -2003,6 +2044,82 @@ public final class ImagePanel extends JPanel implements MediaDisplay {
         return img;
     }
 
+    /**
+     * Renders the frame to the retained image of the previous frame. Only the
+     * regions of the depths changed since the previous frame are rendered
+     * when the view, zoom and cursor are the same.
+     *
+     * @return Copy of the retained image
+     */
+    private SerializableImage getRetainedFrame(ExportRectangle viewRect, Timeline timeline, int frame, int time, RenderContext renderContext, double zoom, Matrix m, int width, int height) {
+        Point cursorPosition = renderContext.cursorPosition;
+        boolean incremental = dirtyRegionTracker.update(timeline, frame, time)
+                && retainedImage != null
+                && retainedImage.getWidth() == width
+                && retainedImage.getHeight() == height
+                && viewRect.equals(retainedViewRect)
+                && zoom == retainedZoom
+                && Objects.equals(cursorPosition, retainedCursorPosition)
+                && renderContext.mouseButton == retainedMouseButton;
+        retainedViewRect = new ExportRectangle(viewRect);
+        retainedZoom = zoom;
+        retainedCursorPosition = cursorPosition == null ? null : new Point(cursorPosition);
+        retainedMouseButton = renderContext.mouseButton;
+
+        Rectangle dirty = null;
+        if (incremental) {
+            ExportRectangle dirtyRect = dirtyRegionTracker.getDirtyRect();
+            if (dirtyRect != null) {
+                // one pixel more for antialiasing
+                int x0 = (int) Math.floor((dirtyRect.xMin - viewRect.xMin) * zoom / SWF.unitDivisor) - 1;
+                int y0 = (int) Math.floor((dirtyRect.yMin - viewRect.yMin) * zoom / SWF.unitDivisor) - 1;
+                int x1 = (int) Math.ceil((dirtyRect.xMax - viewRect.xMin) * zoom / SWF.unitDivisor) + 1;
+                int y1 = (int) Math.ceil((dirtyRect.yMax - viewRect.yMin) * zoom / SWF.unitDivisor) + 1;
+                dirty = new Rectangle(x0, y0, x1 - x0, y1 - y0);
+                if (cursorPosition != null) {
+                    // objects under cursor are detected during rendering
+                    dirty.add(new Rectangle((int) (cursorPosition.x / SWF.unitDivisor) - 1, (int) (cursorPosition.y / SWF.unitDivisor) - 1, 3, 3));
+                }
+                dirty = dirty.intersection(new Rectangle(0, 0, width, height));
+                if ((long) dirty.width * dirty.height * 2 > (long) width * height) {
+                    incremental = false;
+                }
+            }
+        }
+
+        if (!incremental) {
+            retainedImage = new SerializableImage(width, height, SerializableImage.TYPE_INT_ARGB);
+            retainedImage.fillTransparent();
+            timeline.toImage(frame, time, renderContext, retainedImage, retainedImage, false, m, new Matrix(), m, null, zoom, false, viewRect, m.clone(), true, Timeline.DRAW_MODE_ALL, 0);
+        } else if (dirty != null && !dirty.isEmpty()) {
+            // objects crossing the edge of the rendered region are cut off
+            // in their intermediate images, so the region is rendered larger
+            Rectangle render = new Rectangle(dirty.x - 2, dirty.y - 2, dirty.width + 4, dirty.height + 4).intersection(new Rectangle(0, 0, width, height));
+            Matrix regionMatrix = m.clone();
+            regionMatrix.translateX -= render.x * SWF.unitDivisor;
+            regionMatrix.translateY -= render.y * SWF.unitDivisor;
+            ExportRectangle regionViewRect = new ExportRectangle(
+                    viewRect.xMin + render.x * SWF.unitDivisor / zoom,
+                    viewRect.yMin + render.y * SWF.unitDivisor / zoom,
+                    viewRect.xMin + (render.x + render.width) * SWF.unitDivisor / zoom,
+                    viewRect.yMin + (render.y + render.height) * SWF.unitDivisor / zoom);
+            SerializableImage region = new SerializableImage(render.width, render.height, SerializableImage.TYPE_INT_ARGB);
+            region.fillTransparent();
+            timeline.toImage(frame, time, renderContext, region, region, false, regionMatrix, new Matrix(), regionMatrix, null, zoom, false, regionViewRect, regionMatrix.clone(), true, Timeline.DRAW_MODE_ALL, 0);
+            Graphics2D g = retainedImage.getBufferedImage().createGraphics();
+            g.setComposite(AlphaComposite.Src);
+            g.drawImage(region.getBufferedImage().getSubimage(dirty.x - render.x, dirty.y - render.y, dirty.width, dirty.height), dirty.x, dirty.y, null);
+            g.dispose();
+        }
+
+        SerializableImage image = new SerializableImage(width, height, SerializableImage.TYPE_INT_ARGB);
+        Graphics2D g = image.getBufferedImage().createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.drawImage(retainedImage.getBufferedImage(), 0, 0, null);
+        g.dispose();
+        return image;
+    }
+
     private static void drawRegistrationPoint(Graphics2D g2, Point2D registrationPoint) {
         Stroke stroke = new BasicStroke(1);
         g2.setStroke(stroke);
@@ -2219,6 +2336,10 @@ public final class ImagePanel extends JPanel implements MediaDisplay {
 
         RenderContext renderContext = new RenderContext();
         renderContext.displayObjectCache = displayObjectCache;
+        renderContext.renderSession = renderSession;
+        if (swf != null) {
+            renderContext.rasterCache = swf.getRasterCache();
+        }
         if (cursorPosition != null && freeTransformDepth == -1) {
             renderContext.cursorPosition = new Point((int) (cursorPosition.x * SWF.unitDivisor), (int) (cursorPosition.y * SWF.unitDivisor));
         }
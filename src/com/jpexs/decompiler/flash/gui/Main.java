@@ -949,6 +949,7 @@ public class Main {
             }
         } else {
             InputStream fInputStream = inputStream;
+            final boolean fromFile = fis != null;
 
             CancellableWorker<? extends Openable> worker = null;
 
@@ -991,19 +992,20 @@ public class Main {
 
                     private boolean notoall = false;
 
-                    private SWF open(InputStream is, String file, String fileTitle) throws IOException, InterruptedException {
+                    private SWF open(InputStream is, String file, String fileTitle, boolean fromFile) throws IOException, InterruptedException {
                         final CancellableWorker worker = this;
                         String shortName = fileTitle != null ? fileTitle : file;
                         String fileKey = shortName == null ? "" : new File(shortName).getName();
                         SwfSpecificCustomConfiguration conf = Configuration.getSwfSpecificCustomConfiguration(fileKey);
                         String charset = conf == null ? Charset.defaultCharset().name() : conf.getCustomData(CustomConfigurationKeys.KEY_CHARSET, Charset.defaultCharset().name());
 
-                        SWF swf = new SWF(is, file, fileTitle, new ProgressListener() {
+                        ProgressListener listener = new ProgressListener() {
                             @Override
                             public void progress(int p) {
                                 startWork(AppStrings.translate("work.reading.swf"), p, worker);
                             }
-                        }, Configuration.parallelSpeedUp.get(), false, true, new UrlResolver() {
+                        };
+                        UrlResolver resolver = new UrlResolver() {
                             @Override
                             public SWF resolveUrl(final String url) {
                                 int opt = -1;
@@ -1031,7 +1033,7 @@ public class Main {
                                 if (url.startsWith("http://") || url.startsWith("https://")) {
                                     try {
                                         URL u = new URL(url);
-                                        return open(u.openStream(), null, url); //?
+                                        return open(u.openStream(), null, url, false); //?
                                     } catch (Exception ex) {
                                         //ignore
                                     }
@@ -1039,7 +1041,7 @@ public class Main {
                                     File swf = new File(new File(file).getParentFile(), url);
                                     if (swf.exists()) {
                                         try {
-                                            return open(new FileInputStream(swf), swf.getAbsolutePath(), swf.getName());
+                                            return open(new FileInputStream(swf), swf.getAbsolutePath(), swf.getName(), true);
                                         } catch (Exception ex) {
                                             //ignore
                                         }
@@ -1049,7 +1051,7 @@ public class Main {
                                         File gfx = new File(new File(file).getParentFile(), url.substring(0, url.length() - 4) + ".gfx");
                                         if (gfx.exists()) {
                                             try {
-                                                return open(new FileInputStream(gfx), gfx.getAbsolutePath(), gfx.getName());
+                                                return open(new FileInputStream(gfx), gfx.getAbsolutePath(), gfx.getName(), true);
                                             } catch (Exception ex) {
                                                 //ignore
                                             }
@@ -1117,7 +1119,7 @@ public class Main {
                                                 Configuration.lastOpenDir.set(Helper.fixDialogFile(fc.getSelectedFile()).getParentFile().getAbsolutePath());
                                                 File selFile = Helper.fixDialogFile(fc.getSelectedFile());
                                                 try {
-                                                    ret.setVal(open(new FileInputStream(selFile), selFile.getAbsolutePath(), selFile.getName()));
+                                                    ret.setVal(open(new FileInputStream(selFile), selFile.getAbsolutePath(), selFile.getName(), true));
                                                     break;
                                                 } catch (Exception ex) {
                                                     //ignore;
@@ -1130,13 +1132,19 @@ public class Main {
                                 });
                                 return ret.getVal();
                             }
-                        }, charset);
-                        return swf;
+                        };
+
+                        int mappedSize = Configuration.mappedSwfOpenSize.get();
+                        if (fromFile && mappedSize > 0 && new File(file).length() >= mappedSize * 1024L * 1024L) {
+                            logger.log(Level.INFO, "Reading SWF from mapped file");
+                            return new SWF(new File(file), fileTitle, listener, Configuration.parallelSpeedUp.get(), true, resolver, charset);
+                        }
+                        return new SWF(is, file, fileTitle, listener, Configuration.parallelSpeedUp.get(), false, true, resolver, charset);
                     }
 
                     @Override
                     public SWF doInBackground() throws Exception {
-                        return open(fInputStream, sourceInfo.getFile(), sourceInfo.getFileTitle());
+                        return open(fInputStream, sourceInfo.getFile(), sourceInfo.getFileTitle(), fromFile);
                     }
                 };
                 worker = swfWorker;
@@ -1766,11 +1766,11 @@ public class ABCPanel extends JPanel implements ItemListener, SearchListener<Scr
                 tm.method_info = method_info;
                 MethodBody body = new MethodBody(abc, new Traits(), new byte[0], new ABCException[0]);
                 body.method_info = method_info;
-                body.init_scope_depth = 1;
-                body.max_regs = 1;
-                body.max_scope_depth = 1;
-                body.max_stack = 1;
-                body.exceptions = new ABCException[0];
+                body.setInitScopeDepth(1);
+                body.setMaxRegs(1);
+                body.setMaxScopeDepth(1);
+                body.setMaxStack(1);
+                body.setExceptions(new ABCException[0]);
                 AVM2Code code = new AVM2Code();
                 code.code.add(new AVM2Instruction(0, AVM2Instructions.GetLocal0, null));
                 code.code.add(new AVM2Instruction(0, AVM2Instructions.PushScope, null));
@@ -1778,7 +1778,7 @@ public class ABCPanel extends JPanel implements ItemListener, SearchListener<Scr
                 body.setCode(code);
                 Traits traits = new Traits();
                 traits.traits = new ArrayList<>();
-                body.traits = traits;
+                body.setTraits(traits);
                 abc.addMethodBody(body);
                 t = tm;
                 break;
@@ -51,8 +51,9 @@ public final class DumpTreeModel implements TreeModel {
             for (Openable openable : openableList) {
                 if (openable instanceof SWF) {
                     SWF swf = (SWF) openable;
-                    swf.dumpInfo.name = swf.getFileTitle();
-                    root.getChildInfos().add(swf.dumpInfo);
+                    DumpInfo swfDumpInfo = swf.getDumpInfo();
+                    swfDumpInfo.name = swf.getFileTitle();
+                    root.getChildInfos().add(swfDumpInfo);
                 }
             }
         }
@@ -231,8 +231,8 @@ public class AdobeFlashExecutor {
             DoABC2Tag abcTag = as3TestSwfAbcTag;
             ABC abc = abcTag.getABC();
             MethodBody body = abc.findBodyByClassAndName("Run", "run");
-            body.max_stack = 20;
-            body.max_regs = 10;
+            body.setMaxStack(20);
+            body.setMaxRegs(10);
 
             body.setCode(code);
 
@@ -289,8 +289,8 @@ public class AdobeFlashExecutor {
             ABC abc = abcTag.getABC();
             int classId = abc.findClassByName("Run");
             MethodBody body = abc.findBodyByClassAndName("Run", "run");
-            body.max_stack = 20;
-            body.max_regs = 10;
+            body.setMaxStack(20);
+            body.setMaxRegs(10);
 
             Multiname multiname = new Multiname();
             multiname.kind = Multiname.QNAME;
@@ -356,10 +356,10 @@ public class AdobeFlashExecutor {
         TraitMethodGetterSetter methodTrait = abc.addMethod(classId, name, isStatic);
         MethodInfo methodInfo = abc.method_info.get(methodTrait.method_info);
         MethodBody methodBody = abc.findBody(methodInfo);
-        methodBody.max_stack = 10;
-        methodBody.max_regs = 10;
-        methodBody.init_scope_depth = 3;
-        methodBody.max_scope_depth = 10;
+        methodBody.setMaxStack(10);
+        methodBody.setMaxRegs(10);
+        methodBody.setInitScopeDepth(3);
+        methodBody.setMaxScopeDepth(10);
 
         methodBody.setCode(code);
         methodBody.autoFillMaxRegs(abc);